@@ -21,20 +21,28 @@ package org.apache.flink.agents.api;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 
-/** Base class for all event types in the system. */
+/**
+ * Base class for all event types in the system.
+ *
+ * <p>Events are created several times per input, so creating one is kept cheap: the id is taken
+ * from {@link EventIdGenerator} instead of the shared {@link java.security.SecureRandom} behind
+ * {@link UUID#randomUUID()}, and the attributes map is only allocated once an attribute is set.
+ */
 public abstract class Event {
     private final UUID id;
-    private final Map<String, Object> attributes;
+    /** The attributes of the event, or null if no attribute has been set. */
+    private Map<String, Object> attributes;
     /** The timestamp of the source record. */
     private Long sourceTimestamp;
 
     public Event() {
-        this(UUID.randomUUID(), new HashMap<>());
+        this(EventIdGenerator.nextId(), null);
     }
 
     @JsonCreator
@@ -49,15 +57,22 @@ public abstract class Event {
         return id;
     }
 
+    /**
+     * Returns the attributes of the event. The returned map is read-only if no attribute has been
+     * set, so attributes must be set through {@link #setAttr}.
+     */
     public Map<String, Object> getAttributes() {
-        return attributes;
+        return attributes == null ? Collections.emptyMap() : attributes;
     }
 
     public Object getAttr(String name) {
-        return attributes.get(name);
+        return attributes == null ? null : attributes.get(name);
     }
 
     public void setAttr(String name, Object value) {
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
         attributes.put(name, value);
     }
 
@@ -79,11 +94,11 @@ public abstract class Event {
         if (o == null || getClass() != o.getClass()) return false;
         Event other = (Event) o;
         return Objects.equals(this.id, other.id)
-                && Objects.equals(this.attributes, other.attributes);
+                && Objects.equals(this.getAttributes(), other.getAttributes());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, attributes);
+        return Objects.hash(id, getAttributes());
     }
 }
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates the ids of events as version 7 UUIDs, which combine a millisecond timestamp with a
+ * counter and a random node.
+ *
+ * <p>Each thread generates ids on its own, so the subtasks running in the slots of a task manager
+ * do not contend with each other. A thread draws a random 62-bit node once, and the ids it
+ * generates are strictly increasing: the timestamp and counter part of an id is greater than the
+ * one of the previous id, even if more than 4096 ids are generated within one millisecond, in which
+ * case the timestamp runs slightly ahead of the clock. Ids of different threads differ in their
+ * node.
+ */
+final class EventIdGenerator {
+
+    private static final int COUNTER_BITS = 12;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+    private static final long NODE_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+
+    private static final ThreadLocal<EventIdGenerator> GENERATORS =
+            ThreadLocal.withInitial(EventIdGenerator::new);
+
+    /** The 62-bit random node of the thread, with the variant bits set. */
+    private final long leastSigBits;
+
+    /** The timestamp in milliseconds and the counter of the last id, shifted together. */
+    private long lastSequence;
+
+    private EventIdGenerator() {
+        this.leastSigBits = VARIANT | (ThreadLocalRandom.current().nextLong() & NODE_MASK);
+    }
+
+    /** Returns a new event id. */
+    static UUID nextId() {
+        return GENERATORS.get().generate();
+    }
+
+    private UUID generate() {
+        long sequence = Math.max(lastSequence + 1, System.currentTimeMillis() << COUNTER_BITS);
+        lastSequence = sequence;
+        long timestamp = sequence >>> COUNTER_BITS;
+        long mostSigBits = (timestamp << 16) | VERSION | (sequence & COUNTER_MASK);
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
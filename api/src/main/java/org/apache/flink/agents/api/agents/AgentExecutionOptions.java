@@ -34,9 +34,135 @@ public class AgentExecutionOptions {
     public static final ConfigOption<Boolean> CHAT_ASYNC =
             new ConfigOption<>("chat.async", Boolean.class, true);
 
+    // Whether the built-in chat action streams the responses of chat models whose connection
+    // supports streaming, recording their time to first token and tokens per second.
+    public static final ConfigOption<Boolean> CHAT_STREAMING =
+            new ConfigOption<>("chat.streaming", Boolean.class, false);
+
+    // Whether the built-in chat action sends a PartialChatResponseEvent for each delta of a
+    // streamed response, only takes effect when chat responses are streamed.
+    public static final ConfigOption<Boolean> CHAT_STREAMING_PARTIAL_EVENTS =
+            new ConfigOption<>("chat.streaming.partial-events", Boolean.class, false);
+
     public static final ConfigOption<Boolean> TOOL_CALL_ASYNC =
             new ConfigOption<>("tool-call.async", Boolean.class, true);
 
+    // The maximum number of tool calls of one tool request executed at the same time, only takes
+    // effect when tool calls are async.
+    public static final ConfigOption<Integer> TOOL_CALL_MAX_CONCURRENCY =
+            new ConfigOption<>("tool-call.max-concurrency", Integer.class, 8);
+
     public static final ConfigOption<Boolean> RAG_ASYNC =
             new ConfigOption<>("rag.async", Boolean.class, true);
+
+    // The executor used to run durable async calls, only takes effect on jdk >= 21.
+    public static final ConfigOption<AsyncExecutorType> ASYNC_EXECUTOR_TYPE =
+            new ConfigOption<>(
+                    "async.executor-type", AsyncExecutorType.class, AsyncExecutorType.PLATFORM);
+
+    // The number of threads of the platform or shared executor, defaults to twice the number of
+    // available processors if not set.
+    public static final ConfigOption<Integer> ASYNC_EXECUTOR_POOL_SIZE =
+            new ConfigOption<>("async.executor-pool-size", Integer.class, null);
+
+    // The number of threads of the shared executor, defaults to twice the number of available
+    // processors if not set. The shared executor is sized once for the whole job, so this must be
+    // set in the job configuration rather than per agent.
+    public static final ConfigOption<Integer> ASYNC_SHARED_EXECUTOR_POOL_SIZE =
+            new ConfigOption<>("async.shared-executor-pool-size", Integer.class, null);
+
+    // Comma separated names of the bulkheads isolating durable async calls by kind, each of them
+    // is configured by the "async.bulkhead.<name>.*" options.
+    public static final ConfigOption<String> ASYNC_BULKHEADS =
+            new ConfigOption<>("async.bulkheads", String.class, null);
+
+    // The timeout in milliseconds of each durable async call, no timeout if not set. It can be
+    // overridden for an action by setting the same key in the config of the action.
+    public static final ConfigOption<Long> ASYNC_CALL_TIMEOUT_MS =
+            new ConfigOption<>("async.call-timeout-ms", Long.class, null);
+
+    // The timeout in milliseconds of processing one input, no timeout if not set. Durable async
+    // calls made for an input are cancelled once its timeout expires.
+    public static final ConfigOption<Long> INPUT_TIMEOUT_MS =
+            new ConfigOption<>("input.timeout-ms", Long.class, null);
+
+    // The maximum number of input records ingested together in one batch. Batching amortizes the
+    // per-record overhead of cheap agents, it is disabled if set to 1.
+    public static final ConfigOption<Integer> INPUT_BATCH_MAX_SIZE =
+            new ConfigOption<>("input.batch.max-size", Integer.class, 1);
+
+    // The maximum time in milliseconds an input record waits for its batch to be full before the
+    // batch is ingested.
+    public static final ConfigOption<Long> INPUT_BATCH_MAX_DELAY_MS =
+            new ConfigOption<>("input.batch.max-delay-ms", Long.class, 10L);
+
+    // Whether every event sent to the context is checked to be JSON serializable. Otherwise the
+    // check is done only for the first event of each class sent by an action.
+    public static final ConfigOption<Boolean> EVENT_STRICT_SERIALIZABILITY_CHECK =
+            new ConfigOption<>("event.strict-serializability-check", Boolean.class, false);
+
+    // How watermarks are held back until the inputs received before them are finished.
+    public static final ConfigOption<WatermarkPolicy> WATERMARK_POLICY =
+            new ConfigOption<>("watermark.policy", WatermarkPolicy.class, WatermarkPolicy.STRICT);
+
+    // The maximum time in milliseconds a watermark is held back under the BOUNDED_LAG policy.
+    public static final ConfigOption<Long> WATERMARK_MAX_HOLDBACK_MS =
+            new ConfigOption<>("watermark.max-holdback-ms", Long.class, 60_000L);
+
+    // The time in milliseconds after which a key stops holding back watermarks under the
+    // EXCLUDE_STUCK_KEYS policy.
+    public static final ConfigOption<Long> WATERMARK_STUCK_KEY_THRESHOLD_MS =
+            new ConfigOption<>("watermark.stuck-key-threshold-ms", Long.class, 60_000L);
+
+    // The maximum number of inputs of one key processed at the same time. Values greater than 1
+    // require the actions not to use short-term memory, since the inputs would otherwise race on
+    // it.
+    public static final ConfigOption<Integer> KEY_CONCURRENCY =
+            new ConfigOption<>("key-concurrency", Integer.class, 1);
+
+    // The order in which outputs of the inputs of one key processed at the same time are emitted,
+    // only takes effect when key-concurrency is greater than 1.
+    public static final ConfigOption<OutputOrder> KEY_CONCURRENCY_OUTPUT_ORDER =
+            new ConfigOption<>(
+                    "key-concurrency.output-order", OutputOrder.class, OutputOrder.ORDERED);
+
+    /** The kind of executor running durable async calls. */
+    public enum AsyncExecutorType {
+        /** A bounded pool of platform threads owned by each operator. */
+        PLATFORM,
+        /** A new virtual thread per call, so blocking calls do not occupy platform threads. */
+        VIRTUAL,
+        /** A bounded pool of platform threads shared by all operators in the TaskManager. */
+        SHARED
+    }
+
+    /** How watermarks are held back until the inputs received before them are finished. */
+    public enum WatermarkPolicy {
+        /** Hold back a watermark until all the inputs received before it are finished. */
+        STRICT,
+        /**
+         * Hold back a watermark for at most {@code watermark.max-holdback-ms}, outputs of the
+         * inputs received before it may then be late.
+         */
+        BOUNDED_LAG,
+        /**
+         * Hold back a watermark until all the inputs received before it are finished, except for
+         * keys processing the same inputs for longer than {@code watermark.stuck-key-threshold-ms},
+         * whose outputs may then be late.
+         */
+        EXCLUDE_STUCK_KEYS
+    }
+
+    /**
+     * The order in which outputs of the inputs of one key processed at the same time are emitted.
+     */
+    public enum OutputOrder {
+        /**
+         * Emit the outputs of an input only after the inputs of the same key received before it are
+         * finished, so outputs of one key keep the order of the inputs.
+         */
+        ORDERED,
+        /** Emit the outputs of an input as soon as they are generated. */
+        UNORDERED
+    }
 }
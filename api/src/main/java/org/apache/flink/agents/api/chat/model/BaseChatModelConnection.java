@@ -24,10 +24,19 @@ import org.apache.flink.agents.api.resource.Resource;
 import org.apache.flink.agents.api.resource.ResourceDescriptor;
 import org.apache.flink.agents.api.resource.ResourceType;
 import org.apache.flink.agents.api.tools.Tool;
+import org.apache.flink.agents.api.tools.ToolMetadata;
 
+import javax.annotation.Nullable;
+
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Abstraction of chat model connection.
@@ -37,9 +46,59 @@ import java.util.function.BiFunction;
  */
 public abstract class BaseChatModelConnection extends Resource {
 
+    private static final int MAX_TOOL_DEFINITIONS = 1024;
+
+    /** The limiter of the requests of this connection, or null if requests are not limited. */
+    @Nullable private final ChatModelRateLimiter rateLimiter;
+
+    /** The definitions of tools in the format of the provider, by tool metadata and variant. */
+    private final Map<List<Object>, Object> toolDefinitions = new ConcurrentHashMap<>();
+
     public BaseChatModelConnection(
             ResourceDescriptor descriptor, BiFunction<String, ResourceType, Resource> getResource) {
         super(descriptor, getResource);
+        this.rateLimiter = createRateLimiter(descriptor);
+    }
+
+    /**
+     * Creates the rate limiter configured by the "max_requests_per_minute", "max_tokens_per_minute"
+     * and "max_concurrency" arguments, or returns null if none of them is set.
+     */
+    @Nullable
+    private ChatModelRateLimiter createRateLimiter(ResourceDescriptor descriptor) {
+        if (descriptor == null) {
+            return null;
+        }
+        Number requestsPerMinute = descriptor.getArgument("max_requests_per_minute");
+        Number tokensPerMinute = descriptor.getArgument("max_tokens_per_minute");
+        Number maxConcurrency = descriptor.getArgument("max_concurrency");
+        if (requestsPerMinute == null && tokensPerMinute == null && maxConcurrency == null) {
+            return null;
+        }
+        return new ChatModelRateLimiter(
+                requestsPerMinute != null ? requestsPerMinute.longValue() : null,
+                tokensPerMinute != null ? tokensPerMinute.longValue() : null,
+                maxConcurrency != null ? maxConcurrency.intValue() : null,
+                this::isRateLimitError);
+    }
+
+    /** Returns the limiter of the requests of this connection, or null if there is none. */
+    @Nullable
+    public ChatModelRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Returns whether the given error, or one of its causes, means that a request was rejected by
+     * the rate limit of the model service. By default, this recognizes errors whose class name
+     * contains "RateLimit" and errors mentioning the HTTP status 429.
+     */
+    protected boolean isRateLimitError(Throwable error) {
+        if (error.getClass().getSimpleName().contains("RateLimit")) {
+            return true;
+        }
+        String message = error.getMessage();
+        return message != null && message.contains("429");
     }
 
     @Override
@@ -58,6 +117,124 @@ public abstract class BaseChatModelConnection extends Resource {
     public abstract ChatMessage chat(
             List<ChatMessage> messages, List<Tool> tools, Map<String, Object> arguments);
 
+    /**
+     * Process a chat request without blocking and return the future of the chat response.
+     *
+     * <p>Connections whose client supports non-blocking requests override this method together with
+     * {@link #supportsNonBlockingChat()}. By default, this calls {@link #chat} and blocks the
+     * calling thread until the response is received.
+     *
+     * @param messages the input chat messages
+     * @param tools the tools can be called by the model
+     * @param arguments the additional arguments passed to the model
+     * @return the future of the chat response containing model outputs
+     */
+    public CompletableFuture<ChatMessage> chatAsync(
+            List<ChatMessage> messages, List<Tool> tools, Map<String, Object> arguments) {
+        try {
+            return CompletableFuture.completedFuture(chat(messages, tools, arguments));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Returns whether {@link #chatAsync} sends requests without blocking the calling thread, so
+     * that it can be called on the thread running the action.
+     */
+    public boolean supportsNonBlockingChat() {
+        return false;
+    }
+
+    /**
+     * Process a chat request and stream the response.
+     *
+     * <p>The text of the response is passed to the given consumer in deltas as the model generates
+     * it, on the calling thread. Connections whose model service supports streaming override this
+     * method together with {@link #supportsStreaming()}. By default, this calls {@link #chat} and
+     * passes the whole content of the response as a single delta.
+     *
+     * @param messages the input chat messages
+     * @param tools the tools can be called by the model
+     * @param arguments the additional arguments passed to the model
+     * @param onDelta the consumer of the text deltas of the response
+     * @return the complete chat response containing model outputs
+     */
+    public ChatMessage chatStream(
+            List<ChatMessage> messages,
+            List<Tool> tools,
+            Map<String, Object> arguments,
+            Consumer<String> onDelta) {
+        ChatMessage response = chat(messages, tools, arguments);
+        String content = response.getContent();
+        if (content != null && !content.isEmpty()) {
+            onDelta.accept(content);
+        }
+        return response;
+    }
+
+    /** Returns whether {@link #chatStream} passes the response in deltas as it is generated. */
+    public boolean supportsStreaming() {
+        return false;
+    }
+
+    /**
+     * Record the latency metrics of a streamed response for the given model.
+     *
+     * @param modelName the name of the model used
+     * @param timeToFirstTokenNanos the time from sending the request to receiving the first delta
+     * @param completionTokens the number of completion tokens
+     * @param generationNanos the time from receiving the first delta to the end of the response
+     */
+    protected void recordStreamingMetrics(
+            String modelName,
+            long timeToFirstTokenNanos,
+            long completionTokens,
+            long generationNanos) {
+        FlinkAgentsMetricGroup metricGroup = getMetricGroup();
+        if (metricGroup == null) {
+            return;
+        }
+
+        FlinkAgentsMetricGroup modelGroup = metricGroup.getSubGroup(modelName);
+        modelGroup
+                .getHistogram("timeToFirstTokenMs")
+                .update(TimeUnit.NANOSECONDS.toMillis(timeToFirstTokenNanos));
+        if (completionTokens > 0 && generationNanos > 0) {
+            modelGroup
+                    .getHistogram("tokensPerSecond")
+                    .update(completionTokens * TimeUnit.SECONDS.toNanos(1) / generationNanos);
+        }
+    }
+
+    /**
+     * Returns the definition of a tool in the format of the provider. The definition is converted
+     * from the metadata of the tool once, and reused by later requests. Definitions are looked up
+     * by the metadata, so a tool whose name, description or input schema changes is converted
+     * again.
+     *
+     * @param tool the tool
+     * @param variant distinguishes the definitions of a tool converted differently, e.g. with
+     *     strict schemas, or null
+     * @param converter converts the metadata of the tool to its definition
+     * @return the definition of the tool
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> T getToolDefinition(
+            Tool tool, @Nullable Object variant, Function<ToolMetadata, T> converter) {
+        List<Object> key = Arrays.asList(tool.getMetadata(), variant);
+        Object definition = toolDefinitions.get(key);
+        if (definition == null) {
+            if (toolDefinitions.size() >= MAX_TOOL_DEFINITIONS) {
+                // Tools are rarely redefined, so this only bounds the definitions of stale tools.
+                toolDefinitions.clear();
+            }
+            definition = converter.apply(tool.getMetadata());
+            toolDefinitions.put(key, definition);
+        }
+        return (T) definition;
+    }
+
     /**
      * Record token usage metrics for the given model.
      *
@@ -66,6 +243,9 @@ public abstract class BaseChatModelConnection extends Resource {
      * @param completionTokens the number of completion tokens
      */
     protected void recordTokenMetrics(String modelName, long promptTokens, long completionTokens) {
+        if (rateLimiter != null) {
+            rateLimiter.recordCompletionTokens(completionTokens);
+        }
         FlinkAgentsMetricGroup metricGroup = getMetricGroup();
         if (metricGroup == null) {
             return;
@@ -75,4 +255,24 @@ public abstract class BaseChatModelConnection extends Resource {
         modelGroup.getCounter("promptTokens").inc(promptTokens);
         modelGroup.getCounter("completionTokens").inc(completionTokens);
     }
+
+    /**
+     * Record prompt cache metrics for the given model. The tokens are part of the prompt tokens
+     * recorded by {@link #recordTokenMetrics}.
+     *
+     * @param modelName the name of the model used
+     * @param cacheReadTokens the number of prompt tokens read from the prompt cache
+     * @param cacheWriteTokens the number of prompt tokens written to the prompt cache
+     */
+    protected void recordPromptCacheMetrics(
+            String modelName, long cacheReadTokens, long cacheWriteTokens) {
+        FlinkAgentsMetricGroup metricGroup = getMetricGroup();
+        if (metricGroup == null) {
+            return;
+        }
+
+        FlinkAgentsMetricGroup modelGroup = metricGroup.getSubGroup(modelName);
+        modelGroup.getCounter("cachedPromptTokens").inc(cacheReadTokens);
+        modelGroup.getCounter("cacheWritePromptTokens").inc(cacheWriteTokens);
+    }
 }
@@ -20,26 +20,62 @@ package org.apache.flink.agents.api.chat.model;
 
 import org.apache.flink.agents.api.chat.messages.ChatMessage;
 import org.apache.flink.agents.api.chat.messages.MessageRole;
+import org.apache.flink.agents.api.embedding.model.BaseEmbeddingModelSetup;
+import org.apache.flink.agents.api.metrics.FlinkAgentsMetricGroup;
 import org.apache.flink.agents.api.prompt.Prompt;
 import org.apache.flink.agents.api.resource.Resource;
 import org.apache.flink.agents.api.resource.ResourceDescriptor;
 import org.apache.flink.agents.api.resource.ResourceType;
 import org.apache.flink.agents.api.tools.Tool;
 import org.apache.flink.annotation.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public abstract class BaseChatModelSetup extends Resource {
+    private static final Logger LOG = LoggerFactory.getLogger(BaseChatModelSetup.class);
+
+    private static final long DEFAULT_RESPONSE_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+    private static final double DEFAULT_SEMANTIC_CACHE_THRESHOLD = 0.95;
+    private static final int DEFAULT_SEMANTIC_CACHE_MAX_ENTRIES = 1000;
+
     protected final String connection;
     protected String model;
     protected Object prompt;
     protected List<String> tools;
 
+    /** The resolved tools, or null if they have not been resolved yet. */
+    @Nullable private volatile List<Tool> resolvedTools;
+
+    /** The cache of the responses of this chat model, or null if responses are not cached. */
+    @Nullable private final ChatResponseCache responseCache;
+
+    /** The embedding model of the semantic response cache, or null if there is none. */
+    @Nullable private final String semanticCacheEmbeddingModel;
+
+    /** The semantic cache of the responses of this chat model, or null if there is none. */
+    @Nullable private final SemanticChatResponseCache semanticCache;
+
+    /** The token budget of the messages of a request, or null if the messages are not trimmed. */
+    @Nullable private final ChatContextBudget contextBudget;
+
+    /** The chat model summarizing older turns to fit the budget, or null if there is none. */
+    @Nullable private final String contextSummaryModel;
+
     public BaseChatModelSetup(
             ResourceDescriptor descriptor, BiFunction<String, ResourceType, Resource> getResource) {
         super(descriptor, getResource);
@@ -47,6 +83,85 @@ public abstract class BaseChatModelSetup extends Resource {
         this.model = descriptor.getArgument("model");
         this.prompt = descriptor.getArgument("prompt");
         this.tools = descriptor.getArgument("tools");
+        this.responseCache = createResponseCache(descriptor);
+        this.semanticCacheEmbeddingModel = descriptor.getArgument("semantic_cache_embedding_model");
+        this.semanticCache =
+                semanticCacheEmbeddingModel != null ? createSemanticCache(descriptor) : null;
+        this.contextBudget = createContextBudget(descriptor);
+        this.contextSummaryModel = descriptor.getArgument("context_summary_model");
+    }
+
+    /**
+     * Creates the response cache configured by the "response_cache_max_entries", optionally
+     * together with the "response_cache_max_bytes" and "response_cache_ttl_ms" arguments.
+     */
+    @Nullable
+    private static ChatResponseCache createResponseCache(ResourceDescriptor descriptor) {
+        Number maxEntries = descriptor.getArgument("response_cache_max_entries");
+        if (maxEntries == null || maxEntries.intValue() <= 0) {
+            return null;
+        }
+        Number maxBytes =
+                descriptor.getArgument(
+                        "response_cache_max_bytes", DEFAULT_RESPONSE_CACHE_MAX_BYTES);
+        Number ttlMs = descriptor.getArgument("response_cache_ttl_ms");
+        return new ChatResponseCache(
+                maxEntries.intValue(),
+                maxBytes.longValue(),
+                ttlMs != null ? ttlMs.longValue() : null);
+    }
+
+    /**
+     * Creates the semantic response cache configured by the "semantic_cache_threshold",
+     * "semantic_cache_max_entries" and "semantic_cache_ttl_ms" arguments.
+     */
+    private static SemanticChatResponseCache createSemanticCache(ResourceDescriptor descriptor) {
+        Number threshold =
+                descriptor.getArgument(
+                        "semantic_cache_threshold", DEFAULT_SEMANTIC_CACHE_THRESHOLD);
+        Number maxEntries =
+                descriptor.getArgument(
+                        "semantic_cache_max_entries", DEFAULT_SEMANTIC_CACHE_MAX_ENTRIES);
+        Number ttlMs = descriptor.getArgument("semantic_cache_ttl_ms");
+        return new SemanticChatResponseCache(
+                threshold.doubleValue(),
+                maxEntries.intValue(),
+                ttlMs != null ? ttlMs.longValue() : null);
+    }
+
+    /**
+     * Creates the context budget configured by the "context_budget_tokens", optionally together
+     * with the "context_budget_max_tool_result_tokens" and "context_budget_token_estimator"
+     * arguments.
+     */
+    @Nullable
+    private static ChatContextBudget createContextBudget(ResourceDescriptor descriptor) {
+        Number maxTokens = descriptor.getArgument("context_budget_tokens");
+        if (maxTokens == null || maxTokens.intValue() <= 0) {
+            return null;
+        }
+        Number maxToolResultTokens =
+                descriptor.getArgument(
+                        "context_budget_max_tool_result_tokens", maxTokens.intValue() / 4);
+        String estimatorClass = descriptor.getArgument("context_budget_token_estimator");
+        ChatTokenEstimator estimator = ChatTokenEstimator.CHARS_PER_TOKEN;
+        if (estimatorClass != null) {
+            try {
+                estimator =
+                        Class.forName(
+                                        estimatorClass,
+                                        true,
+                                        Thread.currentThread().getContextClassLoader())
+                                .asSubclass(ChatTokenEstimator.class)
+                                .getDeclaredConstructor()
+                                .newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IllegalArgumentException(
+                        "Invalid context_budget_token_estimator " + estimatorClass + ".", e);
+            }
+        }
+        return new ChatContextBudget(
+                maxTokens.intValue(), Math.max(1, maxToolResultTokens.intValue()), estimator);
     }
 
     public abstract Map<String, Object> getParameters();
@@ -56,13 +171,444 @@ public abstract class BaseChatModelSetup extends Resource {
     }
 
     public ChatMessage chat(List<ChatMessage> messages, Map<String, Object> parameters) {
+        BaseChatModelConnection connection = getChatModelConnection();
+        if (connection.getRateLimiter() != null && supportsNonBlockingChat()) {
+            // Rate limited requests wait for their permit on the non-blocking path, which holds no
+            // thread until the request is sent.
+            return join(chatAsync(messages, parameters));
+        }
+        List<ChatMessage> formattedMessages = formatMessages(messages);
+        List<Tool> tools = resolveTools();
+        Map<String, Object> params = params(parameters);
+        if (responseCache == null && semanticCache == null) {
+            return callLimited(
+                    connection,
+                    formattedMessages,
+                    params,
+                    () -> connection.chat(formattedMessages, tools, params));
+        }
+        return join(
+                getResponse(
+                        formattedMessages,
+                        tools,
+                        params,
+                        () -> {
+                            try {
+                                return CompletableFuture.completedFuture(
+                                        callLimited(
+                                                connection,
+                                                formattedMessages,
+                                                params,
+                                                () ->
+                                                        connection.chat(
+                                                                formattedMessages, tools, params)));
+                            } catch (Exception e) {
+                                return CompletableFuture.failedFuture(e);
+                            }
+                        }));
+    }
+
+    /**
+     * Sends the chat request without blocking if the connection {@link #supportsNonBlockingChat()
+     * supports it}. Otherwise, this calls {@link #chat} and blocks until the response is received.
+     */
+    public CompletableFuture<ChatMessage> chatAsync(
+            List<ChatMessage> messages, Map<String, Object> parameters) {
+        if (!supportsNonBlockingChat()) {
+            try {
+                return CompletableFuture.completedFuture(chat(messages, parameters));
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        BaseChatModelConnection connection = getChatModelConnection();
+        List<ChatMessage> formattedMessages = formatMessages(messages);
+        List<Tool> tools = resolveTools();
+        Map<String, Object> params = params(parameters);
+        if (responseCache == null) {
+            return callLimitedAsync(
+                    connection,
+                    formattedMessages,
+                    params,
+                    () -> connection.chatAsync(formattedMessages, tools, params));
+        }
+        return getCachedResponse(
+                formattedMessages,
+                tools,
+                params,
+                () ->
+                        callLimitedAsync(
+                                connection,
+                                formattedMessages,
+                                params,
+                                () -> connection.chatAsync(formattedMessages, tools, params)));
+    }
+
+    /**
+     * Returns whether the connection of this chat model sends requests without blocking. Requests
+     * are blocking if the semantic cache is enabled, since the embedding model embeds them on the
+     * calling thread before the cache is looked up.
+     */
+    public boolean supportsNonBlockingChat() {
+        return connection != null
+                && semanticCache == null
+                && getChatModelConnection().supportsNonBlockingChat();
+    }
+
+    /**
+     * Sends the chat request and passes the text of the response to the given consumer in deltas as
+     * the model generates it, if the connection {@link #supportsStreaming() supports it}.
+     * Otherwise, or if the response is cached, this passes the whole content of the response as a
+     * single delta.
+     *
+     * @see BaseChatModelConnection#chatStream
+     */
+    public ChatMessage chatStream(
+            List<ChatMessage> messages, Map<String, Object> parameters, Consumer<String> onDelta) {
+        if (!supportsStreaming()) {
+            return passAsSingleDelta(chat(messages, parameters), onDelta);
+        }
+        BaseChatModelConnection connection = getChatModelConnection();
+        List<ChatMessage> formattedMessages = formatMessages(messages);
+        List<Tool> tools = resolveTools();
+        Map<String, Object> params = params(parameters);
+        if (responseCache == null && semanticCache == null) {
+            return callLimited(
+                    connection,
+                    formattedMessages,
+                    params,
+                    () -> connection.chatStream(formattedMessages, tools, params, onDelta));
+        }
+        AtomicBoolean streamed = new AtomicBoolean();
+        ChatMessage response =
+                join(
+                        getResponse(
+                                formattedMessages,
+                                tools,
+                                params,
+                                () -> {
+                                    streamed.set(true);
+                                    try {
+                                        return CompletableFuture.completedFuture(
+                                                callLimited(
+                                                        connection,
+                                                        formattedMessages,
+                                                        params,
+                                                        () ->
+                                                                connection.chatStream(
+                                                                        formattedMessages,
+                                                                        tools,
+                                                                        params,
+                                                                        onDelta)));
+                                    } catch (Exception e) {
+                                        return CompletableFuture.failedFuture(e);
+                                    }
+                                }));
+        return streamed.get() ? response : passAsSingleDelta(response, onDelta);
+    }
+
+    /**
+     * Returns whether the connection of this chat model streams responses as they are generated.
+     */
+    public boolean supportsStreaming() {
+        return connection != null && getChatModelConnection().supportsStreaming();
+    }
+
+    /** Returns the response cache of this chat model, or null if responses are not cached. */
+    @Nullable
+    public ChatResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /** Returns the semantic response cache of this chat model, or null if there is none. */
+    @Nullable
+    public SemanticChatResponseCache getSemanticCache() {
+        return semanticCache;
+    }
+
+    /**
+     * Returns the response from the semantic cache or, if there is no similar request, from the
+     * exact-match cache or, if there is no identical request either, by calling the model.
+     */
+    private CompletableFuture<ChatMessage> getResponse(
+            List<ChatMessage> messages,
+            List<Tool> tools,
+            Map<String, Object> params,
+            Supplier<CompletableFuture<ChatMessage>> call) {
+        Supplier<CompletableFuture<ChatMessage>> loader =
+                responseCache == null
+                        ? call
+                        : () -> getCachedResponse(messages, tools, params, call);
+        if (semanticCache == null) {
+            return loader.get();
+        }
+
+        int last = messages.size() - 1;
+        if (last < 0
+                || messages.get(last).getRole() != MessageRole.USER
+                || messages.get(last).getContent() == null
+                || messages.get(last).getContent().isEmpty()) {
+            return loader.get();
+        }
+        String namespace =
+                ChatResponseCache.key(connection, messages.subList(0, last), tools, params)
+                        .getHash();
+        float[] embedding;
+        try {
+            embedding = getSemanticCacheEmbeddingModel().embed(messages.get(last).getContent());
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to embed the chat request, bypassing the semantic cache.", e);
+            return loader.get();
+        }
+
+        ChatMessage cached = semanticCache.lookup(namespace, embedding);
+        recordSemanticCacheMetrics(params);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        long start = System.nanoTime();
+        return loader.get()
+                .whenComplete(
+                        (response, t) -> {
+                            if (t == null) {
+                                semanticCache.put(
+                                        namespace, embedding, response, System.nanoTime() - start);
+                            }
+                        });
+    }
+
+    private CompletableFuture<ChatMessage> getCachedResponse(
+            List<ChatMessage> messages,
+            List<Tool> tools,
+            Map<String, Object> params,
+            Supplier<CompletableFuture<ChatMessage>> loader) {
+        ChatResponseCache.Key key = ChatResponseCache.key(connection, messages, tools, params);
+        Object modelName = params.get("model");
+        FlinkAgentsMetricGroup metricGroup = getMetricGroup();
+        return responseCache
+                .get(key, loader)
+                .whenComplete(
+                        (response, t) -> {
+                            if (metricGroup != null && modelName != null) {
+                                recordResponseCacheMetrics(
+                                        metricGroup.getSubGroup(modelName.toString()));
+                            }
+                        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void recordSemanticCacheMetrics(Map<String, Object> params) {
+        Object modelName = params.get("model");
+        FlinkAgentsMetricGroup metricGroup = getMetricGroup();
+        if (metricGroup == null || modelName == null) {
+            return;
+        }
+        FlinkAgentsMetricGroup modelGroup = metricGroup.getSubGroup(modelName.toString());
+        modelGroup.getGauge("semanticCacheHitRate").update(semanticCache.getHitRate());
+        modelGroup
+                .getGauge("semanticCacheSavedLatencyMs")
+                .update(semanticCache.getSavedLatencyMs());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void recordResponseCacheMetrics(FlinkAgentsMetricGroup modelGroup) {
+        modelGroup.getGauge("responseCacheHitRate").update(responseCache.getHitRate());
+        modelGroup.getGauge("responseCacheBytes").update(responseCache.getBytesUsed());
+        modelGroup.getGauge("responseCacheSavedTokens").update(responseCache.getSavedTokens());
+    }
+
+    /**
+     * Calls the model on the calling thread once the rate limiter of the connection, if any,
+     * permits the request. This is only used for requests sent blocking, including streamed ones,
+     * whose calling thread waits for the response anyway.
+     */
+    private ChatMessage callLimited(
+            BaseChatModelConnection connection,
+            List<ChatMessage> messages,
+            Map<String, Object> params,
+            Supplier<ChatMessage> call) {
+        ChatModelRateLimiter limiter = connection.getRateLimiter();
+        if (limiter == null) {
+            return call.get();
+        }
+        CompletableFuture<ChatModelRateLimiter.Permit> pendingPermit =
+                limiter.acquire(limiter.estimateTokens(countChars(messages)));
+        recordRateLimiterMetrics(limiter, params);
+        ChatModelRateLimiter.Permit permit;
+        try {
+            permit = pendingPermit.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!pendingPermit.cancel(false)) {
+                pendingPermit.join().release(0, e);
+            }
+            throw new IllegalStateException(
+                    "Interrupted while waiting for a rate limit permit.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        long start = System.nanoTime();
+        Throwable error = null;
+        try {
+            return call.get();
+        } catch (Throwable t) {
+            error = t;
+            throw t;
+        } finally {
+            permit.release(System.nanoTime() - start, error);
+            recordRateLimiterMetrics(limiter, params);
+        }
+    }
+
+    /**
+     * Calls the model without blocking once the rate limiter of the connection, if any, permits the
+     * request.
+     */
+    private CompletableFuture<ChatMessage> callLimitedAsync(
+            BaseChatModelConnection connection,
+            List<ChatMessage> messages,
+            Map<String, Object> params,
+            Supplier<CompletableFuture<ChatMessage>> call) {
+        ChatModelRateLimiter limiter = connection.getRateLimiter();
+        if (limiter == null) {
+            return call.get();
+        }
+        CompletableFuture<ChatModelRateLimiter.Permit> pendingPermit =
+                limiter.acquire(limiter.estimateTokens(countChars(messages)));
+        recordRateLimiterMetrics(limiter, params);
+        CompletableFuture<ChatMessage> response =
+                pendingPermit.thenCompose(
+                        permit -> {
+                            long start = System.nanoTime();
+                            CompletableFuture<ChatMessage> result;
+                            try {
+                                result = call.get();
+                            } catch (RuntimeException e) {
+                                result = CompletableFuture.failedFuture(e);
+                            }
+                            return result.whenComplete(
+                                    (message, t) -> {
+                                        permit.release(System.nanoTime() - start, t);
+                                        recordRateLimiterMetrics(limiter, params);
+                                    });
+                        });
+        // A request that no longer waits for its response stops waiting for its permit.
+        response.whenComplete(
+                (message, t) -> {
+                    if (response.isCancelled()) {
+                        pendingPermit.cancel(false);
+                    }
+                });
+        return response;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void recordRateLimiterMetrics(
+            ChatModelRateLimiter limiter, Map<String, Object> params) {
+        Object modelName = params.get("model");
+        FlinkAgentsMetricGroup metricGroup = getMetricGroup();
+        if (metricGroup == null || modelName == null) {
+            return;
+        }
+        FlinkAgentsMetricGroup modelGroup = metricGroup.getSubGroup(modelName.toString());
+        modelGroup.getGauge("rateLimiterPermitsInUse").update(limiter.getPermitsInUse());
+        modelGroup.getGauge("rateLimiterQueuedRequests").update(limiter.getQueuedRequests());
+        modelGroup.getGauge("rateLimiterConcurrencyLimit").update(limiter.getConcurrencyLimit());
+    }
+
+    private static long countChars(List<ChatMessage> messages) {
+        long chars = 0;
+        for (ChatMessage message : messages) {
+            if (message.getContent() != null) {
+                chars += message.getContent().length();
+            }
+        }
+        return chars;
+    }
+
+    private static ChatMessage passAsSingleDelta(ChatMessage response, Consumer<String> onDelta) {
+        String content = response.getContent();
+        if (content != null && !content.isEmpty()) {
+            onDelta.accept(content);
+        }
+        return response;
+    }
+
+    private static ChatMessage join(CompletableFuture<ChatMessage> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Trims the messages of a request to fit the context budget of this chat model, if one is
+     * configured, and records the estimated tokens trimmed.
+     *
+     * @param messages the messages of the request, which are not modified
+     * @param summarizer summarizes older turns with the {@link #getContextSummaryModel() summary
+     *     model}, or null if older turns are not summarized
+     * @return the trimmed messages, or the given ones if they fit
+     */
+    public List<ChatMessage> fitContextBudget(
+            List<ChatMessage> messages, @Nullable ChatContextBudget.Summarizer summarizer) {
+        if (contextBudget == null) {
+            return messages;
+        }
+        ChatContextBudget.Result result = contextBudget.fit(messages, summarizer);
+        Object modelName = getParameters().get("model");
+        FlinkAgentsMetricGroup metricGroup = getMetricGroup();
+        if (metricGroup != null && modelName != null && result.getMessages() != messages) {
+            FlinkAgentsMetricGroup modelGroup = metricGroup.getSubGroup(modelName.toString());
+            modelGroup.getCounter("contextTokensTrimmed").inc(result.getTrimmedTokens());
+            if (result.isSummarized()) {
+                modelGroup.getCounter("contextSummaries").inc();
+            }
+        }
+        return result.getMessages();
+    }
+
+    /**
+     * Returns the chat model summarizing older turns to fit the context budget, or null if there is
+     * none.
+     */
+    @Nullable
+    public BaseChatModelSetup getContextSummaryModel() {
+        if (contextBudget == null || contextSummaryModel == null) {
+            return null;
+        }
+        BaseChatModelSetup summaryModel =
+                (BaseChatModelSetup)
+                        this.getResource.apply(contextSummaryModel, ResourceType.CHAT_MODEL);
+        summaryModel.setMetricGroup(getMetricGroup());
+        return summaryModel;
+    }
+
+    private BaseEmbeddingModelSetup getSemanticCacheEmbeddingModel() {
+        BaseEmbeddingModelSetup embeddingModel =
+                (BaseEmbeddingModelSetup)
+                        this.getResource.apply(
+                                semanticCacheEmbeddingModel, ResourceType.EMBEDDING_MODEL);
+        embeddingModel.setMetricGroup(getMetricGroup());
+        return embeddingModel;
+    }
+
+    private BaseChatModelConnection getChatModelConnection() {
         BaseChatModelConnection connection =
                 (BaseChatModelConnection)
                         this.getResource.apply(this.connection, ResourceType.CHAT_MODEL_CONNECTION);
 
         // Pass metric group to connection for token usage tracking
         connection.setMetricGroup(getMetricGroup());
+        return connection;
+    }
 
+    private List<ChatMessage> formatMessages(List<ChatMessage> messages) {
         // Format input messages if set prompt.
         if (this.prompt != null) {
             if (this.prompt instanceof String) {
@@ -86,18 +632,29 @@ public abstract class BaseChatModelSetup extends Resource {
             }
             messages = promptMessages;
         }
+        return messages;
+    }
 
-        // Get tools can be used.
-        List<Tool> tools = new ArrayList<>();
-        if (this.tools != null) {
-            for (String name : this.tools) {
-                tools.add((Tool) this.getResource.apply(name, ResourceType.TOOL));
+    private List<Tool> resolveTools() {
+        // The tools are resolved once, as the resources live as long as this setup.
+        List<Tool> tools = this.resolvedTools;
+        if (tools == null) {
+            tools = new ArrayList<>();
+            if (this.tools != null) {
+                for (String name : this.tools) {
+                    tools.add((Tool) this.getResource.apply(name, ResourceType.TOOL));
+                }
             }
+            tools = Collections.unmodifiableList(tools);
+            this.resolvedTools = tools;
         }
+        return tools;
+    }
 
+    private Map<String, Object> params(Map<String, Object> parameters) {
         Map<String, Object> params = this.getParameters();
         params.putAll(parameters);
-        return connection.chat(messages, tools, params);
+        return params;
     }
 
     @Override
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api.chat.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.flink.agents.api.chat.messages.ChatMessage;
+
+import java.util.List;
+
+/**
+ * Decides whether the response of a tier of a {@link CascadeChatModelSetup} is accepted, or the
+ * request escalates to the next tier.
+ *
+ * <p>Custom checks are configured by their class name and must have a public no-argument
+ * constructor.
+ */
+@FunctionalInterface
+public interface CascadeAcceptanceCheck {
+
+    /** The key of the mean log probability of the tokens of a response in its extra args. */
+    String MEAN_LOGPROB = "mean_logprob";
+
+    /**
+     * Returns whether the response is accepted.
+     *
+     * @param messages the messages of the request
+     * @param response the response of the tier
+     */
+    boolean accept(List<ChatMessage> messages, ChatMessage response);
+
+    /**
+     * Returns a check accepting responses whose tokens have a mean log probability of at least the
+     * given threshold. Responses without log probabilities, e.g. of models not requesting them, are
+     * not accepted.
+     */
+    static CascadeAcceptanceCheck minMeanLogprob(double threshold) {
+        return (messages, response) -> {
+            Object meanLogprob = response.getExtraArgs().get(MEAN_LOGPROB);
+            return meanLogprob instanceof Number
+                    && ((Number) meanLogprob).doubleValue() >= threshold;
+        };
+    }
+
+    /** Returns a check accepting responses whose content is a JSON object or array. */
+    static CascadeAcceptanceCheck validJson() {
+        ObjectMapper mapper = new ObjectMapper();
+        return (messages, response) -> {
+            if (response.getContent() == null) {
+                return false;
+            }
+            try {
+                JsonNode json = mapper.readTree(response.getContent());
+                return json != null && json.isContainerNode();
+            } catch (JsonProcessingException e) {
+                return false;
+            }
+        };
+    }
+}
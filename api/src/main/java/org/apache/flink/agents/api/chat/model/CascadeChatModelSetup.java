@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api.chat.model;
+
+import org.apache.flink.agents.api.chat.messages.ChatMessage;
+import org.apache.flink.agents.api.metrics.FlinkAgentsMetricGroup;
+import org.apache.flink.agents.api.resource.Resource;
+import org.apache.flink.agents.api.resource.ResourceDescriptor;
+import org.apache.flink.agents.api.resource.ResourceType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * A chat model setup that tries an ordered list of chat model setups, from the cheapest to the most
+ * capable, and escalates a request to the next tier if the response of a tier is not accepted.
+ *
+ * <p>The tiers are configured by the "tiers" argument. Whether a response is accepted is decided by
+ * the check configured by the "acceptance_check" argument:
+ *
+ * <ul>
+ *   <li>{@code logprob} (default): the mean log probability of the tokens of the response is at
+ *       least "min_mean_logprob", which requires the tiers to request log probabilities.
+ *   <li>{@code json}: the content of the response is a JSON object or array.
+ *   <li>the class name of a {@link CascadeAcceptanceCheck}.
+ * </ul>
+ *
+ * <p>The response of the last tier is always accepted. When used by the built-in chat model action,
+ * the call of each tier and its check are recorded as separate durable calls, so that a recovered
+ * request does not call the tiers it already escalated from again.
+ */
+public class CascadeChatModelSetup extends BaseChatModelSetup {
+
+    private static final double DEFAULT_MIN_MEAN_LOGPROB = -0.3;
+
+    private final List<String> tiers;
+    private final CascadeAcceptanceCheck acceptanceCheck;
+
+    public CascadeChatModelSetup(
+            ResourceDescriptor descriptor, BiFunction<String, ResourceType, Resource> getResource) {
+        super(descriptor, getResource);
+        this.tiers = descriptor.getArgument("tiers");
+        if (tiers == null || tiers.isEmpty()) {
+            throw new IllegalArgumentException("tiers must not be empty");
+        }
+        this.acceptanceCheck = createAcceptanceCheck(descriptor);
+    }
+
+    private static CascadeAcceptanceCheck createAcceptanceCheck(ResourceDescriptor descriptor) {
+        String check = descriptor.getArgument("acceptance_check", "logprob");
+        switch (check) {
+            case "logprob":
+                return CascadeAcceptanceCheck.minMeanLogprob(
+                        descriptor
+                                .<Number>getArgument("min_mean_logprob", DEFAULT_MIN_MEAN_LOGPROB)
+                                .doubleValue());
+            case "json":
+                return CascadeAcceptanceCheck.validJson();
+            default:
+                try {
+                    return Class.forName(
+                                    check, true, Thread.currentThread().getContextClassLoader())
+                            .asSubclass(CascadeAcceptanceCheck.class)
+                            .getDeclaredConstructor()
+                            .newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new IllegalArgumentException(
+                            "Invalid acceptance_check " + check + ".", e);
+                }
+        }
+    }
+
+    @Override
+    public Map<String, Object> getParameters() {
+        return new HashMap<>();
+    }
+
+    /** Sends the request to the tiers in order, until the response of a tier is accepted. */
+    @Override
+    public ChatMessage chat(List<ChatMessage> messages, Map<String, Object> parameters) {
+        List<BaseChatModelSetup> tiers = getTiers();
+        for (int tier = 0; ; tier++) {
+            long start = System.nanoTime();
+            ChatMessage response = tiers.get(tier).chat(messages, parameters);
+            recordTierLatency(tier, System.nanoTime() - start);
+            if (isLastTier(tier) || accept(messages, response)) {
+                recordTierHit(tier);
+                return response;
+            }
+        }
+    }
+
+    @Override
+    public boolean supportsNonBlockingChat() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsStreaming() {
+        return false;
+    }
+
+    /** Returns the chat model setups of the tiers, in order. */
+    public List<BaseChatModelSetup> getTiers() {
+        List<BaseChatModelSetup> chatModels = new ArrayList<>(tiers.size());
+        for (String tier : tiers) {
+            BaseChatModelSetup chatModel =
+                    (BaseChatModelSetup) getResource.apply(tier, ResourceType.CHAT_MODEL);
+            chatModel.setMetricGroup(getMetricGroup());
+            chatModels.add(chatModel);
+        }
+        return chatModels;
+    }
+
+    /** Returns whether the given tier is the last one, whose responses are always accepted. */
+    public boolean isLastTier(int tier) {
+        return tier == tiers.size() - 1;
+    }
+
+    /** Returns whether the response of a tier is accepted. */
+    public boolean accept(List<ChatMessage> messages, ChatMessage response) {
+        return acceptanceCheck.accept(messages, response);
+    }
+
+    /** Records the time the given tier took to respond. */
+    public void recordTierLatency(int tier, long latencyNanos) {
+        FlinkAgentsMetricGroup metricGroup = getMetricGroup();
+        if (metricGroup != null) {
+            metricGroup
+                    .getSubGroup(tiers.get(tier))
+                    .getHistogram("cascadeLatencyMs")
+                    .update(TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+        }
+    }
+
+    /** Records that the response of the given tier was accepted. */
+    public void recordTierHit(int tier) {
+        FlinkAgentsMetricGroup metricGroup = getMetricGroup();
+        if (metricGroup != null) {
+            metricGroup.getSubGroup(tiers.get(tier)).getCounter("cascadeHits").inc();
+        }
+    }
+}
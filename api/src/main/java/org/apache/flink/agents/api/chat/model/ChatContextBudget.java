@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api.chat.model;
+
+import org.apache.flink.agents.api.chat.messages.ChatMessage;
+import org.apache.flink.agents.api.chat.messages.MessageRole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A budget of tokens for the messages of a chat request, which trims the conversation to fit the
+ * context window of the model.
+ *
+ * <p>The messages are trimmed by the following strategies, each applied only while the estimated
+ * tokens exceed the budget:
+ *
+ * <ol>
+ *   <li>Tool results larger than the maximum tool result tokens are truncated.
+ *   <li>The outputs of the oldest tool calls are removed, except the outputs of the latest ones.
+ *   <li>The turns between the first request and the latest tool calls are replaced by a summary, if
+ *       a summarizer is given.
+ * </ol>
+ *
+ * <p>Tool messages are never removed, as each tool call of an assistant message must be followed by
+ * its result, only their content is.
+ */
+public class ChatContextBudget {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChatContextBudget.class);
+
+    /** The estimated tokens of the role and the delimiters of a message. */
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    static final String REMOVED_TOOL_OUTPUT = "[Tool output removed to fit the context window.]";
+
+    private static final String SUMMARY_INSTRUCTION =
+            "Summarize the following conversation between a user, an assistant and its tools. "
+                    + "Keep the facts, tool results and decisions needed to continue the task, "
+                    + "and leave out everything else.";
+
+    /** Summarizes older turns of a conversation. */
+    @FunctionalInterface
+    public interface Summarizer {
+        /**
+         * Returns the summary of the messages.
+         *
+         * @param request the messages asking a chat model to summarize the turns, see {@link
+         *     #summaryRequest(List)}
+         */
+        String summarize(List<ChatMessage> request) throws Exception;
+    }
+
+    /** The messages fitted into the budget. */
+    public static final class Result {
+        private final List<ChatMessage> messages;
+        private final long trimmedTokens;
+        private final boolean summarized;
+
+        private Result(List<ChatMessage> messages, long trimmedTokens, boolean summarized) {
+            this.messages = messages;
+            this.trimmedTokens = trimmedTokens;
+            this.summarized = summarized;
+        }
+
+        /** Returns the fitted messages, which are the given ones if nothing was trimmed. */
+        public List<ChatMessage> getMessages() {
+            return messages;
+        }
+
+        /** Returns the estimated tokens trimmed from the messages. */
+        public long getTrimmedTokens() {
+            return trimmedTokens;
+        }
+
+        /** Returns whether older turns were replaced by a summary. */
+        public boolean isSummarized() {
+            return summarized;
+        }
+    }
+
+    private final int maxTokens;
+    private final int maxToolResultTokens;
+    private final ChatTokenEstimator estimator;
+
+    /**
+     * Creates a context budget.
+     *
+     * @param maxTokens the maximum estimated tokens of the messages of a request
+     * @param maxToolResultTokens the maximum estimated tokens of a tool result, larger ones are
+     *     truncated if the messages exceed the budget
+     * @param estimator the estimator of the tokens of a text
+     */
+    public ChatContextBudget(int maxTokens, int maxToolResultTokens, ChatTokenEstimator estimator) {
+        if (maxTokens <= 0 || maxToolResultTokens <= 0) {
+            throw new IllegalArgumentException("The token budgets must be positive.");
+        }
+        this.maxTokens = maxTokens;
+        this.maxToolResultTokens = maxToolResultTokens;
+        this.estimator = estimator;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    /** Returns the estimated tokens of the messages. */
+    public long estimateTokens(List<ChatMessage> messages) {
+        long tokens = 0;
+        for (ChatMessage message : messages) {
+            tokens += estimateTokens(message);
+        }
+        return tokens;
+    }
+
+    private int estimateTokens(ChatMessage message) {
+        int tokens = MESSAGE_OVERHEAD_TOKENS + estimator.estimateTokens(message.getContent());
+        for (Map<String, Object> toolCall : message.getToolCalls()) {
+            tokens += estimator.estimateTokens(String.valueOf(toolCall.get("function")));
+        }
+        return tokens;
+    }
+
+    /**
+     * Fits the messages into the budget.
+     *
+     * @param messages the messages of the request, which are not modified
+     * @param summarizer summarizes older turns, or null if they are not summarized
+     */
+    public Result fit(List<ChatMessage> messages, @Nullable Summarizer summarizer) {
+        long originalTokens = estimateTokens(messages);
+        if (originalTokens <= maxTokens) {
+            return new Result(messages, 0, false);
+        }
+
+        List<ChatMessage> fitted = new ArrayList<>(messages);
+        long tokens = truncateToolResults(fitted, originalTokens);
+        if (tokens > maxTokens) {
+            tokens = removeOldToolOutputs(fitted, tokens);
+        }
+        boolean summarized = false;
+        if (tokens > maxTokens && summarizer != null) {
+            int size = fitted.size();
+            tokens = summarizeOlderTurns(fitted, tokens, summarizer);
+            // At least two turns are replaced by a single summary.
+            summarized = fitted.size() < size;
+        }
+        if (tokens > maxTokens) {
+            LOG.warn(
+                    "The messages of the chat request take an estimated {} tokens after trimming, "
+                            + "which exceeds the context budget of {} tokens.",
+                    tokens,
+                    maxTokens);
+        }
+        return new Result(fitted, Math.max(0, originalTokens - tokens), summarized);
+    }
+
+    private long truncateToolResults(List<ChatMessage> messages, long tokens) {
+        for (int i = 0; i < messages.size() && tokens > maxTokens; i++) {
+            ChatMessage message = messages.get(i);
+            if (message.getRole() != MessageRole.TOOL) {
+                continue;
+            }
+            String content = message.getContent();
+            int contentTokens = estimator.estimateTokens(content);
+            if (contentTokens <= maxToolResultTokens) {
+                continue;
+            }
+            // Keep the beginning of the result, in proportion to the tokens allowed.
+            int keptChars = (int) ((long) content.length() * maxToolResultTokens / contentTokens);
+            String truncated =
+                    content.substring(0, keptChars)
+                            + "\n[Tool output truncated by "
+                            + (contentTokens - maxToolResultTokens)
+                            + " tokens to fit the context window.]";
+            tokens += replaceContent(messages, i, truncated);
+        }
+        return tokens;
+    }
+
+    private long removeOldToolOutputs(List<ChatMessage> messages, long tokens) {
+        // The outputs of the latest tool calls are what the model needs to continue.
+        int latestToolCalls = lastIndexOf(messages, MessageRole.ASSISTANT);
+        for (int i = 0; i < latestToolCalls && tokens > maxTokens; i++) {
+            ChatMessage message = messages.get(i);
+            if (message.getRole() == MessageRole.TOOL
+                    && !REMOVED_TOOL_OUTPUT.equals(message.getContent())) {
+                tokens += replaceContent(messages, i, REMOVED_TOOL_OUTPUT);
+            }
+        }
+        return tokens;
+    }
+
+    private long summarizeOlderTurns(
+            List<ChatMessage> messages, long tokens, Summarizer summarizer) {
+        // Keep the leading system messages and the first request, which states the task.
+        int start = 0;
+        while (start < messages.size() && messages.get(start).getRole() == MessageRole.SYSTEM) {
+            start++;
+        }
+        start++;
+        // Keep the latest tool calls and their outputs, so no tool output loses its call.
+        int end = lastIndexOf(messages, MessageRole.ASSISTANT);
+        if (end - start < 2) {
+            return tokens;
+        }
+
+        List<ChatMessage> olderTurns = messages.subList(start, end);
+        String summary;
+        try {
+            summary = summarizer.summarize(summaryRequest(olderTurns));
+        } catch (Exception e) {
+            LOG.warn("Failed to summarize older turns of the chat request, keeping them.", e);
+            return tokens;
+        }
+        ChatMessage summaryMessage =
+                new ChatMessage(
+                        MessageRole.USER, "Summary of the earlier conversation:\n" + summary);
+        tokens += estimateTokens(summaryMessage) - estimateTokens(olderTurns);
+        olderTurns.clear();
+        messages.add(start, summaryMessage);
+        return tokens;
+    }
+
+    /** Returns the messages asking a chat model to summarize the given turns. */
+    public static List<ChatMessage> summaryRequest(List<ChatMessage> turns) {
+        StringBuilder conversation = new StringBuilder();
+        for (ChatMessage turn : turns) {
+            conversation.append(turn.getRole().getValue()).append(": ").append(turn.getContent());
+            for (Map<String, Object> toolCall : turn.getToolCalls()) {
+                conversation.append("\ntool call: ").append(toolCall.get("function"));
+            }
+            conversation.append('\n');
+        }
+        List<ChatMessage> request = new ArrayList<>();
+        request.add(new ChatMessage(MessageRole.SYSTEM, SUMMARY_INSTRUCTION));
+        request.add(new ChatMessage(MessageRole.USER, conversation.toString()));
+        return request;
+    }
+
+    /** Replaces the content of a message by a copy, and returns the change of tokens. */
+    private int replaceContent(List<ChatMessage> messages, int index, String content) {
+        ChatMessage message = messages.get(index);
+        ChatMessage replaced =
+                new ChatMessage(
+                        message.getRole(),
+                        content,
+                        new ArrayList<>(message.getToolCalls()),
+                        message.getExtraArgs());
+        messages.set(index, replaced);
+        return estimator.estimateTokens(content) - estimator.estimateTokens(message.getContent());
+    }
+
+    private static int lastIndexOf(List<ChatMessage> messages, MessageRole role) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i).getRole() == role) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api.chat.model;
+
+import javax.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A circuit breaker of the requests to a chat model, which tracks the outcomes and latencies of its
+ * recent requests.
+ *
+ * <p>The breaker is closed while the model is healthy. Once the window of recent requests holds at
+ * least half its size, the breaker opens if the ratio of failed requests, or of requests slower
+ * than the slow call threshold, reaches its threshold. An open breaker rejects requests until the
+ * open duration has passed, and then lets a single trial request through: the breaker closes if the
+ * trial succeeds in time and opens again otherwise.
+ */
+public class ChatModelCircuitBreaker {
+
+    /** The state of a circuit breaker. */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int minCalls;
+    private final double failureRateThreshold;
+    @Nullable private final Long slowCallNanos;
+    private final double slowCallRateThreshold;
+    private final long openNanos;
+
+    /** The latencies of the requests in the window, or -1 for failed requests. */
+    private final long[] window;
+
+    private int size;
+    private int next;
+    private State state = State.CLOSED;
+    private long openedNanos;
+    private boolean trialInFlight;
+
+    /**
+     * Creates a circuit breaker.
+     *
+     * @param windowSize the number of recent requests the rates are computed over
+     * @param failureRateThreshold the ratio of failed requests that opens the breaker
+     * @param slowCallMs the latency in milliseconds of a slow request, or null if no request is
+     *     slow
+     * @param slowCallRateThreshold the ratio of slow requests that opens the breaker
+     * @param openMs the time in milliseconds the breaker stays open before a trial request
+     */
+    public ChatModelCircuitBreaker(
+            int windowSize,
+            double failureRateThreshold,
+            @Nullable Long slowCallMs,
+            double slowCallRateThreshold,
+            long openMs) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("The window size must be positive.");
+        }
+        this.window = new long[windowSize];
+        this.minCalls = Math.max(1, windowSize / 2);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCallMs != null ? slowCallMs * 1_000_000L : null;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openNanos = openMs * 1_000_000L;
+    }
+
+    /**
+     * Returns whether a request may be sent. If the breaker is half open, the request is the trial
+     * and must be recorded or {@link #recordCancelled() cancelled}.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedNanos < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    /** Records the outcome of a request. */
+    public synchronized void record(long latencyNanos, boolean succeeded) {
+        boolean slow = slowCallNanos != null && latencyNanos >= slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            if (succeeded && !slow) {
+                state = State.CLOSED;
+                size = 0;
+                next = 0;
+            } else {
+                open();
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // A late outcome of a request sent before the breaker opened.
+            return;
+        }
+
+        window[next] = succeeded ? latencyNanos : -1;
+        next = (next + 1) % window.length;
+        size = Math.min(size + 1, window.length);
+        if (size < minCalls) {
+            return;
+        }
+        int failures = 0;
+        int slowCalls = 0;
+        for (int i = 0; i < size; i++) {
+            if (window[i] < 0) {
+                failures++;
+            } else if (slowCallNanos != null && window[i] >= slowCallNanos) {
+                slowCalls++;
+            }
+        }
+        if (failures >= failureRateThreshold * size
+                || (slowCallNanos != null && slowCalls >= slowCallRateThreshold * size)) {
+            open();
+        }
+    }
+
+    /** Records that a request was cancelled before its outcome was known. */
+    public synchronized void recordCancelled() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    /**
+     * Returns the given percentile of the latencies of the recent successful requests, or -1 if the
+     * window holds less than half its size of them.
+     *
+     * @param percentile the percentile, between 0 and 1
+     */
+    public synchronized long getLatencyPercentile(double percentile) {
+        long[] latencies = new long[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (window[i] >= 0) {
+                latencies[count++] = window[i];
+            }
+        }
+        if (count < minCalls) {
+            return -1;
+        }
+        Arrays.sort(latencies, 0, count);
+        int index = (int) Math.ceil(percentile * count) - 1;
+        return latencies[Math.min(Math.max(index, 0), count - 1)];
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedNanos = System.nanoTime();
+        size = 0;
+        next = 0;
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api.chat.model;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Limits the requests of a chat model connection by their rate, their tokens and their concurrency.
+ *
+ * <p>The rate of requests and tokens per minute are limited by token buckets, which hold up to a
+ * minute of requests and tokens and refill continuously. The tokens of a request are estimated
+ * before it is sent, from the size of its messages and the average completion tokens of earlier
+ * responses.
+ *
+ * <p>The concurrency is limited adaptively, increasing additively and decreasing multiplicatively
+ * (AIMD). The limit grows by one per limit of successful requests, and shrinks when a request is
+ * much slower than the average, or by half when a request is rate limited by the model service. A
+ * rate limited request also pauses all requests for a second, giving the service time to recover.
+ * Without a maximum, the concurrency is unlimited until the first request is rate limited, which
+ * limits it to half of the requests in flight at that time.
+ *
+ * <p>Requests wait for a permit in order, without holding a thread: {@link #acquire} returns a
+ * future that is completed once the request may be sent.
+ */
+public class ChatModelRateLimiter {
+
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final double RATE_LIMITED_DECREASE = 0.5;
+    private static final double SLOW_DECREASE = 0.9;
+    private static final double SLOW_LATENCY_FACTOR = 2.0;
+    private static final double AVERAGE_WEIGHT = 0.1;
+    private static final long RATE_LIMITED_PAUSE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Nullable private final TokenBucket requestBucket;
+    @Nullable private final TokenBucket tokenBucket;
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final Predicate<Throwable> isRateLimitError;
+
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private double concurrencyLimit;
+    private int permitsInUse;
+    private double averageLatencyNanos;
+    private double averageCompletionTokens;
+    private long pausedUntilNanos;
+    private boolean wakeUpScheduled;
+
+    /**
+     * Creates a rate limiter.
+     *
+     * @param requestsPerMinute the maximum number of requests per minute, or null if unlimited
+     * @param tokensPerMinute the maximum number of tokens per minute, or null if unlimited
+     * @param maxConcurrency the maximum number of concurrent requests, or null if unlimited
+     * @param isRateLimitError whether an error of a request means it was rate limited
+     */
+    public ChatModelRateLimiter(
+            @Nullable Long requestsPerMinute,
+            @Nullable Long tokensPerMinute,
+            @Nullable Integer maxConcurrency,
+            Predicate<Throwable> isRateLimitError) {
+        this.requestBucket = requestsPerMinute != null ? new TokenBucket(requestsPerMinute) : null;
+        this.tokenBucket = tokensPerMinute != null ? new TokenBucket(tokensPerMinute) : null;
+        if (maxConcurrency != null && maxConcurrency <= 0) {
+            throw new IllegalArgumentException("The max concurrency must be positive.");
+        }
+        this.minConcurrency = 1;
+        this.maxConcurrency = maxConcurrency != null ? maxConcurrency : Integer.MAX_VALUE;
+        this.concurrencyLimit = this.maxConcurrency;
+        this.isRateLimitError = isRateLimitError;
+        this.pausedUntilNanos = System.nanoTime();
+    }
+
+    /**
+     * Estimates the tokens of a request from the total length of its messages and the average
+     * completion tokens of earlier responses.
+     */
+    public synchronized long estimateTokens(long requestChars) {
+        return requestChars / CHARS_PER_TOKEN + Math.round(averageCompletionTokens);
+    }
+
+    /** Records the completion tokens of a response, to estimate the tokens of later requests. */
+    public synchronized void recordCompletionTokens(long completionTokens) {
+        averageCompletionTokens =
+                averageCompletionTokens == 0
+                        ? completionTokens
+                        : average(averageCompletionTokens, completionTokens);
+    }
+
+    /**
+     * Waits for a permit to send a request.
+     *
+     * @param estimatedTokens the estimated tokens of the request
+     * @return the future of the permit, which must be released once the request is complete
+     */
+    public CompletableFuture<Permit> acquire(long estimatedTokens) {
+        CompletableFuture<Permit> permit = new CompletableFuture<>();
+        synchronized (this) {
+            waiters.addLast(new Waiter(estimatedTokens, permit));
+        }
+        dispatch();
+        return permit;
+    }
+
+    /** Returns the number of requests holding a permit. */
+    public synchronized int getPermitsInUse() {
+        return permitsInUse;
+    }
+
+    /** Returns the number of requests waiting for a permit. */
+    public synchronized int getQueuedRequests() {
+        return waiters.size();
+    }
+
+    /** Returns the current limit of concurrent requests. */
+    public synchronized int getConcurrencyLimit() {
+        return (int) concurrencyLimit;
+    }
+
+    /** Grants permits to the waiting requests in order, as long as the limits allow. */
+    private void dispatch() {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            long waitNanos = 0;
+            while (!waiters.isEmpty()) {
+                Waiter waiter = waiters.peekFirst();
+                if (waiter.permit.isDone()) {
+                    waiters.pollFirst();
+                    continue;
+                }
+                if (permitsInUse >= (int) concurrencyLimit) {
+                    // A released permit dispatches again.
+                    break;
+                }
+                waitNanos = Math.max(pausedUntilNanos - now, 0);
+                if (requestBucket != null) {
+                    waitNanos = Math.max(waitNanos, requestBucket.nanosUntilAvailable(1, now));
+                }
+                if (tokenBucket != null) {
+                    waitNanos =
+                            Math.max(
+                                    waitNanos,
+                                    tokenBucket.nanosUntilAvailable(waiter.estimatedTokens, now));
+                }
+                if (waitNanos > 0) {
+                    break;
+                }
+                if (requestBucket != null) {
+                    requestBucket.take(1);
+                }
+                if (tokenBucket != null) {
+                    tokenBucket.take(waiter.estimatedTokens);
+                }
+                waiters.pollFirst();
+                permitsInUse++;
+                granted.add(waiter);
+            }
+            if (waitNanos > 0 && !wakeUpScheduled) {
+                wakeUpScheduled = true;
+                CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS)
+                        .execute(this::wakeUp);
+            }
+        }
+        for (Waiter waiter : granted) {
+            if (!waiter.permit.complete(new Permit())) {
+                // The request stopped waiting while it was granted.
+                release(0, null, false);
+            }
+        }
+    }
+
+    private void wakeUp() {
+        synchronized (this) {
+            wakeUpScheduled = false;
+        }
+        dispatch();
+    }
+
+    private void release(long latencyNanos, @Nullable Throwable error, boolean adapt) {
+        synchronized (this) {
+            permitsInUse--;
+            if (adapt && error != null && isRateLimited(error)) {
+                // An unlimited concurrency is first limited to the requests in flight.
+                double limit =
+                        concurrencyLimit == Integer.MAX_VALUE ? permitsInUse + 1 : concurrencyLimit;
+                concurrencyLimit = Math.max(minConcurrency, limit * RATE_LIMITED_DECREASE);
+                pausedUntilNanos = System.nanoTime() + RATE_LIMITED_PAUSE_NANOS;
+            } else if (adapt && error == null && concurrencyLimit != Integer.MAX_VALUE) {
+                if (averageLatencyNanos > 0
+                        && latencyNanos > averageLatencyNanos * SLOW_LATENCY_FACTOR) {
+                    concurrencyLimit = Math.max(minConcurrency, concurrencyLimit * SLOW_DECREASE);
+                } else {
+                    concurrencyLimit =
+                            Math.min(maxConcurrency, concurrencyLimit + 1 / concurrencyLimit);
+                }
+                averageLatencyNanos =
+                        averageLatencyNanos == 0
+                                ? latencyNanos
+                                : average(averageLatencyNanos, latencyNanos);
+            }
+        }
+        dispatch();
+    }
+
+    private boolean isRateLimited(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (isRateLimitError.test(t)) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static double average(double average, double value) {
+        return average + AVERAGE_WEIGHT * (value - average);
+    }
+
+    /** A permit to send a request, released once the request is complete. */
+    public final class Permit {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {}
+
+        /**
+         * Releases the permit, adapting the concurrency limit to the outcome of the request.
+         *
+         * @param latencyNanos the time the request took
+         * @param error the error of the request, or null if it succeeded
+         */
+        public void release(long latencyNanos, @Nullable Throwable error) {
+            if (released.compareAndSet(false, true)) {
+                ChatModelRateLimiter.this.release(latencyNanos, error, true);
+            }
+        }
+    }
+
+    private static final class Waiter {
+        private final long estimatedTokens;
+        private final CompletableFuture<Permit> permit;
+
+        private Waiter(long estimatedTokens, CompletableFuture<Permit> permit) {
+            this.estimatedTokens = estimatedTokens;
+            this.permit = permit;
+        }
+    }
+
+    /** A bucket holding up to a minute of permits, refilled continuously. */
+    private static final class TokenBucket {
+        private final double capacity;
+        private final double permitsPerNano;
+        private double available;
+        private long refilledNanos;
+
+        private TokenBucket(long permitsPerMinute) {
+            if (permitsPerMinute <= 0) {
+                throw new IllegalArgumentException("The permits per minute must be positive.");
+            }
+            this.capacity = permitsPerMinute;
+            this.permitsPerNano = permitsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.available = capacity;
+            this.refilledNanos = System.nanoTime();
+        }
+
+        /**
+         * Returns the time until the given permits are available. A request of more permits than
+         * the bucket can hold waits until the bucket is full.
+         */
+        private long nanosUntilAvailable(long permits, long now) {
+            available = Math.min(capacity, available + (now - refilledNanos) * permitsPerNano);
+            refilledNanos = now;
+            double missing = Math.min(permits, capacity) - available;
+            return missing <= 0 ? 0 : (long) Math.ceil(missing / permitsPerNano);
+        }
+
+        private void take(long permits) {
+            available -= Math.min(permits, capacity);
+        }
+    }
+}
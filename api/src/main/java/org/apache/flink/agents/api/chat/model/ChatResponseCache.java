@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.agents.api.chat.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.flink.agents.api.chat.messages.ChatMessage;
+import org.apache.flink.agents.api.tools.Tool;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * An exact-match cache of chat responses, bounded by the number of entries and their size and
+ * evicting the least recently used entries first.
+ *
+ * <p>Requests are keyed by a SHA-256 hash of their canonical JSON form, which includes the
+ * connection, the formatted messages, the metadata of the tools and the parameters, with map
+ * entries sorted by key. Responses are stored serialized, so that each hit returns a copy the
+ * caller may modify.
+ *
+ * <p>Concurrent identical requests collapse into a single call: while a response is loaded, the
+ * other requests for the same key wait for it instead of calling the model. Failed calls are not
+ * cached.
+ */
+public class ChatResponseCache {
+
+    /** A rough number of characters per token, used to estimate the tokens of cached calls. */
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private static final ObjectMapper MAPPER =
+            new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final int maxEntries;
+    private final long maxBytes;
+    @Nullable private final Long ttlNanos;
+
+    /** The cached entries in the order of their last access, guarded by itself. */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    private long bytesUsed;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong savedTokens = new AtomicLong();
+
+    /**
+     * Creates a response cache.
+     *
+     * @param maxEntries the maximum number of cached responses
+     * @param maxBytes the maximum total size of the cached requests and responses
+     * @param ttlMs the time in milliseconds a response stays cached, or null to keep it until it is
+     *     evicted
+     */
+    public ChatResponseCache(int maxEntries, long maxBytes, @Nullable Long ttlMs) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException(
+                    "The max entries and max bytes of a response cache must be positive.");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttlMs != null ? ttlMs * 1_000_000L : null;
+    }
+
+    /** Returns the key of the given request. */
+    public static Key key(
+            String connection,
+            List<ChatMessage> messages,
+            List<Tool> tools,
+            Map<String, Object> parameters) {
+        List<Object> toolMetadata = new ArrayList<>(tools.size());
+        for (Tool tool : tools) {
+            toolMetadata.add(tool.getMetadata());
+        }
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("connection", connection);
+        request.put("messages", messages);
+        request.put("tools", toolMetadata);
+        request.put("parameters", parameters);
+        try {
+            byte[] serialized = MAPPER.writeValueAsBytes(request);
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(serialized);
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+                        .append(Character.forDigit(b & 0xF, 16));
+            }
+            return new Key(hex.toString(), serialized.length);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Chat request is not JSON serializable.", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the cached response of the given request, or calls the model with the given loader if
+     * there is none. If an identical request is already calling the model, waits for its response
+     * instead.
+     *
+     * @param key the key of the request
+     * @param loader calls the model and returns the future of the response
+     * @return the future of a copy of the response
+     */
+    public CompletableFuture<ChatMessage> get(
+            Key key, Supplier<CompletableFuture<ChatMessage>> loader) {
+        byte[] cached = lookup(key.hash);
+        if (cached != null) {
+            recordHit(key, cached);
+            return CompletableFuture.completedFuture(deserialize(cached));
+        }
+
+        CompletableFuture<byte[]> loading = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(key.hash, loading);
+        if (existing != null) {
+            return existing.thenApply(
+                    response -> {
+                        recordHit(key, response);
+                        return deserialize(response);
+                    });
+        }
+
+        // The response may have been cached since the lookup by a load that is no longer in flight.
+        cached = lookup(key.hash);
+        if (cached != null) {
+            inFlight.remove(key.hash, loading);
+            loading.complete(cached);
+            recordHit(key, cached);
+            return CompletableFuture.completedFuture(deserialize(cached));
+        }
+
+        misses.incrementAndGet();
+        CompletableFuture<ChatMessage> response;
+        try {
+            response = loader.get();
+        } catch (Exception e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response.whenComplete(
+                (message, t) -> {
+                    inFlight.remove(key.hash, loading);
+                    if (t != null) {
+                        loading.completeExceptionally(t);
+                        return;
+                    }
+                    try {
+                        byte[] serialized = serialize(message);
+                        put(key.hash, serialized);
+                        loading.complete(serialized);
+                    } catch (Exception e) {
+                        loading.completeExceptionally(e);
+                    }
+                });
+    }
+
+    /** Returns the number of requests answered from the cache or by an identical request. */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** Returns the number of requests that called the model. */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** Returns the ratio of hits to all requests, or 0 if there was no request. */
+    public double getHitRate() {
+        long hits = this.hits.get();
+        long total = hits + misses.get();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /** Returns the total size in bytes of the cached responses. */
+    public synchronized long getBytesUsed() {
+        return bytesUsed;
+    }
+
+    /** Returns the number of cached responses. */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the estimated number of tokens the hits did not send to or receive from the model,
+     * counting about four characters per token.
+     */
+    public long getSavedTokens() {
+        return savedTokens.get();
+    }
+
+    @Nullable
+    private synchronized byte[] lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (ttlNanos != null && System.nanoTime() - entry.insertedNanos > ttlNanos) {
+            entries.remove(key);
+            bytesUsed -= entry.size();
+            return null;
+        }
+        return entry.response;
+    }
+
+    private synchronized void put(String key, byte[] response) {
+        Entry entry = new Entry(key, response, System.nanoTime());
+        if (entry.size() > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            bytesUsed -= previous.size();
+        }
+        bytesUsed += entry.size();
+
+        Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+        while (entries.size() > maxEntries || bytesUsed > maxBytes) {
+            Entry evicted = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            bytesUsed -= evicted.size();
+        }
+    }
+
+    private void recordHit(Key key, byte[] response) {
+        hits.incrementAndGet();
+        savedTokens.addAndGet((key.requestSize + response.length) / CHARS_PER_TOKEN);
+    }
+
+    static byte[] serialize(ChatMessage message) {
+        try {
+            return MAPPER.writeValueAsBytes(message);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static ChatMessage deserialize(byte[] response) {
+        try {
+            return MAPPER.readValue(response, ChatMessage.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** The key of a chat request. */
+    public static final class Key {
+        private final String hash;
+        private final int requestSize;
+
+        private Key(String hash, int requestSize) {
+            this.hash = hash;
+            this.requestSize = requestSize;
+        }
+
+        /** Returns the hex encoded SHA-256 hash of the canonical JSON form of the request. */
+        public String getHash() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final byte[] response;
+        private final long insertedNanos;
+
+        private Entry(String key, byte[] response, long insertedNanos) {
+            this.key = key;
+            this.response = response;
+            this.insertedNanos = insertedNanos;
+        }
+
+        private long size() {
+            return key.getBytes(StandardCharsets.UTF_8).length + response.length;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api.chat.model;
+
+/**
+ * Estimates the number of tokens of a text locally, without calling the model.
+ *
+ * <p>Custom estimators, e.g. backed by the tokenizer of a model, are configured by their class name
+ * and must have a public no-argument constructor.
+ */
+@FunctionalInterface
+public interface ChatTokenEstimator {
+
+    /** Estimates about four characters per token, which is typical for English text. */
+    ChatTokenEstimator CHARS_PER_TOKEN = text -> (text.length() + 3) / 4;
+
+    /** Returns the estimated number of tokens of the text. */
+    int estimateTokens(String text);
+}
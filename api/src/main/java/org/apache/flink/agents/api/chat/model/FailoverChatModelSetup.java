@@ -0,0 +1,447 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api.chat.model;
+
+import org.apache.flink.agents.api.chat.messages.ChatMessage;
+import org.apache.flink.agents.api.chat.model.python.PythonChatModelSetup;
+import org.apache.flink.agents.api.metrics.FlinkAgentsMetricGroup;
+import org.apache.flink.agents.api.resource.Resource;
+import org.apache.flink.agents.api.resource.ResourceDescriptor;
+import org.apache.flink.agents.api.resource.ResourceType;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * A chat model setup that sends each request to the first healthy of an ordered list of chat model
+ * setups, hedging slow requests and failing over on errors.
+ *
+ * <p>The setups are configured by the "chat_models" argument, each of which combines a connection
+ * with a model and its parameters. A request goes to the first setup whose circuit breaker is
+ * closed. If it fails, it is sent to the next setup. If it has not completed within the percentile
+ * of the recent latencies of its setup given by "hedge_percentile", a hedged duplicate is sent to
+ * the next setup, or to the same setup if there is only one. The first response wins, and the other
+ * request is cancelled.
+ *
+ * <p>Each setup has a {@link ChatModelCircuitBreaker}, configured by the "circuit_breaker_*"
+ * arguments, which routes requests around the setup while its error rate or the rate of its slow
+ * requests is too high. If the breakers of all setups are open, the request goes to the first setup
+ * anyway.
+ *
+ * <p>The setups must be Java chat model setups. Requests to setups whose connection cannot send
+ * them without blocking run on a bounded pool of threads of this setup, sized by the
+ * "blocking_threads" argument. Requests wait in line while all of its threads are busy.
+ */
+public class FailoverChatModelSetup extends BaseChatModelSetup {
+
+    private static final double DEFAULT_HEDGE_PERCENTILE = 0.95;
+    private static final int DEFAULT_MAX_HEDGES = 1;
+    private static final int DEFAULT_CIRCUIT_BREAKER_WINDOW = 20;
+    private static final double DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE = 0.5;
+    private static final double DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_RATE = 0.5;
+    private static final long DEFAULT_CIRCUIT_BREAKER_OPEN_MS = 30_000L;
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final long BLOCKING_THREAD_KEEP_ALIVE_MS = 60_000L;
+
+    private final List<String> chatModels;
+    @Nullable private final Double hedgePercentile;
+    private final int maxHedges;
+    private final int blockingThreads;
+    private final Map<String, ChatModelCircuitBreaker> circuitBreakers = new HashMap<>();
+
+    @Nullable private ExecutorService executor;
+
+    public FailoverChatModelSetup(
+            ResourceDescriptor descriptor, BiFunction<String, ResourceType, Resource> getResource) {
+        super(descriptor, getResource);
+        this.chatModels = descriptor.getArgument("chat_models");
+        if (chatModels == null || chatModels.isEmpty()) {
+            throw new IllegalArgumentException("chat_models must not be empty");
+        }
+        Number hedgePercentile =
+                descriptor.getArgument("hedge_percentile", DEFAULT_HEDGE_PERCENTILE);
+        this.hedgePercentile =
+                hedgePercentile.doubleValue() > 0 ? hedgePercentile.doubleValue() : null;
+        this.maxHedges =
+                descriptor.<Number>getArgument("max_hedges", DEFAULT_MAX_HEDGES).intValue();
+        this.blockingThreads =
+                descriptor
+                        .<Number>getArgument(
+                                "blocking_threads", Runtime.getRuntime().availableProcessors() * 2)
+                        .intValue();
+        if (blockingThreads <= 0) {
+            throw new IllegalArgumentException("blocking_threads must be positive");
+        }
+
+        int window =
+                descriptor
+                        .<Number>getArgument(
+                                "circuit_breaker_window", DEFAULT_CIRCUIT_BREAKER_WINDOW)
+                        .intValue();
+        double failureRate =
+                descriptor
+                        .<Number>getArgument(
+                                "circuit_breaker_failure_rate",
+                                DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE)
+                        .doubleValue();
+        Number slowCallMs = descriptor.getArgument("circuit_breaker_slow_call_ms");
+        double slowCallRate =
+                descriptor
+                        .<Number>getArgument(
+                                "circuit_breaker_slow_call_rate",
+                                DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_RATE)
+                        .doubleValue();
+        long openMs =
+                descriptor
+                        .<Number>getArgument(
+                                "circuit_breaker_open_ms", DEFAULT_CIRCUIT_BREAKER_OPEN_MS)
+                        .longValue();
+        for (String chatModel : chatModels) {
+            circuitBreakers.put(
+                    chatModel,
+                    new ChatModelCircuitBreaker(
+                            window,
+                            failureRate,
+                            slowCallMs != null ? slowCallMs.longValue() : null,
+                            slowCallRate,
+                            openMs));
+        }
+    }
+
+    @Override
+    public Map<String, Object> getParameters() {
+        return new HashMap<>();
+    }
+
+    @Override
+    public ChatMessage chat(List<ChatMessage> messages, Map<String, Object> parameters) {
+        try {
+            return chatAsync(messages, parameters).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<ChatMessage> chatAsync(
+            List<ChatMessage> messages, Map<String, Object> parameters) {
+        List<Target> targets = resolveTargets();
+        Request request = new Request(targets, messages, parameters);
+        request.sendNext();
+        return request.response;
+    }
+
+    /** Requests are sent without blocking, as blocking ones run on threads of this setup. */
+    @Override
+    public boolean supportsNonBlockingChat() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsStreaming() {
+        return false;
+    }
+
+    /** Returns the circuit breaker of the given chat model setup. */
+    public ChatModelCircuitBreaker getCircuitBreaker(String chatModel) {
+        return circuitBreakers.get(chatModel);
+    }
+
+    @Override
+    public void close() throws Exception {
+        synchronized (this) {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        super.close();
+    }
+
+    /**
+     * Resolves the chat model setups on the calling thread, ordered by their preference: the setups
+     * whose circuit breaker lets requests through come first.
+     */
+    private List<Target> resolveTargets() {
+        List<Target> available = new ArrayList<>();
+        List<Target> open = new ArrayList<>();
+        for (String name : chatModels) {
+            Resource resource = getResource.apply(name, ResourceType.CHAT_MODEL);
+            if (resource instanceof PythonChatModelSetup
+                    || resource instanceof FailoverChatModelSetup) {
+                throw new IllegalArgumentException(
+                        "Chat model " + name + " can not be used by a failover chat model.");
+            }
+            BaseChatModelSetup chatModel = (BaseChatModelSetup) resource;
+            chatModel.setMetricGroup(getMetricGroup());
+            Target target = new Target(name, chatModel, circuitBreakers.get(name));
+            if (target.circuitBreaker.tryAcquire()) {
+                target.acquired = true;
+                available.add(target);
+            } else {
+                open.add(target);
+            }
+        }
+        if (available.isEmpty()) {
+            available.add(open.get(0));
+        }
+        return available;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            ThreadPoolExecutor pool =
+                    new ThreadPoolExecutor(
+                            blockingThreads,
+                            blockingThreads,
+                            BLOCKING_THREAD_KEEP_ALIVE_MS,
+                            TimeUnit.MILLISECONDS,
+                            new LinkedBlockingQueue<>(),
+                            runnable -> {
+                                Thread thread = new Thread(runnable, "failover-chat-model");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+
+    private void recordHedge(Target target) {
+        FlinkAgentsMetricGroup metricGroup = getMetricGroup();
+        if (metricGroup != null) {
+            metricGroup.getSubGroup(target.name).getCounter("hedgedRequests").inc();
+        }
+    }
+
+    /** Records the estimated tokens of a duplicate request or of its losing response. */
+    private void recordHedgeTokens(Target target, long tokens) {
+        FlinkAgentsMetricGroup metricGroup = getMetricGroup();
+        if (metricGroup != null) {
+            metricGroup.getSubGroup(target.name).getCounter("hedgeExtraTokens").inc(tokens);
+        }
+    }
+
+    private void recordFailover(Target target) {
+        FlinkAgentsMetricGroup metricGroup = getMetricGroup();
+        if (metricGroup != null) {
+            metricGroup.getSubGroup(target.name).getCounter("failovers").inc();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void recordCircuitBreakerState(Target target) {
+        FlinkAgentsMetricGroup metricGroup = getMetricGroup();
+        if (metricGroup != null) {
+            metricGroup
+                    .getSubGroup(target.name)
+                    .getGauge("circuitBreakerState")
+                    .update(target.circuitBreaker.getState().name());
+        }
+    }
+
+    private static long estimateTokens(List<ChatMessage> messages) {
+        long chars = 0;
+        for (ChatMessage message : messages) {
+            if (message.getContent() != null) {
+                chars += message.getContent().length();
+            }
+        }
+        return chars / CHARS_PER_TOKEN;
+    }
+
+    /** A chat model setup a request may be sent to. */
+    private static final class Target {
+        private final String name;
+        private final BaseChatModelSetup chatModel;
+        private final ChatModelCircuitBreaker circuitBreaker;
+
+        /** Whether the circuit breaker let the first attempt to this target through. */
+        private boolean acquired;
+
+        private Target(
+                String name, BaseChatModelSetup chatModel, ChatModelCircuitBreaker circuitBreaker) {
+            this.name = name;
+            this.chatModel = chatModel;
+            this.circuitBreaker = circuitBreaker;
+        }
+    }
+
+    /** The attempts of a request, of which the first successful one completes its response. */
+    private final class Request {
+        private final List<Target> targets;
+        private final List<ChatMessage> messages;
+        private final Map<String, Object> parameters;
+        private final CompletableFuture<ChatMessage> response = new CompletableFuture<>();
+        private final List<CompletableFuture<ChatMessage>> attempts = new ArrayList<>();
+
+        private int nextTarget;
+        private int hedges;
+        private int pending;
+
+        private Request(
+                List<Target> targets, List<ChatMessage> messages, Map<String, Object> parameters) {
+            this.targets = targets;
+            this.messages = messages;
+            this.parameters = parameters;
+            // A response that is no longer awaited cancels the attempts still running.
+            response.whenComplete((message, t) -> cancelAttempts());
+        }
+
+        /**
+         * Sends the request to the next target, or again to the last target if there is no next
+         * one.
+         */
+        private synchronized void sendNext() {
+            if (response.isDone()) {
+                return;
+            }
+            Target target = targets.get(Math.min(nextTarget, targets.size() - 1));
+            nextTarget++;
+            // The outcome of the attempt is recorded by the circuit breaker that let it through.
+            target.acquired = false;
+
+            long start = System.nanoTime();
+            CompletableFuture<ChatMessage> attempt = send(target);
+            attempts.add(attempt);
+            pending++;
+            attempt.whenComplete(
+                    (message, t) -> onAttemptComplete(target, start, attempt, message, t));
+            scheduleHedge(target);
+        }
+
+        private CompletableFuture<ChatMessage> send(Target target) {
+            if (target.chatModel.supportsNonBlockingChat()) {
+                try {
+                    return target.chatModel.chatAsync(messages, parameters);
+                } catch (RuntimeException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+            CompletableFuture<ChatMessage> attempt = new CompletableFuture<>();
+            Future<?> task =
+                    getExecutor()
+                            .submit(
+                                    () -> {
+                                        try {
+                                            attempt.complete(
+                                                    target.chatModel.chat(messages, parameters));
+                                        } catch (Throwable t) {
+                                            attempt.completeExceptionally(t);
+                                        }
+                                    });
+            attempt.whenComplete(
+                    (message, t) -> {
+                        if (attempt.isCancelled()) {
+                            task.cancel(true);
+                        }
+                    });
+            return attempt;
+        }
+
+        private void scheduleHedge(Target target) {
+            if (hedgePercentile == null || hedges >= maxHedges) {
+                return;
+            }
+            long delayNanos = target.circuitBreaker.getLatencyPercentile(hedgePercentile);
+            if (delayNanos < 0) {
+                return;
+            }
+            CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS)
+                    .execute(
+                            () -> {
+                                synchronized (this) {
+                                    if (response.isDone() || hedges >= maxHedges) {
+                                        return;
+                                    }
+                                    hedges++;
+                                }
+                                recordHedge(target);
+                                recordHedgeTokens(target, estimateTokens(messages));
+                                sendNext();
+                            });
+        }
+
+        private void onAttemptComplete(
+                Target target,
+                long start,
+                CompletableFuture<ChatMessage> attempt,
+                ChatMessage message,
+                Throwable error) {
+            if (attempt.isCancelled()) {
+                target.circuitBreaker.recordCancelled();
+            } else {
+                target.circuitBreaker.record(System.nanoTime() - start, error == null);
+            }
+            recordCircuitBreakerState(target);
+
+            boolean failover;
+            synchronized (this) {
+                pending--;
+                if (error == null) {
+                    if (!response.complete(message) && hedges > 0) {
+                        // The losing response of a hedged request still cost its tokens.
+                        recordHedgeTokens(target, estimateTokens(List.of(message)));
+                    }
+                    return;
+                }
+                if (response.isDone()) {
+                    return;
+                }
+                failover = nextTarget < targets.size();
+                if (!failover && pending == 0) {
+                    response.completeExceptionally(error);
+                    return;
+                }
+            }
+            if (failover) {
+                recordFailover(target);
+                sendNext();
+            }
+        }
+
+        private synchronized void cancelAttempts() {
+            for (CompletableFuture<ChatMessage> attempt : attempts) {
+                attempt.cancel(true);
+            }
+            // The targets no attempt was sent to release their circuit breakers.
+            for (int i = nextTarget; i < targets.size(); i++) {
+                if (targets.get(i).acquired) {
+                    targets.get(i).circuitBreaker.recordCancelled();
+                    targets.get(i).acquired = false;
+                }
+            }
+        }
+    }
+}
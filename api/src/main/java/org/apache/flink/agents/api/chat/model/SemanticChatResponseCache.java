@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api.chat.model;
+
+import org.apache.flink.agents.api.chat.messages.ChatMessage;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache of chat responses that matches requests by the similarity of the embeddings of their
+ * final user messages.
+ *
+ * <p>Entries are kept in namespaces, and a request only matches entries of its own namespace. The
+ * namespace of a request is derived from everything but its final user message, i.e. the
+ * connection, the preceding messages, the tools and the parameters, so that paraphrased questions
+ * share responses only within the same conversation and configuration.
+ *
+ * <p>A request matches the most similar entry of its namespace if their cosine similarity is at
+ * least the threshold. Embeddings are normalized when they are added, so the similarity is a dot
+ * product. The cache holds a bounded number of recent entries, evicting the oldest entries first
+ * and optionally expiring them after a TTL, and searches them exhaustively, which is faster than
+ * building an approximate index at this size.
+ */
+public class SemanticChatResponseCache {
+
+    private final double threshold;
+    private final int maxEntries;
+    @Nullable private final Long ttlNanos;
+
+    /** The entries of each namespace. */
+    private final Map<String, List<Entry>> namespaces = new HashMap<>();
+
+    /** All entries in the order they were added. */
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+
+    private long hits;
+    private long misses;
+    private long savedLatencyNanos;
+
+    /**
+     * Creates a semantic response cache.
+     *
+     * @param threshold the minimum cosine similarity of a matching request, between -1 and 1
+     * @param maxEntries the maximum number of cached responses
+     * @param ttlMs the time in milliseconds a response stays cached, or null to keep it until it is
+     *     evicted
+     */
+    public SemanticChatResponseCache(double threshold, int maxEntries, @Nullable Long ttlMs) {
+        if (threshold < -1 || threshold > 1) {
+            throw new IllegalArgumentException(
+                    "The similarity threshold of a semantic response cache must be between -1 and 1.");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException(
+                    "The max entries of a semantic response cache must be positive.");
+        }
+        this.threshold = threshold;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMs != null ? ttlMs * 1_000_000L : null;
+    }
+
+    /**
+     * Returns a copy of the cached response most similar to the given embedding, or null if there
+     * is no response similar enough.
+     *
+     * @param namespace the namespace of the request
+     * @param embedding the embedding of the final user message of the request
+     */
+    @Nullable
+    public synchronized ChatMessage lookup(String namespace, float[] embedding) {
+        expire(System.nanoTime());
+        float[] normalized = normalize(embedding);
+        Entry best = null;
+        double bestSimilarity = threshold;
+        for (Entry entry : namespaces.getOrDefault(namespace, List.of())) {
+            if (entry.embedding.length != normalized.length) {
+                continue;
+            }
+            double similarity = dot(entry.embedding, normalized);
+            if (similarity >= bestSimilarity) {
+                best = entry;
+                bestSimilarity = similarity;
+            }
+        }
+        if (best == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        savedLatencyNanos += best.latencyNanos;
+        return ChatResponseCache.deserialize(best.response);
+    }
+
+    /**
+     * Caches the response of a request.
+     *
+     * @param namespace the namespace of the request
+     * @param embedding the embedding of the final user message of the request
+     * @param response the response of the model
+     * @param latencyNanos the time the model took to respond, which a hit saves
+     */
+    public synchronized void put(
+            String namespace, float[] embedding, ChatMessage response, long latencyNanos) {
+        long now = System.nanoTime();
+        Entry entry =
+                new Entry(
+                        namespace,
+                        normalize(embedding),
+                        ChatResponseCache.serialize(response),
+                        latencyNanos,
+                        now);
+        namespaces.computeIfAbsent(namespace, k -> new ArrayList<>()).add(entry);
+        entries.addLast(entry);
+        expire(now);
+        while (entries.size() > maxEntries) {
+            remove(entries.pollFirst());
+        }
+    }
+
+    /** Returns the number of requests answered from the cache. */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /** Returns the number of requests with no similar cached response. */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** Returns the ratio of hits to all lookups, or 0 if there was no lookup. */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /** Returns the total time in milliseconds the models took for the responses of all hits. */
+    public synchronized long getSavedLatencyMs() {
+        return savedLatencyNanos / 1_000_000L;
+    }
+
+    /** Returns the number of cached responses. */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void expire(long now) {
+        if (ttlNanos == null) {
+            return;
+        }
+        while (!entries.isEmpty() && now - entries.peekFirst().insertedNanos > ttlNanos) {
+            remove(entries.pollFirst());
+        }
+    }
+
+    private void remove(Entry entry) {
+        List<Entry> namespace = namespaces.get(entry.namespace);
+        namespace.remove(entry);
+        if (namespace.isEmpty()) {
+            namespaces.remove(entry.namespace);
+        }
+    }
+
+    private static float[] normalize(float[] embedding) {
+        double norm = Math.sqrt(dot(embedding, embedding));
+        float[] normalized = new float[embedding.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        for (int i = 0; i < embedding.length; i++) {
+            normalized[i] = (float) (embedding[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static final class Entry {
+        private final String namespace;
+        private final float[] embedding;
+        private final byte[] response;
+        private final long latencyNanos;
+        private final long insertedNanos;
+
+        private Entry(
+                String namespace,
+                float[] embedding,
+                byte[] response,
+                long latencyNanos,
+                long insertedNanos) {
+            this.namespace = namespace;
+            this.embedding = embedding;
+            this.response = response;
+            this.latencyNanos = latencyNanos;
+            this.insertedNanos = insertedNanos;
+        }
+    }
+}
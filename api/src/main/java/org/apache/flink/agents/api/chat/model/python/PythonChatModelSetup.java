@@ -76,6 +76,16 @@ public class PythonChatModelSetup extends BaseChatModelSetup implements PythonRe
         return adapter.fromPythonChatMessage(pythonMessageResponse);
     }
 
+    @Override
+    public boolean supportsNonBlockingChat() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsStreaming() {
+        return false;
+    }
+
     @Override
     public Object getPythonResource() {
         return chatModelSetup;
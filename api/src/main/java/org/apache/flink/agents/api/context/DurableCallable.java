@@ -17,6 +17,8 @@
  */
 package org.apache.flink.agents.api.context;
 
+import javax.annotation.Nullable;
+
 /**
  * A callable interface for durable execution that requires a stable identifier.
  *
@@ -46,4 +48,17 @@ public interface DurableCallable<T> {
      * must be JSON-serializable.
      */
     T call() throws Exception;
+
+    /**
+     * Returns the name of the bulkhead this call runs in when executed by {@link
+     * RunnerContext#durableExecuteAsync}.
+     *
+     * <p>Each bulkhead declared by the {@code async.bulkheads} option has its own threads,
+     * concurrency limit and queue bound, so that slow calls of one kind cannot starve the others.
+     * Calls without a bulkhead, or with an undeclared one, run on the default async executor.
+     */
+    @Nullable
+    default String getBulkhead() {
+        return null;
+    }
 }
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.agents.api.context;
+
+import org.apache.flink.agents.api.Event;
+
+import javax.annotation.Nullable;
+
+import java.util.function.Consumer;
+
+/**
+ * A durable call that sends partial results as events while it is running.
+ *
+ * <p>This interface is used with {@link
+ * RunnerContext#durableExecuteStreaming(DurableStreamingCallable)} for long-running operations
+ * whose intermediate output is useful before they complete, such as streamed chat responses.
+ *
+ * @param <T> the type of the result
+ */
+public interface DurableStreamingCallable<T> {
+
+    /**
+     * Returns a stable identifier for this durable call.
+     *
+     * <p>This identifier must be unique within the action and deterministic for the same logical
+     * operation. The ID is used to match cached results during recovery.
+     */
+    String getId();
+
+    /** Returns the class of the result for deserialization during recovery. */
+    Class<T> getResultClass();
+
+    /**
+     * Executes the durable operation and returns the result.
+     *
+     * <p>This method will be called only if there is no cached result for this call. The partial
+     * events passed to the given consumer are sent while the call is running, in the order they are
+     * passed. They are not sent again when the result is returned from cache. The result must be
+     * JSON-serializable.
+     */
+    T call(Consumer<Event> partialEvents) throws Exception;
+
+    /**
+     * Returns the name of the bulkhead this call runs in.
+     *
+     * @see DurableCallable#getBulkhead()
+     */
+    @Nullable
+    default String getBulkhead() {
+        return null;
+    }
+}
@@ -24,7 +24,11 @@ import org.apache.flink.agents.api.metrics.FlinkAgentsMetricGroup;
 import org.apache.flink.agents.api.resource.Resource;
 import org.apache.flink.agents.api.resource.ResourceType;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
 
 /**
  * A context object used during action execution. It is responsible for collecting output events
@@ -132,6 +136,158 @@ public interface RunnerContext {
      */
     <T> T durableExecuteAsync(DurableCallable<T> callable) throws Exception;
 
+    /**
+     * Asynchronously executes the provided non-blocking callable with durable execution support.
+     *
+     * <p>The callable starts its operation on the thread running the action and returns a future of
+     * the result. On JDK 21+, the current action execution yields until the future is complete,
+     * without holding any thread while waiting. On JDK &lt; 21, and by default, this waits for the
+     * future synchronously.
+     *
+     * <p>The result will be stored and returned from cache during job recovery.
+     *
+     * <p>Access to memory and sendEvent are prohibited within the callable.
+     */
+    default <T> T durableExecuteAsync(DurableAsyncCallable<T> callable) throws Exception {
+        return durableExecute(
+                new DurableCallable<T>() {
+                    @Override
+                    public String getId() {
+                        return callable.getId();
+                    }
+
+                    @Override
+                    public Class<T> getResultClass() {
+                        return callable.getResultClass();
+                    }
+
+                    @Override
+                    public T call() throws Exception {
+                        try {
+                            return callable.callAsync().get();
+                        } catch (ExecutionException e) {
+                            if (e.getCause() instanceof Exception) {
+                                throw (Exception) e.getCause();
+                            }
+                            throw e;
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Asynchronously executes the provided streaming callable with durable execution support.
+     *
+     * <p>On JDK 21+, this method submits the callable to a thread pool like {@link
+     * #durableExecuteAsync(DurableCallable)}, and resumes the current action execution whenever the
+     * callable passes partial events, which are then sent downstream right away, before the action
+     * finishes. On JDK &lt; 21, and by default, the callable is executed synchronously and its
+     * partial events are sent together with the other events of the action.
+     *
+     * <p>The result will be stored and returned from cache during job recovery.
+     *
+     * <p>Access to memory and sendEvent are prohibited within the callable.
+     */
+    default <T> T durableExecuteStreaming(DurableStreamingCallable<T> callable) throws Exception {
+        List<Event> partialEvents = new ArrayList<>();
+        T result =
+                durableExecute(
+                        new DurableCallable<T>() {
+                            @Override
+                            public String getId() {
+                                return callable.getId();
+                            }
+
+                            @Override
+                            public Class<T> getResultClass() {
+                                return callable.getResultClass();
+                            }
+
+                            @Override
+                            public T call() throws Exception {
+                                return callable.call(partialEvents::add);
+                            }
+                        });
+        partialEvents.forEach(this::sendEvent);
+        return result;
+    }
+
+    /**
+     * Asynchronously executes all the provided callables concurrently with durable execution
+     * support.
+     *
+     * <p>On JDK 21+, this method submits all the callables at once, yields the current action
+     * execution, and resumes when all of them are complete or the first one fails. On JDK &lt; 21,
+     * this falls back to executing the callables synchronously one after another.
+     *
+     * <p>The result of each callable is stored as a separate call in the order of the given list,
+     * and returned from cache during job recovery. If a callable fails, the exception of the failed
+     * callable with the lowest index is thrown, the results of the callables after it are
+     * discarded, and the callables still running are cancelled.
+     *
+     * <p>Access to memory and sendEvent are prohibited within the callables.
+     *
+     * @return the results of the callables, in the order of the given list
+     */
+    default <T> List<T> durableExecuteAsyncAll(List<DurableCallable<T>> callables)
+            throws Exception {
+        return durableExecuteAsyncAll(callables, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Asynchronously executes all the provided callables with durable execution support, with at
+     * most the given number of them running at the same time.
+     *
+     * <p>Behaves like {@link #durableExecuteAsyncAll(List)}, except that on JDK 21+ the callables
+     * are started in list order, and once the given number of them are running, the next one is
+     * started as soon as one of them completes. By default, the callables are executed
+     * synchronously one after another.
+     *
+     * @param maxConcurrency the maximum number of callables running at the same time
+     * @return the results of the callables, in the order of the given list
+     */
+    default <T> List<T> durableExecuteAsyncAll(
+            List<DurableCallable<T>> callables, int maxConcurrency) throws Exception {
+        List<T> results = new ArrayList<>(callables.size());
+        for (DurableCallable<T> callable : callables) {
+            results.add(durableExecute(callable));
+        }
+        return results;
+    }
+
+    /**
+     * Asynchronously executes all the provided callables with durable execution support, with at
+     * most the given number of them running at the same time, without failing all of them if one
+     * fails.
+     *
+     * <p>Behaves like {@link #durableExecuteAsyncAll(List, int)}, except that the result of a
+     * callable that throws, times out or is cancelled is the one the given function returns for its
+     * exception, and the results of the other callables are kept. These results are stored and
+     * returned from cache during job recovery like the others, so that a recovered action sees the
+     * same outcome of each recorded callable. By default, the callables are executed synchronously
+     * one after another.
+     *
+     * @param maxConcurrency the maximum number of callables running at the same time
+     * @param onFailure returns the result of a callable for its exception, access to memory and
+     *     sendEvent are prohibited within it
+     * @return the results of the callables, in the order of the given list
+     */
+    default <T> List<T> durableExecuteAsyncAll(
+            List<DurableCallable<T>> callables,
+            int maxConcurrency,
+            Function<Exception, T> onFailure)
+            throws Exception {
+        List<T> results = new ArrayList<>(callables.size());
+        for (DurableCallable<T> callable : callables) {
+            try {
+                results.add(durableExecute(callable));
+            } catch (Exception e) {
+                results.add(onFailure.apply(e));
+            }
+        }
+        return results;
+    }
+
     /** Clean up the resource. */
     void close() throws Exception;
 }
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.agents.api.event;
+
+import org.apache.flink.agents.api.Event;
+
+import java.util.UUID;
+
+/**
+ * Event representing a delta of the text of a chat response that is still being generated.
+ *
+ * <p>These events are sent while the response is streamed, before the {@link ChatResponseEvent}
+ * with the complete response. The deltas of a response, ordered by their index, add up to its
+ * content. They are not replayed on recovery.
+ *
+ * <p>A response may be generated more than once for the same request, e.g. when the request is
+ * retried or escalated to the next tier of a cascade. Each generation is a new attempt, whose
+ * deltas are indexed from 0 again and supersede the deltas of the earlier attempts.
+ */
+public class PartialChatResponseEvent extends Event {
+    private final UUID requestId;
+    private final int attempt;
+    private final String delta;
+    private final int index;
+
+    public PartialChatResponseEvent(UUID requestId, int attempt, String delta, int index) {
+        this.requestId = requestId;
+        this.attempt = attempt;
+        this.delta = delta;
+        this.index = index;
+    }
+
+    public UUID getRequestId() {
+        return requestId;
+    }
+
+    /** Returns the attempt generating the response, starting from 0. */
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public String getDelta() {
+        return delta;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+}
@@ -154,17 +154,18 @@ public abstract class Prompt extends SerializableResource {
         public String formatString(Map<String, String> kwargs) {
             return template.match(
                     // Handle string template
-                    content -> format(content, kwargs),
+                    content -> content.format(kwargs),
                     // Handle messages template
                     messages -> {
-                        List<String> formattedMessages = new ArrayList<>();
-                        for (ChatMessage message : messages) {
-                            String formattedContent = format(message.getContent(), kwargs);
-                            String formatted =
-                                    message.getRole().getValue() + ": " + formattedContent;
-                            formattedMessages.add(formatted);
+                        StringBuilder formatted = new StringBuilder();
+                        for (int i = 0; i < messages.size(); i++) {
+                            if (i > 0) {
+                                formatted.append('\n');
+                            }
+                            formatted.append(messages.get(i).getRole().getValue()).append(": ");
+                            messages.getContent(i).formatTo(formatted, kwargs);
                         }
-                        return String.join("\n", formattedMessages);
+                        return formatted.toString();
                     });
         }
 
@@ -176,16 +177,18 @@ public abstract class Prompt extends SerializableResource {
                     content ->
                             new ArrayList<>(
                                     Collections.singletonList(
-                                            new ChatMessage(defaultRole, format(content, kwargs)))),
+                                            new ChatMessage(defaultRole, content.format(kwargs)))),
                     // Handle messages template
-                    messages ->
-                            messages.stream()
-                                    .map(
-                                            message ->
-                                                    new ChatMessage(
-                                                            message.getRole(),
-                                                            format(message.getContent(), kwargs)))
-                                    .collect(Collectors.toList()));
+                    messages -> {
+                        List<ChatMessage> formatted = new ArrayList<>(messages.size());
+                        for (int i = 0; i < messages.size(); i++) {
+                            formatted.add(
+                                    new ChatMessage(
+                                            messages.get(i).getRole(),
+                                            messages.getContent(i).format(kwargs)));
+                        }
+                        return formatted;
+                    });
         }
 
         @Override
@@ -205,19 +208,79 @@ public abstract class Prompt extends SerializableResource {
             return "LocalPrompt{" + "template=" + template + '}';
         }
 
-        /** Format template string with keyword arguments */
-        private static String format(String template, Map<String, String> kwargs) {
-            if (template == null) {
-                return "";
+        /**
+         * A template string compiled into its literal text and placeholders, so that formatting it
+         * is a single pass appending them. A placeholder is a {variable} without braces in its
+         * name, and is kept as is if there is no argument for it.
+         */
+        private static final class CompiledTemplate {
+            /** The literal text before each placeholder, and after the last one. */
+            private final String[] literals;
+
+            private final String[] names;
+            private final int literalLength;
+
+            private CompiledTemplate(List<String> literals, List<String> names) {
+                this.literals = literals.toArray(new String[0]);
+                this.names = names.toArray(new String[0]);
+                this.literalLength = literals.stream().mapToInt(String::length).sum();
+            }
+
+            static CompiledTemplate compile(String template) {
+                List<String> literals = new ArrayList<>();
+                List<String> names = new ArrayList<>();
+                if (template == null) {
+                    literals.add("");
+                    return new CompiledTemplate(literals, names);
+                }
+
+                int literalStart = 0;
+                int open = template.indexOf('{');
+                while (open >= 0) {
+                    int close = open + 1;
+                    while (close < template.length()
+                            && template.charAt(close) != '}'
+                            && template.charAt(close) != '{') {
+                        close++;
+                    }
+                    if (close == template.length()) {
+                        break;
+                    }
+                    if (template.charAt(close) == '{') {
+                        // The brace opened before is literal, the inner one may open a placeholder.
+                        open = close;
+                        continue;
+                    }
+                    literals.add(template.substring(literalStart, open));
+                    names.add(template.substring(open + 1, close));
+                    literalStart = close + 1;
+                    open = template.indexOf('{', literalStart);
+                }
+                literals.add(template.substring(literalStart));
+                return new CompiledTemplate(literals, names);
+            }
+
+            String format(Map<String, String> kwargs) {
+                if (names.length == 0) {
+                    return literals[0];
+                }
+                StringBuilder formatted = new StringBuilder(literalLength + 16 * names.length);
+                formatTo(formatted, kwargs);
+                return formatted.toString();
             }
 
-            String result = template;
-            for (Map.Entry<String, String> entry : kwargs.entrySet()) {
-                String placeholder = "{" + entry.getKey() + "}";
-                String value = entry.getValue() != null ? entry.getValue() : "";
-                result = result.replace(placeholder, value);
+            void formatTo(StringBuilder formatted, Map<String, String> kwargs) {
+                formatted.append(literals[0]);
+                for (int i = 0; i < names.length; i++) {
+                    String value = kwargs.get(names[i]);
+                    if (value != null) {
+                        formatted.append(value);
+                    } else if (!kwargs.containsKey(names[i])) {
+                        formatted.append('{').append(names[i]).append('}');
+                    }
+                    formatted.append(literals[i + 1]);
+                }
             }
-            return result;
         }
 
         @JsonTypeInfo(use = JsonTypeInfo.Id.CLASS)
@@ -235,7 +298,8 @@ public abstract class Prompt extends SerializableResource {
              * casting.
              */
             public abstract <T> T match(
-                    Function<String, T> onString, Function<List<ChatMessage>, T> onMessages);
+                    Function<CompiledTemplate, T> onString,
+                    Function<MessagesTemplate, T> onMessages);
         }
 
         /** String template implementation. */
@@ -245,9 +309,12 @@ public abstract class Prompt extends SerializableResource {
             @JsonProperty(FIELD_CONTENT)
             private final String content;
 
+            @JsonIgnore private final transient CompiledTemplate compiled;
+
             @JsonCreator
             public StringTemplate(@JsonProperty(FIELD_CONTENT) String content) {
                 this.content = Objects.requireNonNull(content, "content cannot be null");
+                this.compiled = CompiledTemplate.compile(content);
             }
 
             public String getContent() {
@@ -256,8 +323,9 @@ public abstract class Prompt extends SerializableResource {
 
             @Override
             public <T> T match(
-                    Function<String, T> onString, Function<List<ChatMessage>, T> onMessages) {
-                return onString.apply(content);
+                    Function<CompiledTemplate, T> onString,
+                    Function<MessagesTemplate, T> onMessages) {
+                return onString.apply(compiled);
             }
 
             @Override
@@ -285,6 +353,8 @@ public abstract class Prompt extends SerializableResource {
             @JsonProperty(FIELD_MESSAGES)
             private final List<ChatMessage> messages;
 
+            @JsonIgnore private final transient List<CompiledTemplate> compiledContents;
+
             @JsonCreator
             public MessagesTemplate(@JsonProperty(FIELD_MESSAGES) List<ChatMessage> messages) {
                 Objects.requireNonNull(messages, "messages cannot be null");
@@ -292,16 +362,33 @@ public abstract class Prompt extends SerializableResource {
                     throw new IllegalArgumentException("Messages cannot be empty");
                 }
                 this.messages = new ArrayList<>(messages);
+                this.compiledContents =
+                        messages.stream()
+                                .map(message -> CompiledTemplate.compile(message.getContent()))
+                                .collect(Collectors.toList());
             }
 
             public List<ChatMessage> getMessages() {
                 return new ArrayList<>(messages);
             }
 
+            int size() {
+                return messages.size();
+            }
+
+            ChatMessage get(int index) {
+                return messages.get(index);
+            }
+
+            CompiledTemplate getContent(int index) {
+                return compiledContents.get(index);
+            }
+
             @Override
             public <T> T match(
-                    Function<String, T> onString, Function<List<ChatMessage>, T> onMessages) {
-                return onMessages.apply(new ArrayList<>(messages));
+                    Function<CompiledTemplate, T> onString,
+                    Function<MessagesTemplate, T> onMessages) {
+                return onMessages.apply(this);
             }
 
             @Override
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Tests for {@link Event}. */
+class EventTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void testIdsAreIncreasingVersion7Uuids() {
+        Set<UUID> ids = new HashSet<>();
+        UUID previous = null;
+        // More ids than the counter can hold within one millisecond.
+        for (int i = 0; i < 10_000; i++) {
+            UUID id = new InputEvent(i).getId();
+            assertThat(id.version()).isEqualTo(7);
+            assertThat(id.variant()).isEqualTo(2);
+            if (previous != null) {
+                assertThat(
+                                Long.compareUnsigned(
+                                        id.getMostSignificantBits(),
+                                        previous.getMostSignificantBits()))
+                        .isPositive();
+                assertThat(id.getLeastSignificantBits())
+                        .isEqualTo(previous.getLeastSignificantBits());
+            }
+            ids.add(id);
+            previous = id;
+        }
+        assertThat(ids).hasSize(10_000);
+    }
+
+    @Test
+    void testIdsDifferAcrossThreads() throws Exception {
+        UUID[] otherThreadId = new UUID[1];
+        Thread thread = new Thread(() -> otherThreadId[0] = new InputEvent(1).getId());
+        thread.start();
+        thread.join();
+
+        assertThat(new InputEvent(1).getId().getLeastSignificantBits())
+                .isNotEqualTo(otherThreadId[0].getLeastSignificantBits());
+    }
+
+    @Test
+    void testAttributesAllocatedLazily() {
+        InputEvent event = new InputEvent(1);
+        assertThat(event.getAttributes()).isEmpty();
+        assertThat(event.getAttr("a")).isNull();
+
+        event.setAttr("a", 1);
+        assertThat(event.getAttr("a")).isEqualTo(1);
+        assertThat(event.getAttributes()).containsEntry("a", 1);
+    }
+
+    @Test
+    void testJsonRepresentationUnchanged() throws Exception {
+        InputEvent event = new InputEvent("input");
+        JsonNode json = MAPPER.readTree(MAPPER.writeValueAsString(event));
+        assertThat(json.get("id").asText()).isEqualTo(event.getId().toString());
+        assertThat(json.get("attributes").isObject()).isTrue();
+        assertThat(json.get("attributes").size()).isZero();
+
+        InputEvent restored = MAPPER.readValue(MAPPER.writeValueAsString(event), InputEvent.class);
+        assertThat(restored).isEqualTo(event);
+
+        // Events serialized with random ids and attributes are still read.
+        UUID randomId = UUID.randomUUID();
+        InputEvent legacy =
+                MAPPER.readValue(
+                        "{\"id\":\""
+                                + randomId
+                                + "\",\"attributes\":{\"a\":1},\"input\":\"input\"}",
+                        InputEvent.class);
+        assertThat(legacy.getId()).isEqualTo(randomId);
+        assertThat(legacy.getAttr("a")).isEqualTo(1);
+    }
+}
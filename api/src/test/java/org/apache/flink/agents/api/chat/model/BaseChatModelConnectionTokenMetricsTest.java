@@ -25,14 +25,21 @@ import org.apache.flink.agents.api.resource.Resource;
 import org.apache.flink.agents.api.resource.ResourceDescriptor;
 import org.apache.flink.agents.api.resource.ResourceType;
 import org.apache.flink.agents.api.tools.Tool;
+import org.apache.flink.agents.api.tools.ToolMetadata;
+import org.apache.flink.agents.api.tools.ToolParameters;
+import org.apache.flink.agents.api.tools.ToolResponse;
+import org.apache.flink.agents.api.tools.ToolType;
 import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Histogram;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -49,6 +56,7 @@ class BaseChatModelConnectionTokenMetricsTest {
 
     /** Test implementation of BaseChatModelConnection for testing purposes. */
     private static class TestChatModelConnection extends BaseChatModelConnection {
+        private int conversions;
 
         public TestChatModelConnection(
                 ResourceDescriptor descriptor,
@@ -68,6 +76,27 @@ class BaseChatModelConnectionTokenMetricsTest {
                 String modelName, long promptTokens, long completionTokens) {
             recordTokenMetrics(modelName, promptTokens, completionTokens);
         }
+
+        public String testGetToolDefinition(Tool tool, Object variant) {
+            return getToolDefinition(
+                    tool,
+                    variant,
+                    metadata -> metadata.getName() + ":" + variant + ":" + conversions++);
+        }
+
+        public void testRecordPromptCacheMetrics(
+                String modelName, long cacheReadTokens, long cacheWriteTokens) {
+            recordPromptCacheMetrics(modelName, cacheReadTokens, cacheWriteTokens);
+        }
+
+        public void testRecordStreamingMetrics(
+                String modelName,
+                long timeToFirstTokenNanos,
+                long completionTokens,
+                long generationNanos) {
+            recordStreamingMetrics(
+                    modelName, timeToFirstTokenNanos, completionTokens, generationNanos);
+        }
     }
 
     @BeforeEach
@@ -149,9 +178,83 @@ class BaseChatModelConnectionTokenMetricsTest {
         verify(mockGpt35CompletionCounter).inc(100);
     }
 
+    @Test
+    @DisplayName("Test prompt cache metrics are recorded as counters")
+    void testRecordPromptCacheMetrics() {
+        connection.setMetricGroup(mockMetricGroup);
+        Counter cachedPromptTokens = mock(Counter.class);
+        Counter cacheWritePromptTokens = mock(Counter.class);
+        when(mockModelGroup.getCounter("cachedPromptTokens")).thenReturn(cachedPromptTokens);
+        when(mockModelGroup.getCounter("cacheWritePromptTokens"))
+                .thenReturn(cacheWritePromptTokens);
+
+        connection.testRecordPromptCacheMetrics("gpt-4", 1024, 256);
+
+        verify(cachedPromptTokens).inc(1024);
+        verify(cacheWritePromptTokens).inc(256);
+    }
+
+    @Test
+    @DisplayName("Test streaming metrics are recorded as histograms")
+    void testRecordStreamingMetrics() {
+        connection.setMetricGroup(mockMetricGroup);
+        Histogram timeToFirstToken = mock(Histogram.class);
+        Histogram tokensPerSecond = mock(Histogram.class);
+        when(mockModelGroup.getHistogram("timeToFirstTokenMs")).thenReturn(timeToFirstToken);
+        when(mockModelGroup.getHistogram("tokensPerSecond")).thenReturn(tokensPerSecond);
+
+        connection.testRecordStreamingMetrics(
+                "gpt-4", TimeUnit.MILLISECONDS.toNanos(250), 100, TimeUnit.SECONDS.toNanos(2));
+
+        verify(timeToFirstToken).update(250);
+        verify(tokensPerSecond).update(50);
+    }
+
+    @Test
+    @DisplayName("Test default streaming passes the whole content as a single delta")
+    void testDefaultChatStream() {
+        List<String> deltas = new ArrayList<>();
+        ChatMessage response =
+                connection.chatStream(
+                        Collections.emptyList(),
+                        Collections.emptyList(),
+                        Collections.emptyMap(),
+                        deltas::add);
+
+        assertEquals("Test response", response.getContent());
+        assertEquals(List.of("Test response"), deltas);
+        assertFalse(connection.supportsStreaming());
+    }
+
+    @Test
+    @DisplayName("Test tool definitions are converted once per metadata and variant")
+    void testToolDefinitionsAreCached() {
+        assertEquals("search:null:0", connection.testGetToolDefinition(tool("{}"), null));
+        assertEquals("search:null:0", connection.testGetToolDefinition(tool("{}"), null));
+        assertEquals("search:true:1", connection.testGetToolDefinition(tool("{}"), true));
+        // A changed input schema is converted again.
+        assertEquals(
+                "search:null:2",
+                connection.testGetToolDefinition(tool("{\"type\": \"object\"}"), null));
+    }
+
     @Test
     @DisplayName("Test resource type is CHAT_MODEL_CONNECTION")
     void testResourceType() {
         assertEquals(ResourceType.CHAT_MODEL_CONNECTION, connection.getResourceType());
     }
+
+    private static Tool tool(String inputSchema) {
+        return new Tool(new ToolMetadata("search", "Searches the web.", inputSchema)) {
+            @Override
+            public ToolType getToolType() {
+                return ToolType.FUNCTION;
+            }
+
+            @Override
+            public ToolResponse call(ToolParameters parameters) {
+                return ToolResponse.success(null);
+            }
+        };
+    }
 }
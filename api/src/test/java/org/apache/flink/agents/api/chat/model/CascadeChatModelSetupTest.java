@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api.chat.model;
+
+import org.apache.flink.agents.api.chat.messages.ChatMessage;
+import org.apache.flink.agents.api.chat.messages.MessageRole;
+import org.apache.flink.agents.api.resource.Resource;
+import org.apache.flink.agents.api.resource.ResourceDescriptor;
+import org.apache.flink.agents.api.resource.ResourceType;
+import org.apache.flink.agents.api.tools.Tool;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Tests for {@link CascadeChatModelSetup}. */
+class CascadeChatModelSetupTest {
+
+    private final Map<String, Resource> resources = new HashMap<>();
+    private final BiFunction<String, ResourceType, Resource> getResource =
+            (name, type) -> resources.get(name);
+
+    @Test
+    void testAcceptsConfidentResponseOfCheapTier() {
+        FakeConnection cheap = addChatModel("cheap", "cheap", -0.1);
+        FakeConnection capable = addChatModel("capable", "capable", -0.01);
+        CascadeChatModelSetup cascade = createCascade(Map.of());
+
+        assertThat(chat(cascade)).isEqualTo("cheap");
+        assertThat(cheap.calls).hasValue(1);
+        assertThat(capable.calls).hasValue(0);
+    }
+
+    @Test
+    void testEscalatesOnLowConfidence() {
+        FakeConnection cheap = addChatModel("cheap", "cheap", -1.5);
+        addChatModel("capable", "capable", -1.5);
+        CascadeChatModelSetup cascade = createCascade(Map.of());
+
+        // The response of the last tier is accepted regardless of its confidence.
+        assertThat(chat(cascade)).isEqualTo("capable");
+        assertThat(cheap.calls).hasValue(1);
+    }
+
+    @Test
+    void testEscalatesOnMissingLogprobs() {
+        addChatModel("cheap", "cheap", null);
+        addChatModel("capable", "capable", null);
+        CascadeChatModelSetup cascade = createCascade(Map.of("min_mean_logprob", -10.0));
+
+        assertThat(chat(cascade)).isEqualTo("capable");
+    }
+
+    @Test
+    void testJsonAcceptanceCheck() {
+        addChatModel("cheap", "{\"answer\": ", null);
+        addChatModel("capable", "{\"answer\": 42}", null);
+        CascadeChatModelSetup cascade = createCascade(Map.of("acceptance_check", "json"));
+
+        assertThat(chat(cascade)).isEqualTo("{\"answer\": 42}");
+        assertThat(cascade.accept(List.of(), ChatMessage.assistant("[1, 2]"))).isTrue();
+        assertThat(cascade.accept(List.of(), ChatMessage.assistant("42"))).isFalse();
+    }
+
+    @Test
+    void testCustomAcceptanceCheck() {
+        addChatModel("cheap", "I don't know", null);
+        addChatModel("capable", "Paris", null);
+        CascadeChatModelSetup cascade =
+                createCascade(Map.of("acceptance_check", RejectUnknown.class.getName()));
+
+        assertThat(chat(cascade)).isEqualTo("Paris");
+    }
+
+    @Test
+    void testInvalidConfiguration() {
+        assertThatThrownBy(() -> createCascade(Map.of("tiers", List.of())))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> createCascade(Map.of("acceptance_check", "NoSuchCheck")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String chat(CascadeChatModelSetup cascade) {
+        return cascade.chat(List.of(new ChatMessage(MessageRole.USER, "hi"))).getContent();
+    }
+
+    private CascadeChatModelSetup createCascade(Map<String, Object> extraArguments) {
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("tiers", List.of("cheap", "capable"));
+        arguments.putAll(extraArguments);
+        return new CascadeChatModelSetup(
+                new ResourceDescriptor(CascadeChatModelSetup.class.getName(), arguments),
+                getResource);
+    }
+
+    private FakeConnection addChatModel(String name, String content, Double meanLogprob) {
+        FakeConnection connection = new FakeConnection(content, meanLogprob, getResource);
+        resources.put(name + "Connection", connection);
+        resources.put(
+                name,
+                new TestChatModelSetup(
+                        new ResourceDescriptor(
+                                TestChatModelSetup.class.getName(),
+                                Map.of("connection", name + "Connection")),
+                        getResource));
+        return connection;
+    }
+
+    /** Rejects responses admitting not to know the answer. */
+    public static class RejectUnknown implements CascadeAcceptanceCheck {
+        @Override
+        public boolean accept(List<ChatMessage> messages, ChatMessage response) {
+            return !response.getContent().contains("don't know");
+        }
+    }
+
+    /** A connection responding with fixed content and mean log probability. */
+    private static class FakeConnection extends BaseChatModelConnection {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final String content;
+        private final Double meanLogprob;
+
+        FakeConnection(
+                String content,
+                Double meanLogprob,
+                BiFunction<String, ResourceType, Resource> getResource) {
+            super(new ResourceDescriptor(FakeConnection.class.getName(), Map.of()), getResource);
+            this.content = content;
+            this.meanLogprob = meanLogprob;
+        }
+
+        @Override
+        public ChatMessage chat(
+                List<ChatMessage> messages, List<Tool> tools, Map<String, Object> arguments) {
+            calls.incrementAndGet();
+            ChatMessage response = ChatMessage.assistant(content);
+            if (meanLogprob != null) {
+                response.getExtraArgs().put(CascadeAcceptanceCheck.MEAN_LOGPROB, meanLogprob);
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api.chat.model;
+
+import org.apache.flink.agents.api.chat.messages.ChatMessage;
+import org.apache.flink.agents.api.chat.messages.MessageRole;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Tests for {@link ChatContextBudget}. */
+class ChatContextBudgetTest {
+
+    /** Estimates one token per character, to make the budgets easy to follow. */
+    private static final ChatTokenEstimator CHARS = String::length;
+
+    @Test
+    void testKeepsMessagesWithinBudget() {
+        List<ChatMessage> messages = conversation(2, 10);
+        ChatContextBudget budget = new ChatContextBudget(1000, 100, CHARS);
+
+        ChatContextBudget.Result result = budget.fit(messages, null);
+
+        assertThat(result.getMessages()).isSameAs(messages);
+        assertThat(result.getTrimmedTokens()).isZero();
+    }
+
+    @Test
+    void testTruncatesLargeToolResults() {
+        List<ChatMessage> messages = conversation(1, 500);
+        ChatContextBudget budget = new ChatContextBudget(300, 100, CHARS);
+
+        ChatContextBudget.Result result = budget.fit(messages, null);
+
+        ChatMessage toolResult = result.getMessages().get(3);
+        assertThat(toolResult.getContent()).startsWith("x".repeat(100)).contains("truncated");
+        assertThat(toolResult.getExtraArgs()).containsEntry("externalId", "call-0");
+        assertThat(budget.estimateTokens(result.getMessages())).isLessThanOrEqualTo(300);
+        assertThat(result.getTrimmedTokens()).isPositive();
+        // The given messages are not modified.
+        assertThat(messages.get(3).getContent()).hasSize(500);
+    }
+
+    @Test
+    void testRemovesOldestToolOutputs() {
+        List<ChatMessage> messages = conversation(3, 100);
+        ChatContextBudget budget = new ChatContextBudget(300, 100, CHARS);
+
+        List<ChatMessage> fitted = budget.fit(messages, null).getMessages();
+
+        assertThat(fitted).hasSameSizeAs(messages);
+        assertThat(fitted.get(3).getContent()).isEqualTo(ChatContextBudget.REMOVED_TOOL_OUTPUT);
+        assertThat(fitted.get(5).getContent()).isEqualTo(ChatContextBudget.REMOVED_TOOL_OUTPUT);
+        // The outputs of the latest tool calls are kept.
+        assertThat(fitted.get(7).getContent()).isEqualTo("x".repeat(100));
+    }
+
+    @Test
+    void testSummarizesOlderTurns() {
+        List<ChatMessage> messages = conversation(4, 100);
+        ChatContextBudget budget = new ChatContextBudget(210, 100, CHARS);
+        List<List<ChatMessage>> requests = new ArrayList<>();
+
+        ChatContextBudget.Result result =
+                budget.fit(
+                        messages,
+                        request -> {
+                            requests.add(request);
+                            return "searched three times";
+                        });
+
+        List<ChatMessage> fitted = result.getMessages();
+        assertThat(result.isSummarized()).isTrue();
+        assertThat(fitted).hasSize(5);
+        assertThat(fitted.get(0).getRole()).isEqualTo(MessageRole.SYSTEM);
+        assertThat(fitted.get(1).getContent()).isEqualTo("find it");
+        assertThat(fitted.get(2).getContent()).endsWith("searched three times");
+        assertThat(fitted.get(3).getToolCalls()).isNotEmpty();
+        assertThat(fitted.get(4).getRole()).isEqualTo(MessageRole.TOOL);
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0).get(1).getContent()).contains("tool call:");
+        assertThat(budget.estimateTokens(fitted)).isLessThanOrEqualTo(210);
+    }
+
+    @Test
+    void testKeepsTurnsIfSummaryFails() {
+        List<ChatMessage> messages = conversation(4, 100);
+        ChatContextBudget budget = new ChatContextBudget(200, 100, CHARS);
+
+        ChatContextBudget.Result result =
+                budget.fit(
+                        messages,
+                        request -> {
+                            throw new IllegalStateException("unavailable");
+                        });
+
+        assertThat(result.isSummarized()).isFalse();
+        assertThat(result.getMessages()).hasSameSizeAs(messages);
+    }
+
+    /** Returns a system prompt and a request, followed by the given number of tool call turns. */
+    private static List<ChatMessage> conversation(int toolCalls, int toolResultLength) {
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(new ChatMessage(MessageRole.SYSTEM, "be brief"));
+        messages.add(new ChatMessage(MessageRole.USER, "find it"));
+        for (int i = 0; i < toolCalls; i++) {
+            List<Map<String, Object>> calls = new ArrayList<>();
+            calls.add(Map.of("id", "call-" + i, "function", Map.of("name", "search")));
+            messages.add(new ChatMessage(MessageRole.ASSISTANT, "", calls));
+            messages.add(
+                    new ChatMessage(
+                            MessageRole.TOOL,
+                            "x".repeat(toolResultLength),
+                            Map.of("externalId", "call-" + i)));
+        }
+        return messages;
+    }
+}
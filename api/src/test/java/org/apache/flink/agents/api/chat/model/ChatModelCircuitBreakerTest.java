@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api.chat.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Tests for {@link ChatModelCircuitBreaker}. */
+class ChatModelCircuitBreakerTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    void testOpensOnFailureRate() throws Exception {
+        ChatModelCircuitBreaker breaker = new ChatModelCircuitBreaker(4, 0.5, null, 0.5, 10);
+
+        breaker.record(MS, true);
+        assertThat(breaker.getState()).isEqualTo(ChatModelCircuitBreaker.State.CLOSED);
+        breaker.record(MS, false);
+        assertThat(breaker.getState()).isEqualTo(ChatModelCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        Thread.sleep(20);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(ChatModelCircuitBreaker.State.HALF_OPEN);
+        // Only a single trial request is let through.
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        breaker.record(MS, true);
+        assertThat(breaker.getState()).isEqualTo(ChatModelCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void testOpensOnSlowCallRate() {
+        ChatModelCircuitBreaker breaker = new ChatModelCircuitBreaker(4, 0.5, 100L, 0.5, 10_000);
+
+        breaker.record(10 * MS, true);
+        breaker.record(200 * MS, true);
+
+        assertThat(breaker.getState()).isEqualTo(ChatModelCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void testFailedTrialOpensAgain() throws Exception {
+        ChatModelCircuitBreaker breaker = new ChatModelCircuitBreaker(2, 0.5, null, 0.5, 10);
+        breaker.record(MS, false);
+        Thread.sleep(20);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.recordCancelled();
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.record(MS, false);
+
+        assertThat(breaker.getState()).isEqualTo(ChatModelCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void testLatencyPercentile() {
+        ChatModelCircuitBreaker breaker = new ChatModelCircuitBreaker(10, 0.9, null, 0.5, 10);
+        assertThat(breaker.getLatencyPercentile(0.9)).isEqualTo(-1);
+
+        for (int i = 1; i <= 10; i++) {
+            breaker.record(i * MS, true);
+        }
+
+        assertThat(breaker.getLatencyPercentile(0.5)).isEqualTo(5 * MS);
+        assertThat(breaker.getLatencyPercentile(0.9)).isEqualTo(9 * MS);
+    }
+}
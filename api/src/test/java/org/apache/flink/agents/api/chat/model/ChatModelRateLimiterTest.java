@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api.chat.model;
+
+import org.apache.flink.agents.api.chat.messages.ChatMessage;
+import org.apache.flink.agents.api.chat.messages.MessageRole;
+import org.apache.flink.agents.api.resource.Resource;
+import org.apache.flink.agents.api.resource.ResourceDescriptor;
+import org.apache.flink.agents.api.resource.ResourceType;
+import org.apache.flink.agents.api.tools.Tool;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Tests for {@link ChatModelRateLimiter}. */
+class ChatModelRateLimiterTest {
+
+    /** An error the model service rejects a rate limited request with. */
+    private static class RateLimitException extends RuntimeException {}
+
+    private static ChatModelRateLimiter limiter(
+            Long requestsPerMinute, Long tokensPerMinute, Integer maxConcurrency) {
+        return new ChatModelRateLimiter(
+                requestsPerMinute,
+                tokensPerMinute,
+                maxConcurrency,
+                e -> e instanceof RateLimitException);
+    }
+
+    @Test
+    void testConcurrencyLimited() {
+        ChatModelRateLimiter limiter = limiter(null, null, 2);
+
+        CompletableFuture<ChatModelRateLimiter.Permit> first = limiter.acquire(0);
+        CompletableFuture<ChatModelRateLimiter.Permit> second = limiter.acquire(0);
+        CompletableFuture<ChatModelRateLimiter.Permit> third = limiter.acquire(0);
+
+        assertThat(first).isDone();
+        assertThat(second).isDone();
+        assertThat(third).isNotDone();
+        assertThat(limiter.getPermitsInUse()).isEqualTo(2);
+        assertThat(limiter.getQueuedRequests()).isEqualTo(1);
+
+        first.join().release(1, null);
+        assertThat(third).isDone();
+        assertThat(limiter.getQueuedRequests()).isZero();
+    }
+
+    @Test
+    void testCancelledRequestsSkipped() {
+        ChatModelRateLimiter limiter = limiter(null, null, 1);
+        CompletableFuture<ChatModelRateLimiter.Permit> first = limiter.acquire(0);
+        CompletableFuture<ChatModelRateLimiter.Permit> cancelled = limiter.acquire(0);
+        CompletableFuture<ChatModelRateLimiter.Permit> last = limiter.acquire(0);
+
+        cancelled.cancel(false);
+        first.join().release(1, null);
+
+        assertThat(last).isDone();
+        assertThat(limiter.getPermitsInUse()).isEqualTo(1);
+    }
+
+    @Test
+    void testConcurrencyAdaptsToRateLimitsAndLatency() {
+        ChatModelRateLimiter limiter = limiter(null, null, 8);
+
+        limiter.acquire(0).join().release(1, new RuntimeException(new RateLimitException()));
+        assertThat(limiter.getConcurrencyLimit()).isEqualTo(4);
+
+        // A rate limited request pauses the others.
+        assertThat(limiter.acquire(0)).isNotDone();
+        assertThat(limiter.getQueuedRequests()).isEqualTo(1);
+
+        ChatModelRateLimiter growing = limiter(null, null, 8);
+        growing.acquire(0).join().release(1, new RateLimitException());
+        for (int i = 0; i < 5; i++) {
+            CompletableFuture<ChatModelRateLimiter.Permit> permit = growing.acquire(0);
+            permit.orTimeout(5, TimeUnit.SECONDS).join().release(100, null);
+        }
+        assertThat(growing.getConcurrencyLimit()).isEqualTo(5);
+
+        // A request much slower than the average shrinks the limit.
+        growing.acquire(0).join().release(1000, null);
+        assertThat(growing.getConcurrencyLimit()).isEqualTo(4);
+
+        // Other errors leave the limit unchanged.
+        growing.acquire(0).join().release(1, new IllegalStateException());
+        assertThat(growing.getConcurrencyLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void testUnlimitedConcurrencyLimitedOnceRateLimited() {
+        ChatModelRateLimiter limiter = limiter(null, null, null);
+        List<ChatModelRateLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            permits.add(limiter.acquire(0).join());
+        }
+        assertThat(limiter.getConcurrencyLimit()).isEqualTo(Integer.MAX_VALUE);
+
+        // Successful requests leave the unlimited concurrency unchanged.
+        permits.remove(9).release(1, null);
+        assertThat(limiter.getConcurrencyLimit()).isEqualTo(Integer.MAX_VALUE);
+
+        // Half of the 9 requests in flight.
+        permits.remove(8).release(1, new RateLimitException());
+        assertThat(limiter.getConcurrencyLimit()).isEqualTo(4);
+
+        // The limit then grows again with the successful requests.
+        for (ChatModelRateLimiter.Permit permit : permits) {
+            permit.release(100, null);
+        }
+        assertThat(limiter.getConcurrencyLimit()).isEqualTo(6);
+    }
+
+    @Test
+    void testPermitReleasedWhenChatFails() {
+        Map<String, Resource> resources = new HashMap<>();
+        BiFunction<String, ResourceType, Resource> getResource =
+                (name, type) -> resources.get(name);
+        FailingConnection connection = new FailingConnection(getResource);
+        resources.put("connection", connection);
+        TestChatModelSetup setup =
+                new TestChatModelSetup(
+                        new ResourceDescriptor(
+                                TestChatModelSetup.class.getName(),
+                                Map.of("connection", "connection")),
+                        getResource);
+
+        assertThatThrownBy(() -> setup.chat(List.of(new ChatMessage(MessageRole.USER, "hi"))))
+                .isInstanceOf(AssertionError.class);
+        assertThat(connection.getRateLimiter().getPermitsInUse()).isZero();
+    }
+
+    @Test
+    void testRateLimitedChatOfNonBlockingConnectionSentWithoutBlocking() {
+        Map<String, Resource> resources = new HashMap<>();
+        BiFunction<String, ResourceType, Resource> getResource =
+                (name, type) -> resources.get(name);
+        NonBlockingConnection connection = new NonBlockingConnection(getResource);
+        resources.put("connection", connection);
+        TestChatModelSetup setup =
+                new TestChatModelSetup(
+                        new ResourceDescriptor(
+                                TestChatModelSetup.class.getName(),
+                                Map.of("connection", "connection")),
+                        getResource);
+
+        ChatMessage response = setup.chat(List.of(new ChatMessage(MessageRole.USER, "hi")));
+
+        assertThat(response.getContent()).isEqualTo("async");
+        assertThat(connection.getRateLimiter().getPermitsInUse()).isZero();
+    }
+
+    @Test
+    void testRequestsPerMinuteLimited() {
+        ChatModelRateLimiter limiter = limiter(2L, null, null);
+
+        assertThat(limiter.acquire(0)).isDone();
+        assertThat(limiter.acquire(0)).isDone();
+        assertThat(limiter.acquire(0)).isNotDone();
+    }
+
+    @Test
+    void testTokensPerMinuteLimited() {
+        ChatModelRateLimiter limiter = limiter(null, 100L, null);
+
+        // A request larger than the bucket waits for a full bucket.
+        assertThat(limiter.acquire(1000)).isDone();
+        assertThat(limiter.acquire(10)).isNotDone();
+    }
+
+    @Test
+    void testTokensEstimatedFromHistory() {
+        ChatModelRateLimiter limiter = limiter(null, 100L, null);
+        assertThat(limiter.estimateTokens(40)).isEqualTo(10);
+
+        limiter.recordCompletionTokens(20);
+        assertThat(limiter.estimateTokens(40)).isEqualTo(30);
+    }
+
+    /** A rate limited connection failing every request with an error. */
+    private static class FailingConnection extends BaseChatModelConnection {
+        FailingConnection(BiFunction<String, ResourceType, Resource> getResource) {
+            super(
+                    new ResourceDescriptor(
+                            FailingConnection.class.getName(), Map.of("max_concurrency", 1)),
+                    getResource);
+        }
+
+        @Override
+        public ChatMessage chat(
+                List<ChatMessage> messages, List<Tool> tools, Map<String, Object> arguments) {
+            throw new AssertionError("The request failed.");
+        }
+    }
+
+    /** A rate limited connection only sending requests without blocking. */
+    private static class NonBlockingConnection extends BaseChatModelConnection {
+        NonBlockingConnection(BiFunction<String, ResourceType, Resource> getResource) {
+            super(
+                    new ResourceDescriptor(
+                            NonBlockingConnection.class.getName(), Map.of("max_concurrency", 1)),
+                    getResource);
+        }
+
+        @Override
+        public ChatMessage chat(
+                List<ChatMessage> messages, List<Tool> tools, Map<String, Object> arguments) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<ChatMessage> chatAsync(
+                List<ChatMessage> messages, List<Tool> tools, Map<String, Object> arguments) {
+            return CompletableFuture.completedFuture(
+                    new ChatMessage(MessageRole.ASSISTANT, "async"));
+        }
+
+        @Override
+        public boolean supportsNonBlockingChat() {
+            return true;
+        }
+    }
+}
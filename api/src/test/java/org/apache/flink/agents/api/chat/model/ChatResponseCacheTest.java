@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api.chat.model;
+
+import org.apache.flink.agents.api.chat.messages.ChatMessage;
+import org.apache.flink.agents.api.chat.messages.MessageRole;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Tests for {@link ChatResponseCache}. */
+class ChatResponseCacheTest {
+
+    private static ChatResponseCache.Key key(String content) {
+        return ChatResponseCache.key(
+                "connection",
+                List.of(new ChatMessage(MessageRole.USER, content)),
+                Collections.emptyList(),
+                Map.of("model", "model"));
+    }
+
+    private static CompletableFuture<ChatMessage> respond(AtomicInteger calls, String content) {
+        calls.incrementAndGet();
+        return CompletableFuture.completedFuture(new ChatMessage(MessageRole.ASSISTANT, content));
+    }
+
+    @Test
+    void testHitAfterMiss() {
+        ChatResponseCache cache = new ChatResponseCache(10, 1 << 20, null);
+        AtomicInteger calls = new AtomicInteger();
+
+        ChatMessage first = cache.get(key("hi"), () -> respond(calls, "hello")).join();
+        ChatMessage second = cache.get(key("hi"), () -> respond(calls, "other")).join();
+
+        assertThat(calls).hasValue(1);
+        assertThat(second.getContent()).isEqualTo("hello");
+        assertThat(second).isNotSameAs(first);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getHitRate()).isEqualTo(0.5);
+        assertThat(cache.getSavedTokens()).isPositive();
+    }
+
+    @Test
+    void testKeyIgnoresParameterOrder() {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("model", "model");
+        parameters.put("temperature", 0.1);
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("temperature", 0.1);
+        reordered.put("model", "model");
+        List<ChatMessage> messages = List.of(new ChatMessage(MessageRole.USER, "hi"));
+
+        assertThat(
+                        ChatResponseCache.key(
+                                        "connection", messages, Collections.emptyList(), parameters)
+                                .getHash())
+                .isEqualTo(
+                        ChatResponseCache.key(
+                                        "connection", messages, Collections.emptyList(), reordered)
+                                .getHash())
+                .isNotEqualTo(key("other").getHash());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvicted() {
+        ChatResponseCache cache = new ChatResponseCache(2, 1 << 20, null);
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get(key("a"), () -> respond(calls, "a")).join();
+        cache.get(key("b"), () -> respond(calls, "b")).join();
+        cache.get(key("a"), () -> respond(calls, "a")).join();
+        cache.get(key("c"), () -> respond(calls, "c")).join();
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(calls).hasValue(3);
+
+        cache.get(key("a"), () -> respond(calls, "a")).join();
+        assertThat(calls).hasValue(3);
+        cache.get(key("b"), () -> respond(calls, "b")).join();
+        assertThat(calls).hasValue(4);
+    }
+
+    @Test
+    void testEvictedWhenBytesExceeded() {
+        ChatResponseCache cache = new ChatResponseCache(100, 1200, null);
+        AtomicInteger calls = new AtomicInteger();
+        String content = "x".repeat(400);
+
+        cache.get(key("a"), () -> respond(calls, content)).join();
+        cache.get(key("b"), () -> respond(calls, content)).join();
+        cache.get(key("c"), () -> respond(calls, content)).join();
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getBytesUsed()).isLessThanOrEqualTo(1200);
+
+        // A response larger than the cache is not cached at all.
+        cache.get(key("d"), () -> respond(calls, "x".repeat(2000))).join();
+        assertThat(cache.getBytesUsed()).isLessThanOrEqualTo(1200);
+        cache.get(key("d"), () -> respond(calls, "x")).join();
+        assertThat(calls).hasValue(5);
+    }
+
+    @Test
+    void testExpiredAfterTtl() throws Exception {
+        ChatResponseCache cache = new ChatResponseCache(10, 1 << 20, 1L);
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get(key("a"), () -> respond(calls, "a")).join();
+        Thread.sleep(5);
+        cache.get(key("a"), () -> respond(calls, "a")).join();
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void testIdenticalRequestsInFlightCallModelOnce() {
+        ChatResponseCache cache = new ChatResponseCache(10, 1 << 20, null);
+        CompletableFuture<ChatMessage> response = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<ChatMessage> first =
+                cache.get(
+                        key("a"),
+                        () -> {
+                            calls.incrementAndGet();
+                            return response;
+                        });
+        CompletableFuture<ChatMessage> second = cache.get(key("a"), () -> respond(calls, "b"));
+        assertThat(second).isNotDone();
+
+        response.complete(new ChatMessage(MessageRole.ASSISTANT, "a"));
+
+        assertThat(first.join().getContent()).isEqualTo("a");
+        assertThat(second.join().getContent()).isEqualTo("a");
+        assertThat(calls).hasValue(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void testFailuresNotCached() {
+        ChatResponseCache cache = new ChatResponseCache(10, 1 << 20, null);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<ChatMessage> failed =
+                cache.get(
+                        key("a"),
+                        () -> {
+                            calls.incrementAndGet();
+                            return CompletableFuture.failedFuture(
+                                    new IllegalStateException("rate limited"));
+                        });
+        assertThatThrownBy(failed::join).hasCauseInstanceOf(IllegalStateException.class);
+
+        assertThat(cache.get(key("a"), () -> respond(calls, "a")).join().getContent())
+                .isEqualTo("a");
+        assertThat(calls).hasValue(2);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+}
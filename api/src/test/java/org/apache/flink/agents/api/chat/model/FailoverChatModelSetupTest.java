@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api.chat.model;
+
+import org.apache.flink.agents.api.chat.messages.ChatMessage;
+import org.apache.flink.agents.api.chat.messages.MessageRole;
+import org.apache.flink.agents.api.resource.Resource;
+import org.apache.flink.agents.api.resource.ResourceDescriptor;
+import org.apache.flink.agents.api.resource.ResourceType;
+import org.apache.flink.agents.api.tools.Tool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Tests for {@link FailoverChatModelSetup}. */
+class FailoverChatModelSetupTest {
+
+    private final Map<String, Resource> resources = new HashMap<>();
+    private final BiFunction<String, ResourceType, Resource> getResource =
+            (name, type) -> resources.get(name);
+    private FailoverChatModelSetup failover;
+
+    private FakeConnection primary;
+    private FakeConnection fallback;
+
+    @BeforeEach
+    void setUp() {
+        primary = addChatModel("primary", request -> "primary");
+        fallback = addChatModel("fallback", request -> "fallback");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (failover != null) {
+            failover.close();
+        }
+    }
+
+    @Test
+    void testFailsOverOnError() {
+        primary.behavior =
+                request -> {
+                    throw new IllegalStateException("unavailable");
+                };
+        failover = createFailover(Map.of());
+
+        assertThat(chat("hi")).isEqualTo("fallback");
+        assertThat(primary.calls).hasValue(1);
+    }
+
+    @Test
+    void testFailsWhenAllChatModelsFail() {
+        primary.behavior =
+                request -> {
+                    throw new IllegalStateException("primary unavailable");
+                };
+        fallback.behavior =
+                request -> {
+                    throw new IllegalStateException("fallback unavailable");
+                };
+        failover = createFailover(Map.of());
+
+        assertThatThrownBy(() -> chat("hi")).hasMessage("fallback unavailable");
+    }
+
+    @Test
+    void testHedgesSlowRequest() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        primary.behavior =
+                request -> {
+                    if (request.equals("slow")) {
+                        try {
+                            Thread.sleep(10_000);
+                        } catch (InterruptedException e) {
+                            interrupted.countDown();
+                        }
+                    }
+                    return "primary";
+                };
+        failover = createFailover(Map.of("circuit_breaker_window", 4));
+
+        // Warm up the latencies of the primary chat model.
+        for (int i = 0; i < 4; i++) {
+            assertThat(chat("fast")).isEqualTo("primary");
+        }
+        long start = System.nanoTime();
+        assertThat(chat("slow")).isEqualTo("fallback");
+
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+        // The losing request is cancelled.
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void testCircuitBreakerRoutesAroundFailingChatModel() {
+        primary.behavior =
+                request -> {
+                    throw new IllegalStateException("unavailable");
+                };
+        failover = createFailover(Map.of("circuit_breaker_window", 2));
+
+        assertThat(chat("hi")).isEqualTo("fallback");
+        assertThat(failover.getCircuitBreaker("primary").getState())
+                .isEqualTo(ChatModelCircuitBreaker.State.OPEN);
+
+        assertThat(chat("hi")).isEqualTo("fallback");
+        assertThat(primary.calls).hasValue(1);
+        assertThat(fallback.calls).hasValue(2);
+    }
+
+    @Test
+    void testBlockingRequestsBoundedByThreads() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        primary.behavior =
+                request -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "primary";
+                };
+        failover = createFailover(Map.of("hedge_percentile", 0, "blocking_threads", 1));
+
+        List<ChatMessage> messages = List.of(new ChatMessage(MessageRole.USER, "hi"));
+        CompletableFuture<ChatMessage> first = failover.chatAsync(messages, Map.of());
+        CompletableFuture<ChatMessage> second = failover.chatAsync(messages, Map.of());
+
+        // The second request waits for the only thread.
+        Thread.sleep(100);
+        assertThat(primary.calls).hasValue(1);
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS).getContent()).isEqualTo("primary");
+        assertThat(second.get(5, TimeUnit.SECONDS).getContent()).isEqualTo("primary");
+        assertThat(primary.calls).hasValue(2);
+    }
+
+    private String chat(String content) {
+        return failover.chat(List.of(new ChatMessage(MessageRole.USER, content))).getContent();
+    }
+
+    private FailoverChatModelSetup createFailover(Map<String, Object> extraArguments) {
+        Map<String, Object> arguments = new HashMap<>(extraArguments);
+        arguments.put("chat_models", List.of("primary", "fallback"));
+        return new FailoverChatModelSetup(
+                new ResourceDescriptor(FailoverChatModelSetup.class.getName(), arguments),
+                getResource);
+    }
+
+    private FakeConnection addChatModel(String name, Function<String, String> behavior) {
+        FakeConnection connection = new FakeConnection(behavior, getResource);
+        resources.put(name + "Connection", connection);
+        resources.put(
+                name,
+                new TestChatModelSetup(
+                        new ResourceDescriptor(
+                                TestChatModelSetup.class.getName(),
+                                Map.of("connection", name + "Connection")),
+                        getResource));
+        return connection;
+    }
+
+    /** A connection responding to the content of the last message with its behavior. */
+    private static class FakeConnection extends BaseChatModelConnection {
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile Function<String, String> behavior;
+
+        FakeConnection(
+                Function<String, String> behavior,
+                BiFunction<String, ResourceType, Resource> getResource) {
+            super(new ResourceDescriptor(FakeConnection.class.getName(), Map.of()), getResource);
+            this.behavior = behavior;
+        }
+
+        @Override
+        public ChatMessage chat(
+                List<ChatMessage> messages, List<Tool> tools, Map<String, Object> arguments) {
+            calls.incrementAndGet();
+            String request = messages.get(messages.size() - 1).getContent();
+            return new ChatMessage(MessageRole.ASSISTANT, behavior.apply(request));
+        }
+    }
+}
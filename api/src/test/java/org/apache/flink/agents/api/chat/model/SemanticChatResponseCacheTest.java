@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.api.chat.model;
+
+import org.apache.flink.agents.api.chat.messages.ChatMessage;
+import org.apache.flink.agents.api.chat.messages.MessageRole;
+import org.apache.flink.agents.api.embedding.model.BaseEmbeddingModelSetup;
+import org.apache.flink.agents.api.resource.Resource;
+import org.apache.flink.agents.api.resource.ResourceDescriptor;
+import org.apache.flink.agents.api.resource.ResourceType;
+import org.apache.flink.agents.api.tools.Tool;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Tests for {@link SemanticChatResponseCache}. */
+class SemanticChatResponseCacheTest {
+
+    private static ChatMessage response(String content) {
+        return new ChatMessage(MessageRole.ASSISTANT, content);
+    }
+
+    @Test
+    void testSimilarRequestHits() {
+        SemanticChatResponseCache cache = new SemanticChatResponseCache(0.9, 10, null);
+        cache.put("ns", new float[] {1, 0, 0}, response("a"), 2_000_000_000L);
+
+        ChatMessage hit = cache.lookup("ns", new float[] {10, 1, 0});
+        assertThat(hit.getContent()).isEqualTo("a");
+        assertThat(cache.lookup("ns", new float[] {0, 1, 0})).isNull();
+
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getHitRate()).isEqualTo(0.5);
+        assertThat(cache.getSavedLatencyMs()).isEqualTo(2000);
+    }
+
+    @Test
+    void testMostSimilarEntryReturned() {
+        SemanticChatResponseCache cache = new SemanticChatResponseCache(0.5, 10, null);
+        cache.put("ns", new float[] {1, 1, 0}, response("far"), 0);
+        cache.put("ns", new float[] {1, 0.1f, 0}, response("near"), 0);
+
+        assertThat(cache.lookup("ns", new float[] {1, 0, 0}).getContent()).isEqualTo("near");
+    }
+
+    @Test
+    void testNamespacesIsolated() {
+        SemanticChatResponseCache cache = new SemanticChatResponseCache(0.9, 10, null);
+        cache.put("a", new float[] {1, 0}, response("a"), 0);
+
+        assertThat(cache.lookup("b", new float[] {1, 0})).isNull();
+        assertThat(cache.lookup("a", new float[] {1, 0})).isNotNull();
+    }
+
+    @Test
+    void testOldestEntriesEvicted() throws Exception {
+        SemanticChatResponseCache cache = new SemanticChatResponseCache(0.99, 2, null);
+        cache.put("ns", new float[] {1, 0}, response("a"), 0);
+        cache.put("ns", new float[] {0, 1}, response("b"), 0);
+        cache.put("other", new float[] {1, 1}, response("c"), 0);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.lookup("ns", new float[] {1, 0})).isNull();
+        assertThat(cache.lookup("ns", new float[] {0, 1})).isNotNull();
+
+        SemanticChatResponseCache expiring = new SemanticChatResponseCache(0.99, 2, 1L);
+        expiring.put("ns", new float[] {1, 0}, response("a"), 0);
+        Thread.sleep(5);
+        assertThat(expiring.lookup("ns", new float[] {1, 0})).isNull();
+        assertThat(expiring.size()).isZero();
+    }
+
+    @Test
+    void testChatModelAnswersParaphrasesFromCache() {
+        AtomicInteger calls = new AtomicInteger();
+        Map<String, Resource> resources = new HashMap<>();
+        BiFunction<String, ResourceType, Resource> getResource =
+                (name, type) -> resources.get(name);
+        resources.put("connection", new CountingConnection(calls, getResource));
+        resources.put("embedding", new KeywordEmbeddingModel(getResource));
+
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("connection", "connection");
+        arguments.put("semantic_cache_embedding_model", "embedding");
+        arguments.put("semantic_cache_threshold", 0.9);
+        TestChatModelSetup setup =
+                new TestChatModelSetup(
+                        new ResourceDescriptor(TestChatModelSetup.class.getName(), arguments),
+                        getResource);
+
+        ChatMessage first =
+                setup.chat(List.of(new ChatMessage(MessageRole.USER, "What is the weather?")));
+        ChatMessage second =
+                setup.chat(List.of(new ChatMessage(MessageRole.USER, "How is the weather today?")));
+        setup.chat(List.of(new ChatMessage(MessageRole.USER, "Tell me a joke.")));
+        // The same question in another conversation is a different namespace.
+        setup.chat(
+                List.of(
+                        new ChatMessage(MessageRole.SYSTEM, "Answer briefly."),
+                        new ChatMessage(MessageRole.USER, "What is the weather?")));
+
+        assertThat(second.getContent()).isEqualTo(first.getContent());
+        assertThat(calls).hasValue(3);
+        assertThat(setup.getSemanticCache().getHits()).isEqualTo(1);
+        // Requests are embedded on the calling thread, so they are never sent without blocking.
+        assertThat(setup.supportsNonBlockingChat()).isFalse();
+    }
+
+    private static class CountingConnection extends BaseChatModelConnection {
+        private final AtomicInteger calls;
+
+        CountingConnection(
+                AtomicInteger calls, BiFunction<String, ResourceType, Resource> getResource) {
+            super(
+                    new ResourceDescriptor(CountingConnection.class.getName(), Map.of()),
+                    getResource);
+            this.calls = calls;
+        }
+
+        @Override
+        public ChatMessage chat(
+                List<ChatMessage> messages, List<Tool> tools, Map<String, Object> arguments) {
+            return response("response " + calls.incrementAndGet());
+        }
+
+        @Override
+        public boolean supportsNonBlockingChat() {
+            return true;
+        }
+    }
+
+    /** Embeds a text by whether it mentions the weather. */
+    private static class KeywordEmbeddingModel extends BaseEmbeddingModelSetup {
+        KeywordEmbeddingModel(BiFunction<String, ResourceType, Resource> getResource) {
+            super(
+                    new ResourceDescriptor(KeywordEmbeddingModel.class.getName(), Map.of()),
+                    getResource);
+        }
+
+        @Override
+        public Map<String, Object> getParameters() {
+            return new HashMap<>();
+        }
+
+        @Override
+        public float[] embed(String text) {
+            return text.contains("weather") ? new float[] {1, 0} : new float[] {0, 1};
+        }
+    }
+}
@@ -206,6 +206,20 @@ class PromptTest {
         assertTrue(result.contains("{\"key\": \"test\"}"));
     }
 
+    @Test
+    @DisplayName("Test placeholders are substituted in a single pass")
+    void testPromptPlaceholdersSubstitutedOnce() {
+        Prompt prompt = Prompt.fromText("{a} and {b}, {a} again, {} and {unclosed");
+
+        Map<String, String> vars = new HashMap<>();
+        vars.put("a", "{b}");
+        vars.put("b", "B");
+        vars.put("", "empty");
+
+        // Substituted values are not scanned for placeholders again.
+        assertEquals("{b} and B, {b} again, empty and {unclosed", prompt.formatString(vars));
+    }
+
     @Test
     @DisplayName("Test complex conversation prompt")
     void testComplexConversationPrompt() {
@@ -20,16 +20,23 @@ package org.apache.flink.agents.integrations.chatmodels.anthropic;
 import com.anthropic.client.AnthropicClient;
 import com.anthropic.client.okhttp.AnthropicOkHttpClient;
 import com.anthropic.core.JsonValue;
+import com.anthropic.core.http.StreamResponse;
+import com.anthropic.helpers.MessageAccumulator;
+import com.anthropic.models.messages.CacheControlEphemeral;
 import com.anthropic.models.messages.ContentBlock;
 import com.anthropic.models.messages.ContentBlockParam;
 import com.anthropic.models.messages.Message;
 import com.anthropic.models.messages.MessageCreateParams;
 import com.anthropic.models.messages.MessageParam;
 import com.anthropic.models.messages.Model;
+import com.anthropic.models.messages.RawContentBlockDeltaEvent;
+import com.anthropic.models.messages.RawMessageStreamEvent;
 import com.anthropic.models.messages.TextBlockParam;
+import com.anthropic.models.messages.TextDelta;
 import com.anthropic.models.messages.Tool;
 import com.anthropic.models.messages.ToolResultBlockParam;
 import com.anthropic.models.messages.ToolUseBlockParam;
+import com.anthropic.models.messages.Usage;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -45,11 +52,15 @@ import org.apache.flink.agents.api.tools.ToolMetadata;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -61,6 +72,8 @@ import java.util.stream.Collectors;
  *   <li><b>api_key</b> (required): Anthropic API key
  *   <li><b>timeout</b> (optional): Timeout in seconds for API requests
  *   <li><b>max_retries</b> (optional): Maximum number of retry attempts (default: 2)
+ *   <li><b>prompt_caching</b> (optional): Whether to mark the system prompt, the tools and the
+ *       conversation as cacheable prefix of the next requests (default: true)
  * </ul>
  *
  * <p>Example usage:
@@ -82,9 +95,13 @@ public class AnthropicChatModelConnection extends BaseChatModelConnection {
 
     private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
 
+    private static final CacheControlEphemeral CACHE_CONTROL =
+            CacheControlEphemeral.builder().build();
+
     private final ObjectMapper mapper = new ObjectMapper();
     private final AnthropicClient client;
     private final String defaultModel;
+    private final boolean promptCaching;
 
     public AnthropicChatModelConnection(
             ResourceDescriptor descriptor, BiFunction<String, ResourceType, Resource> getResource) {
@@ -108,6 +125,7 @@ public class AnthropicChatModelConnection extends BaseChatModelConnection {
         }
 
         this.defaultModel = descriptor.getArgument("model");
+        this.promptCaching = descriptor.getArgument("prompt_caching", true);
         this.client = builder.build();
     }
 
@@ -122,38 +140,157 @@ public class AnthropicChatModelConnection extends BaseChatModelConnection {
             List<org.apache.flink.agents.api.tools.Tool> tools,
             Map<String, Object> arguments) {
         try {
-            // Check if JSON prefill is requested before building request (arguments may be
-            // modified).
-            boolean jsonPrefillRequested =
-                    arguments != null && Boolean.TRUE.equals(arguments.get("json_prefill"));
-            // JSON prefill is automatically disabled when tools are passed in the request,
-            // because it interferes with native tool calling.
-            boolean hasToolsInRequest = tools != null && !tools.isEmpty();
-            boolean jsonPrefillApplied = jsonPrefillRequested && !hasToolsInRequest;
-
+            boolean jsonPrefillApplied = isJsonPrefillApplied(tools, arguments);
             MessageCreateParams params = buildRequest(messages, tools, arguments);
             Message response = client.messages().create(params);
-            ChatMessage result = convertResponse(response, jsonPrefillApplied);
+            return processResponse(response, jsonPrefillApplied, arguments);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to call Anthropic messages API.", e);
+        }
+    }
 
-            // Record token metrics
-            String modelName = null;
-            if (arguments != null && arguments.get("model") != null) {
-                modelName = arguments.get("model").toString();
-            }
-            if (modelName == null || modelName.isBlank()) {
-                modelName = this.defaultModel;
+    /**
+     * Sends the request with the async client of the Anthropic SDK. The OkHttp dispatcher of the
+     * client runs at most 64 requests at a time, and queues the further requests of this connection
+     * until one of them completes. The SDK does not allow to configure this limit, which applies to
+     * each connection of each parallel instance of the agent, so more requests are sent at the same
+     * time by declaring several connections.
+     */
+    @Override
+    public CompletableFuture<ChatMessage> chatAsync(
+            List<ChatMessage> messages,
+            List<org.apache.flink.agents.api.tools.Tool> tools,
+            Map<String, Object> arguments) {
+        try {
+            boolean jsonPrefillApplied = isJsonPrefillApplied(tools, arguments);
+            MessageCreateParams params = buildRequest(messages, tools, arguments);
+            return client.async()
+                    .messages()
+                    .create(params)
+                    .handle(
+                            (response, t) -> {
+                                if (t != null) {
+                                    throw new RuntimeException(
+                                            "Failed to call Anthropic messages API.",
+                                            t instanceof CompletionException ? t.getCause() : t);
+                                }
+                                return processResponse(response, jsonPrefillApplied, arguments);
+                            });
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("Failed to call Anthropic messages API.", e));
+        }
+    }
+
+    @Override
+    public boolean supportsNonBlockingChat() {
+        return true;
+    }
+
+    @Override
+    public ChatMessage chatStream(
+            List<ChatMessage> messages,
+            List<org.apache.flink.agents.api.tools.Tool> tools,
+            Map<String, Object> arguments,
+            Consumer<String> onDelta) {
+        try {
+            boolean jsonPrefillApplied = isJsonPrefillApplied(tools, arguments);
+            MessageCreateParams params = buildRequest(messages, tools, arguments);
+            MessageAccumulator accumulator = MessageAccumulator.create();
+            long startNanos = System.nanoTime();
+            long firstDeltaNanos = -1L;
+            try (StreamResponse<RawMessageStreamEvent> stream =
+                    client.messages().createStreaming(params)) {
+                Iterator<RawMessageStreamEvent> events = stream.stream().iterator();
+                while (events.hasNext()) {
+                    RawMessageStreamEvent event = accumulator.accumulate(events.next());
+                    Optional<RawContentBlockDeltaEvent> blockDelta = event.contentBlockDelta();
+                    if (blockDelta.isEmpty()) {
+                        continue;
+                    }
+                    if (firstDeltaNanos < 0) {
+                        firstDeltaNanos = System.nanoTime();
+                        // The response only contains the continuation of the prefilled "{"
+                        if (jsonPrefillApplied) {
+                            onDelta.accept("{");
+                        }
+                    }
+                    String text = blockDelta.get().delta().text().map(TextDelta::text).orElse("");
+                    if (!text.isEmpty()) {
+                        onDelta.accept(text);
+                    }
+                }
             }
-            if (modelName != null && !modelName.isBlank()) {
-                recordTokenMetrics(
-                        modelName, response.usage().inputTokens(), response.usage().outputTokens());
+            long endNanos = System.nanoTime();
+
+            Message response = accumulator.message();
+            ChatMessage result = processResponse(response, jsonPrefillApplied, arguments);
+
+            String modelName = getModelName(arguments);
+            if (modelName != null && firstDeltaNanos >= 0) {
+                recordStreamingMetrics(
+                        modelName,
+                        firstDeltaNanos - startNanos,
+                        response.usage().outputTokens(),
+                        endNanos - firstDeltaNanos);
             }
-
             return result;
         } catch (Exception e) {
             throw new RuntimeException("Failed to call Anthropic messages API.", e);
         }
     }
 
+    @Override
+    public boolean supportsStreaming() {
+        return true;
+    }
+
+    private static boolean isJsonPrefillApplied(
+            List<org.apache.flink.agents.api.tools.Tool> tools, Map<String, Object> arguments) {
+        // Check if JSON prefill is requested before building request (arguments may be
+        // modified).
+        boolean jsonPrefillRequested =
+                arguments != null && Boolean.TRUE.equals(arguments.get("json_prefill"));
+        // JSON prefill is automatically disabled when tools are passed in the request,
+        // because it interferes with native tool calling.
+        boolean hasToolsInRequest = tools != null && !tools.isEmpty();
+        return jsonPrefillRequested && !hasToolsInRequest;
+    }
+
+    /** Converts the response to a chat message, and records its token usage. */
+    private ChatMessage processResponse(
+            Message response, boolean jsonPrefillApplied, Map<String, Object> arguments) {
+        ChatMessage result = convertResponse(response, jsonPrefillApplied);
+
+        // Record token metrics
+        String modelName = getModelName(arguments);
+        if (modelName != null) {
+            // The input tokens exclude the tokens read from and written to the prompt cache.
+            Usage usage = response.usage();
+            long cacheReadTokens = usage.cacheReadInputTokens().orElse(0L);
+            long cacheWriteTokens = usage.cacheCreationInputTokens().orElse(0L);
+            recordTokenMetrics(
+                    modelName,
+                    usage.inputTokens() + cacheReadTokens + cacheWriteTokens,
+                    usage.outputTokens());
+            recordPromptCacheMetrics(modelName, cacheReadTokens, cacheWriteTokens);
+        }
+
+        return result;
+    }
+
+    /** Returns the name of the model requested by the arguments, or null if there is none. */
+    private String getModelName(Map<String, Object> arguments) {
+        String modelName = null;
+        if (arguments != null && arguments.get("model") != null) {
+            modelName = arguments.get("model").toString();
+        }
+        if (modelName == null || modelName.isBlank()) {
+            modelName = this.defaultModel;
+        }
+        return modelName != null && !modelName.isBlank() ? modelName : null;
+    }
+
     private MessageCreateParams buildRequest(
             List<ChatMessage> messages,
             List<org.apache.flink.agents.api.tools.Tool> tools,
@@ -173,7 +310,23 @@ public class AnthropicChatModelConnection extends BaseChatModelConnection {
                 messages.stream()
                         .filter(m -> m.getRole() != MessageRole.SYSTEM)
                         .map(this::convertToAnthropicMessage)
-                        .collect(Collectors.toList());
+                        .collect(Collectors.toCollection(ArrayList::new));
+
+        // Cache breakpoints at the end of the system prompt, of the tools and of the conversation
+        // let the next requests read these prefixes from the prompt cache. The prefill added below
+        // is not part of the conversation and stays outside the cached prefix.
+        if (promptCaching) {
+            if (!systemBlocks.isEmpty()) {
+                int last = systemBlocks.size() - 1;
+                systemBlocks.set(
+                        last,
+                        systemBlocks.get(last).toBuilder().cacheControl(CACHE_CONTROL).build());
+            }
+            if (!anthropicMessages.isEmpty()) {
+                int last = anthropicMessages.size() - 1;
+                anthropicMessages.set(last, withCacheControl(anthropicMessages.get(last)));
+            }
+        }
 
         MessageCreateParams.Builder builder =
                 MessageCreateParams.builder()
@@ -189,7 +342,14 @@ public class AnthropicChatModelConnection extends BaseChatModelConnection {
         boolean strictToolsEnabled = Boolean.TRUE.equals(strictTools);
 
         if (tools != null && !tools.isEmpty()) {
-            for (Tool tool : convertTools(tools, strictToolsEnabled)) {
+            List<Tool> anthropicTools = convertTools(tools, strictToolsEnabled);
+            if (promptCaching) {
+                int last = anthropicTools.size() - 1;
+                anthropicTools.set(
+                        last,
+                        anthropicTools.get(last).toBuilder().cacheControl(CACHE_CONTROL).build());
+            }
+            for (Tool tool : anthropicTools) {
                 builder.addTool(tool);
             }
         }
@@ -239,6 +399,45 @@ public class AnthropicChatModelConnection extends BaseChatModelConnection {
                 .collect(Collectors.toList());
     }
 
+    /** Returns the message with a cache breakpoint on its last content block. */
+    private static MessageParam withCacheControl(MessageParam message) {
+        List<ContentBlockParam> blocks;
+        if (message.content().isString()) {
+            String content = message.content().asString();
+            if (content.isEmpty()) {
+                // Empty text blocks cannot be cached.
+                return message;
+            }
+            blocks = new ArrayList<>();
+            blocks.add(ContentBlockParam.ofText(TextBlockParam.builder().text(content).build()));
+        } else {
+            blocks = new ArrayList<>(message.content().asBlockParams());
+        }
+        if (blocks.isEmpty()) {
+            return message;
+        }
+
+        int last = blocks.size() - 1;
+        ContentBlockParam block = blocks.get(last);
+        if (block.isText()) {
+            block =
+                    ContentBlockParam.ofText(
+                            block.asText().toBuilder().cacheControl(CACHE_CONTROL).build());
+        } else if (block.isToolUse()) {
+            block =
+                    ContentBlockParam.ofToolUse(
+                            block.asToolUse().toBuilder().cacheControl(CACHE_CONTROL).build());
+        } else if (block.isToolResult()) {
+            block =
+                    ContentBlockParam.ofToolResult(
+                            block.asToolResult().toBuilder().cacheControl(CACHE_CONTROL).build());
+        } else {
+            return message;
+        }
+        blocks.set(last, block);
+        return message.toBuilder().contentOfBlockParams(blocks).build();
+    }
+
     private MessageParam convertToAnthropicMessage(ChatMessage message) {
         MessageRole role = message.getRole();
         String content = Optional.ofNullable(message.getContent()).orElse("");
@@ -324,22 +523,29 @@ public class AnthropicChatModelConnection extends BaseChatModelConnection {
             List<org.apache.flink.agents.api.tools.Tool> tools, boolean strictToolsEnabled) {
         List<Tool> anthropicTools = new ArrayList<>(tools.size());
         for (org.apache.flink.agents.api.tools.Tool tool : tools) {
-            ToolMetadata metadata = tool.getMetadata();
-            Tool.Builder toolBuilder =
-                    Tool.builder().name(metadata.getName()).description(metadata.getDescription());
+            anthropicTools.add(
+                    getToolDefinition(
+                            tool,
+                            strictToolsEnabled,
+                            metadata -> convertTool(metadata, strictToolsEnabled)));
+        }
+        return anthropicTools;
+    }
 
-            String schema = metadata.getInputSchema();
-            if (schema != null && !schema.isBlank()) {
-                toolBuilder.inputSchema(parseToolInputSchema(schema));
-            }
+    private Tool convertTool(ToolMetadata metadata, boolean strictToolsEnabled) {
+        Tool.Builder toolBuilder =
+                Tool.builder().name(metadata.getName()).description(metadata.getDescription());
 
-            if (strictToolsEnabled) {
-                toolBuilder.putAdditionalProperty("strict", JsonValue.from(true));
-            }
+        String schema = metadata.getInputSchema();
+        if (schema != null && !schema.isBlank()) {
+            toolBuilder.inputSchema(parseToolInputSchema(schema));
+        }
 
-            anthropicTools.add(toolBuilder.build());
+        if (strictToolsEnabled) {
+            toolBuilder.putAdditionalProperty("strict", JsonValue.from(true));
         }
-        return anthropicTools;
+
+        return toolBuilder.build();
     }
 
     private Tool.InputSchema parseToolInputSchema(String schemaJson) {
@@ -32,6 +32,7 @@ import org.apache.flink.agents.api.resource.Resource;
 import org.apache.flink.agents.api.resource.ResourceDescriptor;
 import org.apache.flink.agents.api.resource.ResourceType;
 import org.apache.flink.agents.api.tools.Tool;
+import org.apache.flink.agents.api.tools.ToolMetadata;
 
 import java.util.*;
 import java.util.function.BiFunction;
@@ -63,6 +64,7 @@ import java.util.stream.Collectors;
 public class AzureAIChatModelConnection extends BaseChatModelConnection {
 
     private final Gson gson = new Gson();
+    private final ObjectMapper mapper = new ObjectMapper();
 
     private final ChatCompletionsClient client;
 
@@ -90,22 +92,24 @@ public class AzureAIChatModelConnection extends BaseChatModelConnection {
     }
 
     private List<ChatCompletionsToolDefinition> convertToAzureAITools(List<Tool> tools) {
-        final ObjectMapper mapper = new ObjectMapper();
         final List<ChatCompletionsToolDefinition> azureAITools = new ArrayList<>();
+        for (Tool tool : tools) {
+            azureAITools.add(getToolDefinition(tool, null, this::convertToAzureAITool));
+        }
+        return azureAITools;
+    }
+
+    private ChatCompletionsToolDefinition convertToAzureAITool(ToolMetadata metadata) {
         try {
-            for (Tool tool : tools) {
-                final Map<String, Object> schema =
-                        mapper.readValue(
-                                tool.getMetadata().getInputSchema(), new TypeReference<>() {});
+            final Map<String, Object> schema =
+                    mapper.readValue(metadata.getInputSchema(), new TypeReference<>() {});
 
-                final FunctionDefinition functionDef =
-                        new FunctionDefinition(tool.getName())
-                                .setDescription(tool.getDescription())
-                                .setParameters(BinaryData.fromObject(schema));
+            final FunctionDefinition functionDef =
+                    new FunctionDefinition(metadata.getName())
+                            .setDescription(metadata.getDescription())
+                            .setParameters(BinaryData.fromObject(schema));
 
-                azureAITools.add(new ChatCompletionsFunctionToolDefinition(functionDef));
-            }
-            return azureAITools;
+            return new ChatCompletionsFunctionToolDefinition(functionDef);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
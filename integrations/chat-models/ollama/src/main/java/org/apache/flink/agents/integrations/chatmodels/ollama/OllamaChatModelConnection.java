@@ -32,16 +32,19 @@ import org.apache.flink.agents.api.resource.Resource;
 import org.apache.flink.agents.api.resource.ResourceDescriptor;
 import org.apache.flink.agents.api.resource.ResourceType;
 import org.apache.flink.agents.api.tools.Tool;
+import org.apache.flink.agents.api.tools.ToolMetadata;
 
 import java.util.*;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * A chat model integration for Ollama powered by the ollama4j client.
  *
  * <p>This implementation adapts the generic Flink Agents chat model interface to Ollama's
- * conversation API.
+ * conversation API. Responses can be streamed, in which case the text of the response is passed in
+ * the deltas generated by the server.
  *
  * <p>See also {@link BaseChatModelConnection} for the common resource abstractions and lifecycle.
  *
@@ -61,6 +64,9 @@ import java.util.stream.Collectors;
  */
 public class OllamaChatModelConnection extends BaseChatModelConnection {
 
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String endpoint;
+    private final int requestTimeout;
     private final OllamaChatEndpointCaller caller;
 
     /**
@@ -78,9 +84,9 @@ public class OllamaChatModelConnection extends BaseChatModelConnection {
             throw new IllegalArgumentException("endpoint should not be null or empty.");
         }
         Integer requestTimeout = descriptor.getArgument("requestTimeout");
-        this.caller =
-                new OllamaChatEndpointCaller(
-                        endpoint, null, requestTimeout != null ? requestTimeout : 60);
+        this.endpoint = endpoint;
+        this.requestTimeout = requestTimeout != null ? requestTimeout : 60;
+        this.caller = new OllamaChatEndpointCaller(endpoint, null, this.requestTimeout);
     }
 
     /**
@@ -103,56 +109,56 @@ public class OllamaChatModelConnection extends BaseChatModelConnection {
      *
      * <p>Each tool's input schema is expected to be a JSON schema containing "properties" and
      * "required" keys. The schema is converted into the function/tool specification that Ollama
-     * understands, and each tool is properly formatted for Ollama API integration.
+     * understands, and each tool is properly formatted for Ollama API integration. The
+     * specification of a tool is converted once and reused by later requests.
      *
      * @param tools List of Flink Agent tools to be converted to Ollama tools
      * @return List of Ollama compatible tool specifications
      * @throws RuntimeException if schema parsing or conversion fails
      */
-    @SuppressWarnings("unchecked")
     private List<Tools.Tool> convertToOllamaTools(List<Tool> tools) {
-        final ObjectMapper mapper = new ObjectMapper();
         final List<Tools.Tool> ollamaTools = new ArrayList<>();
-        try {
-            for (Tool tool : tools) {
-                final Map<String, Object> schema =
-                        mapper.readValue(
-                                tool.getMetadata().getInputSchema(), new TypeReference<>() {});
+        for (Tool tool : tools) {
+            ollamaTools.add(getToolDefinition(tool, null, this::convertToOllamaTool));
+        }
+        return ollamaTools;
+    }
 
-                final Map<String, Map<String, String>> properties =
-                        (Map<String, Map<String, String>>) schema.get("properties");
-                final List<String> required = (List<String>) schema.get("required");
+    @SuppressWarnings("unchecked")
+    private Tools.Tool convertToOllamaTool(ToolMetadata metadata) {
+        try {
+            final Map<String, Object> schema =
+                    mapper.readValue(metadata.getInputSchema(), new TypeReference<>() {});
 
-                Map<String, Tools.Property> propertiesMap = new HashMap<>();
+            final Map<String, Map<String, String>> properties =
+                    (Map<String, Map<String, String>>) schema.get("properties");
+            final List<String> required = (List<String>) schema.get("required");
 
-                for (Map.Entry<String, Map<String, String>> entry : properties.entrySet()) {
-                    final String paramName = entry.getKey();
-                    final Map<String, String> paramSchema = entry.getValue();
-                    final String type = paramSchema.get("type");
-                    final String description = paramSchema.get("description");
+            Map<String, Tools.Property> propertiesMap = new HashMap<>();
 
-                    propertiesMap.put(
-                            paramName,
-                            Tools.Property.builder()
-                                    .type(type)
-                                    .description(description)
-                                    .required(required.contains(paramName))
-                                    .build());
-                }
+            for (Map.Entry<String, Map<String, String>> entry : properties.entrySet()) {
+                final String paramName = entry.getKey();
+                final Map<String, String> paramSchema = entry.getValue();
+                final String type = paramSchema.get("type");
+                final String description = paramSchema.get("description");
 
-                final Tools.Tool toolSpec =
-                        Tools.Tool.builder()
-                                .toolSpec(
-                                        Tools.ToolSpec.builder()
-                                                .name(tool.getName())
-                                                .description(tool.getDescription())
-                                                .parameters(Tools.Parameters.of(propertiesMap))
-                                                .build())
-                                .build();
-                ollamaTools.add(toolSpec);
+                propertiesMap.put(
+                        paramName,
+                        Tools.Property.builder()
+                                .type(type)
+                                .description(description)
+                                .required(required.contains(paramName))
+                                .build());
             }
 
-            return ollamaTools;
+            return Tools.Tool.builder()
+                    .toolSpec(
+                            Tools.ToolSpec.builder()
+                                    .name(metadata.getName())
+                                    .description(metadata.getDescription())
+                                    .parameters(Tools.Parameters.of(propertiesMap))
+                                    .build())
+                    .build();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -180,59 +186,127 @@ public class OllamaChatModelConnection extends BaseChatModelConnection {
     public ChatMessage chat(
             List<ChatMessage> messages, List<Tool> tools, Map<String, Object> arguments) {
         try {
-            final boolean extractReasoning =
-                    (boolean) arguments.getOrDefault("extract_reasoning", false);
-
-            final List<Tools.Tool> ollamaTools = this.convertToOllamaTools(tools);
-            final List<OllamaChatMessage> ollamaChatMessages =
-                    messages.stream()
-                            .map(this::convertToOllamaChatMessages)
-                            .collect(Collectors.toList());
+            final OllamaChatRequest chatRequest = buildRequest(messages, tools, arguments);
+            final OllamaChatResult ollamaChatResult = this.caller.callSync(chatRequest);
+            return processResponse(ollamaChatResult.getResponseModel(), arguments);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            final String modelName = (String) arguments.get("model");
+    @Override
+    public ChatMessage chatStream(
+            List<ChatMessage> messages,
+            List<Tool> tools,
+            Map<String, Object> arguments,
+            Consumer<String> onDelta) {
+        try {
             final OllamaChatRequest chatRequest =
-                    OllamaChatRequest.builder()
-                            .withMessages(ollamaChatMessages)
-                            .withModel(modelName)
-                            .withThinking(extractReasoning ? ThinkMode.ENABLED : ThinkMode.DISABLED)
-                            .withUseTools(false)
-                            .build();
+                    buildRequest(messages, tools, arguments).withStreaming();
+            final long startNanos = System.nanoTime();
+            final long[] firstDeltaNanos = {-1L};
+            // The caller keeps the token handler of the request, so each streamed request has its
+            // own caller.
+            final OllamaChatResult ollamaChatResult =
+                    new OllamaChatEndpointCaller(endpoint, null, requestTimeout)
+                            .call(
+                                    chatRequest,
+                                    chunk -> {
+                                        OllamaChatMessage message = chunk.getMessage();
+                                        String text =
+                                                message != null ? message.getResponse() : null;
+                                        if (text == null || text.isEmpty()) {
+                                            return;
+                                        }
+                                        if (firstDeltaNanos[0] < 0) {
+                                            firstDeltaNanos[0] = System.nanoTime();
+                                        }
+                                        onDelta.accept(text);
+                                    });
+            final long endNanos = System.nanoTime();
 
-            chatRequest.setTools(ollamaTools);
-            final OllamaChatResult ollamaChatResult = this.caller.callSync(chatRequest);
             final OllamaChatResponseModel ollamaChatResponse = ollamaChatResult.getResponseModel();
-            final OllamaChatMessage ollamaChatMessage = ollamaChatResponse.getMessage();
+            final ChatMessage chatMessage = processResponse(ollamaChatResponse, arguments);
 
-            Map<String, Object> extraArgs = new HashMap<>();
-            if (extractReasoning) {
-                extraArgs.put("reasoning", ollamaChatMessage.getThinking());
-            }
-
-            final List<OllamaChatToolCalls> ollamaToolCalls = ollamaChatMessage.getToolCalls();
-            final ChatMessage chatMessage = ChatMessage.assistant(ollamaChatMessage.getResponse());
-            chatMessage.setExtraArgs(extraArgs);
-
-            if (ollamaToolCalls != null) {
-                final List<Map<String, Object>> toolCalls = convertToAgentsTools(ollamaToolCalls);
-                chatMessage.setToolCalls(toolCalls);
-            }
-
-            // Record token metrics if model name is available
-            if (modelName != null && !modelName.isBlank()) {
-                Integer promptTokens = ollamaChatResponse.getPromptEvalCount();
+            final String modelName = (String) arguments.get("model");
+            if (modelName != null && !modelName.isBlank() && firstDeltaNanos[0] >= 0) {
                 Integer completionTokens = ollamaChatResponse.getEvalCount();
-                if (promptTokens != null && completionTokens != null) {
-                    recordTokenMetrics(
-                            modelName, promptTokens.longValue(), completionTokens.longValue());
-                }
+                recordStreamingMetrics(
+                        modelName,
+                        firstDeltaNanos[0] - startNanos,
+                        completionTokens != null ? completionTokens : 0,
+                        endNanos - firstDeltaNanos[0]);
             }
-
             return chatMessage;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    @Override
+    public boolean supportsStreaming() {
+        return true;
+    }
+
+    private OllamaChatRequest buildRequest(
+            List<ChatMessage> messages, List<Tool> tools, Map<String, Object> arguments) {
+        final boolean extractReasoning =
+                (boolean) arguments.getOrDefault("extract_reasoning", false);
+
+        final List<Tools.Tool> ollamaTools = this.convertToOllamaTools(tools);
+        final List<OllamaChatMessage> ollamaChatMessages =
+                messages.stream()
+                        .map(this::convertToOllamaChatMessages)
+                        .collect(Collectors.toList());
+
+        final String modelName = (String) arguments.get("model");
+        final OllamaChatRequest chatRequest =
+                OllamaChatRequest.builder()
+                        .withMessages(ollamaChatMessages)
+                        .withModel(modelName)
+                        .withThinking(extractReasoning ? ThinkMode.ENABLED : ThinkMode.DISABLED)
+                        .withUseTools(false)
+                        .build();
+
+        chatRequest.setTools(ollamaTools);
+        return chatRequest;
+    }
+
+    /** Converts the response to a chat message, and records its token usage. */
+    private ChatMessage processResponse(
+            OllamaChatResponseModel ollamaChatResponse, Map<String, Object> arguments) {
+        final boolean extractReasoning =
+                (boolean) arguments.getOrDefault("extract_reasoning", false);
+        final OllamaChatMessage ollamaChatMessage = ollamaChatResponse.getMessage();
+
+        Map<String, Object> extraArgs = new HashMap<>();
+        if (extractReasoning) {
+            extraArgs.put("reasoning", ollamaChatMessage.getThinking());
+        }
+
+        final List<OllamaChatToolCalls> ollamaToolCalls = ollamaChatMessage.getToolCalls();
+        final ChatMessage chatMessage = ChatMessage.assistant(ollamaChatMessage.getResponse());
+        chatMessage.setExtraArgs(extraArgs);
+
+        if (ollamaToolCalls != null) {
+            final List<Map<String, Object>> toolCalls = convertToAgentsTools(ollamaToolCalls);
+            chatMessage.setToolCalls(toolCalls);
+        }
+
+        // Record token metrics if model name is available
+        final String modelName = (String) arguments.get("model");
+        if (modelName != null && !modelName.isBlank()) {
+            Integer promptTokens = ollamaChatResponse.getPromptEvalCount();
+            Integer completionTokens = ollamaChatResponse.getEvalCount();
+            if (promptTokens != null && completionTokens != null) {
+                recordTokenMetrics(
+                        modelName, promptTokens.longValue(), completionTokens.longValue());
+            }
+        }
+
+        return chatMessage;
+    }
+
     /**
      * Converts Ollama tool calls to the format expected by the Flink Agents framework.
      *
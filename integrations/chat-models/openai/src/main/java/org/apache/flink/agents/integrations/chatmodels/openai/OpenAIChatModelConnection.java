@@ -24,39 +24,53 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openai.client.OpenAIClient;
 import com.openai.client.okhttp.OpenAIOkHttpClient;
 import com.openai.core.JsonValue;
+import com.openai.core.http.StreamResponse;
+import com.openai.helpers.ChatCompletionAccumulator;
 import com.openai.models.ChatModel;
 import com.openai.models.FunctionDefinition;
 import com.openai.models.FunctionParameters;
 import com.openai.models.ReasoningEffort;
 import com.openai.models.chat.completions.ChatCompletion;
 import com.openai.models.chat.completions.ChatCompletionAssistantMessageParam;
+import com.openai.models.chat.completions.ChatCompletionChunk;
 import com.openai.models.chat.completions.ChatCompletionCreateParams;
 import com.openai.models.chat.completions.ChatCompletionFunctionTool;
 import com.openai.models.chat.completions.ChatCompletionMessage;
 import com.openai.models.chat.completions.ChatCompletionMessageFunctionToolCall;
 import com.openai.models.chat.completions.ChatCompletionMessageParam;
 import com.openai.models.chat.completions.ChatCompletionMessageToolCall;
+import com.openai.models.chat.completions.ChatCompletionStreamOptions;
 import com.openai.models.chat.completions.ChatCompletionSystemMessageParam;
+import com.openai.models.chat.completions.ChatCompletionTokenLogprob;
 import com.openai.models.chat.completions.ChatCompletionTool;
 import com.openai.models.chat.completions.ChatCompletionToolMessageParam;
 import com.openai.models.chat.completions.ChatCompletionUserMessageParam;
+import com.openai.models.completions.CompletionUsage;
 import org.apache.flink.agents.api.chat.messages.ChatMessage;
 import org.apache.flink.agents.api.chat.messages.MessageRole;
 import org.apache.flink.agents.api.chat.model.BaseChatModelConnection;
+import org.apache.flink.agents.api.chat.model.CascadeAcceptanceCheck;
 import org.apache.flink.agents.api.resource.Resource;
 import org.apache.flink.agents.api.resource.ResourceDescriptor;
 import org.apache.flink.agents.api.resource.ResourceType;
 import org.apache.flink.agents.api.tools.Tool;
 import org.apache.flink.agents.api.tools.ToolMetadata;
 
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -72,6 +86,10 @@ import java.util.stream.Collectors;
  *   <li><b>max_retries</b> (optional): Maximum number of retry attempts (default: 2)
  *   <li><b>default_headers</b> (optional): Map of default headers to include in all requests
  *   <li><b>model</b> (optional): Default model to use if not specified in setup
+ *   <li><b>prompt_caching</b> (optional): Whether to send a prompt cache key derived from the
+ *       system prompt and the tools, so that requests sharing them are routed to the same prompt
+ *       cache (default: true if the base URL is the OpenAI API, false otherwise, since OpenAI
+ *       compatible servers may reject the key)
  * </ul>
  *
  * <p>Example usage:
@@ -94,10 +112,12 @@ import java.util.stream.Collectors;
 public class OpenAIChatModelConnection extends BaseChatModelConnection {
 
     private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+    private static final String OPENAI_API_HOST = "api.openai.com";
 
     private final ObjectMapper mapper = new ObjectMapper();
     private final OpenAIClient client;
     private final String defaultModel;
+    private final boolean promptCaching;
 
     public OpenAIChatModelConnection(
             ResourceDescriptor descriptor, BiFunction<String, ResourceType, Resource> getResource) {
@@ -133,37 +153,160 @@ public class OpenAIChatModelConnection extends BaseChatModelConnection {
         }
 
         this.defaultModel = descriptor.getArgument("model");
+        this.promptCaching = descriptor.getArgument("prompt_caching", isOpenAIBaseUrl(apiBaseUrl));
         this.client = builder.build();
     }
 
+    /** Returns whether the given base URL, or the default one if null, is the OpenAI API. */
+    private static boolean isOpenAIBaseUrl(String apiBaseUrl) {
+        if (apiBaseUrl == null || apiBaseUrl.isBlank()) {
+            return true;
+        }
+        try {
+            return OPENAI_API_HOST.equalsIgnoreCase(URI.create(apiBaseUrl.trim()).getHost());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
     @Override
     public ChatMessage chat(
             List<ChatMessage> messages, List<Tool> tools, Map<String, Object> arguments) {
         try {
             ChatCompletionCreateParams params = buildRequest(messages, tools, arguments);
             ChatCompletion completion = client.chat().completions().create(params);
-            ChatMessage response = convertResponse(completion);
+            return processCompletion(completion, arguments);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to call OpenAI chat completions API.", e);
+        }
+    }
 
-            // Record token metrics
-            if (completion.usage().isPresent()) {
-                String modelName = arguments != null ? (String) arguments.get("model") : null;
-                if (modelName == null || modelName.isBlank()) {
-                    modelName = this.defaultModel;
-                }
-                if (modelName != null && !modelName.isBlank()) {
-                    recordTokenMetrics(
-                            modelName,
-                            completion.usage().get().promptTokens(),
-                            completion.usage().get().completionTokens());
+    /**
+     * Sends the request with the async client of the OpenAI SDK. The OkHttp dispatcher of the
+     * client runs at most 64 requests at a time, and queues the further requests of this connection
+     * until one of them completes. The SDK does not allow to configure this limit, which applies to
+     * each connection of each parallel instance of the agent, so more requests are sent at the same
+     * time by declaring several connections.
+     */
+    @Override
+    public CompletableFuture<ChatMessage> chatAsync(
+            List<ChatMessage> messages, List<Tool> tools, Map<String, Object> arguments) {
+        try {
+            ChatCompletionCreateParams params = buildRequest(messages, tools, arguments);
+            return client.async()
+                    .chat()
+                    .completions()
+                    .create(params)
+                    .handle(
+                            (completion, t) -> {
+                                if (t != null) {
+                                    throw new RuntimeException(
+                                            "Failed to call OpenAI chat completions API.",
+                                            t instanceof CompletionException ? t.getCause() : t);
+                                }
+                                return processCompletion(completion, arguments);
+                            });
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("Failed to call OpenAI chat completions API.", e));
+        }
+    }
+
+    @Override
+    public boolean supportsNonBlockingChat() {
+        return true;
+    }
+
+    @Override
+    public ChatMessage chatStream(
+            List<ChatMessage> messages,
+            List<Tool> tools,
+            Map<String, Object> arguments,
+            Consumer<String> onDelta) {
+        try {
+            ChatCompletionCreateParams params =
+                    buildRequest(messages, tools, arguments).toBuilder()
+                            .streamOptions(
+                                    ChatCompletionStreamOptions.builder()
+                                            .includeUsage(true)
+                                            .build())
+                            .build();
+            ChatCompletionAccumulator accumulator = ChatCompletionAccumulator.create();
+            long startNanos = System.nanoTime();
+            long firstDeltaNanos = -1L;
+            try (StreamResponse<ChatCompletionChunk> stream =
+                    client.chat().completions().createStreaming(params)) {
+                Iterator<ChatCompletionChunk> chunks = stream.stream().iterator();
+                while (chunks.hasNext()) {
+                    ChatCompletionChunk chunk = accumulator.accumulate(chunks.next());
+                    for (ChatCompletionChunk.Choice choice : chunk.choices()) {
+                        String content = choice.delta().content().orElse("");
+                        if (firstDeltaNanos < 0
+                                && (!content.isEmpty() || choice.delta().toolCalls().isPresent())) {
+                            firstDeltaNanos = System.nanoTime();
+                        }
+                        if (!content.isEmpty()) {
+                            onDelta.accept(content);
+                        }
+                    }
                 }
             }
-
+            long endNanos = System.nanoTime();
+
+            ChatCompletion completion = accumulator.chatCompletion();
+            ChatMessage response = processCompletion(completion, arguments);
+
+            String modelName = getModelName(arguments);
+            if (modelName != null && firstDeltaNanos >= 0) {
+                recordStreamingMetrics(
+                        modelName,
+                        firstDeltaNanos - startNanos,
+                        completion.usage().map(CompletionUsage::completionTokens).orElse(0L),
+                        endNanos - firstDeltaNanos);
+            }
             return response;
         } catch (Exception e) {
             throw new RuntimeException("Failed to call OpenAI chat completions API.", e);
         }
     }
 
+    @Override
+    public boolean supportsStreaming() {
+        return true;
+    }
+
+    /** Converts the completion to a chat message, and records its token usage. */
+    private ChatMessage processCompletion(
+            ChatCompletion completion, Map<String, Object> arguments) {
+        ChatMessage response = convertResponse(completion);
+
+        // Record token metrics
+        if (completion.usage().isPresent()) {
+            String modelName = getModelName(arguments);
+            if (modelName != null) {
+                CompletionUsage usage = completion.usage().get();
+                recordTokenMetrics(modelName, usage.promptTokens(), usage.completionTokens());
+                recordPromptCacheMetrics(
+                        modelName,
+                        usage.promptTokensDetails()
+                                .flatMap(CompletionUsage.PromptTokensDetails::cachedTokens)
+                                .orElse(0L),
+                        0L);
+            }
+        }
+
+        return response;
+    }
+
+    /** Returns the name of the model requested by the arguments, or null if there is none. */
+    private String getModelName(Map<String, Object> arguments) {
+        String modelName = arguments != null ? (String) arguments.get("model") : null;
+        if (modelName == null || modelName.isBlank()) {
+            modelName = this.defaultModel;
+        }
+        return modelName != null && !modelName.isBlank() ? modelName : null;
+    }
+
     private ChatCompletionCreateParams buildRequest(
             List<ChatMessage> messages, List<Tool> tools, Map<String, Object> rawArguments) {
         Map<String, Object> arguments =
@@ -222,36 +365,69 @@ public class OpenAIChatModelConnection extends BaseChatModelConnection {
                     (key, value) -> builder.putAdditionalBodyProperty(key, toJsonValue(value)));
         }
 
+        if (promptCaching
+                && (additionalKwargs == null
+                        || !additionalKwargs.containsKey("prompt_cache_key"))) {
+            builder.promptCacheKey(promptCacheKey(modelName, messages, tools));
+        }
+
         return builder.build();
     }
 
+    /**
+     * Returns a key identifying the stable prefix of the request, which is the system prompt and
+     * the tools. OpenAI caches prompt prefixes automatically, and routes requests with the same key
+     * to the same cache.
+     */
+    private static String promptCacheKey(
+            String modelName, List<ChatMessage> messages, List<Tool> tools) {
+        StringBuilder prefix = new StringBuilder(modelName);
+        for (ChatMessage message : messages) {
+            if (message.getRole() == MessageRole.SYSTEM) {
+                prefix.append('\0').append(message.getContent());
+            }
+        }
+        if (tools != null) {
+            for (Tool tool : tools) {
+                prefix.append('\0').append(tool.getMetadata().getName());
+            }
+        }
+        return UUID.nameUUIDFromBytes(prefix.toString().getBytes(StandardCharsets.UTF_8))
+                .toString();
+    }
+
     private List<ChatCompletionTool> convertTools(List<Tool> tools, boolean strictMode) {
         List<ChatCompletionTool> openaiTools = new ArrayList<>(tools.size());
         for (Tool tool : tools) {
-            ToolMetadata metadata = tool.getMetadata();
-            FunctionDefinition.Builder functionBuilder =
-                    FunctionDefinition.builder()
-                            .name(metadata.getName())
-                            .description(metadata.getDescription());
-
-            String schema = metadata.getInputSchema();
-            if (schema != null && !schema.isBlank()) {
-                functionBuilder.parameters(parseFunctionParameters(schema));
-            }
+            openaiTools.add(
+                    getToolDefinition(
+                            tool, strictMode, metadata -> convertTool(metadata, strictMode)));
+        }
+        return openaiTools;
+    }
 
-            if (strictMode) {
-                functionBuilder.strict(true);
-            }
+    private ChatCompletionTool convertTool(ToolMetadata metadata, boolean strictMode) {
+        FunctionDefinition.Builder functionBuilder =
+                FunctionDefinition.builder()
+                        .name(metadata.getName())
+                        .description(metadata.getDescription());
 
-            ChatCompletionFunctionTool functionTool =
-                    ChatCompletionFunctionTool.builder()
-                            .function(functionBuilder.build())
-                            .type(JsonValue.from("function"))
-                            .build();
+        String schema = metadata.getInputSchema();
+        if (schema != null && !schema.isBlank()) {
+            functionBuilder.parameters(parseFunctionParameters(schema));
+        }
 
-            openaiTools.add(ChatCompletionTool.ofFunction(functionTool));
+        if (strictMode) {
+            functionBuilder.strict(true);
         }
-        return openaiTools;
+
+        ChatCompletionFunctionTool functionTool =
+                ChatCompletionFunctionTool.builder()
+                        .function(functionBuilder.build())
+                        .type(JsonValue.from("function"))
+                        .build();
+
+        return ChatCompletionTool.ofFunction(functionTool);
     }
 
     private FunctionParameters parseFunctionParameters(String schemaJson) {
@@ -365,6 +541,22 @@ public class OpenAIChatModelConnection extends BaseChatModelConnection {
 
         message.refusal().ifPresent(refusal -> response.getExtraArgs().put("refusal", refusal));
 
+        // The mean log probability of the tokens, e.g. to decide whether a cascade escalates.
+        choices.get(0)
+                .logprobs()
+                .flatMap(ChatCompletion.Choice.Logprobs::content)
+                .filter(tokens -> !tokens.isEmpty())
+                .ifPresent(
+                        tokens ->
+                                response.getExtraArgs()
+                                        .put(
+                                                CascadeAcceptanceCheck.MEAN_LOGPROB,
+                                                tokens.stream()
+                                                        .mapToDouble(
+                                                                ChatCompletionTokenLogprob::logprob)
+                                                        .average()
+                                                        .getAsDouble()));
+
         List<ChatCompletionMessageToolCall> toolCalls = message.toolCalls().orElse(List.of());
         if (!toolCalls.isEmpty()) {
             response.setToolCalls(convertResponseToolCalls(toolCalls));
@@ -20,6 +20,10 @@ package org.apache.flink.agents.plan;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Objects;
@@ -41,6 +45,12 @@ public class JavaFunction implements Function {
 
     @JsonIgnore private transient Method method;
 
+    /**
+     * The handle of the method, taking the arguments as an array and returning an Object, so that
+     * calls do not go through reflection.
+     */
+    @JsonIgnore private transient MethodHandle methodHandle;
+
     public JavaFunction(
             @JsonProperty(FIELD_NAME_QUAL_NAME) String qualName,
             @JsonProperty(FIELD_NAME_METHOD_NAME) String methodName,
@@ -103,7 +113,33 @@ public class JavaFunction implements Function {
 
     @Override
     public Object call(Object... args) throws Exception {
-        return getMethod().invoke(null, args);
+        MethodHandle handle = getMethodHandle();
+        if (args.length != parameterTypes.length) {
+            throw new IllegalArgumentException(
+                    String.format(
+                            "Function \"%s\" expects %d arguments, but got %d",
+                            qualName + '.' + methodName, parameterTypes.length, args.length));
+        }
+        try {
+            return (Object) handle.invokeExact(args);
+        } catch (Throwable t) {
+            // Wrap the exception thrown by the method, as Method#invoke does.
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    private MethodHandle getMethodHandle() throws Exception {
+        if (methodHandle == null) {
+            Method method = getMethod();
+            // The declaring class of the method may not be public.
+            method.trySetAccessible();
+            this.methodHandle =
+                    MethodHandles.lookup()
+                            .unreflect(method)
+                            .asSpreader(Object[].class, parameterTypes.length)
+                            .asType(MethodType.methodType(Object.class, Object[].class));
+        }
+        return methodHandle;
     }
 
     @Override
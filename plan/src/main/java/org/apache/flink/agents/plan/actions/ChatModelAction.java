@@ -26,12 +26,17 @@ import org.apache.flink.agents.api.agents.OutputSchema;
 import org.apache.flink.agents.api.chat.messages.ChatMessage;
 import org.apache.flink.agents.api.chat.messages.MessageRole;
 import org.apache.flink.agents.api.chat.model.BaseChatModelSetup;
+import org.apache.flink.agents.api.chat.model.CascadeChatModelSetup;
+import org.apache.flink.agents.api.chat.model.ChatContextBudget;
 import org.apache.flink.agents.api.chat.model.python.PythonChatModelSetup;
+import org.apache.flink.agents.api.context.DurableAsyncCallable;
 import org.apache.flink.agents.api.context.DurableCallable;
+import org.apache.flink.agents.api.context.DurableStreamingCallable;
 import org.apache.flink.agents.api.context.MemoryObject;
 import org.apache.flink.agents.api.context.RunnerContext;
 import org.apache.flink.agents.api.event.ChatRequestEvent;
 import org.apache.flink.agents.api.event.ChatResponseEvent;
+import org.apache.flink.agents.api.event.PartialChatResponseEvent;
 import org.apache.flink.agents.api.event.ToolRequestEvent;
 import org.apache.flink.agents.api.event.ToolResponseEvent;
 import org.apache.flink.agents.api.resource.ResourceType;
@@ -45,6 +50,9 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static org.apache.flink.agents.api.agents.Agent.STRUCTURED_OUTPUT;
 
@@ -96,6 +104,20 @@ public class ChatModelAction {
         return messageContext;
     }
 
+    @SuppressWarnings("unchecked")
+    private static void setToolCallContext(
+            MemoryObject sensoryMem, UUID initialRequestId, List<ChatMessage> messages)
+            throws Exception {
+        Map<UUID, Object> toolCallContext;
+        if (sensoryMem.isExist(TOOL_CALL_CONTEXT)) {
+            toolCallContext = (Map<UUID, Object>) sensoryMem.get(TOOL_CALL_CONTEXT).getValue();
+        } else {
+            toolCallContext = new HashMap<>();
+        }
+        toolCallContext.put(initialRequestId, new ArrayList<>(messages));
+        sensoryMem.set(TOOL_CALL_CONTEXT, toolCallContext);
+    }
+
     @SuppressWarnings("unchecked")
     private static void saveToolRequestEventContext(
             MemoryObject sensoryMem,
@@ -182,7 +204,9 @@ public class ChatModelAction {
      * Chat with chat model.
      *
      * <p>If there is no tool calls in chat model response, send the chat response event. Otherwise,
-     * generate tool request event and save the tool call context in memory.
+     * generate tool request event and save the tool call context in memory. If the response is
+     * streamed and partial events are enabled, a {@link PartialChatResponseEvent} is sent for each
+     * delta of the response before.
      *
      * @param initialRequestId The request id of the initial chat request event.
      * @param messages The chat messages as llm input.
@@ -199,9 +223,6 @@ public class ChatModelAction {
                 (BaseChatModelSetup) ctx.getResource(model, ResourceType.CHAT_MODEL);
 
         boolean chatAsync = ctx.getConfig().get(AgentExecutionOptions.CHAT_ASYNC);
-        // TODO: python chat model doesn't support async execution yet, see
-        // https://github.com/apache/flink-agents/issues/448 for details.
-        chatAsync = chatAsync && !(chatModel instanceof PythonChatModelSetup);
 
         Agent.ErrorHandlingStrategy strategy =
                 ctx.getConfig().get(AgentExecutionOptions.ERROR_HANDLING_STRATEGY);
@@ -214,31 +235,38 @@ public class ChatModelAction {
         }
 
         ChatMessage response = null;
-
-        DurableCallable<ChatMessage> callable =
-                new DurableCallable<>() {
-                    @Override
-                    public String getId() {
-                        return "chat";
-                    }
-
-                    @Override
-                    public Class<ChatMessage> getResultClass() {
-                        return ChatMessage.class;
-                    }
-
-                    @Override
-                    public ChatMessage call() throws Exception {
-                        return chatModel.chat(messages, Map.of());
-                    }
-                };
+        // Counts the streamed responses of the request, which restart their partial events.
+        AtomicInteger streamAttempts = new AtomicInteger();
 
         for (int attempt = 0; attempt < numRetries + 1; attempt++) {
             try {
+                // The context is fitted as part of the request, so that its failures are handled
+                // like those of the chat model, and a failed summary is tried again on retry.
+                // Messages fitted by an earlier attempt already fit and are kept.
+                List<ChatMessage> fitted = fitContextBudget(chatModel, messages, chatAsync, ctx);
+                if (fitted != messages) {
+                    // The next turns continue from the trimmed context, so that older turns are
+                    // trimmed and summarized once.
+                    setToolCallContext(ctx.getSensoryMemory(), initialRequestId, fitted);
+                    messages = fitted;
+                }
                 response =
-                        chatAsync
-                                ? ctx.durableExecuteAsync(callable)
-                                : ctx.durableExecute(callable);
+                        chatModel instanceof CascadeChatModelSetup
+                                ? cascade(
+                                        (CascadeChatModelSetup) chatModel,
+                                        initialRequestId,
+                                        messages,
+                                        chatAsync,
+                                        streamAttempts,
+                                        ctx)
+                                : callChatModel(
+                                        chatModel,
+                                        "chat",
+                                        initialRequestId,
+                                        messages,
+                                        chatAsync,
+                                        streamAttempts,
+                                        ctx);
                 // only generate structured output for final response.
                 if (outputSchema != null && response.getToolCalls().isEmpty()) {
                     response = generateStructuredOutput(response, outputSchema);
@@ -276,6 +304,286 @@ public class ChatModelAction {
         }
     }
 
+    /**
+     * Trims the messages to fit the context budget of the chat model. Older turns are summarized by
+     * the summary model of the chat model, if it has one, as a durable call that is sent like the
+     * chat request itself, i.e. without blocking if the summary model supports it.
+     */
+    private static List<ChatMessage> fitContextBudget(
+            BaseChatModelSetup chatModel,
+            List<ChatMessage> messages,
+            boolean chatAsync,
+            RunnerContext ctx) {
+        BaseChatModelSetup summaryModel = chatModel.getContextSummaryModel();
+        ChatContextBudget.Summarizer summarizer =
+                summaryModel == null
+                        ? null
+                        : request -> summarize(summaryModel, request, chatAsync, ctx);
+        return chatModel.fitContextBudget(messages, summarizer);
+    }
+
+    private static String summarize(
+            BaseChatModelSetup summaryModel,
+            List<ChatMessage> request,
+            boolean chatAsync,
+            RunnerContext ctx)
+            throws Exception {
+        String callId = "context-summary";
+        if (chatAsync && summaryModel.supportsNonBlockingChat()) {
+            return ctx.durableExecuteAsync(
+                    new DurableAsyncCallable<>() {
+                        @Override
+                        public String getId() {
+                            return callId;
+                        }
+
+                        @Override
+                        public Class<String> getResultClass() {
+                            return String.class;
+                        }
+
+                        @Override
+                        public CompletableFuture<String> callAsync() {
+                            return summaryModel
+                                    .chatAsync(request, Map.of())
+                                    .thenApply(ChatMessage::getContent);
+                        }
+                    });
+        }
+        DurableCallable<String> callable =
+                new DurableCallable<>() {
+                    @Override
+                    public String getId() {
+                        return callId;
+                    }
+
+                    @Override
+                    public Class<String> getResultClass() {
+                        return String.class;
+                    }
+
+                    @Override
+                    public String call() {
+                        return summaryModel.chat(request, Map.of()).getContent();
+                    }
+
+                    @Override
+                    public String getBulkhead() {
+                        return ResourceType.CHAT_MODEL.getValue();
+                    }
+                };
+        return chatAsync ? ctx.durableExecuteAsync(callable) : ctx.durableExecute(callable);
+    }
+
+    /**
+     * Sends the chat request to the chat model as a durable call with the given id, streaming the
+     * response or sending it without blocking if the chat model supports it.
+     *
+     * @param streamAttempts the number of responses of the request streamed so far, which numbers
+     *     the attempt of the partial events of a streamed response
+     */
+    private static ChatMessage callChatModel(
+            BaseChatModelSetup chatModel,
+            String callId,
+            UUID initialRequestId,
+            List<ChatMessage> messages,
+            boolean chatAsync,
+            AtomicInteger streamAttempts,
+            RunnerContext ctx)
+            throws Exception {
+        // TODO: python chat model doesn't support async execution yet, see
+        // https://github.com/apache/flink-agents/issues/448 for details.
+        chatAsync = chatAsync && !(chatModel instanceof PythonChatModelSetup);
+
+        DurableCallable<ChatMessage> callable =
+                new DurableCallable<>() {
+                    @Override
+                    public String getId() {
+                        return callId;
+                    }
+
+                    @Override
+                    public Class<ChatMessage> getResultClass() {
+                        return ChatMessage.class;
+                    }
+
+                    @Override
+                    public ChatMessage call() throws Exception {
+                        return chatModel.chat(messages, Map.of());
+                    }
+
+                    @Override
+                    public String getBulkhead() {
+                        return ResourceType.CHAT_MODEL.getValue();
+                    }
+                };
+
+        // Chat models whose connection sends requests without blocking need no thread to wait
+        // for the response.
+        DurableAsyncCallable<ChatMessage> nonBlockingCallable =
+                chatAsync && chatModel.supportsNonBlockingChat()
+                        ? new DurableAsyncCallable<>() {
+                            @Override
+                            public String getId() {
+                                return callId;
+                            }
+
+                            @Override
+                            public Class<ChatMessage> getResultClass() {
+                                return ChatMessage.class;
+                            }
+
+                            @Override
+                            public CompletableFuture<ChatMessage> callAsync() {
+                                return chatModel.chatAsync(messages, Map.of());
+                            }
+                        }
+                        : null;
+
+        // Streamed responses are passed in deltas, which are sent as partial events if enabled.
+        boolean streaming =
+                ctx.getConfig().get(AgentExecutionOptions.CHAT_STREAMING)
+                        && chatModel.supportsStreaming();
+        boolean sendPartialEvents =
+                streaming
+                        && ctx.getConfig().get(AgentExecutionOptions.CHAT_STREAMING_PARTIAL_EVENTS);
+        DurableStreamingCallable<ChatMessage> streamingCallable =
+                streaming
+                        ? new DurableStreamingCallable<>() {
+                            @Override
+                            public String getId() {
+                                return callId;
+                            }
+
+                            @Override
+                            public Class<ChatMessage> getResultClass() {
+                                return ChatMessage.class;
+                            }
+
+                            @Override
+                            public ChatMessage call(Consumer<Event> partialEvents) {
+                                if (!sendPartialEvents) {
+                                    return chatModel.chatStream(messages, Map.of(), delta -> {});
+                                }
+                                int attempt = streamAttempts.getAndIncrement();
+                                AtomicInteger index = new AtomicInteger();
+                                return chatModel.chatStream(
+                                        messages,
+                                        Map.of(),
+                                        delta ->
+                                                partialEvents.accept(
+                                                        new PartialChatResponseEvent(
+                                                                initialRequestId,
+                                                                attempt,
+                                                                delta,
+                                                                index.getAndIncrement())));
+                            }
+
+                            @Override
+                            public String getBulkhead() {
+                                return ResourceType.CHAT_MODEL.getValue();
+                            }
+                        }
+                        : null;
+
+        if (streamingCallable != null) {
+            return chatAsync
+                    ? ctx.durableExecuteStreaming(streamingCallable)
+                    : durableExecuteStreamingSync(streamingCallable, ctx);
+        } else if (nonBlockingCallable != null) {
+            return ctx.durableExecuteAsync(nonBlockingCallable);
+        } else {
+            return chatAsync ? ctx.durableExecuteAsync(callable) : ctx.durableExecute(callable);
+        }
+    }
+
+    /**
+     * Sends the chat request to the tiers of the cascade in order, until the response of a tier is
+     * accepted. The call of each tier and its acceptance check are separate durable calls, so that
+     * a recovered request continues with the tier it escalated to.
+     */
+    private static ChatMessage cascade(
+            CascadeChatModelSetup cascade,
+            UUID initialRequestId,
+            List<ChatMessage> messages,
+            boolean chatAsync,
+            AtomicInteger streamAttempts,
+            RunnerContext ctx)
+            throws Exception {
+        List<BaseChatModelSetup> tiers = cascade.getTiers();
+        for (int tier = 0; ; tier++) {
+            long start = System.nanoTime();
+            ChatMessage response =
+                    callChatModel(
+                            tiers.get(tier),
+                            "chat-tier-" + tier,
+                            initialRequestId,
+                            messages,
+                            chatAsync,
+                            streamAttempts,
+                            ctx);
+            cascade.recordTierLatency(tier, System.nanoTime() - start);
+            if (cascade.isLastTier(tier)) {
+                cascade.recordTierHit(tier);
+                return response;
+            }
+            String checkId = "cascade-check-" + tier;
+            boolean accepted =
+                    ctx.durableExecute(
+                            new DurableCallable<>() {
+                                @Override
+                                public String getId() {
+                                    return checkId;
+                                }
+
+                                @Override
+                                public Class<Boolean> getResultClass() {
+                                    return Boolean.class;
+                                }
+
+                                @Override
+                                public Boolean call() {
+                                    return cascade.accept(messages, response);
+                                }
+                            });
+            if (accepted) {
+                cascade.recordTierHit(tier);
+                return response;
+            }
+        }
+    }
+
+    /**
+     * Executes the streaming callable synchronously, and sends its partial events once it is
+     * complete.
+     */
+    private static <T> T durableExecuteStreamingSync(
+            DurableStreamingCallable<T> callable, RunnerContext ctx) throws Exception {
+        List<Event> partialEvents = new ArrayList<>();
+        T result =
+                ctx.durableExecute(
+                        new DurableCallable<>() {
+                            @Override
+                            public String getId() {
+                                return callable.getId();
+                            }
+
+                            @Override
+                            public Class<T> getResultClass() {
+                                return callable.getResultClass();
+                            }
+
+                            @Override
+                            public T call() throws Exception {
+                                return callable.call(partialEvents::add);
+                            }
+                        });
+        for (Event partialEvent : partialEvents) {
+            ctx.sendEvent(partialEvent);
+        }
+        return result;
+    }
+
     private static void processChatRequest(ChatRequestEvent event, RunnerContext ctx)
             throws Exception {
         chat(event.getId(), event.getModel(), event.getMessages(), event.getOutputSchema(), ctx);
@@ -85,6 +85,11 @@ public class ContextRetrievalAction {
                         public VectorStoreQueryResult call() throws Exception {
                             return vectorStore.query(vectorStoreQuery);
                         }
+
+                        @Override
+                        public String getBulkhead() {
+                            return ResourceType.VECTOR_STORE.getValue();
+                        }
                     };
 
             VectorStoreQueryResult result =
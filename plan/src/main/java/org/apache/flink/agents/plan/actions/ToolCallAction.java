@@ -28,10 +28,13 @@ import org.apache.flink.agents.api.tools.ToolParameters;
 import org.apache.flink.agents.api.tools.ToolResponse;
 import org.apache.flink.agents.plan.JavaFunction;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.apache.flink.util.CollectionUtil.newHashMapWithExpectedSize;
+
 /** Built-in action for processing tool call. */
 public class ToolCallAction {
     public static Action getToolCallAction() throws Exception {
@@ -45,13 +48,20 @@ public class ToolCallAction {
     }
 
     @SuppressWarnings("unchecked")
-    public static void processToolRequest(ToolRequestEvent event, RunnerContext ctx) {
+    public static void processToolRequest(ToolRequestEvent event, RunnerContext ctx)
+            throws Exception {
         boolean toolCallAsync = ctx.getConfig().get(AgentExecutionOptions.TOOL_CALL_ASYNC);
+        int maxConcurrency = ctx.getConfig().get(AgentExecutionOptions.TOOL_CALL_MAX_CONCURRENCY);
+        boolean concurrent = toolCallAsync && maxConcurrency > 1;
 
-        Map<String, Boolean> success = new HashMap<>();
+        int numOfToolCalls = event.getToolCalls().size();
+        Map<String, Boolean> success = newHashMapWithExpectedSize(numOfToolCalls);
         Map<String, String> error = new HashMap<>();
-        Map<String, ToolResponse> responses = new HashMap<>();
-        Map<String, String> externalIds = new HashMap<>();
+        Map<String, ToolResponse> responses = newHashMapWithExpectedSize(numOfToolCalls);
+        Map<String, String> externalIds = newHashMapWithExpectedSize(numOfToolCalls);
+        List<String> concurrentIds = new ArrayList<>();
+        List<String> concurrentNames = new ArrayList<>();
+        List<DurableCallable<ToolCallResult>> concurrentCalls = new ArrayList<>();
         for (Map<String, Object> toolCall : event.getToolCalls()) {
             String id = String.valueOf(toolCall.get("id"));
             Map<String, Object> function = (Map<String, Object>) toolCall.get("function");
@@ -72,7 +82,11 @@ public class ToolCallAction {
                 error.put(id, e.getMessage());
             }
 
-            if (tool != null) {
+            if (tool != null && concurrent) {
+                concurrentIds.add(id);
+                concurrentNames.add(name);
+                concurrentCalls.add(new ConcurrentToolCall(tool, arguments));
+            } else if (tool != null) {
                 try {
                     ToolResponse response;
                     final Tool toolRef = tool;
@@ -92,6 +106,11 @@ public class ToolCallAction {
                                 public ToolResponse call() throws Exception {
                                     return toolRef.call(new ToolParameters(arguments));
                                 }
+
+                                @Override
+                                public String getBulkhead() {
+                                    return ResourceType.TOOL.getValue();
+                                }
                             };
                     response =
                             toolCallAsync
@@ -107,6 +126,108 @@ public class ToolCallAction {
                 }
             }
         }
+
+        // Execute the tool calls with at most maxConcurrency of them running at the same time. A
+        // tool call failing, timing out or being rejected gets a failed result of its own, so
+        // that it neither stops nor hides the results of the other calls.
+        if (!concurrentCalls.isEmpty()) {
+            List<ToolCallResult> results =
+                    ctx.durableExecuteAsyncAll(
+                            concurrentCalls, maxConcurrency, ToolCallResult::failure);
+            for (int i = 0; i < concurrentCalls.size(); i++) {
+                String id = concurrentIds.get(i);
+                ToolCallResult result = results.get(i);
+                if (result.getError() == null) {
+                    success.put(id, true);
+                    responses.put(id, result.getResponse());
+                } else {
+                    success.put(id, false);
+                    responses.put(
+                            id,
+                            ToolResponse.error(
+                                    String.format(
+                                            "Tool %s execute failed.", concurrentNames.get(i))));
+                    error.put(id, result.getError());
+                }
+            }
+        }
         ctx.sendEvent(new ToolResponseEvent(event.getId(), responses, success, error, externalIds));
     }
+
+    /** A tool call executed concurrently with the other tool calls of the same request. */
+    private static class ConcurrentToolCall implements DurableCallable<ToolCallResult> {
+        private final Tool tool;
+        private final Map<String, Object> arguments;
+
+        private ConcurrentToolCall(Tool tool, Map<String, Object> arguments) {
+            this.tool = tool;
+            this.arguments = arguments;
+        }
+
+        @Override
+        public String getId() {
+            // Differs from the id of sequential tool calls, whose result class differs, so that
+            // changing the max concurrency between runs does not replay a result of the wrong
+            // class.
+            return "tool-call-concurrent";
+        }
+
+        @Override
+        public Class<ToolCallResult> getResultClass() {
+            return ToolCallResult.class;
+        }
+
+        @Override
+        public ToolCallResult call() {
+            try {
+                return ToolCallResult.success(tool.call(new ToolParameters(arguments)));
+            } catch (Exception e) {
+                return ToolCallResult.failure(e);
+            }
+        }
+
+        @Override
+        public String getBulkhead() {
+            return ResourceType.TOOL.getValue();
+        }
+    }
+
+    /**
+     * The outcome of a concurrent tool call, either the response of the tool or the message of the
+     * exception thrown by the tool.
+     */
+    public static class ToolCallResult {
+        private ToolResponse response;
+        private String error;
+
+        public ToolCallResult() {}
+
+        static ToolCallResult success(ToolResponse response) {
+            ToolCallResult result = new ToolCallResult();
+            result.response = response;
+            return result;
+        }
+
+        static ToolCallResult failure(Exception e) {
+            ToolCallResult result = new ToolCallResult();
+            result.error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            return result;
+        }
+
+        public ToolResponse getResponse() {
+            return response;
+        }
+
+        public void setResponse(ToolResponse response) {
+            this.response = response;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+    }
 }
@@ -48,6 +48,9 @@ public class FunctionTool extends Tool {
 
     private final Function function;
 
+    /** Maps the tool parameters to the arguments of the method, resolved on the first call. */
+    private transient ArgumentBinder argumentBinder;
+
     /** Create a FunctionTool from ToolMetadata and Function */
     public FunctionTool(ToolMetadata metadata, Function function) {
         super(metadata);
@@ -104,38 +107,65 @@ public class FunctionTool extends Tool {
     @Override
     public ToolResponse call(ToolParameters parameters) {
         try {
-            // Map ToolParameters to method arguments by name and type
-            Method method = ((JavaFunction) function).getMethod();
+            Object result = function.call(getArgumentBinder().bind(parameters));
+            return ToolResponse.success(result);
+        } catch (Exception e) {
+            return ToolResponse.error(e);
+        }
+    }
+
+    private ArgumentBinder getArgumentBinder() throws Exception {
+        if (argumentBinder == null) {
+            this.argumentBinder = new ArgumentBinder(((JavaFunction) function).getMethod());
+        }
+        return argumentBinder;
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    /**
+     * Maps {@link ToolParameters} to the arguments of a method by name and type. The names, types
+     * and required flags of the parameters are read from the method and its {@link ToolParam}
+     * annotations once.
+     */
+    private static final class ArgumentBinder {
+        private final String[] names;
+        private final Class<?>[] types;
+
+        /** Whether each parameter is required and has no default value. */
+        private final boolean[] required;
+
+        private ArgumentBinder(Method method) {
             Parameter[] methodParams = method.getParameters();
-            Object[] args = new Object[methodParams.length];
+            this.names = new String[methodParams.length];
+            this.types = new Class<?>[methodParams.length];
+            this.required = new boolean[methodParams.length];
             for (int i = 0; i < methodParams.length; i++) {
                 Parameter p = methodParams[i];
-                String paramName = p.getName();
-                if (p.isAnnotationPresent(ToolParam.class)) {
-                    ToolParam ann = p.getAnnotation(ToolParam.class);
+                names[i] = p.getName();
+                types[i] = p.getType();
+                ToolParam ann = p.getAnnotation(ToolParam.class);
+                if (ann != null) {
                     if (!ann.name().isEmpty()) {
-                        paramName = ann.name();
+                        names[i] = ann.name();
                     }
+                    required[i] = ann.required() && ann.defaultValue().isEmpty();
                 }
-                Object value = parameters.getParameter(paramName, p.getType());
-                if (value == null && p.isAnnotationPresent(ToolParam.class)) {
-                    ToolParam ann = p.getAnnotation(ToolParam.class);
-                    if (ann.required() && ann.defaultValue().isEmpty()) {
-                        throw new IllegalArgumentException(
-                                "Missing required parameter: " + paramName);
-                    }
+            }
+        }
+
+        private Object[] bind(ToolParameters parameters) {
+            Object[] args = new Object[names.length];
+            for (int i = 0; i < names.length; i++) {
+                Object value = parameters.getParameter(names[i], types[i]);
+                if (value == null && required[i]) {
+                    throw new IllegalArgumentException("Missing required parameter: " + names[i]);
                 }
                 args[i] = value;
             }
-
-            Object result = function.call(args);
-            return ToolResponse.success(result);
-        } catch (Exception e) {
-            return ToolResponse.error(e);
+            return args;
         }
     }
-
-    public Function getFunction() {
-        return function;
-    }
 }
@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.plan.actions;
+
+import org.apache.flink.agents.api.Event;
+import org.apache.flink.agents.api.agents.AgentExecutionOptions;
+import org.apache.flink.agents.api.configuration.ReadableConfiguration;
+import org.apache.flink.agents.api.context.DurableCallable;
+import org.apache.flink.agents.api.context.MemoryObject;
+import org.apache.flink.agents.api.context.RunnerContext;
+import org.apache.flink.agents.api.event.ToolRequestEvent;
+import org.apache.flink.agents.api.event.ToolResponseEvent;
+import org.apache.flink.agents.api.memory.BaseLongTermMemory;
+import org.apache.flink.agents.api.metrics.FlinkAgentsMetricGroup;
+import org.apache.flink.agents.api.resource.Resource;
+import org.apache.flink.agents.api.resource.ResourceType;
+import org.apache.flink.agents.api.tools.Tool;
+import org.apache.flink.agents.api.tools.ToolMetadata;
+import org.apache.flink.agents.api.tools.ToolParameters;
+import org.apache.flink.agents.api.tools.ToolResponse;
+import org.apache.flink.agents.api.tools.ToolType;
+import org.apache.flink.agents.plan.AgentConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Tests for {@link ToolCallAction}. */
+class ToolCallActionTest {
+
+    private static final long TOOL_LATENCY_MS = 200;
+
+    @Test
+    void testToolCallsExecutedConcurrently() throws Exception {
+        long sequentialMs = processFiveToolCalls(1);
+        long concurrentMs = processFiveToolCalls(8);
+
+        // Five sequential calls take at least five times the latency of the tool, while
+        // concurrent calls take about the latency of a single call.
+        assertThat(sequentialMs).isGreaterThanOrEqualTo(5 * TOOL_LATENCY_MS);
+        assertThat(concurrentMs).isLessThan(3 * TOOL_LATENCY_MS);
+    }
+
+    @Test
+    void testConcurrentToolCallsBoundedByMaxConcurrency() throws Exception {
+        long boundedMs = processFiveToolCalls(2);
+
+        // Five calls with at most two running at the same time take at least three latencies.
+        assertThat(boundedMs).isGreaterThanOrEqualTo(3 * TOOL_LATENCY_MS);
+    }
+
+    @Test
+    void testFailedToolCallDoesNotFailOtherConcurrentCalls() throws Exception {
+        AgentConfiguration config = new AgentConfiguration();
+        TestRunnerContext ctx = new TestRunnerContext(config);
+        ToolCallAction.processToolRequest(
+                new ToolRequestEvent(
+                        "model",
+                        List.of(
+                                toolCall("0", "slow", 0),
+                                toolCall("1", "failing", 1),
+                                toolCall("2", "missing", 2))),
+                ctx);
+
+        ToolResponseEvent responseEvent = (ToolResponseEvent) ctx.sentEvents.get(0);
+        assertThat(responseEvent.getSuccess()).containsEntry("0", true);
+        assertThat(responseEvent.getResponses().get("0").getResult()).isEqualTo(0);
+        assertThat(responseEvent.getSuccess()).containsEntry("1", false);
+        assertThat(responseEvent.getError()).containsEntry("1", "Tool failed on 1");
+        assertThat(responseEvent.getResponses().get("1").getError())
+                .isEqualTo("Tool failing execute failed.");
+        assertThat(responseEvent.getSuccess()).containsEntry("2", false);
+    }
+
+    @Test
+    void testTimedOutToolCallKeepsResultsOfCompletedCalls() throws Exception {
+        TestRunnerContext ctx = new TestRunnerContext(new AgentConfiguration());
+        ctx.timeoutMs = 5 * TOOL_LATENCY_MS;
+        ToolCallAction.processToolRequest(
+                new ToolRequestEvent(
+                        "model", List.of(toolCall("0", "slow", 0), toolCall("1", "stuck", 1))),
+                ctx);
+
+        ToolResponseEvent responseEvent = (ToolResponseEvent) ctx.sentEvents.get(0);
+        assertThat(responseEvent.getSuccess()).containsEntry("0", true);
+        assertThat(responseEvent.getResponses().get("0").getResult()).isEqualTo(0);
+        assertThat(responseEvent.getSuccess()).containsEntry("1", false);
+        assertThat(responseEvent.getResponses().get("1").getError())
+                .isEqualTo("Tool stuck execute failed.");
+    }
+
+    private static long processFiveToolCalls(int maxConcurrency) throws Exception {
+        AgentConfiguration config = new AgentConfiguration();
+        config.setInt(AgentExecutionOptions.TOOL_CALL_MAX_CONCURRENCY.getKey(), maxConcurrency);
+        TestRunnerContext ctx = new TestRunnerContext(config);
+        List<Map<String, Object>> toolCalls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            toolCalls.add(toolCall(String.valueOf(i), "slow", i));
+        }
+
+        long start = System.nanoTime();
+        ToolCallAction.processToolRequest(new ToolRequestEvent("model", toolCalls), ctx);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(ctx.sentEvents).hasSize(1);
+        ToolResponseEvent responseEvent = (ToolResponseEvent) ctx.sentEvents.get(0);
+        for (int i = 0; i < 5; i++) {
+            assertThat(responseEvent.getSuccess()).containsEntry(String.valueOf(i), true);
+            assertThat(responseEvent.getResponses().get(String.valueOf(i)).getResult())
+                    .isEqualTo(i);
+        }
+        return elapsedMs;
+    }
+
+    private static Map<String, Object> toolCall(String id, String name, int value) {
+        return Map.of(
+                "id", id, "function", Map.of("name", name, "arguments", Map.of("value", value)));
+    }
+
+    /**
+     * A tool that returns its argument after a fixed latency, or fails if named "failing", or takes
+     * a hundred times the latency if named "stuck".
+     */
+    private static class SlowTool extends Tool {
+
+        private SlowTool(String name) {
+            super(new ToolMetadata(name, "A slow tool.", "{}"));
+        }
+
+        @Override
+        public ToolType getToolType() {
+            return ToolType.FUNCTION;
+        }
+
+        @Override
+        public ToolResponse call(ToolParameters parameters) {
+            try {
+                Thread.sleep(getName().equals("stuck") ? 100 * TOOL_LATENCY_MS : TOOL_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Object value = parameters.getParameter("value");
+            if (getName().equals("failing")) {
+                throw new IllegalStateException("Tool failed on " + value);
+            }
+            return ToolResponse.success(value);
+        }
+    }
+
+    /**
+     * A RunnerContext executing the durable calls of durableExecuteAsyncAll concurrently, each
+     * starting as soon as a thread is free, and failing the calls not complete within its timeout.
+     */
+    private static class TestRunnerContext implements RunnerContext {
+        private final AgentConfiguration config;
+        private final List<Event> sentEvents = new ArrayList<>();
+        private long timeoutMs = 60_000;
+
+        private TestRunnerContext(AgentConfiguration config) {
+            this.config = config;
+        }
+
+        @Override
+        public void sendEvent(Event event) {
+            sentEvents.add(event);
+        }
+
+        @Override
+        public MemoryObject getSensoryMemory() {
+            return null;
+        }
+
+        @Override
+        public MemoryObject getShortTermMemory() {
+            return null;
+        }
+
+        @Override
+        public BaseLongTermMemory getLongTermMemory() {
+            return null;
+        }
+
+        @Override
+        public FlinkAgentsMetricGroup getAgentMetricGroup() {
+            return null;
+        }
+
+        @Override
+        public FlinkAgentsMetricGroup getActionMetricGroup() {
+            return null;
+        }
+
+        @Override
+        public Resource getResource(String name, ResourceType type) {
+            if (name.equals("missing")) {
+                throw new IllegalArgumentException("Tool missing not found.");
+            }
+            return new SlowTool(name);
+        }
+
+        @Override
+        public ReadableConfiguration getConfig() {
+            return config;
+        }
+
+        @Override
+        public Map<String, Object> getActionConfig() {
+            return Map.of();
+        }
+
+        @Override
+        public Object getActionConfigValue(String key) {
+            return null;
+        }
+
+        @Override
+        public <T> T durableExecute(DurableCallable<T> callable) throws Exception {
+            return callable.call();
+        }
+
+        @Override
+        public <T> T durableExecuteAsync(DurableCallable<T> callable) throws Exception {
+            return callable.call();
+        }
+
+        @Override
+        public <T> List<T> durableExecuteAsyncAll(
+                List<DurableCallable<T>> callables,
+                int maxConcurrency,
+                Function<Exception, T> onFailure) {
+            ExecutorService executor =
+                    Executors.newFixedThreadPool(Math.min(callables.size(), maxConcurrency));
+            try {
+                List<Future<T>> futures = new ArrayList<>();
+                for (DurableCallable<T> callable : callables) {
+                    futures.add(executor.submit(callable::call));
+                }
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+                List<T> results = new ArrayList<>();
+                for (Future<T> future : futures) {
+                    try {
+                        results.add(future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+                    } catch (ExecutionException e) {
+                        results.add(onFailure.apply((Exception) e.getCause()));
+                    } catch (Exception e) {
+                        results.add(onFailure.apply(e));
+                    }
+                }
+                return results;
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -22,11 +22,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.flink.agents.api.annotation.Tool;
 import org.apache.flink.agents.api.annotation.ToolParam;
 import org.apache.flink.agents.api.tools.ToolMetadata;
+import org.apache.flink.agents.api.tools.ToolParameters;
+import org.apache.flink.agents.api.tools.ToolResponse;
 import org.apache.flink.agents.plan.JavaFunction;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Method;
+import java.util.Map;
 
 public class FunctionToolTest {
     @Tool(description = "Performs basic arithmetic operations")
@@ -79,4 +82,27 @@ public class FunctionToolTest {
         Assertions.assertEquals(tool.getMetadata(), deserialize.getMetadata());
         Assertions.assertEquals(tool.getFunction(), deserialize.getFunction());
     }
+
+    @Test
+    public void testCallMapsParametersByName() throws Exception {
+        Method method =
+                FunctionToolTest.class.getMethod(
+                        "calculate", Double.class, Double.class, String.class);
+        FunctionTool tool = FunctionTool.fromStaticMethod(method);
+
+        ToolResponse response =
+                tool.call(new ToolParameters(Map.of("a", 6.0, "b", 3, "operation", "divide")));
+        Assertions.assertTrue(response.isSuccess());
+        Assertions.assertEquals(2.0, response.getResult());
+        // The arguments are bound in the same way on later calls.
+        response = tool.call(new ToolParameters(Map.of("a", 6.0, "b", 3.0, "operation", "add")));
+        Assertions.assertEquals(9.0, response.getResult());
+
+        response = tool.call(new ToolParameters(Map.of("a", 6.0, "operation", "add")));
+        Assertions.assertTrue(response.isError());
+        Assertions.assertEquals("Missing required parameter: b", response.getError());
+
+        response = tool.call(new ToolParameters(Map.of("a", 6.0, "b", 0.0, "operation", "divide")));
+        Assertions.assertTrue(response.isError());
+    }
 }
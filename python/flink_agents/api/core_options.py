@@ -118,6 +118,12 @@ class AgentExecutionOptions(metaclass=AgentConfigOptionsMeta):
         default=True,
     )
 
+    TOOL_CALL_MAX_CONCURRENCY = ConfigOption(
+        key="tool-call.max-concurrency",
+        config_type=int,
+        default=8,
+    )
+
     RAG_ASYNC = ConfigOption(
         key="rag.async",
         config_type=bool,
@@ -16,7 +16,7 @@
 # limitations under the License.
 #################################################################################
 from abc import ABC, abstractmethod
-from typing import TYPE_CHECKING, Any, Callable, Dict
+from typing import TYPE_CHECKING, Any, Callable, Dict, Sequence
 
 from flink_agents.api.configuration import ReadableConfiguration
 from flink_agents.api.events.event import Event
@@ -274,6 +274,45 @@ class RunnerContext(ABC):
             An awaitable object that yields the function result when awaited.
         """
 
+    @abstractmethod
+    def durable_execute_async_all(
+        self,
+        calls: Sequence[Callable[[], Any]],
+    ) -> "AsyncExecutionResult":
+        """Asynchronously execute all the provided functions concurrently with durable
+        execution support. Access to memory is prohibited within the functions.
+
+        All the functions are submitted at once when the returned object is awaited,
+        and the action resumes when all of them are complete or the first one fails.
+        The result of each function is stored as a separate call in the order of the
+        given list, and returned when the same durable_execute_async_all call is made
+        again during job recovery. If a function fails, the exception of the failed
+        function with the lowest index is raised, and the results of the functions
+        after it are discarded.
+
+        Each function takes no argument, use ``functools.partial`` to bind the
+        arguments. The arguments and the results must be serializable.
+
+        Usage::
+
+            async def my_action(event, ctx):
+                results = await ctx.durable_execute_async_all(
+                    [partial(search, query) for query in event.queries]
+                )
+                ctx.send_event(OutputEvent(output=results))
+
+        Parameters
+        ----------
+        calls : Sequence[Callable[[], Any]]
+            The functions to be executed asynchronously.
+
+        Returns:
+        -------
+        AsyncExecutionResult
+            An awaitable object that yields the list of function results, in the
+            order of the given functions, when awaited.
+        """
+
     @property
     @abstractmethod
     def config(self) -> ReadableConfiguration:
@@ -16,6 +16,7 @@
 # limitations under the License.
 #################################################################################
 import logging
+from functools import partial
 
 from flink_agents.api.core_options import AgentExecutionOptions
 from flink_agents.api.events.tool_event import ToolRequestEvent, ToolResponseEvent
@@ -34,23 +35,40 @@ async def process_tool_request(event: ToolRequestEvent, ctx: RunnerContext) -> N
         # To avoid https://github.com/alibaba/pemja/issues/88, we log a message here.
         _logger.debug("Processing tool call asynchronously.")
 
+    max_concurrency = ctx.config.get(AgentExecutionOptions.TOOL_CALL_MAX_CONCURRENCY)
+    concurrent = tool_call_async and max_concurrency > 1
+
     responses = {}
     external_ids = {}
+    concurrent_ids = []
+    concurrent_calls = []
     for tool_call in event.tool_calls:
         id = tool_call["id"]
         name = tool_call["function"]["name"]
         kwargs = tool_call["function"]["arguments"]
         tool = ctx.get_resource(name, ResourceType.TOOL)
         external_id = tool_call.get("original_id")
+        external_ids[id] = external_id
         if not tool:
-            response = f"Tool `{name}` does not exist."
+            responses[id] = f"Tool `{name}` does not exist."
+        elif concurrent:
+            concurrent_ids.append(id)
+            concurrent_calls.append(partial(tool.call, **kwargs))
+        elif tool_call_async:
+            responses[id] = await ctx.durable_execute_async(tool.call, **kwargs)
         else:
-            if tool_call_async:
-                response = await ctx.durable_execute_async(tool.call, **kwargs)
-            else:
-                response = ctx.durable_execute(tool.call, **kwargs)
-        responses[id] = response
-        external_ids[id] = external_id
+            responses[id] = ctx.durable_execute(tool.call, **kwargs)
+
+    # Execute the tool calls in waves of at most max_concurrency calls.
+    for start in range(0, len(concurrent_calls), max_concurrency):
+        results = await ctx.durable_execute_async_all(
+            concurrent_calls[start : start + max_concurrency]
+        )
+        for id, response in zip(
+            concurrent_ids[start : start + max_concurrency], results, strict=True
+        ):
+            responses[id] = response
+
     ctx.send_event(
         ToolResponseEvent(
             request_id=event.id, responses=responses, external_ids=external_ids
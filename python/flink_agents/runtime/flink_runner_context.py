@@ -15,11 +15,12 @@
 #  See the License for the specific language governing permissions and
 # limitations under the License.
 #################################################################################
+import functools
 import hashlib
 import logging
 import os
-from concurrent.futures import ThreadPoolExecutor
-from typing import Any, Callable, Dict
+from concurrent.futures import Future, ThreadPoolExecutor
+from typing import Any, Callable, Dict, List, Sequence, Tuple
 
 import cloudpickle
 from typing_extensions import override
@@ -147,6 +148,72 @@ class _DurableAsyncExecutionResult(AsyncExecutionResult):
             return result
 
 
+class _DurableAsyncAllExecutionResult(AsyncExecutionResult):
+    """An AsyncExecutionResult that executes several calls concurrently and records
+    their completion in order after execution.
+    """
+
+    def __init__(
+        self,
+        executor: Any,
+        cached_results: List[Any],
+        calls: List[Tuple[Callable, tuple, dict]],
+        record_callback: Callable,
+    ) -> None:
+        # Don't call super().__init__ as there are several functions to execute
+        self._executor = executor
+        self._cached_results = cached_results
+        self._calls = calls
+        self._record_callback = record_callback
+
+    def __await__(self) -> Any:
+        """Execute all the calls and record their completion when awaited."""
+        futures = [
+            self._executor.submit(func, *args, **kwargs)
+            for func, args, kwargs in self._calls
+        ]
+        while not all(future.done() for future in futures) and not any(
+            _has_failed(future) for future in futures
+        ):
+            yield
+
+        # Skip the calls not started yet, their results would be discarded anyway
+        for future in futures:
+            future.cancel()
+
+        # Record the completed calls in order, so that recovery replays them in the
+        # same order, and stop at the first call that failed or did not complete
+        results = list(self._cached_results)
+        recording = True
+        for future, (func, args, kwargs) in zip(futures, self._calls, strict=True):
+            if not future.done() or future.cancelled():
+                recording = False
+                continue
+            exception = future.exception()
+            if exception is not None:
+                if recording:
+                    self._record_callback(func, args, kwargs, None, exception)
+                raise exception
+            result = future.result()
+            if recording:
+                self._record_callback(func, args, kwargs, result, None)
+            results.append(result)
+        return results
+
+
+def _has_failed(future: Future) -> bool:
+    return future.done() and not future.cancelled() and future.exception() is not None
+
+
+def _unwrap_call(call: Callable[[], Any]) -> Tuple[Callable, tuple, dict]:
+    """Split a call into the function and the arguments bound by functools.partial,
+    so that the call is identified the same way as in durable_execute_async.
+    """
+    if isinstance(call, functools.partial):
+        return call.func, call.args, call.keywords
+    return call, (), {}
+
+
 def _compute_function_id(func: Callable) -> str:
     """Compute a stable function identifier from a callable.
 
@@ -479,6 +546,41 @@ class FlinkRunnerContext(RunnerContext):
 
         return _DurableAsyncExecutionResult(self.executor, wrapped_func, args, kwargs)
 
+    @override
+    def durable_execute_async_all(
+        self,
+        calls: Sequence[Callable[[], Any]],
+    ) -> AsyncExecutionResult:
+        """Asynchronously execute all the provided functions concurrently with durable
+        execution support. Access to memory is prohibited within the functions.
+
+        The result of each function is stored as a separate call in the order of the
+        given list, and returned when the same durable_execute_async_all call is made
+        again during job recovery.
+
+        Important: The results are only recorded when the returned
+        AsyncExecutionResult is awaited.
+        """
+        unwrapped_calls = [_unwrap_call(call) for call in calls]
+
+        # Try to get cached results for recovery, the first missing one discards all
+        # the calls after it
+        cached_results = []
+        for func, args, kwargs in unwrapped_calls:
+            is_hit, cached_result = self._try_get_cached_result(func, args, kwargs)
+            if not is_hit:
+                break
+            cached_results.append(cached_result)
+        if len(cached_results) == len(unwrapped_calls):
+            return _CachedAsyncExecutionResult(cached_results)
+
+        return _DurableAsyncAllExecutionResult(
+            self.executor,
+            cached_results,
+            unwrapped_calls[len(cached_results) :],
+            self._record_call_completion,
+        )
+
     @property
     @override
     def config(self) -> ReadableConfiguration:
@@ -20,7 +20,7 @@ import logging
 import uuid
 from collections import deque
 from concurrent.futures import Future
-from typing import Any, Callable, Dict, List
+from typing import Any, Callable, Dict, List, Sequence
 
 from typing_extensions import override
 
@@ -42,6 +42,16 @@ logging.basicConfig(
 logger = logging.getLogger(__name__)
 
 
+class _SyncExecutor:
+    """A mock executor that returns a pre-completed future."""
+
+    def __init__(self, completed_future: Future) -> None:
+        self._future = completed_future
+
+    def submit(self, fn: Callable, *args: Any, **kwargs: Any) -> Future:
+        return self._future
+
+
 class LocalRunnerContext(RunnerContext):
     """Implementation of RunnerContext for local agent execution.
 
@@ -221,15 +231,32 @@ class LocalRunnerContext(RunnerContext):
         except Exception as e:
             future.set_exception(e)
 
-        # Create a mock executor that returns the pre-completed future
-        class _SyncExecutor:
-            def __init__(self, completed_future: Future) -> None:
-                self._future = completed_future
+        return AsyncExecutionResult(_SyncExecutor(future), func, args, kwargs)
 
-            def submit(self, fn: Callable, *args: Any, **kwargs: Any) -> Future:
-                return self._future
+    @override
+    def durable_execute_async_all(
+        self,
+        calls: Sequence[Callable[[], Any]],
+    ) -> AsyncExecutionResult:
+        """Asynchronously execute all the provided functions. Access to memory
+        is prohibited within the functions.
 
-        return AsyncExecutionResult(_SyncExecutor(future), func, args, kwargs)
+        Note: Local runner executes the functions synchronously one after another
+        but returns an AsyncExecutionResult for API consistency. Durable execution
+        is not supported.
+        """
+        logger.warning(
+            "Local runner does not support durable execution; recovery is not available."
+        )
+        # Execute synchronously, stop at the first failure, and wrap the results in a
+        # completed Future
+        future: Future = Future()
+        try:
+            future.set_result([call() for call in calls])
+        except Exception as e:
+            future.set_exception(e)
+
+        return AsyncExecutionResult(_SyncExecutor(future), list, (), {})
 
     @property
     @override
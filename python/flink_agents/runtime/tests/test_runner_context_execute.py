@@ -17,6 +17,8 @@
 #################################################################################
 """Tests for RunnerContext durable_execute() method."""
 
+from functools import partial
+
 from flink_agents.api.agents.agent import Agent
 from flink_agents.api.decorators import action
 from flink_agents.api.events.event import Event, InputEvent, OutputEvent
@@ -106,6 +108,24 @@ class AgentWithKwargs(Agent):
         ctx.send_event(OutputEvent(output=result))
 
 
+class AgentWithDurableExecuteAsyncAll(Agent):
+    """Agent that uses durable_execute_async_all() method."""
+
+    @action(InputEvent)
+    @staticmethod
+    async def process(event: Event, ctx: RunnerContext) -> None:
+        """Process an event using durable_execute_async_all()."""
+        input_val = event.input
+        results = await ctx.durable_execute_async_all(
+            [
+                partial(slow_computation, input_val, 1),
+                partial(multiply, input_val, 2),
+                partial(slow_computation, x=input_val, y=3),
+            ]
+        )
+        ctx.send_event(OutputEvent(output=results))
+
+
 def test_durable_execute_basic() -> None:
     """Test basic synchronous durable_execute() functionality."""
     env = AgentsExecutionEnvironment.get_execution_environment()
@@ -188,3 +208,20 @@ def test_durable_execute_with_kwargs() -> None:
 
     assert output_list == [{"alice": 25}]
 
+
+
+def test_durable_execute_async_all() -> None:
+    """Test durable_execute_async_all() returns the results in order."""
+    env = AgentsExecutionEnvironment.get_execution_environment()
+
+    input_list = []
+    agent = AgentWithDurableExecuteAsyncAll()
+
+    output_list = env.from_list(input_list).apply(agent).to_list()
+
+    input_list.append({"key": "alice", "value": 5})
+
+    env.execute()
+
+    # [5 + 1, 5 * 2, 5 + 3]
+    assert output_list == [{"alice": [6, 10, 8]}]
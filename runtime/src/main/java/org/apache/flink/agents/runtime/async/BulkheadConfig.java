@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.agents.runtime.async;
+
+import org.apache.flink.agents.api.configuration.ReadableConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.apache.flink.agents.api.agents.AgentExecutionOptions.ASYNC_BULKHEADS;
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Configuration of a bulkhead, a dedicated pool running the durable async calls of one kind.
+ *
+ * <p>Bulkheads are declared by the {@code async.bulkheads} option, and each of them is configured
+ * by the following options:
+ *
+ * <ul>
+ *   <li>{@code async.bulkhead.<name>.max-concurrency}: the maximum number of calls running at the
+ *       same time, defaults to the pool size of the async executor.
+ *   <li>{@code async.bulkhead.<name>.queue-capacity}: the maximum number of calls waiting for a
+ *       thread, unbounded by default.
+ *   <li>{@code async.bulkhead.<name>.rejection-policy}: what to do with a call submitted to a full
+ *       bulkhead, either {@code FAIL} (default) or {@code CALLER_RUNS}.
+ * </ul>
+ *
+ * <p>Durable async calls are submitted from the mailbox thread of the operator, so {@code
+ * CALLER_RUNS} runs a rejected call there: it blocks the processing of all keys of the operator,
+ * including checkpoints, until the call returns, and gives up the isolation of the bulkhead. It
+ * only suits cheap calls, for which backpressure is preferable to failing.
+ */
+public class BulkheadConfig {
+
+    private static final String KEY_PREFIX = "async.bulkhead.";
+
+    /** What to do with a call submitted to a bulkhead whose threads and queue are full. */
+    public enum RejectionPolicy {
+        /** Fail the call with a {@link java.util.concurrent.RejectedExecutionException}. */
+        FAIL,
+        /**
+         * Run the call synchronously on the calling thread, which is the mailbox thread of the
+         * operator, blocking it until the call returns.
+         */
+        CALLER_RUNS
+    }
+
+    private final String name;
+    private final int maxConcurrency;
+    private final int queueCapacity;
+    private final RejectionPolicy rejectionPolicy;
+
+    public BulkheadConfig(
+            String name, int maxConcurrency, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        checkArgument(maxConcurrency > 0, "Max concurrency of bulkhead %s must be positive.", name);
+        checkArgument(
+                queueCapacity >= 0, "Queue capacity of bulkhead %s must not be negative.", name);
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.queueCapacity = queueCapacity;
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    /**
+     * Reads the configurations of all bulkheads declared in the given configuration.
+     *
+     * @param config the agent configuration
+     * @param defaultMaxConcurrency the max concurrency of bulkheads not configuring one
+     * @return the bulkhead configurations, in declaration order
+     */
+    public static List<BulkheadConfig> fromConfig(
+            ReadableConfiguration config, int defaultMaxConcurrency) {
+        List<BulkheadConfig> bulkheads = new ArrayList<>();
+        String names = config.get(ASYNC_BULKHEADS);
+        if (names == null) {
+            return bulkheads;
+        }
+        for (String name : names.split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            String prefix = KEY_PREFIX + name + ".";
+            bulkheads.add(
+                    new BulkheadConfig(
+                            name,
+                            config.getInt(prefix + "max-concurrency", defaultMaxConcurrency),
+                            config.getInt(prefix + "queue-capacity", Integer.MAX_VALUE),
+                            RejectionPolicy.valueOf(
+                                    config.getStr(
+                                                    prefix + "rejection-policy",
+                                                    RejectionPolicy.FAIL.name())
+                                            .toUpperCase(Locale.ROOT))));
+        }
+        return bulkheads;
+    }
+}
@@ -17,6 +17,22 @@
  */
 package org.apache.flink.agents.runtime.async;
 
+import org.apache.flink.agents.api.agents.AgentExecutionOptions.AsyncExecutorType;
+
+import javax.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
@@ -27,9 +43,33 @@ import java.util.function.Supplier;
  */
 public class ContinuationActionExecutor {
 
+    private final AtomicLong timedOutCalls = new AtomicLong();
+
     /** Creates a new ContinuationActionExecutor. */
     public ContinuationActionExecutor() {}
 
+    /**
+     * Creates a new ContinuationActionExecutor. In JDK 11, async calls run synchronously on the
+     * calling thread, so the executor type and pool size are ignored.
+     *
+     * @param executorType the kind of executor running async calls
+     * @param poolSize the number of threads of the platform or shared executor
+     */
+    public ContinuationActionExecutor(AsyncExecutorType executorType, int poolSize) {}
+
+    /**
+     * Creates a new ContinuationActionExecutor. In JDK 11, async calls run synchronously on the
+     * calling thread, so the executor settings and bulkheads are ignored.
+     *
+     * @param executorType the kind of executor running async calls
+     * @param poolSize the number of threads of the platform or shared executor
+     * @param bulkheadConfigs the bulkheads isolating async calls by kind
+     */
+    public ContinuationActionExecutor(
+            AsyncExecutorType executorType,
+            int poolSize,
+            Iterable<BulkheadConfig> bulkheadConfigs) {}
+
     /**
      * Executes the action. In JDK 11, this simply runs the action synchronously.
      *
@@ -56,8 +96,269 @@ public class ContinuationActionExecutor {
         return supplier.get();
     }
 
+    /**
+     * Asynchronously executes the provided supplier in the given bulkhead. In JDK 11, this falls
+     * back to synchronous execution.
+     *
+     * @param context the continuation context
+     * @param bulkhead the name of the bulkhead to run the supplier in, may be null
+     * @param supplier the supplier to execute
+     * @param <T> the result type
+     * @return the result of the supplier
+     */
+    public <T> T executeAsync(ContinuationContext context, String bulkhead, Supplier<T> supplier) {
+        return supplier.get();
+    }
+
+    /**
+     * Asynchronously executes the provided supplier in the given bulkhead within the given timeout.
+     * In JDK 11, this falls back to synchronous execution, which cannot be interrupted, so the
+     * timeout only prevents starting the supplier once it has already expired.
+     *
+     * @param context the continuation context
+     * @param bulkhead the name of the bulkhead to run the supplier in, may be null
+     * @param timeout the maximum time to wait for the supplier, or null to wait indefinitely
+     * @param supplier the supplier to execute
+     * @param <T> the result type
+     * @return the result of the supplier
+     * @throws TimeoutException if the timeout has already expired
+     */
+    public <T> T executeAsync(
+            ContinuationContext context,
+            String bulkhead,
+            @Nullable Duration timeout,
+            Supplier<T> supplier)
+            throws TimeoutException {
+        if (isExpired(timeout)) {
+            timedOutCalls.incrementAndGet();
+            throw expiredException();
+        }
+        return supplier.get();
+    }
+
+    /**
+     * Waits for the future started by the provided supplier within the given timeout. In JDK 11,
+     * this blocks the calling thread until the future is complete, and cancels the future if the
+     * timeout expires first.
+     *
+     * @param context the continuation context
+     * @param timeout the maximum time to wait for the future, or null to wait indefinitely
+     * @param starter the supplier starting the non-blocking operation
+     * @param <T> the result type
+     * @return the result of the future
+     * @throws Exception if the future fails or times out
+     */
+    public <T> T executeNonBlocking(
+            ContinuationContext context,
+            @Nullable Duration timeout,
+            Supplier<CompletableFuture<T>> starter)
+            throws Exception {
+        if (isExpired(timeout)) {
+            timedOutCalls.incrementAndGet();
+            throw expiredException();
+        }
+        CompletableFuture<T> future = starter.get();
+        try {
+            return timeout == null
+                    ? future.get()
+                    : future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOutCalls.incrementAndGet();
+            throw new TimeoutException(
+                    String.format("Async call timed out after %d ms.", timeout.toMillis()));
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /**
+     * Executes the provided streaming task in the given bulkhead within the given timeout. In JDK
+     * 11, this falls back to synchronous execution, in which the partial results are passed to the
+     * given consumer as soon as the task passes them, and the timeout only prevents starting the
+     * task once it has already expired.
+     *
+     * @param context the continuation context
+     * @param bulkhead the name of the bulkhead to run the task in, may be null
+     * @param timeout the maximum time to wait for the task, or null to wait indefinitely
+     * @param task the task to execute, taking the consumer of its partial results
+     * @param onPartial the consumer of the partial results
+     * @param <T> the result type
+     * @param <P> the partial result type
+     * @return the result of the task
+     * @throws TimeoutException if the timeout has already expired
+     */
+    public <T, P> T executeStreaming(
+            ContinuationContext context,
+            String bulkhead,
+            @Nullable Duration timeout,
+            Function<Consumer<P>, T> task,
+            Consumer<P> onPartial)
+            throws TimeoutException {
+        if (isExpired(timeout)) {
+            timedOutCalls.incrementAndGet();
+            throw expiredException();
+        }
+        return task.apply(onPartial);
+    }
+
+    /**
+     * Asynchronously executes all the provided suppliers, each in the bulkhead at the same index.
+     * In JDK 11, this falls back to executing the suppliers synchronously one after another, and
+     * stops at the first failure.
+     *
+     * @param context the continuation context
+     * @param bulkheadNames the names of the bulkheads to run the suppliers in, may contain nulls
+     * @param suppliers the suppliers to execute
+     * @param <T> the result type
+     * @return the futures of the suppliers, the ones after the first failure are cancelled
+     */
+    public <T> List<CompletableFuture<T>> executeAsyncAll(
+            ContinuationContext context, List<String> bulkheadNames, List<Supplier<T>> suppliers) {
+        return executeAsyncAll(context, bulkheadNames, null, suppliers);
+    }
+
+    /**
+     * Asynchronously executes all the provided suppliers within the given timeout. In JDK 11, this
+     * falls back to executing the suppliers synchronously one after another, so the timeout only
+     * prevents starting the suppliers once it has already expired.
+     *
+     * @param context the continuation context
+     * @param bulkheadNames the names of the bulkheads to run the suppliers in, may contain nulls
+     * @param timeout the maximum time to wait for the suppliers, or null to wait indefinitely
+     * @param suppliers the suppliers to execute
+     * @param <T> the result type
+     * @return the futures of the suppliers, the ones after the first failure are cancelled
+     */
+    public <T> List<CompletableFuture<T>> executeAsyncAll(
+            ContinuationContext context,
+            List<String> bulkheadNames,
+            @Nullable Duration timeout,
+            List<Supplier<T>> suppliers) {
+        return executeAsyncAll(context, bulkheadNames, timeout, Integer.MAX_VALUE, suppliers);
+    }
+
+    /**
+     * Asynchronously executes all the provided suppliers within the given timeout, with at most the
+     * given number of them running at the same time. In JDK 11, this falls back to executing the
+     * suppliers synchronously one after another, so the concurrency limit has no effect.
+     *
+     * @param context the continuation context
+     * @param bulkheadNames the names of the bulkheads to run the suppliers in, may contain nulls
+     * @param timeout the maximum time to wait for the suppliers, or null to wait indefinitely
+     * @param maxConcurrency the maximum number of suppliers running at the same time
+     * @param suppliers the suppliers to execute
+     * @param <T> the result type
+     * @return the futures of the suppliers, the ones after the first failure are cancelled
+     */
+    public <T> List<CompletableFuture<T>> executeAsyncAll(
+            ContinuationContext context,
+            List<String> bulkheadNames,
+            @Nullable Duration timeout,
+            int maxConcurrency,
+            List<Supplier<T>> suppliers) {
+        if (isExpired(timeout)) {
+            List<CompletableFuture<T>> futures = new ArrayList<>(suppliers.size());
+            for (int i = 0; i < suppliers.size(); i++) {
+                CompletableFuture<T> future = new CompletableFuture<>();
+                future.completeExceptionally(expiredException());
+                futures.add(future);
+            }
+            timedOutCalls.addAndGet(suppliers.size());
+            return futures;
+        }
+
+        List<CompletableFuture<T>> futures = new ArrayList<>(suppliers.size());
+        boolean failed = false;
+        for (Supplier<T> supplier : suppliers) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            if (failed) {
+                future.cancel(false);
+            } else {
+                try {
+                    future.complete(supplier.get());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                    failed = true;
+                }
+            }
+            futures.add(future);
+        }
+        return futures;
+    }
+
+    /** Returns the number of async calls waiting for a thread, always 0 in JDK 11. */
+    public int getQueuedCallCount() {
+        return 0;
+    }
+
+    /** Returns the number of async calls currently running, always 0 in JDK 11. */
+    public int getActiveCallCount() {
+        return 0;
+    }
+
+    /** Returns the number of async calls that did not complete before their deadline. */
+    public long getTimedOutCallCount() {
+        return timedOutCalls.get();
+    }
+
+    /**
+     * Returns the number of async calls cancelled after they were submitted, always 0 in JDK 11.
+     */
+    public long getCancelledCallCount() {
+        return 0;
+    }
+
+    /** Returns the names of the configured bulkheads, always empty in JDK 11. */
+    public Set<String> getBulkheadNames() {
+        return Collections.emptySet();
+    }
+
+    /** Returns the number of async calls waiting for a thread in the given bulkhead. */
+    public int getQueuedCallCount(String bulkhead) {
+        return 0;
+    }
+
+    /** Returns the number of async calls currently running in the given bulkhead. */
+    public int getActiveCallCount(String bulkhead) {
+        return 0;
+    }
+
+    /** Returns the number of async calls rejected by the given bulkhead. */
+    public long getRejectedCallCount(String bulkhead) {
+        return 0;
+    }
+
+    /** Returns the ratio of running calls to the max concurrency of the given bulkhead. */
+    public double getSaturation(String bulkhead) {
+        return 0;
+    }
+
     public void close() {}
 
+    private static Exception unwrap(Throwable t) {
+        if (t instanceof Exception) {
+            return (Exception) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else {
+            return new RuntimeException(t);
+        }
+    }
+
+    private static boolean isExpired(@Nullable Duration timeout) {
+        return timeout != null && (timeout.isNegative() || timeout.isZero());
+    }
+
+    private static TimeoutException expiredException() {
+        return new TimeoutException("Async call not submitted, its deadline has already passed.");
+    }
+
+    /** Returns the default size of the platform and shared thread pools. */
+    public static int defaultPoolSize() {
+        return Runtime.getRuntime().availableProcessors() * 2;
+    }
+
     /**
      * Returns whether continuation-based async execution is supported.
      *
@@ -17,14 +17,32 @@
  */
 package org.apache.flink.agents.runtime.context;
 
+import org.apache.flink.agents.api.Event;
+import org.apache.flink.agents.api.context.DurableAsyncCallable;
 import org.apache.flink.agents.api.context.DurableCallable;
+import org.apache.flink.agents.api.context.DurableStreamingCallable;
 import org.apache.flink.agents.plan.AgentPlan;
 import org.apache.flink.agents.runtime.async.ContinuationActionExecutor;
 import org.apache.flink.agents.runtime.async.ContinuationContext;
 import org.apache.flink.agents.runtime.metrics.FlinkAgentsMetricGroupImpl;
 
+import javax.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
+import static org.apache.flink.agents.api.agents.AgentExecutionOptions.ASYNC_CALL_TIMEOUT_MS;
+
 /**
  * Java-specific implementation of RunnerContext that includes ContinuationActionExecutor for async
  * execution support.
@@ -33,6 +51,7 @@ public class JavaRunnerContextImpl extends RunnerContextImpl {
 
     private final ContinuationActionExecutor continuationExecutor;
     private ContinuationContext continuationContext;
+    @Nullable private Long inputDeadlineNanos;
 
     public JavaRunnerContextImpl(
             FlinkAgentsMetricGroupImpl agentMetricGroup,
@@ -56,6 +75,46 @@ public class JavaRunnerContextImpl extends RunnerContextImpl {
         return continuationContext;
     }
 
+    /**
+     * Sets the deadline of processing the current input, compared against {@link
+     * System#nanoTime()}, or null if the input has no deadline.
+     */
+    public void setInputDeadlineNanos(@Nullable Long inputDeadlineNanos) {
+        this.inputDeadlineNanos = inputDeadlineNanos;
+    }
+
+    /**
+     * Returns the time a durable async call of the current action may take, which is the call
+     * timeout configured for the action or globally, shortened to the time left before the deadline
+     * of the current input. Returns null if there is neither.
+     */
+    @Nullable
+    Duration getAsyncCallTimeout() {
+        Map<String, Object> actionConfig = getActionConfig();
+        Object actionTimeoutMs =
+                actionConfig != null ? actionConfig.get(ASYNC_CALL_TIMEOUT_MS.getKey()) : null;
+        Long timeoutMs =
+                actionTimeoutMs != null
+                        ? parseMillis(actionTimeoutMs)
+                        : getConfig().get(ASYNC_CALL_TIMEOUT_MS);
+        Duration timeout = timeoutMs != null ? Duration.ofMillis(timeoutMs) : null;
+        if (inputDeadlineNanos != null) {
+            Duration timeLeft = Duration.ofNanos(inputDeadlineNanos - System.nanoTime());
+            if (timeout == null || timeLeft.compareTo(timeout) < 0) {
+                timeout = timeLeft;
+            }
+        }
+        return timeout;
+    }
+
+    /** Parses milliseconds of an action config, which may have been deserialized as a double. */
+    private static long parseMillis(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return (long) Double.parseDouble(value.toString().trim());
+    }
+
     @Override
     public <T> T durableExecuteAsync(DurableCallable<T> callable) throws Exception {
         String functionId = callable.getId();
@@ -89,10 +148,106 @@ public class JavaRunnerContextImpl extends RunnerContextImpl {
             if (continuationExecutor == null || continuationContext == null) {
                 result = wrappedSupplier.get();
             } else {
-                result = continuationExecutor.executeAsync(continuationContext, wrappedSupplier);
+                result =
+                        continuationExecutor.executeAsync(
+                                continuationContext,
+                                callable.getBulkhead(),
+                                getAsyncCallTimeout(),
+                                wrappedSupplier);
+            }
+        } catch (DurableExecutionRuntimeException e) {
+            originalException = (Exception) e.getCause();
+        } catch (TimeoutException e) {
+            originalException = e;
+        }
+
+        recordDurableCompletion(functionId, argsDigest, result, originalException);
+
+        if (originalException != null) {
+            throw originalException;
+        }
+        return result;
+    }
+
+    @Override
+    public <T> T durableExecuteAsync(DurableAsyncCallable<T> callable) throws Exception {
+        if (continuationExecutor == null || continuationContext == null) {
+            return super.durableExecuteAsync(callable);
+        }
+
+        String functionId = callable.getId();
+        String argsDigest = "";
+
+        Optional<T> cachedResult =
+                tryGetCachedResult(functionId, argsDigest, callable.getResultClass());
+        if (cachedResult.isPresent()) {
+            return cachedResult.get();
+        }
+
+        T result = null;
+        Exception originalException = null;
+        try {
+            result =
+                    continuationExecutor.executeNonBlocking(
+                            continuationContext,
+                            getAsyncCallTimeout(),
+                            () -> {
+                                try {
+                                    return callable.callAsync();
+                                } catch (Exception e) {
+                                    return CompletableFuture.failedFuture(e);
+                                }
+                            });
+        } catch (Exception e) {
+            originalException = e;
+        }
+
+        recordDurableCompletion(functionId, argsDigest, result, originalException);
+
+        if (originalException != null) {
+            throw originalException;
+        }
+        return result;
+    }
+
+    @Override
+    public <T> T durableExecuteStreaming(DurableStreamingCallable<T> callable) throws Exception {
+        String functionId = callable.getId();
+        String argsDigest = "";
+
+        Optional<T> cachedResult =
+                tryGetCachedResult(functionId, argsDigest, callable.getResultClass());
+        if (cachedResult.isPresent()) {
+            return cachedResult.get();
+        }
+
+        Function<Consumer<Event>, T> task =
+                partialEvents -> {
+                    try {
+                        return callable.call(partialEvents);
+                    } catch (Exception e) {
+                        throw new DurableExecutionRuntimeException(e);
+                    }
+                };
+
+        T result = null;
+        Exception originalException = null;
+        try {
+            if (continuationExecutor == null || continuationContext == null) {
+                result = task.apply(this::sendPartialEvent);
+            } else {
+                result =
+                        continuationExecutor.executeStreaming(
+                                continuationContext,
+                                callable.getBulkhead(),
+                                getAsyncCallTimeout(),
+                                task,
+                                this::sendPartialEvent);
             }
         } catch (DurableExecutionRuntimeException e) {
             originalException = (Exception) e.getCause();
+        } catch (TimeoutException e) {
+            originalException = e;
         }
 
         recordDurableCompletion(functionId, argsDigest, result, originalException);
@@ -102,4 +257,143 @@ public class JavaRunnerContextImpl extends RunnerContextImpl {
         }
         return result;
     }
+
+    @Override
+    public <T> List<T> durableExecuteAsyncAll(
+            List<DurableCallable<T>> callables, int maxConcurrency) throws Exception {
+        if (continuationExecutor == null || continuationContext == null) {
+            return super.durableExecuteAsyncAll(callables, maxConcurrency);
+        }
+        return executeAsyncAll(callables, maxConcurrency, null);
+    }
+
+    @Override
+    public <T> List<T> durableExecuteAsyncAll(
+            List<DurableCallable<T>> callables,
+            int maxConcurrency,
+            Function<Exception, T> onFailure)
+            throws Exception {
+        if (continuationExecutor == null || continuationContext == null) {
+            return super.durableExecuteAsyncAll(callables, maxConcurrency, onFailure);
+        }
+        return executeAsyncAll(callables, maxConcurrency, onFailure);
+    }
+
+    /**
+     * Executes the callables on the continuation executor. Without a failure function, the first
+     * failed callable fails all of them. With one, every callable gets its own result, and a
+     * callable throwing neither stops the recording of the ones after it nor cancels the running
+     * ones.
+     */
+    private <T> List<T> executeAsyncAll(
+            List<DurableCallable<T>> callables,
+            int maxConcurrency,
+            @Nullable Function<Exception, T> onFailure)
+            throws Exception {
+        String argsDigest = "";
+        List<T> results = new ArrayList<>(callables.size());
+
+        // Replay the recorded calls, the first missing one discards all the calls after it
+        for (DurableCallable<T> callable : callables) {
+            T result;
+            try {
+                Optional<T> cachedResult =
+                        tryGetCachedResult(callable.getId(), argsDigest, callable.getResultClass());
+                if (!cachedResult.isPresent()) {
+                    break;
+                }
+                result = cachedResult.get();
+            } catch (Exception e) {
+                if (onFailure == null) {
+                    throw e;
+                }
+                result = onFailure.apply(e);
+            }
+            results.add(result);
+        }
+        if (results.size() == callables.size()) {
+            return results;
+        }
+
+        List<DurableCallable<T>> remaining = callables.subList(results.size(), callables.size());
+        List<String> bulkheadNames = new ArrayList<>(remaining.size());
+        List<Supplier<T>> suppliers = new ArrayList<>(remaining.size());
+        for (DurableCallable<T> callable : remaining) {
+            bulkheadNames.add(callable.getBulkhead());
+            suppliers.add(
+                    () -> {
+                        try {
+                            return callable.call();
+                        } catch (Exception e) {
+                            if (onFailure != null) {
+                                // Recorded as the result of the callable, the others keep running
+                                return onFailure.apply(e);
+                            }
+                            throw new DurableExecutionRuntimeException(e);
+                        }
+                    });
+        }
+        List<CompletableFuture<T>> futures =
+                continuationExecutor.executeAsyncAll(
+                        continuationContext,
+                        bulkheadNames,
+                        getAsyncCallTimeout(),
+                        maxConcurrency,
+                        suppliers);
+
+        // Record the completed calls in list order, so that recovery replays them in the same
+        // order, and stop at the first call that did not complete, or without a failure function
+        // at the first call that failed. Calls cancelled because another one failed did not
+        // complete.
+        Exception firstException = null;
+        boolean recording = true;
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<T> future = futures.get(i);
+            if (!future.isDone() || future.isCancelled()) {
+                recording = false;
+                if (onFailure != null) {
+                    results.add(
+                            onFailure.apply(
+                                    new CancellationException(
+                                            "The call was cancelled before it completed.")));
+                }
+                continue;
+            }
+            T result = null;
+            Exception exception = null;
+            try {
+                result = future.join();
+            } catch (CompletionException e) {
+                exception = unwrapException(e.getCause());
+            }
+            if (recording) {
+                recordDurableCompletion(remaining.get(i).getId(), argsDigest, result, exception);
+            }
+            if (exception == null) {
+                results.add(result);
+            } else if (onFailure != null) {
+                results.add(onFailure.apply(exception));
+            } else {
+                firstException = exception;
+                break;
+            }
+        }
+
+        if (firstException != null) {
+            throw firstException;
+        }
+        return results;
+    }
+
+    private static Exception unwrapException(Throwable t) {
+        if (t instanceof DurableExecutionRuntimeException) {
+            return (Exception) t.getCause();
+        } else if (t instanceof Exception) {
+            return (Exception) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else {
+            return new RuntimeException(t);
+        }
+    }
 }
@@ -46,12 +46,19 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
+import static org.apache.flink.agents.api.agents.AgentExecutionOptions.EVENT_STRICT_SERIALIZABILITY_CHECK;
+import static org.apache.flink.agents.api.agents.AgentExecutionOptions.KEY_CONCURRENCY;
+
 /**
  * The implementation class of {@link RunnerContext}, which serves as the execution context for
  * actions.
@@ -94,10 +101,31 @@ public class RunnerContextImpl implements RunnerContext {
     private static final Logger LOG = LoggerFactory.getLogger(RunnerContextImpl.class);
 
     protected final List<Event> pendingEvents = new ArrayList<>();
+
+    /**
+     * The partial events sent by a streaming call of the running action, which are processed before
+     * the action finishes.
+     */
+    protected final List<Event> pendingPartialEvents = new ArrayList<>();
+
     protected final FlinkAgentsMetricGroupImpl agentMetricGroup;
     protected final Runnable mailboxThreadChecker;
     protected final AgentPlan agentPlan;
 
+    /**
+     * Whether several inputs of one key may be processed at the same time, in which case they must
+     * not share short-term memory.
+     */
+    private final boolean keyConcurrencyEnabled;
+
+    /**
+     * Whether every sent event is checked to be JSON serializable, not only the first per class.
+     */
+    private final boolean strictSerializabilityCheck;
+
+    /** The classes of the sent events that passed the serializability check. */
+    private final Set<Class<?>> serializableEventClasses = new HashSet<>();
+
     protected MemoryContext memoryContext;
     protected String actionName;
     protected InteranlBaseLongTermMemory ltm;
@@ -113,6 +141,8 @@ public class RunnerContextImpl implements RunnerContext {
         this.agentMetricGroup = agentMetricGroup;
         this.mailboxThreadChecker = mailboxThreadChecker;
         this.agentPlan = agentPlan;
+        this.keyConcurrencyEnabled = this.getConfig().get(KEY_CONCURRENCY) > 1;
+        this.strictSerializabilityCheck = this.getConfig().get(EVENT_STRICT_SERIALIZABILITY_CHECK);
 
         LongTermMemoryOptions.LongTermMemoryBackend backend =
                 this.getConfig().get(LongTermMemoryOptions.BACKEND);
@@ -148,16 +178,20 @@ public class RunnerContextImpl implements RunnerContext {
     @Override
     public void sendEvent(Event event) {
         mailboxThreadChecker.run();
-        try {
-            JsonUtils.checkSerializable(event);
-        } catch (JsonProcessingException e) {
-            throw new IllegalArgumentException(
-                    "Event is not JSON serializable. All events sent to context must be JSON serializable.",
-                    e);
-        }
+        checkSerializable(event);
         pendingEvents.add(event);
     }
 
+    /**
+     * Sends a partial event of a streaming call. Unlike the events sent by {@link #sendEvent},
+     * partial events are also drained while the action is waiting for the call.
+     */
+    protected void sendPartialEvent(Event event) {
+        mailboxThreadChecker.run();
+        checkSerializable(event);
+        pendingPartialEvents.add(event);
+    }
+
     public List<Event> drainEvents(Long timestamp) {
         mailboxThreadChecker.run();
         List<Event> list = new ArrayList<>(this.pendingEvents);
@@ -168,6 +202,35 @@ public class RunnerContextImpl implements RunnerContext {
         return list;
     }
 
+    /** Drains the partial events sent by streaming calls of the running action. */
+    public List<Event> drainPartialEvents(Long timestamp) {
+        mailboxThreadChecker.run();
+        if (pendingPartialEvents.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Event> list = new ArrayList<>(this.pendingPartialEvents);
+        if (timestamp != null) {
+            list.forEach(event -> event.setSourceTimestamp(timestamp));
+        }
+        this.pendingPartialEvents.clear();
+        return list;
+    }
+
+    private void checkSerializable(Event event) {
+        // Serializing an event fully is costly for large events, so only the first event of each
+        // class is checked unless the check is strict.
+        if (strictSerializabilityCheck || !serializableEventClasses.contains(event.getClass())) {
+            try {
+                JsonUtils.checkSerializable(event);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException(
+                        "Event is not JSON serializable. All events sent to context must be JSON serializable.",
+                        e);
+            }
+            serializableEventClasses.add(event.getClass());
+        }
+    }
+
     public void checkNoPendingEvents() {
         Preconditions.checkState(
                 this.pendingEvents.isEmpty(), "There are pending events remaining in the context.");
@@ -204,6 +267,12 @@ public class RunnerContextImpl implements RunnerContext {
     @Override
     public MemoryObject getShortTermMemory() throws Exception {
         mailboxThreadChecker.run();
+        Preconditions.checkState(
+                !keyConcurrencyEnabled,
+                "Action %s accesses short-term memory, which is not supported when %s is greater"
+                        + " than 1. Use sensory memory for data of a single input instead.",
+                actionName,
+                KEY_CONCURRENCY.getKey());
         return new MemoryObjectImpl(
                 MemoryObject.MemoryType.SHORT_TERM,
                 memoryContext.getShortTermMemStore(),
@@ -351,6 +420,33 @@ public class RunnerContextImpl implements RunnerContext {
         return result;
     }
 
+    @Override
+    public <T> List<T> durableExecuteAsyncAll(
+            List<DurableCallable<T>> callables, int maxConcurrency) throws Exception {
+        List<T> results = new ArrayList<>(callables.size());
+        for (DurableCallable<T> callable : callables) {
+            results.add(durableExecuteAsync(callable));
+        }
+        return results;
+    }
+
+    @Override
+    public <T> List<T> durableExecuteAsyncAll(
+            List<DurableCallable<T>> callables,
+            int maxConcurrency,
+            Function<Exception, T> onFailure)
+            throws Exception {
+        List<T> results = new ArrayList<>(callables.size());
+        for (DurableCallable<T> callable : callables) {
+            try {
+                results.add(durableExecuteAsync(callable));
+            } catch (Exception e) {
+                results.add(onFailure.apply(e));
+            }
+        }
+        return results;
+    }
+
     protected static class DurableExecutionRuntimeException extends RuntimeException {
         DurableExecutionRuntimeException(Throwable cause) {
             super(cause);
@@ -372,6 +468,14 @@ public class RunnerContextImpl implements RunnerContext {
             this.message = message;
         }
 
+        public String getExceptionClass() {
+            return exceptionClass;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
         public static DurableExecutionException fromException(Exception e) {
             return new DurableExecutionException(e.getClass().getName(), e.getMessage());
         }
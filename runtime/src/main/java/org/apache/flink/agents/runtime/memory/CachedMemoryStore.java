@@ -19,7 +19,9 @@ package org.apache.flink.agents.runtime.memory;
 
 import org.apache.flink.api.common.state.MapState;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class CachedMemoryStore implements MemoryStore {
@@ -27,8 +29,20 @@ public class CachedMemoryStore implements MemoryStore {
     private final Map<String, MemoryObjectImpl.MemoryItem> cache;
     private final MapState<String, MemoryObjectImpl.MemoryItem> store;
 
+    /**
+     * The prefix of the keys in the underlying state, which separates several memory stores sharing
+     * the same state.
+     */
+    private final String keyPrefix;
+
     public CachedMemoryStore(MapState<String, MemoryObjectImpl.MemoryItem> store) {
+        this(store, "");
+    }
+
+    public CachedMemoryStore(
+            MapState<String, MemoryObjectImpl.MemoryItem> store, String keyPrefix) {
         this.store = store;
+        this.keyPrefix = keyPrefix;
         this.cache = new HashMap<>();
     }
 
@@ -38,7 +52,7 @@ public class CachedMemoryStore implements MemoryStore {
             return cache.get(key);
         }
 
-        return store.get(key);
+        return store.get(keyPrefix + key);
     }
 
     @Override
@@ -48,18 +62,30 @@ public class CachedMemoryStore implements MemoryStore {
 
     @Override
     public boolean contains(String key) throws Exception {
-        return cache.containsKey(key) || store.contains(key);
+        return cache.containsKey(key) || store.contains(keyPrefix + key);
     }
 
     public void persistCache() throws Exception {
         for (Map.Entry<String, MemoryObjectImpl.MemoryItem> entry : cache.entrySet()) {
-            store.put(entry.getKey(), entry.getValue());
+            store.put(keyPrefix + entry.getKey(), entry.getValue());
         }
         cache.clear();
     }
 
     public void clear() throws Exception {
         cache.clear();
-        store.clear();
+        if (keyPrefix.isEmpty()) {
+            store.clear();
+            return;
+        }
+        List<String> keys = new ArrayList<>();
+        for (String key : store.keys()) {
+            if (key.startsWith(keyPrefix)) {
+                keys.add(key);
+            }
+        }
+        for (String key : keys) {
+            store.remove(key);
+        }
     }
 }
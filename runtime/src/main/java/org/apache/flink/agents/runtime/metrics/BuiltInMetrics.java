@@ -20,7 +20,10 @@
 package org.apache.flink.agents.runtime.metrics;
 
 import org.apache.flink.agents.plan.AgentPlan;
+import org.apache.flink.agents.runtime.async.ContinuationActionExecutor;
+import org.apache.flink.agents.runtime.operator.queue.SegmentedQueue;
 import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Gauge;
 import org.apache.flink.metrics.Meter;
 
 import java.util.HashMap;
@@ -37,9 +40,14 @@ public class BuiltInMetrics {
 
     private final Meter numOfActionsExecutedPerSec;
 
+    private final Counter numOfLateOutputs;
+
     private final HashMap<String, BuiltInActionMetrics> actionMetricGroups;
 
+    private final FlinkAgentsMetricGroupImpl parentMetricGroup;
+
     public BuiltInMetrics(FlinkAgentsMetricGroupImpl parentMetricGroup, AgentPlan agentPlan) {
+        this.parentMetricGroup = parentMetricGroup;
         Counter numOfEventsProcessed = parentMetricGroup.getCounter("numOfEventProcessed");
         this.numOfEventProcessedPerSec =
                 parentMetricGroup.getMeter("numOfEventProcessedPerSec", numOfEventsProcessed);
@@ -48,6 +56,8 @@ public class BuiltInMetrics {
         this.numOfActionsExecutedPerSec =
                 parentMetricGroup.getMeter("numOfActionsExecutedPerSec", numOfActionsExecuted);
 
+        this.numOfLateOutputs = parentMetricGroup.getCounter("numOfLateOutputs");
+
         this.actionMetricGroups = new HashMap<>();
         for (String actionName : agentPlan.getActions().keySet()) {
             actionMetricGroups.put(
@@ -69,4 +79,51 @@ public class BuiltInMetrics {
         numOfActionsExecutedPerSec.markEvent();
         actionMetricGroups.get(actionName).markActionExecuted();
     }
+
+    /** Records an output sent after a watermark that was emitted before the input was finished. */
+    public void markLateOutput() {
+        numOfLateOutputs.inc();
+    }
+
+    /**
+     * Registers gauges reporting how long the oldest pending watermark has been held back, and the
+     * number of keys holding it back.
+     */
+    public void registerWatermarkMetrics(SegmentedQueue queue) {
+        parentMetricGroup.gauge("watermarkHoldbackMs", (Gauge<Long>) queue::getWatermarkHoldbackMs);
+        parentMetricGroup.gauge(
+                "numOfKeysBlockingWatermark",
+                (Gauge<Integer>) queue::getNumOfKeysBlockingWatermark);
+    }
+
+    /**
+     * Registers gauges reporting the number of async calls waiting for a thread, running, timed out
+     * and cancelled on the given executor, as well as the saturation of each of its bulkheads.
+     */
+    public void registerAsyncExecutorMetrics(ContinuationActionExecutor executor) {
+        parentMetricGroup.gauge(
+                "numOfQueuedAsyncCalls", (Gauge<Integer>) executor::getQueuedCallCount);
+        parentMetricGroup.gauge(
+                "numOfActiveAsyncCalls", (Gauge<Integer>) executor::getActiveCallCount);
+        parentMetricGroup.gauge(
+                "numOfTimedOutAsyncCalls", (Gauge<Long>) executor::getTimedOutCallCount);
+        parentMetricGroup.gauge(
+                "numOfCancelledAsyncCalls", (Gauge<Long>) executor::getCancelledCallCount);
+
+        for (String bulkhead : executor.getBulkheadNames()) {
+            FlinkAgentsMetricGroupImpl bulkheadMetricGroup =
+                    parentMetricGroup.getSubGroup("bulkhead").getSubGroup(bulkhead);
+            bulkheadMetricGroup.gauge(
+                    "numOfQueuedAsyncCalls",
+                    (Gauge<Integer>) () -> executor.getQueuedCallCount(bulkhead));
+            bulkheadMetricGroup.gauge(
+                    "numOfActiveAsyncCalls",
+                    (Gauge<Integer>) () -> executor.getActiveCallCount(bulkhead));
+            bulkheadMetricGroup.gauge(
+                    "numOfRejectedAsyncCalls",
+                    (Gauge<Long>) () -> executor.getRejectedCallCount(bulkhead));
+            bulkheadMetricGroup.gauge(
+                    "saturation", (Gauge<Double>) () -> executor.getSaturation(bulkhead));
+        }
+    }
 }
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.agents.runtime.operator;
+
+import org.apache.flink.agents.api.Event;
+import org.apache.flink.agents.plan.AgentPlan;
+import org.apache.flink.agents.plan.JavaFunction;
+import org.apache.flink.agents.plan.PythonFunction;
+import org.apache.flink.agents.plan.actions.Action;
+import org.apache.flink.agents.runtime.python.event.PythonEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The actions of an {@link AgentPlan} compiled for dispatching events in {@link
+ * ActionExecutionOperator}.
+ *
+ * <p>The actions and the event types triggering them are assigned integer ids in the order of their
+ * names, and each action is resolved to the kind of executor running it once. Python events are
+ * dispatched by their event type through a table built up front. Java events are dispatched by
+ * their class through an identity map, which is filled the first time an event class is seen so
+ * that event classes do not have to be loaded when the table is compiled.
+ *
+ * <p>The table must only be used on the mailbox thread.
+ */
+class ActionDispatchTable {
+
+    /** The kind of executor running an action. */
+    enum ExecutorKind {
+        JAVA,
+        PYTHON
+    }
+
+    /** An action of the plan together with its id and the kind of executor running it. */
+    static final class ActionRef {
+        private final int id;
+        private final Action action;
+        private final ExecutorKind executorKind;
+
+        private ActionRef(int id, Action action, ExecutorKind executorKind) {
+            this.id = id;
+            this.action = action;
+            this.executorKind = executorKind;
+        }
+
+        int getId() {
+            return id;
+        }
+
+        Action getAction() {
+            return action;
+        }
+
+        ExecutorKind getExecutorKind() {
+            return executorKind;
+        }
+    }
+
+    private static final ActionRef[] NO_ACTIONS = new ActionRef[0];
+
+    /** The actions by their ids. */
+    private final ActionRef[] actions;
+
+    /** The ids of the event types, by the event class names or the Python event types. */
+    private final Map<String, Integer> eventTypeIds;
+
+    /** The actions triggered by each event type, by the ids of the event types. */
+    private final ActionRef[][] actionsByEventTypeId;
+
+    /** The actions triggered by each Java event class seen so far. */
+    private final IdentityHashMap<Class<?>, ActionRef[]> actionsByEventClass;
+
+    ActionDispatchTable(AgentPlan agentPlan) {
+        List<String> actionNames = new ArrayList<>(agentPlan.getActions().keySet());
+        actionNames.sort(null);
+        this.actions = new ActionRef[actionNames.size()];
+        Map<String, ActionRef> actionsByName = new HashMap<>();
+        for (int id = 0; id < actions.length; id++) {
+            Action action = agentPlan.getActions().get(actionNames.get(id));
+            actions[id] = new ActionRef(id, action, getExecutorKind(action));
+            actionsByName.put(action.getName(), actions[id]);
+        }
+
+        List<String> eventTypes = new ArrayList<>(agentPlan.getActionsByEvent().keySet());
+        eventTypes.sort(null);
+        this.eventTypeIds = new HashMap<>();
+        this.actionsByEventTypeId = new ActionRef[eventTypes.size()][];
+        for (int id = 0; id < eventTypes.size(); id++) {
+            String eventType = eventTypes.get(id);
+            List<Action> triggeredActions = agentPlan.getActionsTriggeredBy(eventType);
+            ActionRef[] actionRefs = new ActionRef[triggeredActions.size()];
+            for (int i = 0; i < actionRefs.length; i++) {
+                // Plans built by hand may trigger actions they do not register by name, which
+                // get no id.
+                Action action = triggeredActions.get(i);
+                ActionRef actionRef = actionsByName.get(action.getName());
+                actionRefs[i] =
+                        actionRef != null
+                                ? actionRef
+                                : new ActionRef(-1, action, getExecutorKind(action));
+            }
+            eventTypeIds.put(eventType, id);
+            actionsByEventTypeId[id] = actionRefs;
+        }
+        this.actionsByEventClass = new IdentityHashMap<>();
+    }
+
+    /** Returns the actions triggered by the event, which is empty if there is none. */
+    ActionRef[] getActionsTriggeredBy(Event event) {
+        if (event instanceof PythonEvent) {
+            return getActionsTriggeredBy(((PythonEvent) event).getEventType());
+        }
+        ActionRef[] actionRefs = actionsByEventClass.get(event.getClass());
+        if (actionRefs == null) {
+            actionRefs = getActionsTriggeredBy(event.getClass().getName());
+            actionsByEventClass.put(event.getClass(), actionRefs);
+        }
+        return actionRefs;
+    }
+
+    /** Returns the id of the event type, or -1 if it triggers no action. */
+    int getEventTypeId(String eventType) {
+        Integer id = eventTypeIds.get(eventType);
+        return id == null ? -1 : id;
+    }
+
+    /** Returns the action with the id. */
+    ActionRef getAction(int id) {
+        return actions[id];
+    }
+
+    private ActionRef[] getActionsTriggeredBy(String eventType) {
+        int id = getEventTypeId(eventType);
+        return id < 0 ? NO_ACTIONS : actionsByEventTypeId[id];
+    }
+
+    private static ExecutorKind getExecutorKind(Action action) {
+        if (action.getExec() instanceof JavaFunction) {
+            return ExecutorKind.JAVA;
+        } else if (action.getExec() instanceof PythonFunction) {
+            return ExecutorKind.PYTHON;
+        } else {
+            throw new IllegalStateException(
+                    "Unsupported action type: " + action.getExec().getClass());
+        }
+    }
+}
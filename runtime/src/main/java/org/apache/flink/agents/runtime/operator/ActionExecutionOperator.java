@@ -22,6 +22,9 @@ import org.apache.flink.agents.api.Event;
 import org.apache.flink.agents.api.EventContext;
 import org.apache.flink.agents.api.InputEvent;
 import org.apache.flink.agents.api.OutputEvent;
+import org.apache.flink.agents.api.agents.AgentExecutionOptions.AsyncExecutorType;
+import org.apache.flink.agents.api.agents.AgentExecutionOptions.OutputOrder;
+import org.apache.flink.agents.api.agents.AgentExecutionOptions.WatermarkPolicy;
 import org.apache.flink.agents.api.context.MemoryUpdate;
 import org.apache.flink.agents.api.listener.EventListener;
 import org.apache.flink.agents.api.logger.EventLogger;
@@ -38,6 +41,7 @@ import org.apache.flink.agents.plan.resourceprovider.PythonResourceProvider;
 import org.apache.flink.agents.runtime.actionstate.ActionState;
 import org.apache.flink.agents.runtime.actionstate.ActionStateStore;
 import org.apache.flink.agents.runtime.actionstate.KafkaActionStateStore;
+import org.apache.flink.agents.runtime.async.BulkheadConfig;
 import org.apache.flink.agents.runtime.async.ContinuationActionExecutor;
 import org.apache.flink.agents.runtime.async.ContinuationContext;
 import org.apache.flink.agents.runtime.context.ActionStatePersister;
@@ -50,6 +54,7 @@ import org.apache.flink.agents.runtime.memory.CachedMemoryStore;
 import org.apache.flink.agents.runtime.memory.MemoryObjectImpl;
 import org.apache.flink.agents.runtime.metrics.BuiltInMetrics;
 import org.apache.flink.agents.runtime.metrics.FlinkAgentsMetricGroupImpl;
+import org.apache.flink.agents.runtime.operator.ActionDispatchTable.ActionRef;
 import org.apache.flink.agents.runtime.operator.queue.SegmentedQueue;
 import org.apache.flink.agents.runtime.python.context.PythonRunnerContextImpl;
 import org.apache.flink.agents.runtime.python.event.PythonEvent;
@@ -67,6 +72,8 @@ import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.state.ValueStateDescriptor;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.typeutils.ListTypeInfo;
 import org.apache.flink.python.env.PythonDependencyInfo;
 import org.apache.flink.runtime.state.StateInitializationContext;
 import org.apache.flink.runtime.state.StateSnapshotContext;
@@ -91,18 +98,38 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pemja.core.PythonInterpreter;
 
+import javax.annotation.Nullable;
+
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
-
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.apache.flink.agents.api.agents.AgentExecutionOptions.ASYNC_EXECUTOR_POOL_SIZE;
+import static org.apache.flink.agents.api.agents.AgentExecutionOptions.ASYNC_EXECUTOR_TYPE;
+import static org.apache.flink.agents.api.agents.AgentExecutionOptions.ASYNC_SHARED_EXECUTOR_POOL_SIZE;
+import static org.apache.flink.agents.api.agents.AgentExecutionOptions.INPUT_BATCH_MAX_DELAY_MS;
+import static org.apache.flink.agents.api.agents.AgentExecutionOptions.INPUT_BATCH_MAX_SIZE;
+import static org.apache.flink.agents.api.agents.AgentExecutionOptions.INPUT_TIMEOUT_MS;
+import static org.apache.flink.agents.api.agents.AgentExecutionOptions.KEY_CONCURRENCY;
+import static org.apache.flink.agents.api.agents.AgentExecutionOptions.KEY_CONCURRENCY_OUTPUT_ORDER;
+import static org.apache.flink.agents.api.agents.AgentExecutionOptions.WATERMARK_MAX_HOLDBACK_MS;
+import static org.apache.flink.agents.api.agents.AgentExecutionOptions.WATERMARK_POLICY;
+import static org.apache.flink.agents.api.agents.AgentExecutionOptions.WATERMARK_STUCK_KEY_THRESHOLD_MS;
 import static org.apache.flink.agents.api.configuration.AgentConfigOptions.ACTION_STATE_STORE_BACKEND;
 import static org.apache.flink.agents.api.configuration.AgentConfigOptions.BASE_LOG_DIR;
 import static org.apache.flink.agents.api.configuration.AgentConfigOptions.JOB_IDENTIFIER;
 import static org.apache.flink.agents.runtime.actionstate.ActionStateStore.BackendType.KAFKA;
 import static org.apache.flink.agents.runtime.utils.StateUtil.*;
+import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkState;
 
 /**
@@ -125,11 +152,20 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
     private static final String RECOVERY_MARKER_STATE_NAME = "recoveryMarker";
     private static final String MESSAGE_SEQUENCE_NUMBER_STATE_NAME = "messageSequenceNumber";
     private static final String PENDING_INPUT_EVENT_STATE_NAME = "pendingInputEvents";
+    private static final String HELD_BACK_OUTPUTS_STATE_NAME = "heldBackOutputs";
+    private static final String ACTION_TASK_SEQUENCE_NUMBERS_STATE_NAME =
+            "actionTaskSequenceNumbers";
 
     private final AgentPlan agentPlan;
 
     private final Boolean inputIsJava;
 
+    // The maximum number of inputs of one key processed at the same time.
+    private final int keyConcurrency;
+
+    // The maximum number of input records ingested in one batch, batching is disabled if it is 1.
+    private final int inputBatchMaxSize;
+
     private transient StreamRecord<OUT> reusedStreamRecord;
 
     private transient MapState<String, MemoryObjectImpl.MemoryItem> sensoryMemState;
@@ -158,6 +194,10 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
 
     private transient SegmentedQueue keySegmentQueue;
 
+    // The time of the registered processing time timer re-checking the held back watermarks, or
+    // Long.MAX_VALUE if there is none.
+    private transient long watermarkBypassTimerTime;
+
     private final transient MailboxExecutor mailboxExecutor;
 
     // RunnerContext for Java Actions
@@ -174,22 +214,52 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
     // pending ActionTasks that are waiting to be executed.
     private transient ListState<ActionTask> actionTasksKState;
 
-    // To avoid processing different InputEvents with the same key, we use a state to store pending
-    // InputEvents that are waiting to be processed.
+    // The sequence numbers of the input events of the pending ActionTasks, in the same order.
+    private transient ListState<Long> actionTaskSequenceNumbersKState;
+
+    // To limit the number of InputEvents with the same key processed at the same time, we use a
+    // state to store pending InputEvents that are waiting to be processed.
     private transient ListState<Event> pendingInputEventsKState;
 
-    // An operator state is used to track the currently processing keys. This is useful when
-    // receiving an EndOfInput signal, as we need to wait until all related events are fully
-    // processed.
+    // Caches the pending action tasks, the sequence number and the in-flight inputs of the keys
+    // being processed, so that each action task does not access them in the keyed state backend.
+    private transient ActiveKeyStateCache activeKeyStateCache;
+
+    // The actions of the agent plan compiled for dispatching events.
+    private transient ActionDispatchTable actionDispatchTable;
+
+    // An operator state is used to track the currently processing keys, which contains a key once
+    // for each of its in-flight inputs. This is useful when receiving an EndOfInput signal, as we
+    // need to wait until all related events are fully processed. It is only written when a
+    // snapshot is taken, in between the keys are tracked by currentProcessingKeyCounts.
     private transient ListState<Object> currentProcessingKeysOpState;
 
+    // The number of in-flight inputs of each currently processing key.
+    private transient Map<Object, Integer> currentProcessingKeyCounts;
+
+    // The input records received but not ingested yet, with their keys. They are ingested at once
+    // when the batch is full, its max delay expires, or before a watermark or a snapshot.
+    private transient List<Tuple2<Object, Event>> inputBatch;
+
+    // Identifies the current input batch, so that a timer registered for a batch already ingested
+    // does nothing.
+    private transient long inputBatchId;
+
     private final transient EventLogger eventLogger;
     private final transient List<EventListener> eventListeners;
 
     private transient ActionStateStore actionStateStore;
     private transient ValueState<Long> sequenceNumberKState;
     private transient ListState<Object> recoveryMarkerOpState;
-    private transient Map<Long, Map<Object, Long>> checkpointIdToSeqNums;
+    private transient NavigableMap<Long, Map<Object, Long>> checkpointIdToSeqNums;
+
+    // The latest sequence numbers of the keys whose sequence number changed since the last
+    // checkpoint, so that only their action states are pruned once the next checkpoint completes.
+    private transient Map<Object, Long> changedKeySeqNums;
+
+    // Whether the next checkpoint collects the sequence numbers of all keys, which is needed once
+    // after restoring, as the action states of keys not changed since then may not be pruned yet.
+    private transient boolean collectAllKeySeqNums;
 
     // This in memory map keep track of the runner context for the async action task that having
     // been finished
@@ -203,6 +273,11 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
 
     private final transient Map<ActionTask, ContinuationContext> continuationContexts;
 
+    // This in memory map keeps track of the deadline of processing the in-flight inputs of each key
+    // by their sequence numbers, compared against System.nanoTime(). It is empty if no input
+    // timeout is configured.
+    private final transient Map<Object, Map<Long, Long>> inputDeadlines;
+
     // Each job can only have one identifier and this identifier must be consistent across restarts.
     // We cannot use job id as the identifier here because user may change job id by
     // creating a savepoint, stop the job and then resume from savepoint.
@@ -220,15 +295,29 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
             ActionStateStore actionStateStore) {
         this.agentPlan = agentPlan;
         this.inputIsJava = inputIsJava;
+        this.keyConcurrency = agentPlan.getConfig().get(KEY_CONCURRENCY);
+        checkArgument(
+                keyConcurrency > 0,
+                "%s must be positive, but got %s.",
+                KEY_CONCURRENCY.getKey(),
+                keyConcurrency);
+        this.inputBatchMaxSize = agentPlan.getConfig().get(INPUT_BATCH_MAX_SIZE);
+        checkArgument(
+                inputBatchMaxSize > 0,
+                "%s must be positive, but got %s.",
+                INPUT_BATCH_MAX_SIZE.getKey(),
+                inputBatchMaxSize);
         this.processingTimeService = processingTimeService;
         this.mailboxExecutor = mailboxExecutor;
         this.eventLogger = createEventLogger(agentPlan);
         this.eventListeners = new ArrayList<>();
         this.actionStateStore = actionStateStore;
-        this.checkpointIdToSeqNums = new HashMap<>();
+        this.checkpointIdToSeqNums = new TreeMap<>();
+        this.changedKeySeqNums = new HashMap<>();
         this.actionTaskMemoryContexts = new HashMap<>();
         this.actionTaskDurableContexts = new HashMap<>();
         this.continuationContexts = new HashMap<>();
+        this.inputDeadlines = new HashMap<>();
         OperatorUtils.setChainStrategy(this, ChainingStrategy.ALWAYS);
     }
 
@@ -263,7 +352,10 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
         metricGroup = new FlinkAgentsMetricGroupImpl(getMetricGroup());
         builtInMetrics = new BuiltInMetrics(metricGroup, agentPlan);
 
-        keySegmentQueue = new SegmentedQueue();
+        actionDispatchTable = new ActionDispatchTable(agentPlan);
+
+        keySegmentQueue = createSegmentedQueue();
+        builtInMetrics.registerWatermarkMetrics(keySegmentQueue);
 
         // init the action state store with proper implementation
         if (actionStateStore == null
@@ -295,6 +387,11 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
                         .getListState(
                                 new ListStateDescriptor<>(
                                         "actionTasks", TypeInformation.of(ActionTask.class)));
+        actionTaskSequenceNumbersKState =
+                getRuntimeContext()
+                        .getListState(
+                                new ListStateDescriptor<>(
+                                        ACTION_TASK_SEQUENCE_NUMBERS_STATE_NAME, Long.class));
         pendingInputEventsKState =
                 getRuntimeContext()
                         .getListState(
@@ -310,12 +407,35 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
                         .getUnionListState(
                                 new ListStateDescriptor<>(
                                         "currentProcessingKeys", TypeInformation.of(Object.class)));
+        currentProcessingKeyCounts = new HashMap<>();
+        inputBatch = new ArrayList<>();
+        // Inputs only need to be released in order when several inputs of a key run at the same
+        // time. The state also holds back their outputs if these are ordered.
+        MapState<Long, List<Event>> heldBackOutputsKState = null;
+        if (keyConcurrency > 1) {
+            heldBackOutputsKState =
+                    getRuntimeContext()
+                            .getMapState(
+                                    new MapStateDescriptor<>(
+                                            HELD_BACK_OUTPUTS_STATE_NAME,
+                                            TypeInformation.of(Long.class),
+                                            new ListTypeInfo<>(TypeInformation.of(Event.class))));
+        }
+        activeKeyStateCache =
+                new ActiveKeyStateCache(
+                        actionTasksKState,
+                        actionTaskSequenceNumbersKState,
+                        sequenceNumberKState,
+                        heldBackOutputsKState,
+                        agentPlan.getConfig().get(KEY_CONCURRENCY_OUTPUT_ORDER)
+                                == OutputOrder.ORDERED,
+                        this::setCurrentKey);
 
         // init PythonActionExecutor and PythonResourceAdapter
         initPythonEnvironment();
 
         // init executor for Java async execution
-        continuationActionExecutor = new ContinuationActionExecutor();
+        continuationActionExecutor = createContinuationActionExecutor();
 
         mailboxProcessor = getMailboxProcessor();
 
@@ -338,6 +458,8 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
 
     @Override
     public void processWatermark(Watermark mark) throws Exception {
+        // The records received before the watermark must be ingested before it.
+        ingestInputBatch();
         keySegmentQueue.addWatermark(mark);
         processEligibleWatermarks();
     }
@@ -353,55 +475,193 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
             inputEvent.setSourceTimestamp(record.getTimestamp());
         }
 
-        keySegmentQueue.addKeyToLastSegment(getCurrentKey());
+        Object key = getCurrentKey();
+        if (inputBatchMaxSize == 1) {
+            if (ingestInputs(key, Collections.singletonList(inputEvent))) {
+                mailboxExecutor.submit(
+                        () -> tryProcessActionTaskForKey(key), "process action task");
+            }
+            return;
+        }
 
-        if (currentKeyHasMoreActionTask()) {
-            // If there are already actions being processed for the current key, the newly incoming
-            // event should be queued and processed later. Therefore, we add it to
+        inputBatch.add(Tuple2.of(key, inputEvent));
+        if (inputBatch.size() >= inputBatchMaxSize) {
+            ingestInputBatch();
+        } else if (inputBatch.size() == 1) {
+            long batchId = inputBatchId;
+            processingTimeService.registerTimer(
+                    processingTimeService.getCurrentProcessingTime()
+                            + agentPlan.getConfig().get(INPUT_BATCH_MAX_DELAY_MS),
+                    timestamp -> {
+                        if (batchId == inputBatchId) {
+                            ingestInputBatch();
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Ingests the input records of the current batch. The records of each key are ingested
+     * together, and the first action tasks of the keys becoming active are scheduled in one mail.
+     */
+    private void ingestInputBatch() throws Exception {
+        if (inputBatch.isEmpty()) {
+            return;
+        }
+        Map<Object, List<Event>> inputEventsByKey = new LinkedHashMap<>();
+        for (Tuple2<Object, Event> input : inputBatch) {
+            inputEventsByKey.computeIfAbsent(input.f0, k -> new ArrayList<>()).add(input.f1);
+        }
+        inputBatch.clear();
+        inputBatchId++;
+
+        List<Object> activatedKeys = new ArrayList<>();
+        for (Map.Entry<Object, List<Event>> entry : inputEventsByKey.entrySet()) {
+            setCurrentKey(entry.getKey());
+            if (ingestInputs(entry.getKey(), entry.getValue())) {
+                activatedKeys.add(entry.getKey());
+            }
+        }
+        if (!activatedKeys.isEmpty()) {
+            mailboxExecutor.submit(
+                    () -> activatedKeys.forEach(this::tryProcessActionTaskForKey),
+                    "process action tasks");
+        }
+    }
+
+    /**
+     * Ingests input events of the current key, in the order they were received.
+     *
+     * @return true if the key had no action task before and has some now, in which case the caller
+     *     should submit a mail to process them. A key has a mail to process its action tasks as
+     *     long as it has any.
+     */
+    private boolean ingestInputs(Object key, List<Event> inputEvents) throws Exception {
+        for (int i = 0; i < inputEvents.size(); i++) {
+            keySegmentQueue.addKeyToLastSegment(key);
+        }
+
+        boolean hadActionTask = currentKeyHasMoreActionTask();
+        int numOfStartedInputs = 0;
+        // The new events are processed immediately as long as the current key has free slots.
+        while (numOfStartedInputs < inputEvents.size()
+                && activeKeyStateCache.getNumOfInFlightInputs(key) < keyConcurrency) {
+            startInput(key, inputEvents.get(numOfStartedInputs++));
+        }
+        if (numOfStartedInputs < inputEvents.size()) {
+            // If the current key already has as many inputs being processed as allowed, the rest
+            // should be queued and processed later. Therefore, we add them to
             // pendingInputEventsState.
-            pendingInputEventsKState.add(inputEvent);
-        } else {
-            // Otherwise, the new event is processed immediately.
-            processEvent(getCurrentKey(), inputEvent);
+            pendingInputEventsKState.addAll(
+                    inputEvents.subList(numOfStartedInputs, inputEvents.size()));
+        }
+        if (!currentKeyHasMoreActionTask()
+                && activeKeyStateCache.getNumOfInFlightInputs(key) == 0) {
+            // None of the inputs triggered an action, so no mail will release the key.
+            activeKeyStateCache.evict(key);
+            return false;
+        }
+        return !hadActionTask && currentKeyHasMoreActionTask();
+    }
+
+    /** Starts processing an input event for the given key under a new sequence number. */
+    private void startInput(Object key, Event inputEvent) throws Exception {
+        // We mark that the key is currently being processed.
+        currentProcessingKeyCounts.merge(key, 1, Integer::sum);
+        long sequenceNumber = initOrIncSequenceNumber();
+        activeKeyStateCache.startInput(key, sequenceNumber);
+        maybeStartInputDeadline(key, sequenceNumber);
+        processEvent(key, inputEvent, sequenceNumber);
+        if (!activeKeyStateCache.hasActionTask(key, sequenceNumber)) {
+            // The input triggers no action, so it is completed at once.
+            completeInput(key, sequenceNumber);
         }
     }
 
     /**
-     * Processes an incoming event for the given key and may submit a new mail
-     * `tryProcessActionTaskForKey` to continue processing.
+     * Processes an event generated for the input with the given sequence number of the given key.
      */
-    private void processEvent(Object key, Event event) throws Exception {
+    private void processEvent(Object key, Event event, long sequenceNumber) throws Exception {
         notifyEventProcessed(event);
 
-        boolean isInputEvent = EventUtil.isInputEvent(event);
         if (EventUtil.isOutputEvent(event)) {
-            // If the event is an OutputEvent, we send it downstream.
-            OUT outputData = getOutputFromOutputEvent(event);
-            if (event.hasSourceTimestamp()) {
-                output.collect(reusedStreamRecord.replace(outputData, event.getSourceTimestamp()));
-            } else {
-                reusedStreamRecord.eraseTimestamp();
-                output.collect(reusedStreamRecord.replace(outputData));
+            // If the event is an OutputEvent, we send it downstream unless it has to wait for the
+            // inputs received before.
+            if (!activeKeyStateCache.maybeHoldBackOutput(key, sequenceNumber, event)) {
+                emitOutput(key, event);
             }
         } else {
-            if (isInputEvent) {
-                // If the event is an InputEvent, we mark that the key is currently being processed.
-                currentProcessingKeysOpState.add(key);
-                initOrIncSequenceNumber();
+            // We obtain the triggered action and add ActionTasks to the waiting processing queue.
+            for (ActionRef triggerAction : actionDispatchTable.getActionsTriggeredBy(event)) {
+                activeKeyStateCache.addActionTask(
+                        key, createActionTask(key, triggerAction, event, sequenceNumber));
             }
-            // We then obtain the triggered action and add ActionTasks to the waiting processing
-            // queue.
-            List<Action> triggerActions = getActionsTriggeredBy(event);
-            if (triggerActions != null && !triggerActions.isEmpty()) {
-                for (Action triggerAction : triggerActions) {
-                    actionTasksKState.add(createActionTask(key, triggerAction, event));
-                }
+        }
+    }
+
+    private void emitOutput(Object key, Event event) {
+        OUT outputData = getOutputFromOutputEvent(event);
+        if (keySegmentQueue.isLateKey(key)) {
+            builtInMetrics.markLateOutput();
+        }
+        if (event.hasSourceTimestamp()) {
+            output.collect(reusedStreamRecord.replace(outputData, event.getSourceTimestamp()));
+        } else {
+            reusedStreamRecord.eraseTimestamp();
+            output.collect(reusedStreamRecord.replace(outputData));
+        }
+    }
+
+    /**
+     * Completes the input with the given sequence number of the given key, whose action tasks are
+     * all finished, and releases the inputs which are ready to be released.
+     */
+    private void completeInput(Object key, long sequenceNumber) throws Exception {
+        NavigableMap<Long, List<Event>> releasedInputs =
+                activeKeyStateCache.completeInput(key, sequenceNumber);
+        if (releasedInputs.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<Long, List<Event>> releasedInput : releasedInputs.entrySet()) {
+            for (Event heldBackOutput : releasedInput.getValue()) {
+                emitOutput(key, heldBackOutput);
             }
+            removeCurrentProcessingKey(key);
+            removeInputDeadline(key, releasedInput.getKey());
+            checkState(
+                    keySegmentQueue.removeKey(key),
+                    "Current key" + key + " is missing from the segmentedQueue.");
         }
+        // The action states of the inputs still in flight are kept.
+        Long oldestInFlightInput = activeKeyStateCache.getOldestInFlightInput(key);
+        maybePruneState(
+                key,
+                oldestInFlightInput == null
+                        ? activeKeyStateCache.getSequenceNumber(key)
+                        : oldestInFlightInput - 1);
+        processEligibleWatermarks();
+    }
 
-        if (isInputEvent) {
-            // If the event is an InputEvent, we submit a new mail to try processing the actions.
-            mailboxExecutor.submit(() -> tryProcessActionTaskForKey(key), "process action task");
+    private void removeCurrentProcessingKey(Object key) {
+        Integer count = currentProcessingKeyCounts.get(key);
+        checkState(
+                count != null,
+                "Current key " + key + " is missing from the current processing keys.");
+        if (count == 1) {
+            currentProcessingKeyCounts.remove(key);
+        } else {
+            currentProcessingKeyCounts.put(key, count - 1);
+        }
+    }
+
+    /** Starts the pending input events of the given key as long as it has free slots. */
+    private void startPendingInputs(Object key) throws Exception {
+        while (activeKeyStateCache.getNumOfInFlightInputs(key) < keyConcurrency) {
+            Event pendingInputEvent = pollFromListState(pendingInputEventsKState);
+            if (pendingInputEvent == null) {
+                return;
+            }
+            startInput(key, pendingInputEvent);
         }
     }
 
@@ -441,18 +701,21 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
         // 1. Get an action task for the key.
         setCurrentKey(key);
 
-        ActionTask actionTask = pollFromListState(actionTasksKState);
+        ActionTask actionTask = activeKeyStateCache.pollActionTask(key);
         if (actionTask == null) {
-            int removedCount = removeFromListState(currentProcessingKeysOpState, key);
-            checkState(
-                    removedCount == 1,
-                    "Current processing key count for key "
-                            + key
-                            + " should be 1, but got "
-                            + removedCount);
+            // Inputs without action tasks are completed at once, so a key restored as being
+            // processed may only have none left if it was snapshotted by an earlier version.
+            activeKeyStateCache.evict(key);
+            Integer removedCount = currentProcessingKeyCounts.remove(key);
+            inputDeadlines.remove(key);
             checkState(
-                    keySegmentQueue.removeKey(key),
-                    "Current key" + key + " is missing from the segmentedQueue.");
+                    removedCount != null,
+                    "Current processing key count for key " + key + " should be at least 1.");
+            for (int i = 0; i < removedCount; i++) {
+                checkState(
+                        keySegmentQueue.removeKey(key),
+                        "Current key" + key + " is missing from the segmentedQueue.");
+            }
             processEligibleWatermarks();
             return;
         }
@@ -460,9 +723,10 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
         // 2. Invoke the action task.
         createAndSetRunnerContext(actionTask, key);
 
-        long sequenceNumber = sequenceNumberKState.value();
+        long sequenceNumber = actionTask.getSequenceNumber();
         boolean isFinished;
         List<Event> outputEvents;
+        List<Event> partialEvents = Collections.emptyList();
         Optional<ActionTask> generatedActionTaskOpt = Optional.empty();
         ActionState actionState =
                 maybeGetActionState(key, sequenceNumber, actionTask.action, actionTask.event);
@@ -517,17 +781,21 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
                     actionTaskResult);
             isFinished = actionTaskResult.isFinished();
             outputEvents = actionTaskResult.getOutputEvents();
+            partialEvents = actionTaskResult.getPartialEvents();
             generatedActionTaskOpt = actionTaskResult.getGeneratedActionTask();
         }
 
+        for (Event partialEvent : partialEvents) {
+            processEvent(key, partialEvent, sequenceNumber);
+        }
         for (Event actionOutputEvent : outputEvents) {
-            processEvent(key, actionOutputEvent);
+            processEvent(key, actionOutputEvent, sequenceNumber);
         }
 
         boolean currentInputEventFinished = false;
         if (isFinished) {
             builtInMetrics.markActionExecuted(actionTask.action.getName());
-            currentInputEventFinished = !currentKeyHasMoreActionTask();
+            currentInputEventFinished = !activeKeyStateCache.hasActionTask(key, sequenceNumber);
 
             // Persist memory to the Flink state when the action task is finished.
             actionTask.getRunnerContext().persistMemory();
@@ -556,7 +824,7 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
                                 .getContinuationContext());
             }
 
-            actionTasksKState.add(generatedActionTask);
+            activeKeyStateCache.addActionTask(key, generatedActionTask);
         }
 
         // 3. Process the next InputEvent or next action task
@@ -566,26 +834,17 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
 
             // Once all sub-events and actions related to the current InputEvent are completed,
             // we can proceed to process the next InputEvent.
-            int removedCount = removeFromListState(currentProcessingKeysOpState, key);
-            maybePruneState(key, sequenceNumber);
-            checkState(
-                    removedCount == 1,
-                    "Current processing key count for key "
-                            + key
-                            + " should be 1, but got "
-                            + removedCount);
-            checkState(
-                    keySegmentQueue.removeKey(key),
-                    "Current key" + key + " is missing from the segmentedQueue.");
-            processEligibleWatermarks();
-            Event pendingInputEvent = pollFromListState(pendingInputEventsKState);
-            if (pendingInputEvent != null) {
-                processEvent(key, pendingInputEvent);
-            }
-        } else if (currentKeyHasMoreActionTask()) {
+            completeInput(key, sequenceNumber);
+            startPendingInputs(key);
+        }
+
+        if (currentKeyHasMoreActionTask()) {
             // If the current key has additional action tasks remaining, we should submit a new mail
             // to continue processing them.
             mailboxExecutor.submit(() -> tryProcessActionTaskForKey(key), "process action task");
+        } else {
+            // Otherwise, all inputs of the current key are released and none is pending.
+            activeKeyStateCache.evict(key);
         }
     }
 
@@ -680,13 +939,26 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
         waitInFlightEventsFinished();
     }
 
+    @VisibleForTesting
+    int getNumOfCachedKeys() {
+        return activeKeyStateCache.getNumOfCachedKeys();
+    }
+
     @VisibleForTesting
     public void waitInFlightEventsFinished() throws Exception {
-        while (listStateNotEmpty(currentProcessingKeysOpState)) {
+        ingestInputBatch();
+        while (!currentProcessingKeyCounts.isEmpty()) {
             mailboxExecutor.yield();
         }
     }
 
+    @Override
+    public void prepareSnapshotPreBarrier(long checkpointId) throws Exception {
+        // The input batch lives on the heap, so it is ingested into the state before a snapshot.
+        ingestInputBatch();
+        super.prepareSnapshotPreBarrier(checkpointId);
+    }
+
     @Override
     public void close() throws Exception {
         if (runnerContext != null) {
@@ -715,7 +987,11 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
             runnerContext.close();
         }
         if (continuationActionExecutor != null) {
-            continuationActionExecutor.close();
+            try {
+                continuationActionExecutor.close();
+            } finally {
+                continuationActionExecutor = null;
+            }
         }
 
         super.close();
@@ -724,6 +1000,7 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
     @Override
     public void initializeState(StateInitializationContext context) throws Exception {
         super.initializeState(context);
+        collectAllKeySeqNums = context.isRestored();
 
         if (actionStateStore != null) {
             List<Object> markers = new ArrayList<>();
@@ -759,6 +1036,20 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
 
     @Override
     public void snapshotState(StateSnapshotContext context) throws Exception {
+        Object currentKey = getCurrentKey();
+        activeKeyStateCache.flush();
+        if (currentKey != null) {
+            setCurrentKey(currentKey);
+        }
+
+        List<Object> currentProcessingKeys = new ArrayList<>();
+        for (Map.Entry<Object, Integer> entry : currentProcessingKeyCounts.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                currentProcessingKeys.add(entry.getKey());
+            }
+        }
+        currentProcessingKeysOpState.update(currentProcessingKeys);
+
         if (actionStateStore != null) {
             Object recoveryMarker = actionStateStore.getRecoveryMarker();
             if (recoveryMarker != null) {
@@ -766,14 +1057,37 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
             }
         }
 
-        HashMap<Object, Long> keyToSeqNum = new HashMap<>();
-        getKeyedStateBackend()
-                .applyToAllKeys(
-                        VoidNamespace.INSTANCE,
-                        VoidNamespaceSerializer.INSTANCE,
-                        new ValueStateDescriptor<>(MESSAGE_SEQUENCE_NUMBER_STATE_NAME, Long.class),
-                        (key, state) -> keyToSeqNum.put(key, state.value()));
-        checkpointIdToSeqNums.put(context.getCheckpointId(), keyToSeqNum);
+        if (actionStateStore != null) {
+            Map<Object, Long> keyToSeqNum = changedKeySeqNums;
+            if (collectAllKeySeqNums) {
+                getKeyedStateBackend()
+                        .applyToAllKeys(
+                                VoidNamespace.INSTANCE,
+                                VoidNamespaceSerializer.INSTANCE,
+                                new ValueStateDescriptor<>(
+                                        MESSAGE_SEQUENCE_NUMBER_STATE_NAME, Long.class),
+                                (key, state) -> keyToSeqNum.put(key, state.value()));
+                collectAllKeySeqNums = false;
+            }
+            // The action states of the inputs still in flight are kept, as these may be recovered
+            // from a later checkpoint.
+            for (Object key : currentProcessingKeyCounts.keySet()) {
+                Long seqNum = keyToSeqNum.get(key);
+                if (seqNum == null) {
+                    continue;
+                }
+                setCurrentKey(key);
+                Long oldestInFlightInput = activeKeyStateCache.getOldestInFlightInput(key);
+                if (oldestInFlightInput != null) {
+                    keyToSeqNum.put(key, Math.min(seqNum, oldestInFlightInput - 1));
+                }
+            }
+            if (currentKey != null) {
+                setCurrentKey(currentKey);
+            }
+            checkpointIdToSeqNums.put(context.getCheckpointId(), keyToSeqNum);
+            changedKeySeqNums = new HashMap<>();
+        }
 
         super.snapshotState(context);
     }
@@ -781,12 +1095,18 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
     @Override
     public void notifyCheckpointComplete(long checkpointId) throws Exception {
         if (actionStateStore != null) {
-            Map<Object, Long> keyToSeqNum =
-                    checkpointIdToSeqNums.getOrDefault(checkpointId, new HashMap<>());
+            // Also prune the keys changed before earlier checkpoints that were not completed, with
+            // the sequence numbers of the latest checkpoint overriding the earlier ones.
+            Map<Long, Map<Object, Long>> completedSeqNums =
+                    checkpointIdToSeqNums.headMap(checkpointId, true);
+            Map<Object, Long> keyToSeqNum = new HashMap<>();
+            for (Map<Object, Long> seqNums : completedSeqNums.values()) {
+                keyToSeqNum.putAll(seqNums);
+            }
             for (Map.Entry<Object, Long> entry : keyToSeqNum.entrySet()) {
                 actionStateStore.pruneState(entry.getKey(), entry.getValue());
             }
-            checkpointIdToSeqNums.remove(checkpointId);
+            completedSeqNums.clear();
         }
         super.notifyCheckpointComplete(checkpointId);
     }
@@ -816,14 +1136,6 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
         }
     }
 
-    private List<Action> getActionsTriggeredBy(Event event) {
-        if (event instanceof PythonEvent) {
-            return agentPlan.getActionsTriggeredBy(((PythonEvent) event).getEventType());
-        } else {
-            return agentPlan.getActionsTriggeredBy(event.getClass().getName());
-        }
-    }
-
     private MailboxProcessor getMailboxProcessor() throws Exception {
         Field field = MailboxExecutorImpl.class.getDeclaredField("mailboxProcessor");
         field.setAccessible(true);
@@ -836,14 +1148,16 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
                 "Expected to be running on the task mailbox thread, but was not.");
     }
 
-    private ActionTask createActionTask(Object key, Action action, Event event) {
-        if (action.getExec() instanceof JavaFunction) {
-            return new JavaActionTask(key, event, action);
-        } else if (action.getExec() instanceof PythonFunction) {
-            return new PythonActionTask(key, event, action);
-        } else {
-            throw new IllegalStateException(
-                    "Unsupported action type: " + action.getExec().getClass());
+    private ActionTask createActionTask(
+            Object key, ActionRef action, Event event, long sequenceNumber) {
+        switch (action.getExecutorKind()) {
+            case JAVA:
+                return new JavaActionTask(key, event, action.getAction(), sequenceNumber);
+            case PYTHON:
+                return new PythonActionTask(key, event, action.getAction(), sequenceNumber);
+            default:
+                throw new IllegalStateException(
+                        "Unsupported executor kind: " + action.getExecutorKind());
         }
     }
 
@@ -864,10 +1178,15 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
             // map.
             memoryContext = actionTaskMemoryContexts.get(actionTask);
         } else {
+            // Inputs of a key processed at the same time each get their own sensory memory.
+            CachedMemoryStore sensoryMemStore =
+                    keyConcurrency > 1
+                            ? new CachedMemoryStore(
+                                    sensoryMemState, actionTask.getSequenceNumber() + ":")
+                            : new CachedMemoryStore(sensoryMemState);
             memoryContext =
                     new RunnerContextImpl.MemoryContext(
-                            new CachedMemoryStore(sensoryMemState),
-                            new CachedMemoryStore(shortTermMemState));
+                            sensoryMemStore, new CachedMemoryStore(shortTermMemState));
         }
 
         runnerContext.switchActionContext(
@@ -883,21 +1202,28 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
                 continuationContext = new ContinuationContext();
             }
             ((JavaRunnerContextImpl) runnerContext).setContinuationContext(continuationContext);
+            ((JavaRunnerContextImpl) runnerContext)
+                    .setInputDeadlineNanos(getInputDeadline(key, actionTask.getSequenceNumber()));
         }
         actionTask.setRunnerContext(runnerContext);
     }
 
     private boolean currentKeyHasMoreActionTask() throws Exception {
-        return listStateNotEmpty(actionTasksKState);
+        return activeKeyStateCache.hasActionTask(getCurrentKey());
     }
 
     private void tryResumeProcessActionTasks() throws Exception {
         Iterable<Object> keys = currentProcessingKeysOpState.get();
         if (keys != null) {
+            Set<Object> resumedKeys = new HashSet<>();
             for (Object key : keys) {
                 keySegmentQueue.addKeyToLastSegment(key);
-                mailboxExecutor.submit(
-                        () -> tryProcessActionTaskForKey(key), "process action task");
+                currentProcessingKeyCounts.merge(key, 1, Integer::sum);
+                // A key contained once for each of its in-flight inputs only needs a single mail.
+                if (resumedKeys.add(key)) {
+                    mailboxExecutor.submit(
+                            () -> tryProcessActionTaskForKey(key), "process action task");
+                }
             }
         }
 
@@ -913,14 +1239,47 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
                                                 event -> keySegmentQueue.addKeyToLastSegment(key)));
     }
 
-    private void initOrIncSequenceNumber() throws Exception {
+    private void maybeStartInputDeadline(Object key, long sequenceNumber) {
+        Long inputTimeoutMs = agentPlan.getConfig().get(INPUT_TIMEOUT_MS);
+        if (inputTimeoutMs != null) {
+            inputDeadlines
+                    .computeIfAbsent(key, k -> new HashMap<>())
+                    .put(sequenceNumber, System.nanoTime() + inputTimeoutMs * 1_000_000L);
+        }
+    }
+
+    @Nullable
+    private Long getInputDeadline(Object key, long sequenceNumber) {
+        Map<Long, Long> keyInputDeadlines = inputDeadlines.get(key);
+        if (keyInputDeadlines == null || !keyInputDeadlines.containsKey(sequenceNumber)) {
+            // The input was restored from a snapshot. The time spent on it before the failover is
+            // unknown, so the deadline restarts from now.
+            maybeStartInputDeadline(key, sequenceNumber);
+            keyInputDeadlines = inputDeadlines.get(key);
+        }
+        return keyInputDeadlines == null ? null : keyInputDeadlines.get(sequenceNumber);
+    }
+
+    private void removeInputDeadline(Object key, long sequenceNumber) {
+        Map<Long, Long> keyInputDeadlines = inputDeadlines.get(key);
+        if (keyInputDeadlines != null) {
+            keyInputDeadlines.remove(sequenceNumber);
+            if (keyInputDeadlines.isEmpty()) {
+                inputDeadlines.remove(key);
+            }
+        }
+    }
+
+    private long initOrIncSequenceNumber() throws Exception {
         // Initialize the sequence number state if it does not exist.
-        Long sequenceNumber = sequenceNumberKState.value();
-        if (sequenceNumber == null) {
-            sequenceNumberKState.update(0L);
-        } else {
-            sequenceNumberKState.update(sequenceNumber + 1);
+        Object key = getCurrentKey();
+        Long sequenceNumber = activeKeyStateCache.getSequenceNumber(key);
+        long newSequenceNumber = sequenceNumber == null ? 0L : sequenceNumber + 1;
+        activeKeyStateCache.setSequenceNumber(key, newSequenceNumber);
+        if (actionStateStore != null) {
+            changedKeySeqNums.put(key, newSequenceNumber);
         }
+        return newSequenceNumber;
     }
 
     private ActionState maybeGetActionState(
@@ -1006,17 +1365,10 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
             durableContext = actionTaskDurableContexts.get(actionTask);
         } else {
             // Create new context for first invocation
-            final long sequenceNumber;
-            try {
-                sequenceNumber = sequenceNumberKState.value();
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to get sequence number from state", e);
-            }
-
             durableContext =
                     new RunnerContextImpl.DurableExecutionContext(
                             actionTask.getKey(),
-                            sequenceNumber,
+                            actionTask.getSequenceNumber(),
                             actionTask.action,
                             actionTask.event,
                             actionState,
@@ -1049,13 +1401,42 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
             super.processWatermark(mark);
             mark = keySegmentQueue.popOldestWatermark();
         }
+        maybeRegisterWatermarkBypassTimer();
+    }
+
+    /**
+     * Registers a timer re-checking the held back watermarks at the time the oldest one may be
+     * emitted before the keys blocking it, unless an earlier timer is already registered.
+     */
+    private void maybeRegisterWatermarkBypassTimer() {
+        long bypassTime = keySegmentQueue.getNextWatermarkBypassTime();
+        if (bypassTime < watermarkBypassTimerTime) {
+            watermarkBypassTimerTime = bypassTime;
+            processingTimeService.registerTimer(
+                    bypassTime,
+                    timestamp -> {
+                        watermarkBypassTimerTime = Long.MAX_VALUE;
+                        processEligibleWatermarks();
+                    });
+        }
+    }
+
+    private SegmentedQueue createSegmentedQueue() {
+        watermarkBypassTimerTime = Long.MAX_VALUE;
+        WatermarkPolicy policy = agentPlan.getConfig().get(WATERMARK_POLICY);
+        long thresholdMs =
+                policy == WatermarkPolicy.EXCLUDE_STUCK_KEYS
+                        ? agentPlan.getConfig().get(WATERMARK_STUCK_KEY_THRESHOLD_MS)
+                        : agentPlan.getConfig().get(WATERMARK_MAX_HOLDBACK_MS);
+        return new SegmentedQueue(
+                policy, thresholdMs, processingTimeService::getCurrentProcessingTime);
     }
 
     private RunnerContextImpl createOrGetRunnerContext(Boolean isJava) {
         if (isJava) {
             if (runnerContext == null) {
                 if (continuationActionExecutor == null) {
-                    continuationActionExecutor = new ContinuationActionExecutor();
+                    continuationActionExecutor = createContinuationActionExecutor();
                 }
                 runnerContext =
                         new JavaRunnerContextImpl(
@@ -1079,6 +1460,33 @@ public class ActionExecutionOperator<IN, OUT> extends AbstractStreamOperator<OUT
         }
     }
 
+    private ContinuationActionExecutor createContinuationActionExecutor() {
+        Integer configuredPoolSize = agentPlan.getConfig().get(ASYNC_EXECUTOR_POOL_SIZE);
+        int poolSize =
+                configuredPoolSize != null
+                        ? configuredPoolSize
+                        : ContinuationActionExecutor.defaultPoolSize();
+        AsyncExecutorType executorType = agentPlan.getConfig().get(ASYNC_EXECUTOR_TYPE);
+        // The shared executor is sized by its own job-level option, not per operator.
+        int executorPoolSize = poolSize;
+        if (executorType == AsyncExecutorType.SHARED) {
+            Integer sharedPoolSize = agentPlan.getConfig().get(ASYNC_SHARED_EXECUTOR_POOL_SIZE);
+            executorPoolSize =
+                    sharedPoolSize != null
+                            ? sharedPoolSize
+                            : ContinuationActionExecutor.defaultPoolSize();
+        }
+        ContinuationActionExecutor executor =
+                new ContinuationActionExecutor(
+                        executorType,
+                        executorPoolSize,
+                        BulkheadConfig.fromConfig(agentPlan.getConfig(), poolSize));
+        if (builtInMetrics != null) {
+            builtInMetrics.registerAsyncExecutorMetrics(executor);
+        }
+        return executor;
+    }
+
     private EventLogger createEventLogger(AgentPlan agentPlan) {
         EventLoggerConfig.Builder loggerConfigBuilder = EventLoggerConfig.builder();
         String baseLogDir = agentPlan.getConfig().get(BASE_LOG_DIR);
@@ -26,6 +26,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -47,6 +48,12 @@ public abstract class ActionTask {
     protected final Object key;
     protected final Event event;
     protected final Action action;
+    /**
+     * The sequence number of the input event this task is processed for. It is not serialized with
+     * the task, so that action tasks persisted before it existed can still be restored, but kept in
+     * a state of its own, see {@link ActiveKeyStateCache}.
+     */
+    protected transient long sequenceNumber;
     /**
      * Since RunnerContextImpl contains references to the Operator and state, it should not be
      * serialized and included in the state with ActionTask. Instead, we should check if a valid
@@ -54,10 +61,11 @@ public abstract class ActionTask {
      */
     protected transient RunnerContextImpl runnerContext;
 
-    public ActionTask(Object key, Event event, Action action) {
+    public ActionTask(Object key, Event event, Action action, long sequenceNumber) {
         this.key = key;
         this.event = event;
         this.action = action;
+        this.sequenceNumber = sequenceNumber;
     }
 
     public RunnerContextImpl getRunnerContext() {
@@ -72,6 +80,14 @@ public abstract class ActionTask {
         return key;
     }
 
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    void setSequenceNumber(long sequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -79,12 +95,13 @@ public abstract class ActionTask {
         ActionTask other = (ActionTask) o;
         return Objects.equals(this.key, other.key)
                 && Objects.equals(this.event, other.event)
-                && Objects.equals(this.action, other.action);
+                && Objects.equals(this.action, other.action)
+                && this.sequenceNumber == other.sequenceNumber;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(key, event, action);
+        return Objects.hash(key, event, action, sequenceNumber);
     }
 
     /** Invokes the action task. */
@@ -94,14 +111,24 @@ public abstract class ActionTask {
     public class ActionTaskResult {
         private final boolean finished;
         private final List<Event> outputEvents;
+        private final List<Event> partialEvents;
         private final Optional<ActionTask> generatedActionTaskOpt;
 
         public ActionTaskResult(
                 boolean finished,
                 List<Event> outputEvents,
                 @Nullable ActionTask generatedActionTask) {
+            this(finished, outputEvents, Collections.emptyList(), generatedActionTask);
+        }
+
+        public ActionTaskResult(
+                boolean finished,
+                List<Event> outputEvents,
+                List<Event> partialEvents,
+                @Nullable ActionTask generatedActionTask) {
             this.finished = finished;
             this.outputEvents = outputEvents;
+            this.partialEvents = partialEvents;
             this.generatedActionTaskOpt = Optional.ofNullable(generatedActionTask);
         }
 
@@ -113,6 +140,14 @@ public abstract class ActionTask {
             return outputEvents;
         }
 
+        /**
+         * Returns the partial events sent by streaming calls, which are processed before the output
+         * events but neither persisted with the result nor replayed on recovery.
+         */
+        public List<Event> getPartialEvents() {
+            return partialEvents;
+        }
+
         public Optional<ActionTask> getGeneratedActionTask() {
             return generatedActionTaskOpt;
         }
@@ -124,6 +159,8 @@ public abstract class ActionTask {
                     + finished
                     + ", outputEvents="
                     + outputEvents
+                    + ", partialEvents="
+                    + partialEvents
                     + ", generatedActionTaskOpt="
                     + generatedActionTaskOpt
                     + '}';
@@ -0,0 +1,337 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.agents.runtime.operator;
+
+import org.apache.flink.agents.api.Event;
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.ValueState;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * A heap cache of the pending action tasks and the sequence number of the keys being processed by
+ * {@link ActionExecutionOperator}.
+ *
+ * <p>Every action task of a key reads and rewrites the pending action tasks of the key and reads
+ * its sequence number. With a remote state backend, each of these accesses is a blocking round trip
+ * on the mailbox thread. This cache loads the state of a key once when it becomes active, serves
+ * the following accesses from the heap, and writes the changes back when the key becomes idle or
+ * before a checkpoint is taken.
+ *
+ * <p>The state of a key is loaded with blocking calls of the synchronous state API, once per
+ * activation of the key rather than once per action task. Its fetches do not overlap with the work
+ * of other keys, as the operator does not run under the key ordering of the asynchronous state API
+ * of Flink 2.x.
+ *
+ * <p>The cache also tracks the in-flight inputs of each key, that is the inputs that are started
+ * but not released yet. An input is completed once it has no pending action task left, and released
+ * once all the inputs of the key started before it are released, so that watermarks are held back
+ * in input order. If outputs are ordered, the outputs of a completed input are held back until it
+ * is released. The state of held-back outputs also records which in-flight inputs are completed,
+ * even if outputs are unordered. The in-flight inputs are not stored on their own but derived from
+ * the pending action tasks and the held-back outputs when a key is loaded.
+ *
+ * <p>All the methods must be called on the mailbox thread, and the methods taking a key must be
+ * called with the current key of the keyed state backend set to it.
+ */
+class ActiveKeyStateCache {
+
+    private final ListState<ActionTask> actionTasksState;
+
+    /**
+     * The sequence numbers of the input events of the pending action tasks, in the same order. They
+     * are not serialized with the action tasks, which keeps the format of these unchanged.
+     */
+    private final ListState<Long> actionTaskSequenceNumbersState;
+
+    private final ValueState<Long> sequenceNumberState;
+
+    /**
+     * The outputs held back for the completed in-flight inputs by their sequence numbers, or null
+     * if only one input of a key is in flight at a time.
+     */
+    @Nullable private final MapState<Long, List<Event>> heldBackOutputsState;
+
+    /** Whether the outputs of an input are held back until the inputs before it are released. */
+    private final boolean orderedOutputs;
+
+    /** Sets the current key of the keyed state backend. */
+    private final Consumer<Object> currentKeySetter;
+
+    private final Map<Object, KeyState> keyStates;
+
+    ActiveKeyStateCache(
+            ListState<ActionTask> actionTasksState,
+            ListState<Long> actionTaskSequenceNumbersState,
+            ValueState<Long> sequenceNumberState,
+            @Nullable MapState<Long, List<Event>> heldBackOutputsState,
+            boolean orderedOutputs,
+            Consumer<Object> currentKeySetter) {
+        this.actionTasksState = actionTasksState;
+        this.actionTaskSequenceNumbersState = actionTaskSequenceNumbersState;
+        this.sequenceNumberState = sequenceNumberState;
+        this.heldBackOutputsState = heldBackOutputsState;
+        this.orderedOutputs = orderedOutputs;
+        this.currentKeySetter = currentKeySetter;
+        this.keyStates = new HashMap<>();
+    }
+
+    /** Removes and returns the first pending action task of the key, or null if there is none. */
+    @Nullable
+    ActionTask pollActionTask(Object key) throws Exception {
+        KeyState keyState = getOrLoad(key);
+        ActionTask actionTask = keyState.actionTasks.poll();
+        if (actionTask != null) {
+            keyState.actionTasksChanged = true;
+        }
+        return actionTask;
+    }
+
+    /** Appends a pending action task to the key. */
+    void addActionTask(Object key, ActionTask actionTask) throws Exception {
+        KeyState keyState = getOrLoad(key);
+        keyState.actionTasks.add(actionTask);
+        keyState.actionTasksChanged = true;
+    }
+
+    /** Checks whether the key has pending action tasks. */
+    boolean hasActionTask(Object key) throws Exception {
+        return !getOrLoad(key).actionTasks.isEmpty();
+    }
+
+    /** Checks whether the key has pending action tasks for the input with the sequence number. */
+    boolean hasActionTask(Object key, long sequenceNumber) throws Exception {
+        for (ActionTask actionTask : getOrLoad(key).actionTasks) {
+            if (actionTask.getSequenceNumber() == sequenceNumber) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the sequence number of the key, or null if it has never been set. */
+    @Nullable
+    Long getSequenceNumber(Object key) throws Exception {
+        return getOrLoad(key).sequenceNumber;
+    }
+
+    void setSequenceNumber(Object key, long sequenceNumber) throws Exception {
+        KeyState keyState = getOrLoad(key);
+        keyState.sequenceNumber = sequenceNumber;
+        keyState.sequenceNumberChanged = true;
+    }
+
+    /** Returns the number of in-flight inputs of the key. */
+    int getNumOfInFlightInputs(Object key) throws Exception {
+        return getOrLoad(key).inFlightInputs.size();
+    }
+
+    /** Returns the sequence number of the oldest in-flight input of the key, or null if none. */
+    @Nullable
+    Long getOldestInFlightInput(Object key) throws Exception {
+        NavigableMap<Long, Boolean> inFlightInputs = getOrLoad(key).inFlightInputs;
+        return inFlightInputs.isEmpty() ? null : inFlightInputs.firstKey();
+    }
+
+    /** Adds an in-flight input to the key. */
+    void startInput(Object key, long sequenceNumber) throws Exception {
+        getOrLoad(key).inFlightInputs.put(sequenceNumber, false);
+    }
+
+    /**
+     * Holds back an output of the in-flight input with the sequence number if outputs are ordered
+     * and inputs started before it are still in flight.
+     *
+     * @return true if the output is held back, false if it can be emitted at once
+     */
+    boolean maybeHoldBackOutput(Object key, long sequenceNumber, Event output) throws Exception {
+        KeyState keyState = getOrLoad(key);
+        if (!orderedOutputs
+                || heldBackOutputsState == null
+                || keyState.inFlightInputs.firstKey() == sequenceNumber) {
+            return false;
+        }
+        keyState.heldBackOutputs
+                .computeIfAbsent(sequenceNumber, k -> new ArrayList<>())
+                .add(output);
+        keyState.heldBackOutputsChanged = true;
+        return true;
+    }
+
+    /**
+     * Completes the in-flight input with the sequence number, and releases the inputs which are
+     * ready to be released.
+     *
+     * @return the outputs held back for the released inputs by their sequence numbers
+     */
+    NavigableMap<Long, List<Event>> completeInput(Object key, long sequenceNumber)
+            throws Exception {
+        KeyState keyState = getOrLoad(key);
+        NavigableMap<Long, List<Event>> released = new TreeMap<>();
+        if (heldBackOutputsState == null) {
+            keyState.inFlightInputs.remove(sequenceNumber);
+            released.put(sequenceNumber, new ArrayList<>());
+            return released;
+        }
+
+        // Keep an entry for the completed input, so that it is known to be completed after a
+        // failover even if it has no output.
+        boolean hasHeldBackOutputs = keyState.heldBackOutputs.containsKey(sequenceNumber);
+        keyState.heldBackOutputs.computeIfAbsent(sequenceNumber, k -> new ArrayList<>());
+        keyState.inFlightInputs.put(sequenceNumber, true);
+        while (!keyState.inFlightInputs.isEmpty()
+                && keyState.inFlightInputs.firstEntry().getValue()) {
+            long releasedSequenceNumber = keyState.inFlightInputs.pollFirstEntry().getKey();
+            released.put(
+                    releasedSequenceNumber,
+                    keyState.heldBackOutputs.remove(releasedSequenceNumber));
+        }
+        keyState.heldBackOutputsChanged |=
+                hasHeldBackOutputs || released.size() != 1 || !released.containsKey(sequenceNumber);
+        return released;
+    }
+
+    /** Returns the number of the keys in the cache. */
+    int getNumOfCachedKeys() {
+        return keyStates.size();
+    }
+
+    /** Writes the changes of the key back to the state and removes it from the cache. */
+    void evict(Object key) throws Exception {
+        KeyState keyState = keyStates.remove(key);
+        if (keyState != null) {
+            write(keyState);
+        }
+    }
+
+    /** Writes the changes of all the cached keys back to the state, keeping them cached. */
+    void flush() throws Exception {
+        for (Map.Entry<Object, KeyState> entry : keyStates.entrySet()) {
+            KeyState keyState = entry.getValue();
+            if (keyState.actionTasksChanged
+                    || keyState.sequenceNumberChanged
+                    || keyState.heldBackOutputsChanged) {
+                currentKeySetter.accept(entry.getKey());
+                write(keyState);
+            }
+        }
+    }
+
+    private KeyState getOrLoad(Object key) throws Exception {
+        KeyState keyState = keyStates.get(key);
+        if (keyState == null) {
+            keyState = new KeyState();
+            Iterable<ActionTask> actionTasks = actionTasksState.get();
+            if (actionTasks != null) {
+                actionTasks.forEach(keyState.actionTasks::add);
+            }
+            keyState.sequenceNumber = sequenceNumberState.value();
+            restoreSequenceNumbers(keyState);
+            if (heldBackOutputsState != null) {
+                Iterable<Map.Entry<Long, List<Event>>> heldBackOutputs =
+                        heldBackOutputsState.entries();
+                if (heldBackOutputs != null) {
+                    for (Map.Entry<Long, List<Event>> entry : heldBackOutputs) {
+                        keyState.heldBackOutputs.put(
+                                entry.getKey(), new ArrayList<>(entry.getValue()));
+                        keyState.inFlightInputs.put(entry.getKey(), true);
+                    }
+                }
+            }
+            for (ActionTask actionTask : keyState.actionTasks) {
+                keyState.inFlightInputs.put(actionTask.getSequenceNumber(), false);
+            }
+            keyStates.put(key, keyState);
+        }
+        return keyState;
+    }
+
+    /**
+     * Sets the sequence numbers of the loaded action tasks. Action tasks persisted without their
+     * sequence numbers belong to the latest input of the key, as only one input of a key was in
+     * flight at a time then.
+     */
+    private void restoreSequenceNumbers(KeyState keyState) throws Exception {
+        if (keyState.actionTasks.isEmpty()) {
+            return;
+        }
+        List<Long> sequenceNumbers = new ArrayList<>();
+        Iterable<Long> storedSequenceNumbers = actionTaskSequenceNumbersState.get();
+        if (storedSequenceNumbers != null) {
+            storedSequenceNumbers.forEach(sequenceNumbers::add);
+        }
+        boolean stored = sequenceNumbers.size() == keyState.actionTasks.size();
+        long latestSequenceNumber = keyState.sequenceNumber != null ? keyState.sequenceNumber : 0L;
+        int i = 0;
+        for (ActionTask actionTask : keyState.actionTasks) {
+            actionTask.setSequenceNumber(stored ? sequenceNumbers.get(i++) : latestSequenceNumber);
+        }
+    }
+
+    private void write(KeyState keyState) throws Exception {
+        if (keyState.actionTasksChanged) {
+            if (keyState.actionTasks.isEmpty()) {
+                actionTasksState.clear();
+                actionTaskSequenceNumbersState.clear();
+            } else {
+                List<Long> sequenceNumbers = new ArrayList<>(keyState.actionTasks.size());
+                for (ActionTask actionTask : keyState.actionTasks) {
+                    sequenceNumbers.add(actionTask.getSequenceNumber());
+                }
+                actionTasksState.update(new ArrayList<>(keyState.actionTasks));
+                actionTaskSequenceNumbersState.update(sequenceNumbers);
+            }
+            keyState.actionTasksChanged = false;
+        }
+        if (keyState.sequenceNumberChanged) {
+            sequenceNumberState.update(keyState.sequenceNumber);
+            keyState.sequenceNumberChanged = false;
+        }
+        if (keyState.heldBackOutputsChanged) {
+            heldBackOutputsState.clear();
+            if (!keyState.heldBackOutputs.isEmpty()) {
+                heldBackOutputsState.putAll(keyState.heldBackOutputs);
+            }
+            keyState.heldBackOutputsChanged = false;
+        }
+    }
+
+    /** The cached state of a key. */
+    private static class KeyState {
+        private final ArrayDeque<ActionTask> actionTasks = new ArrayDeque<>();
+        @Nullable private Long sequenceNumber;
+
+        /** Whether each in-flight input is completed, by the sequence numbers of the inputs. */
+        private final TreeMap<Long, Boolean> inFlightInputs = new TreeMap<>();
+
+        private final Map<Long, List<Event>> heldBackOutputs = new HashMap<>();
+        private boolean actionTasksChanged;
+        private boolean sequenceNumberChanged;
+        private boolean heldBackOutputsChanged;
+    }
+}
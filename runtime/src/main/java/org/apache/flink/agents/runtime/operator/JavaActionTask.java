@@ -24,6 +24,7 @@ import org.apache.flink.agents.runtime.context.JavaRunnerContextImpl;
 import org.apache.flink.agents.runtime.python.utils.PythonActionExecutor;
 
 import java.util.Collections;
+import java.util.List;
 
 import static org.apache.flink.util.Preconditions.checkState;
 
@@ -34,14 +35,18 @@ import static org.apache.flink.util.Preconditions.checkState;
  * code. When the action yields for async execution, this task returns with {@code finished=false}
  * and generates itself as the next task to continue execution.
  *
+ * <p>While the action waits for a streaming call, the partial events the call sends are returned
+ * with the unfinished result, so that they are processed before the action finishes. They are kept
+ * apart from the output events, so that they are not persisted with the result of the action.
+ *
  * <p>On JDK &lt; 21, async execution falls back to synchronous mode.
  */
 public class JavaActionTask extends ActionTask {
 
     private boolean executionStarted = false;
 
-    public JavaActionTask(Object key, Event event, Action action) {
-        super(key, event, action);
+    public JavaActionTask(Object key, Event event, Action action, long sequenceNumber) {
+        super(key, event, action, sequenceNumber);
         checkState(action.getExec() instanceof JavaFunction);
     }
 
@@ -81,11 +86,14 @@ public class JavaActionTask extends ActionTask {
             Thread.currentThread().setContextClassLoader(cl);
         }
 
+        // The partial events of streaming calls are processed while the action is still waiting,
+        // the other events only once it is finished.
+        List<Event> partialEvents = runnerContext.drainPartialEvents(event.getSourceTimestamp());
         if (finished) {
-            return new ActionTaskResult(
-                    true, runnerContext.drainEvents(event.getSourceTimestamp()), null);
+            List<Event> outputEvents = runnerContext.drainEvents(event.getSourceTimestamp());
+            return new ActionTaskResult(true, outputEvents, partialEvents, null);
         } else {
-            return new ActionTaskResult(false, Collections.emptyList(), this);
+            return new ActionTaskResult(false, Collections.emptyList(), partialEvents, this);
         }
     }
 }
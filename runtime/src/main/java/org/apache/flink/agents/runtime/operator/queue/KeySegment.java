@@ -25,8 +25,15 @@ public class KeySegment {
     /** Maps keys to their reference counts (number of unfinished input records). */
     private final Map<Object, Integer> keyReferenceCounts;
 
+    /**
+     * Maps keys to the time they were first added to this segment, only tracked for keys added with
+     * a time.
+     */
+    private final Map<Object, Long> keyAddedTimes;
+
     public KeySegment() {
         this.keyReferenceCounts = new HashMap<>();
+        this.keyAddedTimes = new HashMap<>();
     }
 
     /** Increments the reference count for a key. */
@@ -34,12 +41,27 @@ public class KeySegment {
         keyReferenceCounts.merge(key, 1, Integer::sum);
     }
 
+    /** Increments the reference count for a key, recording the time it was first added. */
+    public void incrementKeyReference(Object key, long addedTime) {
+        addKeyReferences(key, 1, addedTime);
+    }
+
+    /**
+     * Adds the given number of references for a key. The added time of the key is the earlier one
+     * of the given time and the time it was first added.
+     */
+    public void addKeyReferences(Object key, int count, long addedTime) {
+        keyReferenceCounts.merge(key, count, Integer::sum);
+        keyAddedTimes.merge(key, addedTime, Math::min);
+    }
+
     /** Decrements the reference count for a key. Removes the key if the count reaches zero. */
     public void decrementKeyReference(Object key) {
         keyReferenceCounts.computeIfPresent(
                 key,
                 (k, count) -> {
                     if (count <= 1) {
+                        keyAddedTimes.remove(k);
                         return null; // Remove the key if count is 1 or less
                     } else {
                         return count - 1;
@@ -52,12 +74,28 @@ public class KeySegment {
         return keyReferenceCounts.containsKey(key);
     }
 
+    /**
+     * Returns the time the key was first added to this segment, or {@code Long.MAX_VALUE} if it was
+     * added without a time.
+     */
+    public long getKeyAddedTime(Object key) {
+        return keyAddedTimes.getOrDefault(key, Long.MAX_VALUE);
+    }
+
+    /** Returns the number of active keys. */
+    public int size() {
+        return keyReferenceCounts.size();
+    }
+
     /** Checks if the group is empty (no active keys). */
     public boolean isEmpty() {
         return keyReferenceCounts.isEmpty();
     }
 
-    // Package-private getter for test access
+    /**
+     * Returns the reference counts of the active keys, backed by this segment. Used by {@link
+     * SegmentedQueue} to find the keys holding back a watermark.
+     */
     Map<Object, Integer> getKeyReferenceCounts() {
         return keyReferenceCounts;
     }
@@ -17,21 +17,65 @@
  */
 package org.apache.flink.agents.runtime.operator.queue;
 
+import org.apache.flink.agents.api.agents.AgentExecutionOptions.WatermarkPolicy;
+import org.apache.flink.agents.runtime.common.ObjectOpenHashMap;
 import org.apache.flink.streaming.api.watermark.Watermark;
 
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.LongSupplier;
 
+/**
+ * A queue of key segments separated by watermarks, used to hold back each watermark until the
+ * inputs received before it are finished.
+ *
+ * <p>How long a watermark is held back depends on the {@link WatermarkPolicy}. When a watermark is
+ * emitted while keys of the segment before it are unfinished, the references of these keys are
+ * moved to the next segment, and the keys are marked late until these inputs are finished.
+ *
+ * <p>Each key is indexed to the segments holding its references, from the oldest to the newest, so
+ * removing a key does not need to walk the segments.
+ */
 public class SegmentedQueue {
     /** Queue of queue entries segmented by watermarks. */
     private final Deque<KeySegment> segments;
 
+    /** Maps keys to the segments holding their references, from the oldest to the newest. */
+    private final ObjectOpenHashMap<Object, ArrayDeque<KeySegment>> keySegments;
+
     /** Buffer for pending watermarks. */
     private final Deque<Watermark> watermarks;
 
+    /** The time each pending watermark was added, in the same order as the watermarks. */
+    private final Deque<Long> watermarkAddedTimes;
+
+    /** Maps keys to the number of their unfinished inputs that are behind an emitted watermark. */
+    private final Map<Object, Integer> lateKeyReferenceCounts;
+
+    private final WatermarkPolicy policy;
+
+    /** The max holdback of BOUNDED_LAG, or the stuck key threshold of EXCLUDE_STUCK_KEYS. */
+    private final long thresholdMs;
+
+    /** The clock providing the current time in milliseconds. */
+    private final LongSupplier clock;
+
     public SegmentedQueue() {
+        this(WatermarkPolicy.STRICT, Long.MAX_VALUE, System::currentTimeMillis);
+    }
+
+    public SegmentedQueue(WatermarkPolicy policy, long thresholdMs, LongSupplier clock) {
         this.segments = new ArrayDeque<>();
+        this.keySegments = new ObjectOpenHashMap<>();
         this.watermarks = new ArrayDeque<>();
+        this.watermarkAddedTimes = new ArrayDeque<>();
+        this.lateKeyReferenceCounts = new HashMap<>();
+        this.policy = policy;
+        this.thresholdMs = thresholdMs;
+        this.clock = clock;
     }
 
     /** Adds a key to the last key segment. If the queue is empty, a new segment is created. */
@@ -42,7 +86,19 @@ public class SegmentedQueue {
         } else {
             lastSegment = segments.getLast();
         }
-        lastSegment.incrementKeyReference(key);
+        ArrayDeque<KeySegment> segmentsOfKey = keySegments.get(key);
+        if (segmentsOfKey == null) {
+            segmentsOfKey = new ArrayDeque<>(2);
+            keySegments.put(key, segmentsOfKey);
+        }
+        if (segmentsOfKey.peekLast() != lastSegment) {
+            segmentsOfKey.addLast(lastSegment);
+        }
+        if (policy == WatermarkPolicy.EXCLUDE_STUCK_KEYS) {
+            lastSegment.incrementKeyReference(key, clock.getAsLong());
+        } else {
+            lastSegment.incrementKeyReference(key);
+        }
     }
 
     /**
@@ -50,20 +106,30 @@ public class SegmentedQueue {
      * found and removed.
      */
     public boolean removeKey(Object key) {
-        boolean removed = false;
-        for (KeySegment segment : segments) {
-            if (segment.hasActiveKey(key)) {
-                segment.decrementKeyReference(key);
-                removed = true;
-                break;
+        ArrayDeque<KeySegment> segmentsOfKey = keySegments.get(key);
+        if (segmentsOfKey == null) {
+            return false;
+        }
+        KeySegment segment = segmentsOfKey.getFirst();
+        segment.decrementKeyReference(key);
+        if (!segment.hasActiveKey(key)) {
+            segmentsOfKey.removeFirst();
+            if (segmentsOfKey.isEmpty()) {
+                keySegments.remove(key);
             }
         }
-        return removed;
+        if (!lateKeyReferenceCounts.isEmpty()) {
+            // Inputs of a key are finished in order, so the finished one is the oldest.
+            lateKeyReferenceCounts.computeIfPresent(
+                    key, (k, count) -> count <= 1 ? null : count - 1);
+        }
+        return true;
     }
 
     /** Adds a watermark and creates a new segment to associate with it. */
     public void addWatermark(Watermark watermark) {
         watermarks.addLast(watermark);
+        watermarkAddedTimes.addLast(clock.getAsLong());
         appendNewSegment();
     }
 
@@ -81,6 +147,13 @@ public class SegmentedQueue {
     public Watermark popOldestWatermark() {
         if (canProcessWatermark()) {
             segments.pop();
+            watermarkAddedTimes.pop();
+            return watermarks.pop();
+        }
+        if (canBypassWatermark()) {
+            moveFirstSegmentKeysToNextSegment();
+            segments.pop();
+            watermarkAddedTimes.pop();
             return watermarks.pop();
         }
         return null;
@@ -91,16 +164,95 @@ public class SegmentedQueue {
         return isFirstSegmentEmpty() && !watermarks.isEmpty();
     }
 
+    /** Checks if the oldest watermark may be emitted before the keys of the oldest segment. */
+    private boolean canBypassWatermark() {
+        return getNextWatermarkBypassTime() <= clock.getAsLong();
+    }
+
+    /**
+     * Returns the time at which the oldest watermark may be emitted although the keys of the oldest
+     * segment are unfinished, or {@code Long.MAX_VALUE} if there is no such time.
+     */
+    public long getNextWatermarkBypassTime() {
+        if (watermarks.isEmpty() || segments.isEmpty() || segments.getFirst().isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        switch (policy) {
+            case BOUNDED_LAG:
+                return saturatedAdd(watermarkAddedTimes.getFirst(), thresholdMs);
+            case EXCLUDE_STUCK_KEYS:
+                // The watermark is held back until all the keys blocking it are stuck.
+                KeySegment firstSegment = segments.getFirst();
+                long latestAddedTime = Long.MIN_VALUE;
+                for (Object key : firstSegment.getKeyReferenceCounts().keySet()) {
+                    latestAddedTime = Math.max(latestAddedTime, firstSegment.getKeyAddedTime(key));
+                }
+                return saturatedAdd(latestAddedTime, thresholdMs);
+            default:
+                return Long.MAX_VALUE;
+        }
+    }
+
+    /** Moves the references of the keys in the first segment to the second one. */
+    private void moveFirstSegmentKeysToNextSegment() {
+        Iterator<KeySegment> iterator = segments.iterator();
+        KeySegment firstSegment = iterator.next();
+        KeySegment nextSegment = iterator.hasNext() ? iterator.next() : appendNewSegment();
+        for (Map.Entry<Object, Integer> entry : firstSegment.getKeyReferenceCounts().entrySet()) {
+            Object key = entry.getKey();
+            nextSegment.addKeyReferences(key, entry.getValue(), firstSegment.getKeyAddedTime(key));
+            ArrayDeque<KeySegment> segmentsOfKey = keySegments.get(key);
+            segmentsOfKey.removeFirst();
+            if (segmentsOfKey.peekFirst() != nextSegment) {
+                segmentsOfKey.addFirst(nextSegment);
+            }
+            // The references in the first segment are the oldest ones of the key, including the
+            // ones already late.
+            lateKeyReferenceCounts.put(key, entry.getValue());
+        }
+    }
+
+    /** Checks if the key has unfinished inputs that are behind an emitted watermark. */
+    public boolean isLateKey(Object key) {
+        return lateKeyReferenceCounts.containsKey(key);
+    }
+
+    /** Returns how long the oldest pending watermark has been held back in milliseconds. */
+    public long getWatermarkHoldbackMs() {
+        if (watermarks.isEmpty()) {
+            return 0;
+        }
+        return Math.max(0, clock.getAsLong() - watermarkAddedTimes.getFirst());
+    }
+
+    /** Returns the number of keys in the oldest segment holding back the oldest watermark. */
+    public int getNumOfKeysBlockingWatermark() {
+        if (watermarks.isEmpty() || segments.isEmpty()) {
+            return 0;
+        }
+        return segments.getFirst().size();
+    }
+
     /** Checks if the first key segment is empty. */
     private boolean isFirstSegmentEmpty() {
         return !this.segments.isEmpty() && segments.getFirst().isEmpty();
     }
 
+    private static long saturatedAdd(long time, long duration) {
+        long sum = time + duration;
+        return ((time ^ sum) & (duration ^ sum)) < 0 ? Long.MAX_VALUE : sum;
+    }
+
     // Package-private getter for test access
     Deque<KeySegment> getSegments() {
         return segments;
     }
 
+    // Package-private getter for test access
+    int getNumOfIndexedKeys() {
+        return keySegments.size();
+    }
+
     // Package-private getter for test access
     Deque<Watermark> getWatermarks() {
         return watermarks;
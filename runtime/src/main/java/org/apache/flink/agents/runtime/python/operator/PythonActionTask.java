@@ -34,8 +34,8 @@ import static org.apache.flink.util.Preconditions.checkState;
  */
 public class PythonActionTask extends ActionTask {
 
-    public PythonActionTask(Object key, Event event, Action action) {
-        super(key, event, action);
+    public PythonActionTask(Object key, Event event, Action action, long sequenceNumber) {
+        super(key, event, action, sequenceNumber);
         checkState(action.getExec() instanceof PythonFunction);
         checkState(
                 event instanceof PythonEvent,
@@ -61,7 +61,8 @@ public class PythonActionTask extends ActionTask {
             // The Python action generates an awaitable. We need to execute it once, which will
             // submit an asynchronous task and return whether the action has been completed.
             ActionTask tempGeneratedActionTask =
-                    new PythonGeneratorActionTask(key, event, action, pythonAwaitableRef);
+                    new PythonGeneratorActionTask(
+                            key, event, action, sequenceNumber, pythonAwaitableRef);
             tempGeneratedActionTask.setRunnerContext(runnerContext);
             return tempGeneratedActionTask.invoke(userCodeClassLoader, executor);
         }
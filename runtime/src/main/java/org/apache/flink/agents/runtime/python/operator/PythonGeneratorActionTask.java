@@ -27,8 +27,12 @@ public class PythonGeneratorActionTask extends PythonActionTask {
     private final String pythonAwaitableRef;
 
     public PythonGeneratorActionTask(
-            Object key, Event event, Action action, String pythonAwaitableRef) {
-        super(key, event, action);
+            Object key,
+            Event event,
+            Action action,
+            long sequenceNumber,
+            String pythonAwaitableRef) {
+        super(key, event, action, sequenceNumber);
         this.pythonAwaitableRef = pythonAwaitableRef;
     }
 
@@ -20,9 +20,40 @@ package org.apache.flink.agents.runtime.async;
 import jdk.internal.vm.Continuation;
 import jdk.internal.vm.ContinuationScope;
 
+import org.apache.flink.agents.api.agents.AgentExecutionOptions.AsyncExecutorType;
+
+import javax.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,7 +61,9 @@ import org.slf4j.LoggerFactory;
 /**
  * Executor for Java actions that supports asynchronous execution using JDK 21+ Continuation API.
  *
- * <p>This version uses {@code jdk.internal.vm.Continuation} to implement true async execution.
+ * <p>This version uses {@code jdk.internal.vm.Continuation} to implement true async execution. The
+ * async calls are run on the executor selected by {@link AsyncExecutorType}, unless they name one
+ * of the configured bulkheads, each of which has its own threads, concurrency limit and queue.
  */
 public class ContinuationActionExecutor {
 
@@ -38,11 +71,71 @@ public class ContinuationActionExecutor {
 
     private static final ContinuationScope SCOPE = new ContinuationScope("FlinkAgentsAction");
 
-    private final ExecutorService asyncExecutor;
+    private static final Object SHARED_EXECUTOR_LOCK = new Object();
+
+    // The executor shared by all operators loaded by this class loader, and the number of
+    // ContinuationActionExecutors currently using it.
+    private static ExecutorService sharedExecutor;
+    private static int sharedExecutorPoolSize;
+    private static int sharedExecutorRefCount;
+
+    private final AsyncExecutorType executorType;
+
+    private final CallPool defaultPool;
+
+    private final Map<String, CallPool> bulkheads;
+
+    private final AtomicLong timedOutCalls = new AtomicLong();
+
+    private final AtomicLong cancelledCalls = new AtomicLong();
+
+    private boolean closed;
 
     public ContinuationActionExecutor() {
-        this.asyncExecutor =
-                Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+        this(AsyncExecutorType.PLATFORM, defaultPoolSize());
+    }
+
+    public ContinuationActionExecutor(AsyncExecutorType executorType, int poolSize) {
+        this(executorType, poolSize, Collections.emptyList());
+    }
+
+    public ContinuationActionExecutor(
+            AsyncExecutorType executorType,
+            int poolSize,
+            Iterable<BulkheadConfig> bulkheadConfigs) {
+        this.executorType = executorType;
+        switch (executorType) {
+            case VIRTUAL:
+                this.defaultPool =
+                        new CallPool(
+                                Executors.newThreadPerTaskExecutor(
+                                        virtualThreadFactory("flink-agents-async-virtual-")),
+                                Integer.MAX_VALUE);
+                break;
+            case SHARED:
+                this.defaultPool = new CallPool(acquireSharedExecutor(poolSize), poolSize);
+                break;
+            case PLATFORM:
+                this.defaultPool =
+                        new CallPool(
+                                Executors.newFixedThreadPool(
+                                        poolSize, platformThreadFactory("flink-agents-async-")),
+                                poolSize);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported executor type " + executorType);
+        }
+        LOG.info("Created {} async executor with pool size {}.", executorType, poolSize);
+
+        this.bulkheads = new LinkedHashMap<>();
+        for (BulkheadConfig config : bulkheadConfigs) {
+            bulkheads.put(config.getName(), new CallPool(createBulkheadExecutor(config), config));
+            LOG.info(
+                    "Created async bulkhead {} with max concurrency {} and queue capacity {}.",
+                    config.getName(),
+                    config.getMaxConcurrency(),
+                    config.getQueueCapacity());
+        }
     }
 
     /**
@@ -60,13 +153,14 @@ public class ContinuationActionExecutor {
         // Check if we have a pending async Future from previous yield
         Future<?> pending = context.getPendingFuture();
         if (pending != null) {
-            if (!pending.isDone()) {
-                // Async task not done yet, return false to wait
+            if (!pending.isDone() && !context.checkDeadline()) {
+                // Async task not done yet and its deadline not passed, return false to wait
                 return false;
             }
-            // Async task done, clear the pending future and resume
+            // Async task done or cancelled by its deadline, clear the pending future and resume
             LOG.debug("Async task done...");
             context.setPendingFuture(null);
+            context.clearDeadline();
         }
 
         Continuation currentContinuation = context.getCurrentContinuation();
@@ -107,33 +201,278 @@ public class ContinuationActionExecutor {
      * @return the result of the supplier
      * @throws Exception if the async execution fails
      */
-    @SuppressWarnings("unchecked")
     public <T> T executeAsync(ContinuationContext context, Supplier<T> supplier) throws Exception {
+        return executeAsync(context, null, supplier);
+    }
+
+    /**
+     * Asynchronously executes the provided supplier in the given bulkhead using Continuation.
+     *
+     * <p>If the bulkhead is not configured, the supplier runs on the default executor. If the
+     * bulkhead is full and rejects the call, a {@link RejectedExecutionException} is thrown
+     * without yielding.
+     *
+     * @param context the continuation context for this action
+     * @param bulkhead the name of the bulkhead to run the supplier in, may be null
+     * @param supplier the supplier to execute
+     * @param <T> the result type
+     * @return the result of the supplier
+     * @throws Exception if the async execution fails
+     */
+    public <T> T executeAsync(ContinuationContext context, String bulkhead, Supplier<T> supplier)
+            throws Exception {
+        return executeAsync(context, bulkhead, null, supplier);
+    }
+
+    /**
+     * Asynchronously executes the provided supplier in the given bulkhead using Continuation, and
+     * cancels it if it does not complete within the given timeout.
+     *
+     * <p>Once the timeout expired, the next call to executeAction cancels the supplier,
+     * interrupting its thread, and resumes the Continuation, which then throws a {@link
+     * TimeoutException}. If the timeout is not positive, the supplier is not submitted at all.
+     *
+     * @param context the continuation context for this action
+     * @param bulkhead the name of the bulkhead to run the supplier in, may be null
+     * @param timeout the maximum time to wait for the supplier, or null to wait indefinitely
+     * @param supplier the supplier to execute
+     * @param <T> the result type
+     * @return the result of the supplier
+     * @throws Exception if the async execution fails or times out
+     */
+    public <T> T executeAsync(
+            ContinuationContext context,
+            String bulkhead,
+            @Nullable Duration timeout,
+            Supplier<T> supplier)
+            throws Exception {
         // Clear previous state
         context.clearAsyncState();
 
-        // Submit task to thread pool and store the Future
+        if (isExpired(timeout)) {
+            timedOutCalls.incrementAndGet();
+            throw expiredException();
+        }
+
+        CallPool pool = bulkheads.getOrDefault(bulkhead, defaultPool);
+
+        // Submit task to thread pool and store the Future. The outcome is kept per call, as a
+        // call cancelled by its deadline may still complete while the action runs the next one.
+        AtomicReference<T> asyncResult = new AtomicReference<>();
+        AtomicReference<Throwable> asyncException = new AtomicReference<>();
         Future<?> future =
-                asyncExecutor.submit(
+                pool.submit(
                         () -> {
                             try {
-                                T result = supplier.get();
-                                context.getAsyncResultRef().set(result);
+                                asyncResult.set(supplier.get());
                             } catch (Throwable t) {
-                                context.getAsyncExceptionRef().set(t);
+                                asyncException.set(t);
                             }
                         });
 
         // Store the future reference before yielding (volatile write ensures visibility)
         context.setPendingFuture(future);
+        if (timeout != null) {
+            context.setDeadline(
+                    System.nanoTime() + timeout.toNanos(),
+                    () -> {
+                        if (future.cancel(true)) {
+                            timedOutCalls.incrementAndGet();
+                            cancelledCalls.incrementAndGet();
+                        }
+                    });
+        }
 
         // Yield until the future is done
         while (!future.isDone()) {
             Continuation.yield(SCOPE);
         }
 
+        // The future is only cancelled when its deadline passed
+        if (future.isCancelled()) {
+            throw timeoutException(timeout);
+        }
+
         // Check for exception from the async task
-        Throwable exception = context.getAsyncExceptionRef().get();
+        Throwable exception = asyncException.get();
+        if (exception != null) {
+            if (exception instanceof Exception) {
+                throw (Exception) exception;
+            } else if (exception instanceof Error) {
+                throw (Error) exception;
+            } else {
+                throw new RuntimeException(exception);
+            }
+        }
+
+        return asyncResult.get();
+    }
+
+    /**
+     * Waits for the future started by the provided supplier using Continuation, and cancels it if
+     * it does not complete within the given timeout.
+     *
+     * <p>The supplier starts a non-blocking operation on the calling thread, so unlike {@link
+     * #executeAsync}, no thread of an executor is held while waiting. The Continuation yields until
+     * the future is complete. Once the timeout expired, the next call to executeAction cancels the
+     * future and resumes the Continuation, which then throws a {@link TimeoutException}. If the
+     * timeout is not positive, the supplier is not called at all.
+     *
+     * @param context the continuation context for this action
+     * @param timeout the maximum time to wait for the future, or null to wait indefinitely
+     * @param starter the supplier starting the non-blocking operation
+     * @param <T> the result type
+     * @return the result of the future
+     * @throws Exception if the future fails or times out
+     */
+    public <T> T executeNonBlocking(
+            ContinuationContext context,
+            @Nullable Duration timeout,
+            Supplier<CompletableFuture<T>> starter)
+            throws Exception {
+        context.clearAsyncState();
+
+        if (isExpired(timeout)) {
+            timedOutCalls.incrementAndGet();
+            throw expiredException();
+        }
+
+        CompletableFuture<T> future = starter.get();
+        context.setPendingFuture(future);
+        if (timeout != null) {
+            context.setDeadline(
+                    System.nanoTime() + timeout.toNanos(),
+                    () -> {
+                        if (future.cancel(true)) {
+                            timedOutCalls.incrementAndGet();
+                            cancelledCalls.incrementAndGet();
+                        }
+                    });
+        }
+
+        // Yield until the future is done
+        while (!future.isDone()) {
+            Continuation.yield(SCOPE);
+        }
+
+        // Unless cancelled by the operation itself, the future is only cancelled when its
+        // deadline passed
+        if (future.isCancelled() && timeout != null) {
+            throw timeoutException(timeout);
+        }
+
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable exception = e.getCause();
+            if (exception instanceof Exception) {
+                throw (Exception) exception;
+            } else if (exception instanceof Error) {
+                throw (Error) exception;
+            } else {
+                throw new RuntimeException(exception);
+            }
+        }
+    }
+
+    /**
+     * Asynchronously executes the provided streaming task in the given bulkhead using
+     * Continuation, and cancels it if it does not complete within the given timeout.
+     *
+     * <p>Like {@link #executeAsync(ContinuationContext, String, Duration, Supplier)}, the task is
+     * submitted to a thread pool and the Continuation yields. In addition, the Continuation is
+     * resumed whenever the task passes partial results to its consumer, which are then passed to
+     * the given consumer on the thread running the action, in order, before the Continuation yields
+     * again.
+     *
+     * @param context the continuation context for this action
+     * @param bulkhead the name of the bulkhead to run the task in, may be null
+     * @param timeout the maximum time to wait for the task, or null to wait indefinitely
+     * @param task the task to execute, taking the consumer of its partial results
+     * @param onPartial the consumer of the partial results, called on the thread running the action
+     * @param <T> the result type
+     * @param <P> the partial result type
+     * @return the result of the task
+     * @throws Exception if the async execution fails or times out
+     */
+    public <T, P> T executeStreaming(
+            ContinuationContext context,
+            String bulkhead,
+            @Nullable Duration timeout,
+            Function<Consumer<P>, T> task,
+            Consumer<P> onPartial)
+            throws Exception {
+        context.clearAsyncState();
+
+        if (isExpired(timeout)) {
+            timedOutCalls.incrementAndGet();
+            throw expiredException();
+        }
+
+        CallPool pool = bulkheads.getOrDefault(bulkhead, defaultPool);
+
+        // The partial results are handed over through a queue, and each of them, as well as the
+        // completion of the task, completes the future the Continuation is currently waiting for.
+        Queue<P> partials = new ConcurrentLinkedQueue<>();
+        AtomicReference<CompletableFuture<Void>> wakeUp =
+                new AtomicReference<>(new CompletableFuture<>());
+        AtomicBoolean taskDone = new AtomicBoolean();
+        AtomicReference<T> asyncResult = new AtomicReference<>();
+        AtomicReference<Throwable> asyncException = new AtomicReference<>();
+        Future<?> future =
+                pool.submit(
+                        () -> {
+                            try {
+                                asyncResult.set(
+                                        task.apply(
+                                                partial -> {
+                                                    partials.add(partial);
+                                                    wakeUp.get().complete(null);
+                                                }));
+                            } catch (Throwable t) {
+                                asyncException.set(t);
+                            } finally {
+                                taskDone.set(true);
+                                wakeUp.get().complete(null);
+                            }
+                        });
+
+        long deadlineNanos = timeout != null ? System.nanoTime() + timeout.toNanos() : 0L;
+        while (true) {
+            // Install the future to wait for before checking the queue and the completion, so
+            // that no wake-up is lost in between
+            CompletableFuture<Void> wakeUpFuture = new CompletableFuture<>();
+            wakeUp.set(wakeUpFuture);
+            if (partials.isEmpty() && !taskDone.get() && !future.isDone()) {
+                context.setPendingFuture(wakeUpFuture);
+                if (timeout != null) {
+                    context.setDeadline(
+                            deadlineNanos,
+                            () -> {
+                                if (future.cancel(true)) {
+                                    timedOutCalls.incrementAndGet();
+                                    cancelledCalls.incrementAndGet();
+                                }
+                            });
+                }
+                Continuation.yield(SCOPE);
+            }
+
+            // The future is only cancelled when its deadline passed
+            if (future.isCancelled()) {
+                throw timeoutException(timeout);
+            }
+
+            P partial;
+            while ((partial = partials.poll()) != null) {
+                onPartial.accept(partial);
+            }
+            if (taskDone.get()) {
+                break;
+            }
+        }
+
+        Throwable exception = asyncException.get();
         if (exception != null) {
             if (exception instanceof Exception) {
                 throw (Exception) exception;
@@ -143,12 +482,274 @@ public class ContinuationActionExecutor {
                 throw new RuntimeException(exception);
             }
         }
+        return asyncResult.get();
+    }
+
+    /**
+     * Asynchronously executes all the provided suppliers concurrently using Continuation.
+     *
+     * <p>This method submits every supplier to the bulkhead at the same index, or to the default
+     * executor if that bulkhead is not configured, and yields the Continuation once. The action is
+     * resumed when all the suppliers are complete or as soon as one of them fails. In the latter
+     * case, the futures of the other suppliers not yet complete are cancelled, and the suppliers
+     * still running are interrupted.
+     *
+     * @param context the continuation context for this action
+     * @param bulkheadNames the names of the bulkheads to run the suppliers in, may contain nulls
+     * @param suppliers the suppliers to execute
+     * @param <T> the result type
+     * @return the futures of the suppliers, in the order of the given list
+     */
+    public <T> List<CompletableFuture<T>> executeAsyncAll(
+            ContinuationContext context, List<String> bulkheadNames, List<Supplier<T>> suppliers) {
+        return executeAsyncAll(context, bulkheadNames, null, suppliers);
+    }
+
+    /**
+     * Asynchronously executes all the provided suppliers concurrently using Continuation, and
+     * cancels the ones not complete within the given timeout.
+     *
+     * <p>Once the timeout expired, the next call to executeAction cancels the running suppliers,
+     * interrupting their threads, completes their futures with a {@link TimeoutException}, and
+     * resumes the Continuation. If the timeout is not positive, no supplier is submitted at all.
+     *
+     * @param context the continuation context for this action
+     * @param bulkheadNames the names of the bulkheads to run the suppliers in, may contain nulls
+     * @param timeout the maximum time to wait for the suppliers, or null to wait indefinitely
+     * @param suppliers the suppliers to execute
+     * @param <T> the result type
+     * @return the futures of the suppliers, in the order of the given list
+     */
+    public <T> List<CompletableFuture<T>> executeAsyncAll(
+            ContinuationContext context,
+            List<String> bulkheadNames,
+            @Nullable Duration timeout,
+            List<Supplier<T>> suppliers) {
+        return executeAsyncAll(context, bulkheadNames, timeout, Integer.MAX_VALUE, suppliers);
+    }
+
+    /**
+     * Asynchronously executes all the provided suppliers using Continuation, with at most the given
+     * number of them running at the same time, and cancels the ones not complete within the given
+     * timeout.
+     *
+     * <p>The suppliers are submitted in list order. Once the given number of them were submitted,
+     * the next one is submitted as soon as one of them completes, so that a slow supplier does not
+     * hold back the ones after it.
+     *
+     * @param context the continuation context for this action
+     * @param bulkheadNames the names of the bulkheads to run the suppliers in, may contain nulls
+     * @param timeout the maximum time to wait for the suppliers, or null to wait indefinitely
+     * @param maxConcurrency the maximum number of suppliers running at the same time
+     * @param suppliers the suppliers to execute
+     * @param <T> the result type
+     * @return the futures of the suppliers, in the order of the given list
+     */
+    public <T> List<CompletableFuture<T>> executeAsyncAll(
+            ContinuationContext context,
+            List<String> bulkheadNames,
+            @Nullable Duration timeout,
+            int maxConcurrency,
+            List<Supplier<T>> suppliers) {
+        context.clearAsyncState();
+
+        List<CompletableFuture<T>> results = new ArrayList<>(suppliers.size());
+        if (isExpired(timeout)) {
+            for (int i = 0; i < suppliers.size(); i++) {
+                results.add(CompletableFuture.failedFuture(expiredException()));
+            }
+            timedOutCalls.addAndGet(suppliers.size());
+            return results;
+        }
+
+        AsyncAllCalls<T> calls = new AsyncAllCalls<>(bulkheadNames, suppliers, results);
+        for (int i = 0; i < Math.min(maxConcurrency, suppliers.size()); i++) {
+            calls.submitNext();
+        }
+
+        CompletableFuture<Object> pending =
+                CompletableFuture.anyOf(
+                        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])),
+                        calls.firstFailure);
+        context.setPendingFuture(pending);
+        if (timeout != null) {
+            context.setDeadline(
+                    System.nanoTime() + timeout.toNanos(),
+                    () -> {
+                        // Fail the results before cancelling, so that an interrupted supplier
+                        // returning normally can no longer complete its result.
+                        TimeoutException timeoutException = timeoutException(timeout);
+                        for (CompletableFuture<T> result : results) {
+                            if (result.completeExceptionally(timeoutException)) {
+                                timedOutCalls.incrementAndGet();
+                            }
+                        }
+                        calls.cancelSubmitted();
+                    });
+        }
+
+        // Yield until all the suppliers are done, one of them failed or the timeout expired
+        while (!pending.isDone()) {
+            Continuation.yield(SCOPE);
+        }
+
+        // The results of the other suppliers are discarded once one of them failed, so stop the
+        // ones still running. Cancel the results before the tasks, so that an interrupted
+        // supplier returning normally can no longer complete its result.
+        if (calls.firstFailure.isDone()) {
+            for (CompletableFuture<T> result : results) {
+                result.cancel(false);
+            }
+            calls.cancelSubmitted();
+        }
+        return results;
+    }
+
+    /** Returns the number of async calls submitted by this executor and waiting for a thread. */
+    public int getQueuedCallCount() {
+        return defaultPool.queuedCalls.get();
+    }
+
+    /** Returns the number of async calls submitted by this executor and currently running. */
+    public int getActiveCallCount() {
+        return defaultPool.activeCalls.get();
+    }
+
+    /** Returns the number of async calls that did not complete before their deadline. */
+    public long getTimedOutCallCount() {
+        return timedOutCalls.get();
+    }
+
+    /** Returns the number of async calls cancelled after they were submitted. */
+    public long getCancelledCallCount() {
+        return cancelledCalls.get();
+    }
+
+    /** Returns the names of the configured bulkheads. */
+    public Set<String> getBulkheadNames() {
+        return Collections.unmodifiableSet(bulkheads.keySet());
+    }
+
+    /** Returns the number of async calls waiting for a thread in the given bulkhead. */
+    public int getQueuedCallCount(String bulkhead) {
+        return bulkheads.get(bulkhead).queuedCalls.get();
+    }
+
+    /** Returns the number of async calls currently running in the given bulkhead. */
+    public int getActiveCallCount(String bulkhead) {
+        return bulkheads.get(bulkhead).activeCalls.get();
+    }
+
+    /** Returns the number of async calls rejected by the given bulkhead. */
+    public long getRejectedCallCount(String bulkhead) {
+        return bulkheads.get(bulkhead).rejectedCalls.get();
+    }
 
-        return (T) context.getAsyncResultRef().get();
+    /** Returns the ratio of running calls to the max concurrency of the given bulkhead. */
+    public double getSaturation(String bulkhead) {
+        CallPool pool = bulkheads.get(bulkhead);
+        return (double) pool.activeCalls.get() / pool.maxConcurrency;
     }
 
     public void close() {
-        asyncExecutor.shutdownNow();
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (CallPool bulkhead : bulkheads.values()) {
+            bulkhead.executor.shutdownNow();
+        }
+        if (executorType == AsyncExecutorType.SHARED) {
+            releaseSharedExecutor();
+        } else {
+            defaultPool.executor.shutdownNow();
+        }
+    }
+
+    /** Returns the default size of the platform and shared thread pools. */
+    public static int defaultPoolSize() {
+        return Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    private static ExecutorService acquireSharedExecutor(int poolSize) {
+        synchronized (SHARED_EXECUTOR_LOCK) {
+            if (sharedExecutor == null) {
+                sharedExecutor =
+                        Executors.newFixedThreadPool(
+                                poolSize, platformThreadFactory("flink-agents-shared-async-"));
+                sharedExecutorPoolSize = poolSize;
+            } else if (sharedExecutorPoolSize != poolSize) {
+                LOG.warn(
+                        "The shared async executor already has {} threads, ignoring the requested"
+                                + " pool size {}. Set async.shared-executor-pool-size in the job"
+                                + " configuration to size it for all operators.",
+                        sharedExecutorPoolSize,
+                        poolSize);
+            }
+            sharedExecutorRefCount++;
+            return sharedExecutor;
+        }
+    }
+
+    private static void releaseSharedExecutor() {
+        synchronized (SHARED_EXECUTOR_LOCK) {
+            if (--sharedExecutorRefCount == 0) {
+                sharedExecutor.shutdownNow();
+                sharedExecutor = null;
+            }
+        }
+    }
+
+    private static boolean isExpired(@Nullable Duration timeout) {
+        return timeout != null && (timeout.isNegative() || timeout.isZero());
+    }
+
+    private static TimeoutException expiredException() {
+        return new TimeoutException("Async call not submitted, its deadline has already passed.");
+    }
+
+    private static TimeoutException timeoutException(Duration timeout) {
+        return new TimeoutException(
+                String.format("Async call timed out after %d ms.", timeout.toMillis()));
+    }
+
+    private ExecutorService createBulkheadExecutor(BulkheadConfig config) {
+        String prefix = "flink-agents-async-" + config.getName() + "-";
+        ThreadFactory threadFactory =
+                executorType == AsyncExecutorType.VIRTUAL
+                        ? virtualThreadFactory(prefix)
+                        : platformThreadFactory(prefix);
+        BlockingQueue<Runnable> queue;
+        if (config.getQueueCapacity() == 0) {
+            queue = new SynchronousQueue<>();
+        } else if (config.getQueueCapacity() == Integer.MAX_VALUE) {
+            queue = new LinkedBlockingQueue<>();
+        } else {
+            queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        }
+        return new ThreadPoolExecutor(
+                config.getMaxConcurrency(),
+                config.getMaxConcurrency(),
+                0L,
+                TimeUnit.MILLISECONDS,
+                queue,
+                threadFactory,
+                config.getRejectionPolicy() == BulkheadConfig.RejectionPolicy.CALLER_RUNS
+                        ? new ThreadPoolExecutor.CallerRunsPolicy()
+                        : new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        return Thread.ofVirtual().name(prefix, 0).factory();
+    }
+
+    private static ThreadFactory platformThreadFactory(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 
     /**
@@ -159,4 +760,134 @@ public class ContinuationActionExecutor {
     public static boolean isContinuationSupported() {
         return true;
     }
+
+    /**
+     * The suppliers of one executeAsyncAll call, submitted one by one as the previously submitted
+     * ones complete.
+     */
+    private class AsyncAllCalls<T> {
+        private final List<String> bulkheadNames;
+        private final List<Supplier<T>> suppliers;
+        private final List<CompletableFuture<T>> results;
+        private final CompletableFuture<Void> firstFailure = new CompletableFuture<>();
+        private final AtomicInteger nextIndex = new AtomicInteger();
+        // Added to by the threads of the completing suppliers as well.
+        private final Queue<Future<?>> submitted = new ConcurrentLinkedQueue<>();
+
+        private AsyncAllCalls(
+                List<String> bulkheadNames,
+                List<Supplier<T>> suppliers,
+                List<CompletableFuture<T>> results) {
+            this.bulkheadNames = bulkheadNames;
+            this.suppliers = suppliers;
+            this.results = results;
+            for (int i = 0; i < suppliers.size(); i++) {
+                CompletableFuture<T> result = new CompletableFuture<>();
+                result.whenComplete(
+                        (value, t) -> {
+                            if (t != null) {
+                                firstFailure.completeExceptionally(t);
+                            }
+                        });
+                results.add(result);
+            }
+        }
+
+        /** Submits the next supplier, unless all of them were submitted or one of them failed. */
+        private void submitNext() {
+            if (firstFailure.isDone()) {
+                return;
+            }
+            int index = nextIndex.getAndIncrement();
+            if (index >= suppliers.size()) {
+                return;
+            }
+            Supplier<T> supplier = suppliers.get(index);
+            CompletableFuture<T> result = results.get(index);
+            CallPool pool = bulkheads.getOrDefault(bulkheadNames.get(index), defaultPool);
+            try {
+                submitted.add(
+                        pool.submit(
+                                () -> {
+                                    try {
+                                        if (!firstFailure.isDone()) {
+                                            result.complete(supplier.get());
+                                        }
+                                    } catch (Throwable t) {
+                                        result.completeExceptionally(t);
+                                    } finally {
+                                        submitNext();
+                                    }
+                                }));
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void cancelSubmitted() {
+            for (Future<?> future : submitted) {
+                if (future.cancel(true)) {
+                    cancelledCalls.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /** An executor together with the counters of the calls submitted to it. */
+    private static class CallPool {
+        private final ExecutorService executor;
+        private final int maxConcurrency;
+        private final AtomicInteger queuedCalls = new AtomicInteger();
+        private final AtomicInteger activeCalls = new AtomicInteger();
+        private final AtomicLong rejectedCalls = new AtomicLong();
+
+        private CallPool(ExecutorService executor, int maxConcurrency) {
+            this.executor = executor;
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        private CallPool(ExecutorService executor, BulkheadConfig config) {
+            this(executor, config.getMaxConcurrency());
+        }
+
+        private Future<?> submit(Runnable task) {
+            // Whoever sets dequeued first, the task starting or the task being cancelled before it
+            // starts, takes the call out of the queued calls.
+            AtomicBoolean dequeued = new AtomicBoolean();
+            FutureTask<Void> future =
+                    new FutureTask<>(
+                            () -> {
+                                if (dequeued.compareAndSet(false, true)) {
+                                    queuedCalls.decrementAndGet();
+                                }
+                                activeCalls.incrementAndGet();
+                                try {
+                                    task.run();
+                                } finally {
+                                    activeCalls.decrementAndGet();
+                                }
+                            },
+                            null) {
+                        @Override
+                        protected void done() {
+                            if (isCancelled() && dequeued.compareAndSet(false, true)) {
+                                queuedCalls.decrementAndGet();
+                            }
+                        }
+                    };
+            queuedCalls.incrementAndGet();
+            try {
+                executor.execute(future);
+                return future;
+            } catch (RejectedExecutionException e) {
+                queuedCalls.decrementAndGet();
+                rejectedCalls.incrementAndGet();
+                throw new RejectedExecutionException(
+                        String.format(
+                                "Async call rejected, %d calls are running and the queue is full.",
+                                activeCalls.get()),
+                        e);
+            }
+        }
+    }
 }
@@ -20,15 +20,15 @@ package org.apache.flink.agents.runtime.async;
 import jdk.internal.vm.Continuation;
 
 import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicReference;
 
 /** Continuation context with JDK 21 continuation state. */
 public class ContinuationContext {
 
     private Continuation currentContinuation;
     private volatile Future<?> pendingFuture;
-    private final AtomicReference<Object> asyncResult = new AtomicReference<>();
-    private final AtomicReference<Throwable> asyncException = new AtomicReference<>();
+    private boolean hasDeadline;
+    private long deadlineNanos;
+    private Runnable deadlineExceededHandler;
 
     public Continuation getCurrentContinuation() {
         return currentContinuation;
@@ -46,17 +46,40 @@ public class ContinuationContext {
         this.pendingFuture = pendingFuture;
     }
 
-    public AtomicReference<Object> getAsyncResultRef() {
-        return asyncResult;
+    /**
+     * Sets the deadline of the pending async work.
+     *
+     * @param deadlineNanos the deadline, compared against {@link System#nanoTime()}
+     * @param deadlineExceededHandler cancels the pending async work once the deadline passed
+     */
+    public void setDeadline(long deadlineNanos, Runnable deadlineExceededHandler) {
+        this.hasDeadline = true;
+        this.deadlineNanos = deadlineNanos;
+        this.deadlineExceededHandler = deadlineExceededHandler;
     }
 
-    public AtomicReference<Throwable> getAsyncExceptionRef() {
-        return asyncException;
+    /**
+     * Runs the deadline exceeded handler if the deadline of the pending async work has passed.
+     *
+     * @return true if the deadline has passed
+     */
+    public boolean checkDeadline() {
+        if (!hasDeadline || System.nanoTime() - deadlineNanos < 0) {
+            return false;
+        }
+        Runnable handler = deadlineExceededHandler;
+        clearDeadline();
+        handler.run();
+        return true;
+    }
+
+    public void clearDeadline() {
+        hasDeadline = false;
+        deadlineExceededHandler = null;
     }
 
     public void clearAsyncState() {
         pendingFuture = null;
-        asyncResult.set(null);
-        asyncException.set(null);
+        clearDeadline();
     }
 }
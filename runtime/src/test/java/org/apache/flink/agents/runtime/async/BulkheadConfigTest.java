@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.agents.runtime.async;
+
+import org.apache.flink.agents.plan.AgentConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.apache.flink.agents.api.agents.AgentExecutionOptions.ASYNC_BULKHEADS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Tests for {@link BulkheadConfig}. */
+class BulkheadConfigTest {
+
+    @Test
+    void testNoBulkheadsByDefault() {
+        assertThat(BulkheadConfig.fromConfig(new AgentConfiguration(), 8)).isEmpty();
+    }
+
+    @Test
+    void testReadBulkheadsFromConfig() {
+        AgentConfiguration config = new AgentConfiguration();
+        config.set(ASYNC_BULKHEADS, "chat_model, tool");
+        config.setInt("async.bulkhead.tool.max-concurrency", 2);
+        config.setInt("async.bulkhead.tool.queue-capacity", 10);
+        config.setStr("async.bulkhead.tool.rejection-policy", "caller_runs");
+
+        List<BulkheadConfig> bulkheads = BulkheadConfig.fromConfig(config, 8);
+
+        assertThat(bulkheads).hasSize(2);
+        BulkheadConfig chat = bulkheads.get(0);
+        assertThat(chat.getName()).isEqualTo("chat_model");
+        assertThat(chat.getMaxConcurrency()).isEqualTo(8);
+        assertThat(chat.getQueueCapacity()).isEqualTo(Integer.MAX_VALUE);
+        assertThat(chat.getRejectionPolicy()).isEqualTo(BulkheadConfig.RejectionPolicy.FAIL);
+
+        BulkheadConfig tool = bulkheads.get(1);
+        assertThat(tool.getName()).isEqualTo("tool");
+        assertThat(tool.getMaxConcurrency()).isEqualTo(2);
+        assertThat(tool.getQueueCapacity()).isEqualTo(10);
+        assertThat(tool.getRejectionPolicy()).isEqualTo(BulkheadConfig.RejectionPolicy.CALLER_RUNS);
+    }
+
+    @Test
+    void testInvalidMaxConcurrency() {
+        AgentConfiguration config = new AgentConfiguration();
+        config.set(ASYNC_BULKHEADS, "tool");
+        config.setInt("async.bulkhead.tool.max-concurrency", 0);
+
+        assertThatThrownBy(() -> BulkheadConfig.fromConfig(config, 8))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
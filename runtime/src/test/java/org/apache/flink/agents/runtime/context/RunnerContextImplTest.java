@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.agents.runtime.context;
+
+import org.apache.flink.agents.api.OutputEvent;
+import org.apache.flink.agents.api.agents.AgentExecutionOptions;
+import org.apache.flink.agents.plan.AgentConfiguration;
+import org.apache.flink.agents.plan.AgentPlan;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Tests for {@link RunnerContextImpl}. */
+class RunnerContextImplTest {
+
+    /** A payload Jackson cannot serialize, as it has no properties. */
+    private static class NotSerializable {}
+
+    @Test
+    void testSerializabilityCheckedForFirstEventOfClass() {
+        RunnerContextImpl context = createRunnerContext(new AgentConfiguration());
+
+        assertThatThrownBy(() -> context.sendEvent(new OutputEvent(new NotSerializable())))
+                .isInstanceOf(IllegalArgumentException.class);
+        context.sendEvent(new OutputEvent(1L));
+        // The class of the event is known to be serializable, so the event is not checked.
+        context.sendEvent(new OutputEvent(new NotSerializable()));
+
+        assertThat(context.drainEvents(null)).hasSize(2);
+    }
+
+    @Test
+    void testStrictSerializabilityCheck() {
+        AgentConfiguration config = new AgentConfiguration();
+        config.set(AgentExecutionOptions.EVENT_STRICT_SERIALIZABILITY_CHECK, true);
+        RunnerContextImpl context = createRunnerContext(config);
+
+        context.sendEvent(new OutputEvent(1L));
+        assertThatThrownBy(() -> context.sendEvent(new OutputEvent(new NotSerializable())))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(context.drainEvents(null)).hasSize(1);
+    }
+
+    private static RunnerContextImpl createRunnerContext(AgentConfiguration config) {
+        return new RunnerContextImpl(
+                null,
+                () -> {},
+                new AgentPlan(new HashMap<>(), new HashMap<>(), new HashMap<>(), config),
+                "job");
+    }
+}
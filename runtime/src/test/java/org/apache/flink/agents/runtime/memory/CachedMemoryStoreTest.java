@@ -87,4 +87,26 @@ class CachedMemoryStoreTest {
         assertThat(store.get("k1")).isEqualTo(v11);
         assertThat(store.get("k2")).isEqualTo(v2);
     }
+
+    @Test
+    void testStoresWithKeyPrefixShareState() throws Exception {
+        ForTestMemoryMapState<MemoryItem> store = new ForTestMemoryMapState<>();
+        CachedMemoryStore store1 = new CachedMemoryStore(store, "1:");
+        CachedMemoryStore store2 = new CachedMemoryStore(store, "2:");
+        MemoryItem v1 = new MemoryItem(1);
+        MemoryItem v2 = new MemoryItem(2);
+        store1.put("k", v1);
+        store2.put("k", v2);
+        store1.persistCache();
+        store2.persistCache();
+
+        assertThat(store.get("1:k")).isEqualTo(v1);
+        assertThat(store.get("2:k")).isEqualTo(v2);
+        assertThat(new CachedMemoryStore(store, "1:").get("k")).isEqualTo(v1);
+
+        store1.clear();
+
+        assertThat(store1.contains("k")).isFalse();
+        assertThat(store2.get("k")).isEqualTo(v2);
+    }
 }
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.agents.runtime.operator;
+
+import org.apache.flink.agents.api.InputEvent;
+import org.apache.flink.agents.api.OutputEvent;
+import org.apache.flink.agents.api.context.RunnerContext;
+import org.apache.flink.agents.plan.AgentPlan;
+import org.apache.flink.agents.plan.JavaFunction;
+import org.apache.flink.agents.plan.PythonFunction;
+import org.apache.flink.agents.plan.actions.Action;
+import org.apache.flink.agents.runtime.operator.ActionDispatchTable.ActionRef;
+import org.apache.flink.agents.runtime.operator.ActionDispatchTable.ExecutorKind;
+import org.apache.flink.agents.runtime.python.event.PythonEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Tests for {@link ActionDispatchTable}. */
+class ActionDispatchTableTest {
+
+    private static final String PYTHON_EVENT_TYPE = "flink_agents.api.events.event.InputEvent";
+
+    public static void action(InputEvent event, RunnerContext context) {}
+
+    @Test
+    void testDispatchJavaAndPythonEvents() throws Exception {
+        Action javaAction1 = javaAction("javaAction1");
+        Action javaAction2 = javaAction("javaAction2");
+        Action pythonAction =
+                new Action(
+                        "pythonAction",
+                        new PythonFunction("module", "action"),
+                        List.of(PYTHON_EVENT_TYPE));
+        ActionDispatchTable table =
+                new ActionDispatchTable(
+                        createAgentPlan(
+                                Map.of(
+                                        InputEvent.class.getName(),
+                                        List.of(javaAction2, javaAction1),
+                                        PYTHON_EVENT_TYPE,
+                                        List.of(pythonAction))));
+
+        ActionRef[] javaActions = table.getActionsTriggeredBy(new InputEvent(1L));
+        assertThat(javaActions)
+                .extracting(ActionRef::getAction)
+                .containsExactly(javaAction2, javaAction1);
+        assertThat(javaActions)
+                .extracting(ActionRef::getExecutorKind)
+                .containsOnly(ExecutorKind.JAVA);
+        // The actions of an event class are resolved once.
+        assertThat(table.getActionsTriggeredBy(new InputEvent(2L))).isSameAs(javaActions);
+
+        ActionRef[] pythonActions =
+                table.getActionsTriggeredBy(new PythonEvent(new byte[0], PYTHON_EVENT_TYPE, "{}"));
+        assertThat(pythonActions).extracting(ActionRef::getAction).containsExactly(pythonAction);
+        assertThat(pythonActions[0].getExecutorKind()).isEqualTo(ExecutorKind.PYTHON);
+
+        assertThat(table.getActionsTriggeredBy(new OutputEvent(1L))).isEmpty();
+        assertThat(table.getActionsTriggeredBy(new PythonEvent(new byte[0], "unknown", "{}")))
+                .isEmpty();
+    }
+
+    @Test
+    void testIdsAssignedInOrderOfNames() throws Exception {
+        Action javaAction1 = javaAction("javaAction1");
+        Action javaAction2 = javaAction("javaAction2");
+        ActionDispatchTable table =
+                new ActionDispatchTable(
+                        createAgentPlan(
+                                Map.of(
+                                        InputEvent.class.getName(),
+                                        List.of(javaAction2, javaAction1),
+                                        OutputEvent.class.getName(),
+                                        List.of(javaAction2))));
+
+        assertThat(table.getAction(0).getAction()).isSameAs(javaAction1);
+        assertThat(table.getAction(1).getAction()).isSameAs(javaAction2);
+        assertThat(table.getActionsTriggeredBy(new InputEvent(1L)))
+                .extracting(ActionRef::getId)
+                .containsExactly(1, 0);
+        assertThat(table.getEventTypeId(InputEvent.class.getName())).isEqualTo(0);
+        assertThat(table.getEventTypeId(OutputEvent.class.getName())).isEqualTo(1);
+        assertThat(table.getEventTypeId("unknown")).isEqualTo(-1);
+    }
+
+    private static Action javaAction(String name) throws Exception {
+        return new Action(
+                name,
+                new JavaFunction(
+                        ActionDispatchTableTest.class,
+                        "action",
+                        new Class<?>[] {InputEvent.class, RunnerContext.class}),
+                List.of(InputEvent.class.getName()));
+    }
+
+    private static AgentPlan createAgentPlan(Map<String, List<Action>> actionsByEvent) {
+        Map<String, Action> actions = new HashMap<>();
+        for (List<Action> triggeredActions : actionsByEvent.values()) {
+            for (Action action : triggeredActions) {
+                actions.put(action.getName(), action);
+            }
+        }
+        return new AgentPlan(actions, new HashMap<>(actionsByEvent));
+    }
+}
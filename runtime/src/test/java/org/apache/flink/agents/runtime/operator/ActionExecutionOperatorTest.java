@@ -20,8 +20,11 @@ package org.apache.flink.agents.runtime.operator;
 import org.apache.flink.agents.api.Event;
 import org.apache.flink.agents.api.InputEvent;
 import org.apache.flink.agents.api.OutputEvent;
+import org.apache.flink.agents.api.agents.AgentExecutionOptions;
 import org.apache.flink.agents.api.configuration.AgentConfigOptions;
+import org.apache.flink.agents.api.context.DurableAsyncCallable;
 import org.apache.flink.agents.api.context.DurableCallable;
+import org.apache.flink.agents.api.context.DurableStreamingCallable;
 import org.apache.flink.agents.api.context.MemoryObject;
 import org.apache.flink.agents.api.context.RunnerContext;
 import org.apache.flink.agents.plan.AgentConfiguration;
@@ -33,21 +36,33 @@ import org.apache.flink.agents.runtime.actionstate.InMemoryActionStateStore;
 import org.apache.flink.agents.runtime.eventlog.FileEventLogger;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.tasks.mailbox.Mail;
 import org.apache.flink.streaming.runtime.tasks.mailbox.TaskMailbox;
 import org.apache.flink.streaming.util.KeyedOneInputStreamOperatorTestHarness;
 import org.apache.flink.util.ExceptionUtils;
 import org.junit.jupiter.api.Test;
 
+import javax.annotation.Nullable;
+
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -151,6 +166,70 @@ public class ActionExecutionOperatorTest {
         }
     }
 
+    @Test
+    void testKeysWithoutTriggeredActionsAreNotCached() throws Exception {
+        Map<String, List<Action>> actionsByEvent = new HashMap<>();
+        actionsByEvent.put(InputEvent.class.getName(), Collections.emptyList());
+        AgentPlan agentPlan =
+                new AgentPlan(
+                        new HashMap<>(), actionsByEvent, new HashMap<>(), new AgentConfiguration());
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory<>(agentPlan, true),
+                        (KeySelector<Long, Long>) value -> value,
+                        TypeInformation.of(Long.class))) {
+            testHarness.open();
+            ActionExecutionOperator<Long, Object> operator =
+                    (ActionExecutionOperator<Long, Object>) testHarness.getOperator();
+
+            for (long i = 0; i < 1000; i++) {
+                testHarness.processElement(new StreamRecord<>(i));
+            }
+            operator.waitInFlightEventsFinished();
+
+            // The inputs are completed at once, so none of their keys stays in the cache.
+            assertThat(operator.getNumOfCachedKeys()).isEqualTo(0);
+            assertThat(testHarness.getTaskMailbox().size()).isEqualTo(0);
+            assertThat(testHarness.getRecordOutput()).isEmpty();
+        }
+    }
+
+    @Test
+    void testInFlightActionTasksRestoredFromSnapshot() throws Exception {
+        OperatorSubtaskState snapshot;
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory(TestAgent.getAgentPlan(false), true),
+                        (KeySelector<Long, Long>) value -> value,
+                        TypeInformation.of(Long.class))) {
+            testHarness.open();
+
+            testHarness.processElement(new StreamRecord<>(1L));
+            // Execute action1, so that the action task of action2 is pending when the snapshot is
+            // taken.
+            assertMailboxSizeAndRun(testHarness.getTaskMailbox(), 1);
+            snapshot = testHarness.snapshot(1L, 1L);
+            assertThat(testHarness.getRecordOutput()).isEmpty();
+        }
+
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory(TestAgent.getAgentPlan(false), true),
+                        (KeySelector<Long, Long>) value -> value,
+                        TypeInformation.of(Long.class))) {
+            testHarness.initializeState(snapshot);
+            testHarness.open();
+            ActionExecutionOperator<Long, Object> operator =
+                    (ActionExecutionOperator<Long, Object>) testHarness.getOperator();
+            operator.waitInFlightEventsFinished();
+
+            List<StreamRecord<Object>> recordOutput =
+                    (List<StreamRecord<Object>>) testHarness.getRecordOutput();
+            assertThat(recordOutput.size()).isEqualTo(1);
+            assertThat(recordOutput.get(0).getValue()).isEqualTo(4L);
+        }
+    }
+
     @Test
     void testMemoryAccessProhibitedOutsideMailboxThread() throws Exception {
         try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
@@ -229,6 +308,97 @@ public class ActionExecutionOperatorTest {
         }
     }
 
+    @Test
+    void testCheckpointCompletePrunesOnlyChangedKeys() throws Exception {
+        List<String> prunedKeys = new ArrayList<>();
+        InMemoryActionStateStore actionStateStore =
+                new InMemoryActionStateStore(false) {
+                    @Override
+                    public void pruneState(Object key, long seqNum) {
+                        prunedKeys.add(key + "@" + seqNum);
+                    }
+                };
+
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory<>(
+                                TestAgent.getAgentPlan(false), true, actionStateStore),
+                        (KeySelector<Long, Long>) value -> value,
+                        TypeInformation.of(Long.class))) {
+            testHarness.open();
+            ActionExecutionOperator<Long, Object> operator =
+                    (ActionExecutionOperator<Long, Object>) testHarness.getOperator();
+
+            testHarness.processElement(new StreamRecord<>(1L));
+            testHarness.processElement(new StreamRecord<>(2L));
+            operator.waitInFlightEventsFinished();
+            testHarness.snapshot(1L, 1L);
+            prunedKeys.clear();
+            testHarness.notifyOfCompletedCheckpoint(1L);
+            assertThat(prunedKeys).containsExactlyInAnyOrder("1@0", "2@0");
+
+            // Only the key changed since the last checkpoint is pruned.
+            testHarness.processElement(new StreamRecord<>(1L));
+            operator.waitInFlightEventsFinished();
+            testHarness.snapshot(2L, 2L);
+            prunedKeys.clear();
+            testHarness.notifyOfCompletedCheckpoint(2L);
+            assertThat(prunedKeys).containsExactly("1@1");
+
+            // The keys changed before a checkpoint that was not completed are pruned by the next
+            // completed one.
+            testHarness.processElement(new StreamRecord<>(2L));
+            operator.waitInFlightEventsFinished();
+            testHarness.snapshot(3L, 3L);
+            testHarness.processElement(new StreamRecord<>(3L));
+            testHarness.processElement(new StreamRecord<>(2L));
+            operator.waitInFlightEventsFinished();
+            testHarness.snapshot(4L, 4L);
+            prunedKeys.clear();
+            testHarness.notifyOfCompletedCheckpoint(4L);
+            assertThat(prunedKeys).containsExactlyInAnyOrder("2@2", "3@0");
+
+            prunedKeys.clear();
+            testHarness.notifyOfCompletedCheckpoint(3L);
+            assertThat(prunedKeys).isEmpty();
+        }
+    }
+
+    @Test
+    void testCheckpointCompleteKeepsStatesOfInFlightInputs() throws Exception {
+        List<String> prunedKeys = new ArrayList<>();
+        InMemoryActionStateStore actionStateStore =
+                new InMemoryActionStateStore(false) {
+                    @Override
+                    public void pruneState(Object key, long seqNum) {
+                        prunedKeys.add(key + "@" + seqNum);
+                    }
+                };
+        AgentConfiguration config = new AgentConfiguration();
+        config.set(AgentExecutionOptions.KEY_CONCURRENCY, 2);
+
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory<>(
+                                TestAgent.getCountdownAgentPlan(config), true, actionStateStore),
+                        (KeySelector<Long, Long>) value -> 0L,
+                        TypeInformation.of(Long.class))) {
+            testHarness.open();
+
+            testHarness.processElement(new StreamRecord<>(3L));
+            testHarness.processElement(new StreamRecord<>(1L));
+            // Input 1 is completed after six action tasks, while input 3 is still in flight.
+            for (int i = 0; i < 6; i++) {
+                assertMailboxSizeAndRun(testHarness.getTaskMailbox(), 1);
+            }
+            testHarness.snapshot(1L, 1L);
+            prunedKeys.clear();
+            testHarness.notifyOfCompletedCheckpoint(1L);
+            // Neither input is pruned, as input 3 started first.
+            assertThat(prunedKeys).containsExactly("0@-1");
+        }
+    }
+
     @Test
     void testEventLogBaseDirFromAgentConfig() throws Exception {
         String baseLogDir = "/tmp/flink-agents-test";
@@ -785,11 +955,463 @@ public class ActionExecutionOperatorTest {
         }
     }
 
+    /**
+     * Tests that durableExecuteAsyncAll returns the results of all the callables in order, and
+     * recovers each of them from the cached results without calling them again.
+     */
+    @Test
+    void testDurableExecuteAsyncAllRecoveryFromCachedResults() throws Exception {
+        AgentPlan agentPlan = TestAgent.getAsyncAllAgentPlan();
+        InMemoryActionStateStore actionStateStore = new InMemoryActionStateStore(false);
+
+        TestAgent.ASYNC_ALL_CALL_COUNTER.set(0);
+
+        for (int run = 0; run < 2; run++) {
+            try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                    new KeyedOneInputStreamOperatorTestHarness<>(
+                            new ActionExecutionOperatorFactory<>(agentPlan, true, actionStateStore),
+                            (KeySelector<Long, Long>) value -> value,
+                            TypeInformation.of(Long.class))) {
+                testHarness.open();
+                ActionExecutionOperator<Long, Object> operator =
+                        (ActionExecutionOperator<Long, Object>) testHarness.getOperator();
+
+                testHarness.processElement(new StreamRecord<>(4L));
+                operator.waitInFlightEventsFinished();
+
+                List<StreamRecord<Object>> recordOutput =
+                        (List<StreamRecord<Object>>) testHarness.getRecordOutput();
+                assertThat(recordOutput.size()).isEqualTo(1);
+                // Results are returned in the order of the callables: 4 * 1, 4 * 2, 4 * 3
+                assertThat(recordOutput.get(0).getValue()).isEqualTo("4,8,12");
+
+                // Each callable is called once during the first run, and none during recovery
+                assertThat(TestAgent.ASYNC_ALL_CALL_COUNTER.get()).isEqualTo(3);
+            }
+        }
+    }
+
+    /**
+     * Tests that durableExecuteAsyncAll with a failure function returns the outcome of each
+     * callable, and recovers all of them, failed or not, from the cached results.
+     */
+    @Test
+    void testDurableExecuteAsyncAllWithFailuresRecoveryFromCachedResults() throws Exception {
+        AgentPlan agentPlan =
+                TestAgent.getSingleActionAgentPlan(
+                        "asyncAllWithFailuresAction", new AgentConfiguration());
+        InMemoryActionStateStore actionStateStore = new InMemoryActionStateStore(false);
+
+        TestAgent.ASYNC_ALL_CALL_COUNTER.set(0);
+
+        for (int run = 0; run < 2; run++) {
+            try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                    new KeyedOneInputStreamOperatorTestHarness<>(
+                            new ActionExecutionOperatorFactory<>(agentPlan, true, actionStateStore),
+                            (KeySelector<Long, Long>) value -> value,
+                            TypeInformation.of(Long.class))) {
+                testHarness.open();
+                ActionExecutionOperator<Long, Object> operator =
+                        (ActionExecutionOperator<Long, Object>) testHarness.getOperator();
+
+                testHarness.processElement(new StreamRecord<>(4L));
+                operator.waitInFlightEventsFinished();
+
+                List<StreamRecord<Object>> recordOutput =
+                        (List<StreamRecord<Object>>) testHarness.getRecordOutput();
+                assertThat(recordOutput.size()).isEqualTo(1);
+                // The failure of the second callable neither fails nor hides the others
+                assertThat(recordOutput.get(0).getValue()).isEqualTo("4,-1,12");
+
+                // Each callable is called once during the first run, and none during recovery
+                assertThat(TestAgent.ASYNC_ALL_CALL_COUNTER.get()).isEqualTo(3);
+            }
+        }
+    }
+
+    @Test
+    void testDurableExecuteAsyncTimesOutAfterInputDeadline() throws Exception {
+        AgentConfiguration config = new AgentConfiguration();
+        config.set(AgentExecutionOptions.INPUT_TIMEOUT_MS, 0L);
+        assertDurableExecuteAsyncTimesOut(TestAgent.getTimeoutAgentPlan(config, null));
+    }
+
+    @Test
+    void testDurableExecuteAsyncTimesOutWithActionCallTimeout() throws Exception {
+        AgentConfiguration config = new AgentConfiguration();
+        config.set(AgentExecutionOptions.ASYNC_CALL_TIMEOUT_MS, 60_000L);
+        // The timeout of the action overrides the global one.
+        Map<String, Object> actionConfig = new HashMap<>();
+        actionConfig.put(AgentExecutionOptions.ASYNC_CALL_TIMEOUT_MS.getKey(), 0);
+        assertDurableExecuteAsyncTimesOut(TestAgent.getTimeoutAgentPlan(config, actionConfig));
+    }
+
+    @Test
+    void testDurableExecuteAsyncTimesOutWithDeserializedActionCallTimeout() throws Exception {
+        // Action configs deserialized from JSON may hold whole numbers as doubles.
+        Map<String, Object> actionConfig = new HashMap<>();
+        actionConfig.put(AgentExecutionOptions.ASYNC_CALL_TIMEOUT_MS.getKey(), 0.0);
+        assertDurableExecuteAsyncTimesOut(
+                TestAgent.getTimeoutAgentPlan(new AgentConfiguration(), actionConfig));
+    }
+
+    private static void assertDurableExecuteAsyncTimesOut(AgentPlan agentPlan) throws Exception {
+        TestAgent.TIMEOUT_CALL_COUNTER.set(0);
+
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory<>(agentPlan, true),
+                        (KeySelector<Long, Long>) value -> value,
+                        TypeInformation.of(Long.class))) {
+            testHarness.open();
+            ActionExecutionOperator<Long, Object> operator =
+                    (ActionExecutionOperator<Long, Object>) testHarness.getOperator();
+
+            testHarness.processElement(new StreamRecord<>(1L));
+            operator.waitInFlightEventsFinished();
+
+            List<StreamRecord<Object>> recordOutput =
+                    (List<StreamRecord<Object>>) testHarness.getRecordOutput();
+            assertThat(recordOutput.size()).isEqualTo(1);
+            assertThat(recordOutput.get(0).getValue()).isEqualTo("TIMEOUT");
+
+            // A call whose deadline has already passed is never submitted.
+            assertThat(TestAgent.TIMEOUT_CALL_COUNTER.get()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    void testDurableExecuteNonBlockingCall() throws Exception {
+        List<StreamRecord<Object>> recordOutput =
+                runSingleActionAgent("nonBlockingAction", new AgentConfiguration(), 5L);
+        assertThat(recordOutput.size()).isEqualTo(1);
+        assertThat(recordOutput.get(0).getValue()).isEqualTo("50");
+    }
+
+    @Test
+    void testDurableExecuteNonBlockingCallTimesOut() throws Exception {
+        AgentConfiguration config = new AgentConfiguration();
+        config.set(AgentExecutionOptions.ASYNC_CALL_TIMEOUT_MS, 100L);
+        // A negative input starts a call that never completes.
+        List<StreamRecord<Object>> recordOutput =
+                runSingleActionAgent("nonBlockingAction", config, -1L);
+        assertThat(recordOutput.size()).isEqualTo(1);
+        assertThat(recordOutput.get(0).getValue()).isEqualTo("TIMEOUT");
+        assertThat(TestAgent.NON_BLOCKING_FUTURE.get().isCancelled()).isTrue();
+    }
+
+    @Test
+    void testDurableExecuteStreamingSendsPartialEventsFirst() throws Exception {
+        List<StreamRecord<Object>> recordOutput =
+                runSingleActionAgent("streamingAction", new AgentConfiguration(), 5L);
+        assertThat(recordOutput)
+                .extracting(StreamRecord::getValue)
+                .containsExactly("partial-0", "partial-1", "partial-2", "50");
+    }
+
+    @Test
+    void testDurableExecuteStreamingDoesNotPersistPartialEvents() throws Exception {
+        InMemoryActionStateStore actionStateStore = new InMemoryActionStateStore(false);
+
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory<>(
+                                TestAgent.getSingleActionAgentPlan(
+                                        "streamingAction", new AgentConfiguration()),
+                                true,
+                                actionStateStore),
+                        (KeySelector<Long, Long>) value -> value,
+                        TypeInformation.of(Long.class))) {
+            testHarness.open();
+            ActionExecutionOperator<Long, Object> operator =
+                    (ActionExecutionOperator<Long, Object>) testHarness.getOperator();
+
+            testHarness.processElement(new StreamRecord<>(5L));
+            operator.waitInFlightEventsFinished();
+
+            assertThat(testHarness.getRecordOutput()).hasSize(4);
+            List<Event> persistedEvents =
+                    actionStateStore.getKeyedActionStates().get("5").values().stream()
+                            .flatMap(state -> state.getOutputEvents().stream())
+                            .collect(Collectors.toList());
+            assertThat(persistedEvents)
+                    .singleElement()
+                    .extracting(e -> ((OutputEvent) e).getOutput())
+                    .isEqualTo("50");
+        }
+    }
+
+    private static List<StreamRecord<Object>> runSingleActionAgent(
+            String actionName, AgentConfiguration config, long input) throws Exception {
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory<>(
+                                TestAgent.getSingleActionAgentPlan(actionName, config), true),
+                        (KeySelector<Long, Long>) value -> value,
+                        TypeInformation.of(Long.class))) {
+            testHarness.open();
+            ActionExecutionOperator<Long, Object> operator =
+                    (ActionExecutionOperator<Long, Object>) testHarness.getOperator();
+
+            testHarness.processElement(new StreamRecord<>(input));
+            operator.waitInFlightEventsFinished();
+
+            return new ArrayList<>((List<StreamRecord<Object>>) testHarness.getRecordOutput());
+        }
+    }
+
+    @Test
+    void testKeyConcurrencyEmitsOutputsInInputOrder() throws Exception {
+        AgentConfiguration config = new AgentConfiguration();
+        config.set(AgentExecutionOptions.KEY_CONCURRENCY, 2);
+        // Input 3 takes more action tasks than input 1 of the same key, while input 2 waits until
+        // one of them is released.
+        assertThat(processCountdownInputs(config, 3L, 1L, 2L)).containsExactly(3L, 1L, 2L);
+    }
+
+    @Test
+    void testKeyConcurrencyEmitsUnorderedOutputs() throws Exception {
+        AgentConfiguration config = new AgentConfiguration();
+        config.set(AgentExecutionOptions.KEY_CONCURRENCY, 2);
+        config.set(
+                AgentExecutionOptions.KEY_CONCURRENCY_OUTPUT_ORDER,
+                AgentExecutionOptions.OutputOrder.UNORDERED);
+        assertThat(processCountdownInputs(config, 3L, 1L, 2L)).containsExactly(1L, 3L, 2L);
+    }
+
+    @Test
+    void testKeyConcurrencyHoldsBackWatermarkForUnorderedOutputs() throws Exception {
+        AgentConfiguration config = new AgentConfiguration();
+        config.set(AgentExecutionOptions.KEY_CONCURRENCY, 2);
+        config.set(
+                AgentExecutionOptions.KEY_CONCURRENCY_OUTPUT_ORDER,
+                AgentExecutionOptions.OutputOrder.UNORDERED);
+
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory(
+                                TestAgent.getCountdownAgentPlan(config), true),
+                        (KeySelector<Long, Long>) value -> 0L,
+                        TypeInformation.of(Long.class))) {
+            testHarness.open();
+            ActionExecutionOperator<Long, Object> operator =
+                    (ActionExecutionOperator<Long, Object>) testHarness.getOperator();
+
+            testHarness.processElement(new StreamRecord<>(3L, 1L));
+            testHarness.processWatermark(new Watermark(1L));
+            testHarness.processElement(new StreamRecord<>(1L, 2L));
+            testHarness.processWatermark(new Watermark(2L));
+            // Input 1 is completed after six action tasks, while input 3 received before the first
+            // watermark is still in flight, so neither watermark may be emitted yet.
+            for (int i = 0; i < 6; i++) {
+                assertMailboxSizeAndRun(testHarness.getTaskMailbox(), 1);
+            }
+            assertThat(testHarness.getOutput()).hasSize(1);
+            assertThat(testHarness.getOutput().peek()).isInstanceOf(StreamRecord.class);
+
+            operator.waitInFlightEventsFinished();
+            assertThat(testHarness.getOutput()).hasSize(4);
+            assertThat(testHarness.getOutput().toArray())
+                    .endsWith(new Watermark(1L), new Watermark(2L));
+        }
+    }
+
+    @Test
+    void testHeldBackOutputsRestoredFromSnapshot() throws Exception {
+        AgentConfiguration config = new AgentConfiguration();
+        config.set(AgentExecutionOptions.KEY_CONCURRENCY, 2);
+
+        OperatorSubtaskState snapshot;
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory(
+                                TestAgent.getCountdownAgentPlan(config), true),
+                        (KeySelector<Long, Long>) value -> 0L,
+                        TypeInformation.of(Long.class))) {
+            testHarness.open();
+
+            testHarness.processElement(new StreamRecord<>(3L));
+            testHarness.processElement(new StreamRecord<>(1L));
+            // The action tasks of both inputs are interleaved, so input 1 is completed after six
+            // action tasks, while input 3 has two left.
+            for (int i = 0; i < 6; i++) {
+                assertMailboxSizeAndRun(testHarness.getTaskMailbox(), 1);
+            }
+            snapshot = testHarness.snapshot(1L, 1L);
+            assertThat(testHarness.getRecordOutput()).isEmpty();
+        }
+
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory(
+                                TestAgent.getCountdownAgentPlan(config), true),
+                        (KeySelector<Long, Long>) value -> 0L,
+                        TypeInformation.of(Long.class))) {
+            testHarness.initializeState(snapshot);
+            testHarness.open();
+            ActionExecutionOperator<Long, Object> operator =
+                    (ActionExecutionOperator<Long, Object>) testHarness.getOperator();
+            operator.waitInFlightEventsFinished();
+
+            assertThat(
+                            testHarness.getRecordOutput().stream()
+                                    .map(StreamRecord::getValue)
+                                    .collect(Collectors.toList()))
+                    .containsExactly(3L, 1L);
+        }
+    }
+
+    @Test
+    void testKeyConcurrencyRejectsShortTermMemoryAccess() throws Exception {
+        AgentConfiguration config = new AgentConfiguration();
+        config.set(AgentExecutionOptions.KEY_CONCURRENCY, 2);
+
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory(
+                                TestAgent.getAgentPlanWithConfig(config), true),
+                        (KeySelector<Long, Long>) value -> value,
+                        TypeInformation.of(Long.class))) {
+            testHarness.open();
+            ActionExecutionOperator<Long, Object> operator =
+                    (ActionExecutionOperator<Long, Object>) testHarness.getOperator();
+
+            testHarness.processElement(new StreamRecord<>(0L));
+            assertThatThrownBy(() -> operator.waitInFlightEventsFinished())
+                    .hasCauseInstanceOf(ActionExecutionOperator.ActionTaskExecutionException.class)
+                    .rootCause()
+                    .hasMessageContaining("accesses short-term memory");
+        }
+    }
+
+    @Test
+    void testInputBatchIngestedWhenFull() throws Exception {
+        AgentConfiguration config = new AgentConfiguration();
+        config.set(AgentExecutionOptions.INPUT_BATCH_MAX_SIZE, 3);
+        config.set(AgentExecutionOptions.INPUT_BATCH_MAX_DELAY_MS, 60_000L);
+
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory(
+                                TestAgent.getAgentPlanWithConfig(config), true),
+                        (KeySelector<Long, Long>) value -> value,
+                        TypeInformation.of(Long.class))) {
+            testHarness.open();
+
+            testHarness.processElement(new StreamRecord<>(0L));
+            testHarness.processElement(new StreamRecord<>(1L));
+            // The records wait in the batch until it is full.
+            assertMailboxSizeAndRun(testHarness.getTaskMailbox(), 0);
+            testHarness.processElement(new StreamRecord<>(2L));
+            // The action1 of the three keys is scheduled in a single mail.
+            assertMailboxSizeAndRun(testHarness.getTaskMailbox(), 1);
+            // Each key then continues with its own mail to execute action2.
+            assertMailboxSizeAndRun(testHarness.getTaskMailbox(), 3);
+
+            assertThat(
+                            testHarness.getRecordOutput().stream()
+                                    .map(StreamRecord::getValue)
+                                    .collect(Collectors.toList()))
+                    .containsExactly(2L, 4L, 6L);
+        }
+    }
+
+    @Test
+    void testInputBatchIngestedAfterMaxDelay() throws Exception {
+        AgentConfiguration config = new AgentConfiguration();
+        config.set(AgentExecutionOptions.INPUT_BATCH_MAX_SIZE, 100);
+        config.set(AgentExecutionOptions.INPUT_BATCH_MAX_DELAY_MS, 10L);
+
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory(
+                                TestAgent.getAgentPlanWithConfig(config), true),
+                        (KeySelector<Long, Long>) value -> value,
+                        TypeInformation.of(Long.class))) {
+            testHarness.open();
+
+            testHarness.processElement(new StreamRecord<>(0L));
+            testHarness.processElement(new StreamRecord<>(0L));
+            assertMailboxSizeAndRun(testHarness.getTaskMailbox(), 0);
+
+            testHarness.setProcessingTime(10L);
+            runAllMails(testHarness.getTaskMailbox());
+
+            // Both records of the key are ingested together and processed one after another.
+            assertThat(
+                            testHarness.getRecordOutput().stream()
+                                    .map(StreamRecord::getValue)
+                                    .collect(Collectors.toList()))
+                    .containsExactly(2L, 2L);
+        }
+    }
+
+    @Test
+    void testInputBatchIngestedBeforeSnapshot() throws Exception {
+        AgentConfiguration config = new AgentConfiguration();
+        config.set(AgentExecutionOptions.INPUT_BATCH_MAX_SIZE, 100);
+        config.set(AgentExecutionOptions.INPUT_BATCH_MAX_DELAY_MS, 60_000L);
+
+        OperatorSubtaskState snapshot;
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory(
+                                TestAgent.getAgentPlanWithConfig(config), true),
+                        (KeySelector<Long, Long>) value -> value,
+                        TypeInformation.of(Long.class))) {
+            testHarness.open();
+            testHarness.processElement(new StreamRecord<>(1L));
+            // The task always prepares the operator before taking its snapshot.
+            testHarness.prepareSnapshotPreBarrier(1L);
+            snapshot = testHarness.snapshot(1L, 1L);
+        }
+
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory(
+                                TestAgent.getAgentPlanWithConfig(config), true),
+                        (KeySelector<Long, Long>) value -> value,
+                        TypeInformation.of(Long.class))) {
+            testHarness.initializeState(snapshot);
+            testHarness.open();
+            ActionExecutionOperator<Long, Object> operator =
+                    (ActionExecutionOperator<Long, Object>) testHarness.getOperator();
+            operator.waitInFlightEventsFinished();
+
+            List<StreamRecord<Object>> recordOutput =
+                    (List<StreamRecord<Object>>) testHarness.getRecordOutput();
+            assertThat(recordOutput.size()).isEqualTo(1);
+            assertThat(recordOutput.get(0).getValue()).isEqualTo(4L);
+        }
+    }
+
+    private static List<Object> processCountdownInputs(AgentConfiguration config, Long... inputs)
+            throws Exception {
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory(
+                                TestAgent.getCountdownAgentPlan(config), true),
+                        (KeySelector<Long, Long>) value -> 0L,
+                        TypeInformation.of(Long.class))) {
+            testHarness.open();
+            ActionExecutionOperator<Long, Object> operator =
+                    (ActionExecutionOperator<Long, Object>) testHarness.getOperator();
+
+            for (Long input : inputs) {
+                testHarness.processElement(new StreamRecord<>(input));
+            }
+            operator.waitInFlightEventsFinished();
+
+            return testHarness.getRecordOutput().stream()
+                    .map(StreamRecord::getValue)
+                    .collect(Collectors.toList());
+        }
+    }
+
     public static class TestAgent {
 
         /** Counter to track how many times the durable supplier is executed. */
-        public static final java.util.concurrent.atomic.AtomicInteger DURABLE_CALL_COUNTER =
-                new java.util.concurrent.atomic.AtomicInteger(0);
+        public static final AtomicInteger DURABLE_CALL_COUNTER = new AtomicInteger(0);
 
         public static class MiddleEvent extends Event {
             public Long num;
@@ -962,8 +1584,7 @@ public class ActionExecutionOperatorTest {
             }
         }
 
-        public static final java.util.concurrent.atomic.AtomicInteger EXCEPTION_CALL_COUNTER =
-                new java.util.concurrent.atomic.AtomicInteger(0);
+        public static final AtomicInteger EXCEPTION_CALL_COUNTER = new AtomicInteger(0);
 
         public static void durableExceptionAction(InputEvent event, RunnerContext context) {
             try {
@@ -990,6 +1611,98 @@ public class ActionExecutionOperatorTest {
             }
         }
 
+        public static final AtomicInteger ASYNC_ALL_CALL_COUNTER = new AtomicInteger(0);
+
+        public static void asyncAllAction(InputEvent event, RunnerContext context) {
+            Long inputData = (Long) event.getInput();
+            try {
+                List<DurableCallable<Long>> callables = new ArrayList<>();
+                for (long i = 1; i <= 3; i++) {
+                    long factor = i;
+                    callables.add(
+                            new DurableCallable<Long>() {
+                                @Override
+                                public String getId() {
+                                    return "async-all-" + factor;
+                                }
+
+                                @Override
+                                public Class<Long> getResultClass() {
+                                    return Long.class;
+                                }
+
+                                @Override
+                                public Long call() {
+                                    ASYNC_ALL_CALL_COUNTER.incrementAndGet();
+                                    try {
+                                        // The later callables finish first
+                                        Thread.sleep(40 - factor * 10);
+                                    } catch (InterruptedException e) {
+                                        Thread.currentThread().interrupt();
+                                    }
+                                    return inputData * factor;
+                                }
+                            });
+                }
+
+                // At most two callables run at the same time, the third starts once one is done
+                List<Long> results = context.durableExecuteAsyncAll(callables, 2);
+                context.sendEvent(
+                        new OutputEvent(
+                                results.stream()
+                                        .map(String::valueOf)
+                                        .collect(Collectors.joining(","))));
+            } catch (Exception e) {
+                ExceptionUtils.rethrow(e);
+            }
+        }
+
+        public static void asyncAllWithFailuresAction(InputEvent event, RunnerContext context) {
+            Long inputData = (Long) event.getInput();
+            try {
+                List<DurableCallable<Long>> callables = new ArrayList<>();
+                for (long i = 1; i <= 3; i++) {
+                    long factor = i;
+                    callables.add(
+                            new DurableCallable<Long>() {
+                                @Override
+                                public String getId() {
+                                    return "async-all-" + factor;
+                                }
+
+                                @Override
+                                public Class<Long> getResultClass() {
+                                    return Long.class;
+                                }
+
+                                @Override
+                                public Long call() {
+                                    ASYNC_ALL_CALL_COUNTER.incrementAndGet();
+                                    if (factor == 2) {
+                                        throw new IllegalStateException("Failed on " + factor);
+                                    }
+                                    try {
+                                        // The last callable finishes after the failed one
+                                        Thread.sleep(factor * 10);
+                                    } catch (InterruptedException e) {
+                                        Thread.currentThread().interrupt();
+                                    }
+                                    return inputData * factor;
+                                }
+                            });
+                }
+
+                List<Long> results = context.durableExecuteAsyncAll(callables, 3, e -> -1L);
+                context.sendEvent(
+                        new OutputEvent(
+                                results.stream()
+                                        .map(String::valueOf)
+                                        .collect(Collectors.joining(","))));
+            } catch (Exception e) {
+                ExceptionUtils.rethrow(e);
+            }
+        }
+
         public static AgentPlan getAgentPlan(boolean testMemoryAccessOutOfMailbox) {
             return getAgentPlanWithConfig(new AgentConfiguration(), testMemoryAccessOutOfMailbox);
         }
@@ -1131,6 +1844,243 @@ public class ActionExecutionOperatorTest {
             return null;
         }
 
+        public static final AtomicReference<CompletableFuture<Long>> NON_BLOCKING_FUTURE =
+                new AtomicReference<>();
+
+        public static void nonBlockingAction(InputEvent event, RunnerContext context) {
+            Long input = (Long) event.getInput();
+            try {
+                Long result =
+                        context.durableExecuteAsync(
+                                new DurableAsyncCallable<Long>() {
+                                    @Override
+                                    public String getId() {
+                                        return "non-blocking-call";
+                                    }
+
+                                    @Override
+                                    public Class<Long> getResultClass() {
+                                        return Long.class;
+                                    }
+
+                                    @Override
+                                    public CompletableFuture<Long> callAsync() {
+                                        CompletableFuture<Long> future = new CompletableFuture<>();
+                                        if (input >= 0) {
+                                            future.completeAsync(
+                                                    () -> input * 10,
+                                                    CompletableFuture.delayedExecutor(
+                                                            50, TimeUnit.MILLISECONDS));
+                                        }
+                                        NON_BLOCKING_FUTURE.set(future);
+                                        return future;
+                                    }
+                                });
+                context.sendEvent(new OutputEvent(String.valueOf(result)));
+            } catch (TimeoutException e) {
+                context.sendEvent(new OutputEvent("TIMEOUT"));
+            } catch (Exception e) {
+                ExceptionUtils.rethrow(e);
+            }
+        }
+
+        public static void streamingAction(InputEvent event, RunnerContext context) {
+            Long input = (Long) event.getInput();
+            try {
+                Long result =
+                        context.durableExecuteStreaming(
+                                new DurableStreamingCallable<Long>() {
+                                    @Override
+                                    public String getId() {
+                                        return "streaming-call";
+                                    }
+
+                                    @Override
+                                    public Class<Long> getResultClass() {
+                                        return Long.class;
+                                    }
+
+                                    @Override
+                                    public Long call(Consumer<Event> partialEvents) {
+                                        for (int i = 0; i < 3; i++) {
+                                            partialEvents.accept(new OutputEvent("partial-" + i));
+                                        }
+                                        return input * 10;
+                                    }
+                                });
+                context.sendEvent(new OutputEvent(String.valueOf(result)));
+            } catch (Exception e) {
+                ExceptionUtils.rethrow(e);
+            }
+        }
+
+        public static AgentPlan getSingleActionAgentPlan(
+                String actionName, AgentConfiguration config) {
+            try {
+                Action action =
+                        new Action(
+                                actionName,
+                                new JavaFunction(
+                                        TestAgent.class,
+                                        actionName,
+                                        new Class<?>[] {InputEvent.class, RunnerContext.class}),
+                                Collections.singletonList(InputEvent.class.getName()));
+                Map<String, List<Action>> actionsByEvent = new HashMap<>();
+                actionsByEvent.put(InputEvent.class.getName(), Collections.singletonList(action));
+                Map<String, Action> actions = new HashMap<>();
+                actions.put(action.getName(), action);
+
+                return new AgentPlan(actions, actionsByEvent, new HashMap<>(), config);
+            } catch (Exception e) {
+                ExceptionUtils.rethrow(e);
+            }
+            return null;
+        }
+
+        public static final AtomicInteger TIMEOUT_CALL_COUNTER = new AtomicInteger(0);
+
+        public static void timeoutAction(InputEvent event, RunnerContext context) {
+            try {
+                Long result =
+                        context.durableExecuteAsync(
+                                new DurableCallable<Long>() {
+                                    @Override
+                                    public String getId() {
+                                        return "timeout-call";
+                                    }
+
+                                    @Override
+                                    public Class<Long> getResultClass() {
+                                        return Long.class;
+                                    }
+
+                                    @Override
+                                    public Long call() {
+                                        TIMEOUT_CALL_COUNTER.incrementAndGet();
+                                        return (Long) event.getInput();
+                                    }
+                                });
+                context.sendEvent(new OutputEvent(String.valueOf(result)));
+            } catch (TimeoutException e) {
+                context.sendEvent(new OutputEvent("TIMEOUT"));
+            } catch (Exception e) {
+                ExceptionUtils.rethrow(e);
+            }
+        }
+
+        public static AgentPlan getTimeoutAgentPlan(
+                AgentConfiguration config, @Nullable Map<String, Object> actionConfig) {
+            try {
+                Map<String, List<Action>> actionsByEvent = new HashMap<>();
+                Map<String, Action> actions = new HashMap<>();
+
+                Action timeoutAction =
+                        new Action(
+                                "timeoutAction",
+                                new JavaFunction(
+                                        TestAgent.class,
+                                        "timeoutAction",
+                                        new Class<?>[] {InputEvent.class, RunnerContext.class}),
+                                Collections.singletonList(InputEvent.class.getName()),
+                                actionConfig);
+                actionsByEvent.put(
+                        InputEvent.class.getName(), Collections.singletonList(timeoutAction));
+                actions.put(timeoutAction.getName(), timeoutAction);
+
+                return new AgentPlan(actions, actionsByEvent, new HashMap<>(), config);
+            } catch (Exception e) {
+                ExceptionUtils.rethrow(e);
+            }
+            return null;
+        }
+
+        public static void countdownStart(InputEvent event, RunnerContext context) {
+            Long inputData = (Long) event.getInput();
+            try {
+                context.getSensoryMemory().set("input", inputData);
+            } catch (Exception e) {
+                ExceptionUtils.rethrow(e);
+            }
+            context.sendEvent(new MiddleEvent(inputData));
+        }
+
+        public static void countdownStep(MiddleEvent event, RunnerContext context) {
+            if (event.getNum() > 0) {
+                context.sendEvent(new MiddleEvent(event.getNum() - 1));
+                return;
+            }
+            try {
+                // The sensory memory of each input is not visible to the other inputs of the key.
+                context.sendEvent(
+                        new OutputEvent(context.getSensoryMemory().get("input").getValue()));
+            } catch (Exception e) {
+                ExceptionUtils.rethrow(e);
+            }
+        }
+
+        /**
+         * Creates an AgentPlan counting down from the input to zero, one action task per step, and
+         * then emitting the input.
+         */
+        public static AgentPlan getCountdownAgentPlan(AgentConfiguration config) {
+            try {
+                Map<String, List<Action>> actionsByEvent = new HashMap<>();
+                Map<String, Action> actions = new HashMap<>();
+
+                Action countdownStart =
+                        new Action(
+                                "countdownStart",
+                                new JavaFunction(
+                                        TestAgent.class,
+                                        "countdownStart",
+                                        new Class<?>[] {InputEvent.class, RunnerContext.class}),
+                                Collections.singletonList(InputEvent.class.getName()));
+                Action countdownStep =
+                        new Action(
+                                "countdownStep",
+                                new JavaFunction(
+                                        TestAgent.class,
+                                        "countdownStep",
+                                        new Class<?>[] {MiddleEvent.class, RunnerContext.class}),
+                                Collections.singletonList(MiddleEvent.class.getName()));
+                actionsByEvent.put(
+                        InputEvent.class.getName(), Collections.singletonList(countdownStart));
+                actionsByEvent.put(
+                        MiddleEvent.class.getName(), Collections.singletonList(countdownStep));
+                actions.put(countdownStart.getName(), countdownStart);
+                actions.put(countdownStep.getName(), countdownStep);
+
+                return new AgentPlan(actions, actionsByEvent, new HashMap<>(), config);
+            } catch (Exception e) {
+                ExceptionUtils.rethrow(e);
+            }
+            return null;
+        }
+
+        public static AgentPlan getAsyncAllAgentPlan() {
+            try {
+                Map<String, List<Action>> actionsByEvent = new HashMap<>();
+                Map<String, Action> actions = new HashMap<>();
+
+                Action asyncAllAction =
+                        new Action(
+                                "asyncAllAction",
+                                new JavaFunction(
+                                        TestAgent.class,
+                                        "asyncAllAction",
+                                        new Class<?>[] {InputEvent.class, RunnerContext.class}),
+                                Collections.singletonList(InputEvent.class.getName()));
+                actionsByEvent.put(
+                        InputEvent.class.getName(), Collections.singletonList(asyncAllAction));
+                actions.put(asyncAllAction.getName(), asyncAllAction);
+
+                return new AgentPlan(actions, actionsByEvent, new HashMap<>());
+            } catch (Exception e) {
+                ExceptionUtils.rethrow(e);
+            }
+            return null;
+        }
+
         public static AgentPlan getDurableExceptionAgentPlan() {
             try {
                 Map<String, List<Action>> actionsByEvent = new HashMap<>();
@@ -1156,6 +2106,13 @@ public class ActionExecutionOperatorTest {
         }
     }
 
+    private static void runAllMails(TaskMailbox mailbox) throws Exception {
+        Optional<Mail> mail;
+        while ((mail = mailbox.tryTake(TaskMailbox.MIN_PRIORITY)).isPresent()) {
+            mail.get().run();
+        }
+    }
+
     private static void assertMailboxSizeAndRun(TaskMailbox mailbox, int expectedSize)
             throws Exception {
         assertThat(mailbox.size()).isEqualTo(expectedSize);
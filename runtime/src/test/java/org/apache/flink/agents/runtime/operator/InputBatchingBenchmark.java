@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.agents.runtime.operator;
+
+import org.apache.flink.agents.api.InputEvent;
+import org.apache.flink.agents.api.OutputEvent;
+import org.apache.flink.agents.api.agents.AgentExecutionOptions;
+import org.apache.flink.agents.api.context.RunnerContext;
+import org.apache.flink.agents.plan.AgentConfiguration;
+import org.apache.flink.agents.plan.AgentPlan;
+import org.apache.flink.agents.plan.JavaFunction;
+import org.apache.flink.agents.plan.actions.Action;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.util.KeyedOneInputStreamOperatorTestHarness;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the throughput of {@link ActionExecutionOperator} in records per second on a single
+ * core, for an agent with a single cheap action, with and without input batching.
+ *
+ * <p>It is not run as part of the tests. Run it with {@code main}, optionally passing the number of
+ * records, the number of keys and the batch sizes to compare, for example {@code 1000000 10000 1 16
+ * 256}. The results are logged at INFO level, which the test logging configuration turns off, so
+ * run it with a configuration enabling them, e.g. by {@code -Dlog4j2.configurationFile}.
+ */
+public class InputBatchingBenchmark {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InputBatchingBenchmark.class);
+
+    public static void main(String[] args) throws Exception {
+        int numOfRecords = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int numOfKeys = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int[] batchSizes = {1, 16, 256};
+        if (args.length > 2) {
+            batchSizes = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++) {
+                batchSizes[i - 2] = Integer.parseInt(args[i]);
+            }
+        }
+
+        for (int batchSize : batchSizes) {
+            // Warm up the JIT before measuring.
+            run(numOfRecords / 10, numOfKeys, batchSize);
+            long elapsedNanos = run(numOfRecords, numOfKeys, batchSize);
+            LOG.info(
+                    "Batch size {}: {} records/s",
+                    batchSize,
+                    (long) (numOfRecords * 1e9 / elapsedNanos));
+        }
+    }
+
+    private static long run(int numOfRecords, int numOfKeys, int batchSize) throws Exception {
+        AgentConfiguration config = new AgentConfiguration();
+        config.set(AgentExecutionOptions.INPUT_BATCH_MAX_SIZE, batchSize);
+        try (KeyedOneInputStreamOperatorTestHarness<Long, Long, Object> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        new ActionExecutionOperatorFactory<>(getRouteAgentPlan(config), true),
+                        (KeySelector<Long, Long>) value -> value % numOfKeys,
+                        TypeInformation.of(Long.class))) {
+            testHarness.open();
+            ActionExecutionOperator<Long, Object> operator =
+                    (ActionExecutionOperator<Long, Object>) testHarness.getOperator();
+
+            long start = System.nanoTime();
+            for (long i = 0; i < numOfRecords; i++) {
+                testHarness.processElement(new StreamRecord<>(i));
+            }
+            operator.waitInFlightEventsFinished();
+            long elapsedNanos = System.nanoTime() - start;
+
+            if (testHarness.getRecordOutput().size() != numOfRecords) {
+                throw new IllegalStateException(
+                        "Expected "
+                                + numOfRecords
+                                + " outputs, but got "
+                                + testHarness.getRecordOutput().size());
+            }
+            return elapsedNanos;
+        }
+    }
+
+    public static void route(InputEvent event, RunnerContext context) {
+        context.sendEvent(new OutputEvent(event.getInput()));
+    }
+
+    private static AgentPlan getRouteAgentPlan(AgentConfiguration config) throws Exception {
+        Action route =
+                new Action(
+                        "route",
+                        new JavaFunction(
+                                InputBatchingBenchmark.class,
+                                "route",
+                                new Class<?>[] {InputEvent.class, RunnerContext.class}),
+                        Collections.singletonList(InputEvent.class.getName()));
+        Map<String, List<Action>> actionsByEvent = new HashMap<>();
+        actionsByEvent.put(InputEvent.class.getName(), Collections.singletonList(route));
+        Map<String, Action> actions = new HashMap<>();
+        actions.put(route.getName(), route);
+        return new AgentPlan(actions, actionsByEvent, new HashMap<>(), config);
+    }
+}
@@ -17,10 +17,12 @@
  */
 package org.apache.flink.agents.runtime.operator.queue;
 
+import org.apache.flink.agents.api.agents.AgentExecutionOptions.WatermarkPolicy;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.junit.jupiter.api.Test;
 
 import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -208,6 +210,176 @@ class SegmentedQueueTest {
         assertEquals(3000L, popped.getTimestamp());
     }
 
+    @Test
+    void testStrictPolicyHoldsBackWatermark() {
+        AtomicLong clock = new AtomicLong(0);
+        SegmentedQueue queue = new SegmentedQueue(WatermarkPolicy.STRICT, 100, clock::get);
+
+        queue.addKeyToLastSegment("key1");
+        queue.addWatermark(new Watermark(1000L));
+
+        clock.set(10_000);
+        assertNull(queue.popOldestWatermark());
+        assertEquals(Long.MAX_VALUE, queue.getNextWatermarkBypassTime());
+        assertEquals(10_000, queue.getWatermarkHoldbackMs());
+        assertEquals(1, queue.getNumOfKeysBlockingWatermark());
+    }
+
+    @Test
+    void testBoundedLagPolicyEmitsWatermarkAfterMaxHoldback() {
+        AtomicLong clock = new AtomicLong(0);
+        SegmentedQueue queue = new SegmentedQueue(WatermarkPolicy.BOUNDED_LAG, 100, clock::get);
+
+        queue.addKeyToLastSegment("key1");
+        queue.addKeyToLastSegment("key1");
+        queue.addKeyToLastSegment("key2");
+        clock.set(50);
+        queue.addWatermark(new Watermark(1000L));
+        queue.addKeyToLastSegment("key1");
+
+        // The watermark is held back until the max holdback expires.
+        clock.set(149);
+        assertNull(queue.popOldestWatermark());
+        assertEquals(150, queue.getNextWatermarkBypassTime());
+        assertEquals(99, queue.getWatermarkHoldbackMs());
+        assertEquals(2, queue.getNumOfKeysBlockingWatermark());
+        assertFalse(queue.isLateKey("key1"));
+
+        clock.set(150);
+        Watermark popped = queue.popOldestWatermark();
+        assertNotNull(popped);
+        assertEquals(1000L, popped.getTimestamp());
+        assertEquals(0, queue.getWatermarkHoldbackMs());
+        assertEquals(0, queue.getNumOfKeysBlockingWatermark());
+
+        // The unfinished inputs before the watermark are late until they are finished.
+        assertTrue(queue.isLateKey("key1"));
+        assertTrue(queue.isLateKey("key2"));
+        assertTrue(queue.removeKey("key1"));
+        assertTrue(queue.isLateKey("key1"));
+        assertTrue(queue.removeKey("key1"));
+        assertFalse(queue.isLateKey("key1"));
+        assertTrue(queue.removeKey("key2"));
+        assertFalse(queue.isLateKey("key2"));
+
+        // The input after the watermark is still tracked.
+        assertTrue(queue.removeKey("key1"));
+        assertFalse(queue.removeKey("key1"));
+    }
+
+    @Test
+    void testBoundedLagPolicyMovesKeysToNextWatermark() {
+        AtomicLong clock = new AtomicLong(0);
+        SegmentedQueue queue = new SegmentedQueue(WatermarkPolicy.BOUNDED_LAG, 100, clock::get);
+
+        queue.addKeyToLastSegment("key1");
+        queue.addWatermark(new Watermark(1000L));
+        clock.set(80);
+        queue.addWatermark(new Watermark(2000L));
+
+        clock.set(100);
+        assertEquals(1000L, queue.popOldestWatermark().getTimestamp());
+        // The key of the first segment now holds back the second watermark for its own holdback.
+        assertNull(queue.popOldestWatermark());
+        assertEquals(1, queue.getNumOfKeysBlockingWatermark());
+        assertEquals(180, queue.getNextWatermarkBypassTime());
+
+        assertTrue(queue.removeKey("key1"));
+        assertEquals(2000L, queue.popOldestWatermark().getTimestamp());
+    }
+
+    @Test
+    void testExcludeStuckKeysPolicyOnlyExcludesStuckKeys() {
+        AtomicLong clock = new AtomicLong(0);
+        SegmentedQueue queue =
+                new SegmentedQueue(WatermarkPolicy.EXCLUDE_STUCK_KEYS, 100, clock::get);
+
+        queue.addKeyToLastSegment("stuck");
+        clock.set(60);
+        queue.addKeyToLastSegment("slow");
+        queue.addWatermark(new Watermark(1000L));
+
+        // The stuck key no longer holds back the watermark, but the other key does.
+        clock.set(100);
+        assertNull(queue.popOldestWatermark());
+        assertEquals(160, queue.getNextWatermarkBypassTime());
+
+        assertTrue(queue.removeKey("slow"));
+        Watermark popped = queue.popOldestWatermark();
+        assertNotNull(popped);
+        assertEquals(1000L, popped.getTimestamp());
+        assertTrue(queue.isLateKey("stuck"));
+        assertFalse(queue.isLateKey("slow"));
+
+        // The stuck key does not hold back the later watermarks either.
+        queue.addWatermark(new Watermark(2000L));
+        popped = queue.popOldestWatermark();
+        assertNotNull(popped);
+        assertEquals(2000L, popped.getTimestamp());
+
+        assertTrue(queue.removeKey("stuck"));
+        assertFalse(queue.isLateKey("stuck"));
+    }
+
+    @Test
+    void testRemoveKeyAcrossManySegments() {
+        SegmentedQueue queue = new SegmentedQueue();
+        int numOfSegments = 10_000;
+
+        // Each segment holds a key of its own and a key shared by all segments.
+        for (int i = 0; i < numOfSegments; i++) {
+            queue.addKeyToLastSegment("key" + i);
+            queue.addKeyToLastSegment("shared");
+            queue.addWatermark(new Watermark(i));
+        }
+        assertEquals(numOfSegments + 1, queue.getNumOfIndexedKeys());
+
+        // Removing the keys from the newest ones does not release any watermark.
+        for (int i = numOfSegments - 1; i > 0; i--) {
+            assertTrue(queue.removeKey("key" + i));
+        }
+        assertNull(queue.popOldestWatermark());
+
+        // The shared key is removed from its oldest segment first.
+        assertTrue(queue.removeKey("key0"));
+        assertTrue(queue.removeKey("shared"));
+        assertEquals(0L, queue.popOldestWatermark().getTimestamp());
+        assertNull(queue.popOldestWatermark());
+
+        for (int i = 1; i < numOfSegments; i++) {
+            assertTrue(queue.removeKey("shared"));
+            assertEquals(i, queue.popOldestWatermark().getTimestamp());
+        }
+        assertFalse(queue.removeKey("shared"));
+        assertEquals(0, queue.getNumOfIndexedKeys());
+    }
+
+    @Test
+    void testRemoveKeyAfterKeysMovedToNextSegment() {
+        AtomicLong clock = new AtomicLong(0);
+        SegmentedQueue queue = new SegmentedQueue(WatermarkPolicy.BOUNDED_LAG, 100, clock::get);
+
+        queue.addKeyToLastSegment("key1");
+        queue.addWatermark(new Watermark(1000L));
+        queue.addKeyToLastSegment("key2");
+        queue.addWatermark(new Watermark(2000L));
+        queue.addKeyToLastSegment("key1");
+
+        clock.set(100);
+        assertEquals(1000L, queue.popOldestWatermark().getTimestamp());
+        assertEquals(2000L, queue.popOldestWatermark().getTimestamp());
+
+        // Both references of key1 are now in the last segment.
+        assertEquals(1, queue.getSegments().size());
+        assertEquals(2, queue.getSegments().getFirst().getKeyReferenceCounts().get("key1"));
+        assertTrue(queue.removeKey("key1"));
+        assertTrue(queue.removeKey("key2"));
+        assertTrue(queue.removeKey("key1"));
+        assertFalse(queue.removeKey("key1"));
+        assertTrue(queue.getSegments().getFirst().isEmpty());
+        assertEquals(0, queue.getNumOfIndexedKeys());
+    }
+
     // Helper methods to access private fields for testing
     private boolean hasKeyInLastSegment(SegmentedQueue queue, Object key) {
         Deque<KeySegment> segments = queue.getSegments();